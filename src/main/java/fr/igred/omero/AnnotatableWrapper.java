@@ -47,11 +47,13 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
 
 import static fr.igred.omero.exception.ExceptionHandler.call;
 import static java.util.Collections.singletonList;
@@ -66,6 +68,9 @@ import static java.util.stream.Collectors.toMap;
  */
 public abstract class AnnotatableWrapper<T extends DataObject> extends GenericObjectWrapper<T> {
 
+    /** Maximum number of objects whose annotations are requested at once */
+    public static final int ANNOTATION_BATCH_SIZE = 500;
+
     /**
      * Constructor of the class GenericRepositoryObjectWrapper.
      *
@@ -462,7 +467,7 @@ public abstract class AnnotatableWrapper<T extends DataObject> extends GenericOb
      */
     public List<RatingAnnotationWrapper> getRatings(Client client)
     throws ServiceException, AccessException, ExecutionException {
-        return getRatings(client, null);
+        return getRatings(client, (List<Long>) null);
     }
 
 
@@ -977,4 +982,237 @@ public abstract class AnnotatableWrapper<T extends DataObject> extends GenericOb
         }
     }
 
+
+    /**
+     * Retrieves the annotations linked to several objects of the same type, with one call per
+     * {@link #ANNOTATION_BATCH_SIZE} objects.
+     *
+     * @param client  The client handling the connection.
+     * @param objects The objects.
+     * @param types   The annotation types (can be null, i. e. all types).
+     * @param userIds List of user IDs (can be null, i. e. all users).
+     *
+     * @return The annotations for each object ID, in the order of the objects.
+     *
+     * @throws ServiceException         Cannot connect to OMERO.
+     * @throws AccessException          Cannot access data.
+     * @throws ExecutionException       A Facility can't be retrieved or instantiated.
+     * @throws IllegalArgumentException The objects are not all of the same type.
+     */
+    private static Map<Long, List<AnnotationData>>
+    getAnnotationData(Client client,
+                      Collection<? extends AnnotatableWrapper<?>> objects,
+                      List<Class<? extends AnnotationData>> types,
+                      List<Long> userIds)
+    throws ServiceException, AccessException, ExecutionException {
+        List<DataObject> objectData = objects.stream()
+                                             .map(AnnotatableWrapper::asDataObject)
+                                             .collect(toList());
+        long nTypes = objectData.stream().map(Object::getClass).distinct().count();
+        if (nTypes > 1) {
+            throw new IllegalArgumentException("Objects must all be of the same type");
+        }
+
+        Map<Long, List<AnnotationData>> annotations = new LinkedHashMap<>(objectData.size());
+        objectData.forEach(o -> annotations.put(o.getId(), new ArrayList<>(0)));
+        for (int i = 0; i < objectData.size(); i += ANNOTATION_BATCH_SIZE) {
+            List<DataObject> batch = objectData.subList(i, Math.min(objectData.size(), i + ANNOTATION_BATCH_SIZE));
+
+            Map<DataObject, List<AnnotationData>> loaded = call(client.getMetadata(),
+                                                                m -> m.getAnnotations(client.getCtx(),
+                                                                                      batch,
+                                                                                      types,
+                                                                                      userIds),
+                                                                "Cannot get annotations for "
+                                                                + batch.size() + " objects");
+            loaded.forEach((o, a) -> {
+                if (a != null) {
+                    annotations.computeIfAbsent(o.getId(), id -> new ArrayList<>(a.size())).addAll(a);
+                }
+            });
+        }
+        return annotations;
+    }
+
+
+    /**
+     * Retrieves the annotations of a given type linked to several objects, wraps and sorts them.
+     *
+     * @param client   The client handling the connection.
+     * @param objects  The objects.
+     * @param type     The annotation type.
+     * @param userIds  List of user IDs (can be null, i. e. all users).
+     * @param wrapper  Function wrapping the annotation data.
+     * @param <D>      Subclass of {@link AnnotationData}.
+     * @param <W>      Subclass of {@link GenericAnnotationWrapper}.
+     *
+     * @return The wrapped annotations for each object ID, sorted by annotation ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    private static <D extends AnnotationData, W extends GenericAnnotationWrapper<D>> Map<Long, List<W>>
+    getAnnotations(Client client,
+                   Collection<? extends AnnotatableWrapper<?>> objects,
+                   Class<D> type,
+                   List<Long> userIds,
+                   Function<? super D, ? extends W> wrapper)
+    throws ServiceException, AccessException, ExecutionException {
+        List<Class<? extends AnnotationData>> types = singletonList(type);
+
+        Map<Long, List<AnnotationData>> annotations = getAnnotationData(client, objects, types, userIds);
+
+        Map<Long, List<W>> wrapped = new LinkedHashMap<>(annotations.size());
+        annotations.forEach((id, a) -> wrapped.put(id, a.stream()
+                                                        .filter(type::isInstance)
+                                                        .map(type::cast)
+                                                        .map(wrapper)
+                                                        .sorted(Comparator.comparing(W::getId))
+                                                        .collect(toList())));
+        return wrapped;
+    }
+
+
+    /**
+     * Gets all tags linked to several objects of the same type in OMERO, with one call per
+     * {@link #ANNOTATION_BATCH_SIZE} objects.
+     *
+     * @param client  The client handling the connection.
+     * @param objects The objects.
+     *
+     * @return The tags for each object ID.
+     *
+     * @throws ServiceException         Cannot connect to OMERO.
+     * @throws AccessException          Cannot access data.
+     * @throws ExecutionException       A Facility can't be retrieved or instantiated.
+     * @throws IllegalArgumentException The objects are not all of the same type.
+     */
+    public static Map<Long, List<TagAnnotationWrapper>>
+    getTags(Client client, Collection<? extends AnnotatableWrapper<?>> objects)
+    throws ServiceException, AccessException, ExecutionException {
+        return getAnnotations(client, objects, TagAnnotationData.class, null, TagAnnotationWrapper::new);
+    }
+
+
+    /**
+     * Gets all map annotations linked to several objects of the same type in OMERO, with one call per
+     * {@link #ANNOTATION_BATCH_SIZE} objects.
+     *
+     * @param client  The client handling the connection.
+     * @param objects The objects.
+     *
+     * @return The map annotations for each object ID.
+     *
+     * @throws ServiceException         Cannot connect to OMERO.
+     * @throws AccessException          Cannot access data.
+     * @throws ExecutionException       A Facility can't be retrieved or instantiated.
+     * @throws IllegalArgumentException The objects are not all of the same type.
+     */
+    public static Map<Long, List<MapAnnotationWrapper>>
+    getMapAnnotations(Client client, Collection<? extends AnnotatableWrapper<?>> objects)
+    throws ServiceException, AccessException, ExecutionException {
+        return getAnnotations(client, objects, MapAnnotationData.class, null, MapAnnotationWrapper::new);
+    }
+
+
+    /**
+     * Gets the key-value pairs linked to several objects of the same type in OMERO, with one call per
+     * {@link #ANNOTATION_BATCH_SIZE} objects.
+     *
+     * @param client  The client handling the connection.
+     * @param objects The objects.
+     *
+     * @return The key-value pairs for each object ID.
+     *
+     * @throws ServiceException         Cannot connect to OMERO.
+     * @throws AccessException          Cannot access data.
+     * @throws ExecutionException       A Facility can't be retrieved or instantiated.
+     * @throws IllegalArgumentException The objects are not all of the same type.
+     */
+    public static Map<Long, Map<String, String>>
+    getKeyValuePairs(Client client, Collection<? extends AnnotatableWrapper<?>> objects)
+    throws ServiceException, AccessException, ExecutionException {
+        Map<Long, List<MapAnnotationWrapper>> maps = getMapAnnotations(client, objects);
+
+        Map<Long, Map<String, String>> pairs = new LinkedHashMap<>(maps.size());
+        maps.forEach((id, m) -> pairs.put(id, m.stream()
+                                               .map(MapAnnotationWrapper::getContent)
+                                               .flatMap(List::stream)
+                                               .collect(toMap(nv -> nv.name,
+                                                              nv -> nv.value))));
+        return pairs;
+    }
+
+
+    /**
+     * Gets all file annotations linked to several objects of the same type in OMERO, with one call per
+     * {@link #ANNOTATION_BATCH_SIZE} objects.
+     *
+     * @param client  The client handling the connection.
+     * @param objects The objects.
+     *
+     * @return The file annotations for each object ID.
+     *
+     * @throws ServiceException         Cannot connect to OMERO.
+     * @throws AccessException          Cannot access data.
+     * @throws ExecutionException       A Facility can't be retrieved or instantiated.
+     * @throws IllegalArgumentException The objects are not all of the same type.
+     */
+    public static Map<Long, List<FileAnnotationWrapper>>
+    getFileAnnotations(Client client, Collection<? extends AnnotatableWrapper<?>> objects)
+    throws ServiceException, AccessException, ExecutionException {
+        return getAnnotations(client, objects, FileAnnotationData.class, null, FileAnnotationWrapper::new);
+    }
+
+
+    /**
+     * Gets the ratings from all users linked to several objects of the same type in OMERO, with one call per
+     * {@link #ANNOTATION_BATCH_SIZE} objects.
+     *
+     * @param client  The client handling the connection.
+     * @param objects The objects.
+     *
+     * @return The ratings for each object ID.
+     *
+     * @throws ServiceException         Cannot connect to OMERO.
+     * @throws AccessException          Cannot access data.
+     * @throws ExecutionException       A Facility can't be retrieved or instantiated.
+     * @throws IllegalArgumentException The objects are not all of the same type.
+     */
+    public static Map<Long, List<RatingAnnotationWrapper>>
+    getRatings(Client client, Collection<? extends AnnotatableWrapper<?>> objects)
+    throws ServiceException, AccessException, ExecutionException {
+        return getAnnotations(client, objects, RatingAnnotationData.class, null, RatingAnnotationWrapper::new);
+    }
+
+
+    /**
+     * Retrieves the annotations (of known types) linked to several objects of the same type in OMERO, with one call
+     * per {@link #ANNOTATION_BATCH_SIZE} objects.
+     *
+     * @param client  The client handling the connection.
+     * @param objects The objects.
+     *
+     * @return The annotations for each object ID.
+     *
+     * @throws ServiceException         Cannot connect to OMERO.
+     * @throws AccessException          Cannot access data.
+     * @throws ExecutionException       A Facility can't be retrieved or instantiated.
+     * @throws IllegalArgumentException The objects are not all of the same type.
+     */
+    public static Map<Long, AnnotationList>
+    getAnnotations(Client client, Collection<? extends AnnotatableWrapper<?>> objects)
+    throws ServiceException, AccessException, ExecutionException {
+        Map<Long, List<AnnotationData>> annotations = getAnnotationData(client, objects, null, null);
+
+        Map<Long, AnnotationList> wrapped = new LinkedHashMap<>(annotations.size());
+        annotations.forEach((id, a) -> {
+            AnnotationList list = new AnnotationList(a.size());
+            a.forEach(list::add);
+            wrapped.put(id, list);
+        });
+        return wrapped;
+    }
+
 }
@@ -34,8 +34,12 @@ import fr.igred.omero.repository.ProjectWrapper;
 import fr.igred.omero.repository.ScreenWrapper;
 import fr.igred.omero.repository.WellWrapper;
 import omero.RLong;
+import omero.RType;
+import omero.ServerError;
+import omero.api.ThumbnailStorePrx;
 import omero.gateway.Gateway;
 import omero.gateway.SecurityContext;
+import omero.gateway.exception.DSOutOfServiceException;
 import omero.gateway.model.DatasetData;
 import omero.gateway.model.FolderData;
 import omero.gateway.model.ImageData;
@@ -47,22 +51,35 @@ import omero.gateway.model.TagAnnotationData;
 import omero.gateway.model.WellData;
 import omero.model.IObject;
 import omero.model.TagAnnotation;
+import omero.sys.ParametersI;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import static fr.igred.omero.GenericObjectWrapper.flatten;
 import static fr.igred.omero.GenericObjectWrapper.wrap;
 import static fr.igred.omero.exception.ExceptionHandler.call;
 import static java.lang.String.format;
 import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
+import static omero.rtypes.rint;
+import static omero.rtypes.rlong;
+import static omero.rtypes.rstring;
 
 
 /**
@@ -70,6 +87,9 @@ import static java.util.Objects.requireNonNull;
  */
 public abstract class Browser extends GatewayWrapper {
 
+    /** Maximum number of thumbnails requested at once */
+    public static final int THUMBNAIL_BATCH_SIZE = 100;
+
 
     /**
      * Constructor of the Browser class.
@@ -257,6 +277,64 @@ public abstract class Browser extends GatewayWrapper {
     }
 
 
+    /**
+     * Gets a page of the datasets available from OMERO, with IDs greater than the specified one.
+     * <p>Pages are retrieved with a keyset pagination on ID: the next page starts after the last ID of this one.</p>
+     *
+     * @param afterId The ID after which datasets are retrieved (-1 to start from the beginning).
+     * @param limit   The maximum number of datasets returned.
+     *
+     * @return The datasets, sorted by ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<DatasetWrapper> getDatasetsPage(long afterId, int limit)
+    throws ServiceException, AccessException, ExecutionException {
+        return loadDatasetsPage(afterId, limit).getObjects();
+    }
+
+
+    /**
+     * Loads a page of the datasets available from OMERO, with IDs greater than the specified one, along with the last
+     * ID queried.
+     *
+     * @param afterId The ID after which datasets are retrieved.
+     * @param limit   The maximum number of dataset IDs queried.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    private PagedIterator.Page<DatasetWrapper> loadDatasetsPage(long afterId, int limit)
+    throws ServiceException, AccessException, ExecutionException {
+        Long[]               ids      = findIdsAfter("Dataset", null, new ParametersI(), afterId, limit);
+        List<DatasetWrapper> datasets = new ArrayList<>(0);
+        if (ids.length > 0) {
+            datasets = getDatasets(ids);
+            datasets.sort(Comparator.comparing(GenericObjectWrapper::getId));
+        }
+        return PagedIterator.Page.of(datasets, ids);
+    }
+
+
+    /**
+     * Streams the datasets available from OMERO, sorted by ID.
+     * <p>Datasets are retrieved and wrapped lazily, one page at a time. Errors occurring while a page is retrieved
+     * are thrown as {@link fr.igred.omero.exception.UncheckedOMEROException}.</p>
+     *
+     * @param pageSize The number of datasets retrieved at once.
+     *
+     * @return See above.
+     */
+    public Stream<DatasetWrapper> streamDatasets(int pageSize) {
+        return PagedIterator.stream(this::loadDatasetsPage, pageSize);
+    }
+
+
     /**
      * Gets all datasets available from OMERO owned by a given user.
      *
@@ -416,6 +494,66 @@ public abstract class Browser extends GatewayWrapper {
     }
 
 
+    /**
+     * Gets a page of the images owned by the current user, with IDs greater than the specified one.
+     * <p>Pages are retrieved with a keyset pagination on ID: the next page starts after the last ID of this one.</p>
+     *
+     * @param afterId The ID after which images are retrieved (-1 to start from the beginning).
+     * @param limit   The maximum number of images returned.
+     *
+     * @return The images, sorted by ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<ImageWrapper> getImagesPage(long afterId, int limit)
+    throws ServiceException, AccessException, ExecutionException {
+        return loadImagesPage(afterId, limit).getObjects();
+    }
+
+
+    /**
+     * Loads a page of the images owned by the current user, with IDs greater than the specified one, along with the
+     * last ID queried.
+     *
+     * @param afterId The ID after which images are retrieved.
+     * @param limit   The maximum number of image IDs queried.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    private PagedIterator.Page<ImageWrapper> loadImagesPage(long afterId, int limit)
+    throws ServiceException, AccessException, ExecutionException {
+        ParametersI params = new ParametersI();
+        params.add("owner", rlong(getCtx().getExperimenter()));
+        Long[]             ids    = findIdsAfter("Image", "o.details.owner.id = :owner", params, afterId, limit);
+        List<ImageWrapper> images = new ArrayList<>(0);
+        if (ids.length > 0) {
+            images = getImages(ids);
+            images.sort(Comparator.comparing(GenericObjectWrapper::getId));
+        }
+        return PagedIterator.Page.of(images, ids);
+    }
+
+
+    /**
+     * Streams the images owned by the current user, sorted by ID.
+     * <p>Images are retrieved and wrapped lazily, one page at a time. Errors occurring while a page is retrieved
+     * are thrown as {@link fr.igred.omero.exception.UncheckedOMEROException}.</p>
+     *
+     * @param pageSize The number of images retrieved at once.
+     *
+     * @return See above.
+     */
+    public Stream<ImageWrapper> streamImages(int pageSize) {
+        return PagedIterator.stream(this::loadImagesPage, pageSize);
+    }
+
+
     /**
      * Gets all images with a certain name from OMERO.
      *
@@ -510,6 +648,9 @@ public abstract class Browser extends GatewayWrapper {
 
     /**
      * Gets all images with a certain motif in their name from OMERO.
+     * <p>If the motif does not contain any regular expression metacharacter, the search is done on the server (see
+     * {@link #getImagesLike(NamePattern)}). Otherwise, all the images of the user are retrieved and their names are
+     * matched against the motif locally.</p>
      *
      * @param motif Motif searched in an image name.
      *
@@ -521,6 +662,9 @@ public abstract class Browser extends GatewayWrapper {
      */
     public List<ImageWrapper> getImagesLike(String motif)
     throws ServiceException, AccessException, ExecutionException {
+        if (NamePattern.isLiteral(motif)) {
+            return getImagesLike(NamePattern.contains(motif));
+        }
         List<ImageWrapper> images = getImages();
         String             regexp = ".*" + motif + ".*";
         images.removeIf(image -> !image.getName().matches(regexp));
@@ -528,6 +672,203 @@ public abstract class Browser extends GatewayWrapper {
     }
 
 
+    /**
+     * Gets all images owned by the current user with a name matching the pattern, searching on the server.
+     *
+     * @param pattern The name pattern.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<ImageWrapper> getImagesLike(NamePattern pattern)
+    throws ServiceException, AccessException, ExecutionException {
+        return getImagesLike(pattern, 0, 0);
+    }
+
+
+    /**
+     * Gets a page of the images owned by the current user with a name matching the pattern, searching on the server.
+     * <p>Images are sorted by ID.</p>
+     *
+     * @param pattern The name pattern.
+     * @param offset  The number of matching images to skip.
+     * @param limit   The maximum number of images returned (no limit if 0 or less).
+     *
+     * @return See above.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<ImageWrapper> getImagesLike(NamePattern pattern, int offset, int limit)
+    throws ServiceException, AccessException, ExecutionException {
+        return findImagesLike(ImagesScope.OWNER, getCtx().getExperimenter(), pattern, offset, limit);
+    }
+
+
+    /**
+     * Creates the parameters of a query restricted to the images of a container.
+     *
+     * @param scope       The scope of the images.
+     * @param containerId The container ID.
+     *
+     * @return See above.
+     */
+    private static ParametersI getImagesScopeParameters(ImagesScope scope, long containerId) {
+        ParametersI params = new ParametersI();
+        if (scope.getCondition() != null) {
+            params.addId(containerId);
+        }
+        return params;
+    }
+
+
+    /**
+     * Returns the HQL condition restricting images to a scope, to be appended to a query.
+     *
+     * @param scope The scope of the images.
+     *
+     * @return See above (an empty string if the images are not restricted).
+     */
+    private static String getImagesScopeCondition(ImagesScope scope) {
+        return scope.getCondition() != null ? " and " + scope.getCondition() : "";
+    }
+
+
+    /**
+     * Gets a page of the images within a dataset with a name matching the pattern, with a single query on the server.
+     *
+     * @param dataset The dataset.
+     * @param pattern The name pattern.
+     * @param offset  The number of matching images to skip.
+     * @param limit   The maximum number of images returned (no limit if 0 or less).
+     *
+     * @return The images, sorted by ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<ImageWrapper> findImagesLike(DatasetWrapper dataset, NamePattern pattern, int offset, int limit)
+    throws ServiceException, AccessException, ExecutionException {
+        return findImagesLike(ImagesScope.DATASET, dataset.getId(), pattern, offset, limit);
+    }
+
+
+    /**
+     * Gets a page of the images within a project with a name matching the pattern, with a single query on the server.
+     * <p>Images in several datasets of the project are only returned once.</p>
+     *
+     * @param project The project.
+     * @param pattern The name pattern.
+     * @param offset  The number of matching images to skip.
+     * @param limit   The maximum number of images returned (no limit if 0 or less).
+     *
+     * @return The images, sorted by ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<ImageWrapper> findImagesLike(ProjectWrapper project, NamePattern pattern, int offset, int limit)
+    throws ServiceException, AccessException, ExecutionException {
+        return findImagesLike(ImagesScope.PROJECT, project.getId(), pattern, offset, limit);
+    }
+
+
+    /**
+     * Gets a page of the images within a scope with a name matching the pattern, with a single query on the server.
+     * <p>Matching image IDs are retrieved first, sorted and paged by the server, then the images are loaded. Images
+     * in several datasets of a project are only returned once.</p>
+     *
+     * @param scope       The scope of the images.
+     * @param containerId The container (or owner) ID, ignored for all images.
+     * @param pattern     The name pattern.
+     * @param offset      The number of matching images to skip.
+     * @param limit       The maximum number of images returned (no limit if 0 or less).
+     *
+     * @return The images, sorted by ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    List<ImageWrapper> findImagesLike(ImagesScope scope, long containerId, NamePattern pattern, int offset, int limit)
+    throws ServiceException, AccessException, ExecutionException {
+        String query = "select img.id from Image as img" +
+                       " where " + pattern.getCondition("img.name", "pattern") +
+                       getImagesScopeCondition(scope) +
+                       " order by img.id";
+        ParametersI params = getImagesScopeParameters(scope, containerId);
+        params.add("pattern", rstring(pattern.getLikePattern()));
+        if (offset > 0 || limit > 0) {
+            params.page(Math.max(0, offset), limit > 0 ? limit : Integer.MAX_VALUE);
+        }
+        return findImages(query, params, "Cannot get images like: " + pattern.getText());
+    }
+
+
+    /**
+     * Retrieves the IDs of a page of objects with IDs greater than the specified one, sorted by ID.
+     *
+     * @param klass      The OMERO class of the objects (aliased as "o").
+     * @param condition  An additional HQL condition (can be null).
+     * @param parameters The parameters used by the condition (the "after" parameter is added).
+     * @param afterId    The ID after which objects are retrieved.
+     * @param limit      The maximum number of IDs returned.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    private Long[] findIdsAfter(String klass, String condition, ParametersI parameters, long afterId, int limit)
+    throws ServiceException, AccessException {
+        String query = "select o.id from " + klass + " as o" +
+                       " where o.id > :after" +
+                       (condition != null ? " and " + condition : "") +
+                       " order by o.id";
+        parameters.add("after", rlong(afterId));
+        parameters.page(0, limit);
+        List<List<RType>> rows = call(getGateway(),
+                                      g -> g.getQueryService(getCtx())
+                                            .projection(query, parameters),
+                                      "Cannot get " + klass + " IDs after: " + afterId);
+        return rows.stream()
+                   .map(row -> ((RLong) row.get(0)).getValue())
+                   .toArray(Long[]::new);
+    }
+
+
+    /**
+     * Retrieves a page of objects with IDs greater than the specified one, sorted by ID.
+     *
+     * @param klass   The OMERO class of the objects.
+     * @param afterId The ID after which objects are retrieved.
+     * @param limit   The maximum number of objects returned.
+     *
+     * @return See above.
+     *
+     * @throws OMEROServerError Server error.
+     * @throws ServiceException Cannot connect to OMERO.
+     */
+    private List<IObject> findObjectsAfter(String klass, long afterId, int limit)
+    throws OMEROServerError, ServiceException {
+        String query = "select o from " + klass + " as o where o.id > :after order by o.id";
+        ParametersI params = new ParametersI();
+        params.add("after", rlong(afterId));
+        params.page(0, limit);
+        return ExceptionHandler.of(getGateway(),
+                                   g -> g.getQueryService(getCtx())
+                                         .findAllByQuery(query, params))
+                               .handleServiceOrServer("Cannot get " + klass + " after ID: " + afterId)
+                               .get();
+    }
+
+
     /**
      * @param tag The tag annotation.
      *
@@ -593,14 +934,7 @@ public abstract class Browser extends GatewayWrapper {
      */
     public List<ImageWrapper> getImagesWithKey(String key)
     throws ServiceException, AccessException, ExecutionException, OMEROServerError {
-        List<MapAnnotationWrapper> maps = getMapAnnotations(key);
-
-        Collection<Collection<ImageWrapper>> selected = new ArrayList<>(maps.size());
-        for (MapAnnotationWrapper map : maps) {
-            selected.add(getImages(map));
-        }
-
-        return flatten(selected);
+        return findImagesWithKeyValue(ImagesScope.ALL, 0L, key, null);
     }
 
 
@@ -635,14 +969,332 @@ public abstract class Browser extends GatewayWrapper {
      */
     public List<ImageWrapper> getImagesWithKeyValuePair(String key, String value)
     throws ServiceException, AccessException, ExecutionException, OMEROServerError {
-        List<MapAnnotationWrapper> maps = getMapAnnotations(key, value);
+        return findImagesWithKeyValue(ImagesScope.ALL, 0L, key, value);
+    }
+
+
+    /**
+     * Gets the images within a project linked to an annotation, with a single query on the server.
+     * <p>Each image is only returned once.</p>
+     *
+     * @param project      The project.
+     * @param annotationId The annotation ID.
+     *
+     * @return The images, sorted by ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<ImageWrapper> findImagesAnnotated(ProjectWrapper project, long annotationId)
+    throws ServiceException, AccessException, ExecutionException {
+        return findImagesAnnotated(ImagesScope.PROJECT, project.getId(), annotationId);
+    }
+
+
+    /**
+     * Gets the images within a scope linked to an annotation, with a single query on the server.
+     * <p>Each image is only returned once.</p>
+     *
+     * @param scope        The scope of the images.
+     * @param containerId  The container (or owner) ID, ignored for all images.
+     * @param annotationId The annotation ID.
+     *
+     * @return The images, sorted by ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    List<ImageWrapper> findImagesAnnotated(ImagesScope scope, long containerId, long annotationId)
+    throws ServiceException, AccessException, ExecutionException {
+        String query = "select distinct img.id from ImageAnnotationLink as link" +
+                       " join link.parent as img" +
+                       " where link.child.id = :annotation" +
+                       getImagesScopeCondition(scope) +
+                       " order by img.id";
+        ParametersI params = getImagesScopeParameters(scope, containerId);
+        params.add("annotation", rlong(annotationId));
+        return findImages(query, params, "Cannot get images with annotation ID: " + annotationId);
+    }
 
-        Collection<Collection<ImageWrapper>> selected = new ArrayList<>(maps.size());
-        for (MapAnnotationWrapper map : maps) {
-            selected.add(getImages(map));
+
+    /**
+     * Gets the images within a dataset annotated with a key (and optionally a value), with a single query on the
+     * server.
+     * <p>Each image is only returned once, even if several of its annotations match.</p>
+     *
+     * @param dataset The dataset.
+     * @param key     Name of the key researched.
+     * @param value   Value associated with the key (any value if null).
+     *
+     * @return The images, sorted by ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<ImageWrapper> findImagesWithKeyValue(DatasetWrapper dataset, String key, String value)
+    throws ServiceException, AccessException, ExecutionException {
+        return findImagesWithKeyValue(ImagesScope.DATASET, dataset.getId(), key, value);
+    }
+
+
+    /**
+     * Gets the images within a project annotated with a key (and optionally a value), with a single query on the
+     * server.
+     * <p>Each image is only returned once, even if several of its annotations match.</p>
+     *
+     * @param project The project.
+     * @param key     Name of the key researched.
+     * @param value   Value associated with the key (any value if null).
+     *
+     * @return The images, sorted by ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<ImageWrapper> findImagesWithKeyValue(ProjectWrapper project, String key, String value)
+    throws ServiceException, AccessException, ExecutionException {
+        return findImagesWithKeyValue(ImagesScope.PROJECT, project.getId(), key, value);
+    }
+
+
+    /**
+     * Gets the images within a plate annotated with a key (and optionally a value), with a single query on the
+     * server.
+     * <p>Each image is only returned once, even if several of its annotations match.</p>
+     *
+     * @param plate The plate.
+     * @param key   Name of the key researched.
+     * @param value Value associated with the key (any value if null).
+     *
+     * @return The images, sorted by ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<ImageWrapper> findImagesWithKeyValue(PlateWrapper plate, String key, String value)
+    throws ServiceException, AccessException, ExecutionException {
+        return findImagesWithKeyValue(ImagesScope.PLATE, plate.getId(), key, value);
+    }
+
+
+    /**
+     * Gets the images within a screen annotated with a key (and optionally a value), with a single query on the
+     * server.
+     * <p>Each image is only returned once, even if several of its annotations match.</p>
+     *
+     * @param screen The screen.
+     * @param key    Name of the key researched.
+     * @param value  Value associated with the key (any value if null).
+     *
+     * @return The images, sorted by ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<ImageWrapper> findImagesWithKeyValue(ScreenWrapper screen, String key, String value)
+    throws ServiceException, AccessException, ExecutionException {
+        return findImagesWithKeyValue(ImagesScope.SCREEN, screen.getId(), key, value);
+    }
+
+
+    /**
+     * Gets the images within a scope annotated with a key (and optionally a value), with a single query on the
+     * server.
+     * <p>Image IDs are retrieved by joining the image annotation links with the map annotations, then the images
+     * are loaded at once. Each image is only returned once, even if several of its annotations match.</p>
+     *
+     * @param scope       The scope of the images.
+     * @param containerId The container (or owner) ID, ignored for all images.
+     * @param key         Name of the key researched.
+     * @param value       Value associated with the key (any value if null).
+     *
+     * @return The images, sorted by ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    List<ImageWrapper> findImagesWithKeyValue(ImagesScope scope, long containerId, String key, String value)
+    throws ServiceException, AccessException, ExecutionException {
+        String query = "select distinct img.id from ImageAnnotationLink as link" +
+                       " join link.parent as img" +
+                       " where link.child.id in (select m.id from MapAnnotation as m" +
+                       " join m.mapValue as mv" +
+                       " where mv.name = :key" +
+                       (value != null ? " and mv.value = :value)" : ")") +
+                       getImagesScopeCondition(scope) +
+                       " order by img.id";
+        ParametersI params = getImagesScopeParameters(scope, containerId);
+        params.add("key", rstring(key));
+        if (value != null) {
+            params.add("value", rstring(value));
         }
+        return findImages(query, params, "Cannot get images with key: " + key);
+    }
 
-        return flatten(selected);
+
+    /**
+     * Gets the images whose IDs are returned by a projection query, sorted by ID.
+     *
+     * @param query      The HQL query, selecting image IDs.
+     * @param parameters The query parameters.
+     * @param error      The message, if an exception is thrown.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    private List<ImageWrapper> findImages(String query, ParametersI parameters, String error)
+    throws ServiceException, AccessException, ExecutionException {
+        List<List<RType>> rows = call(getGateway(),
+                                      g -> g.getQueryService(getCtx())
+                                            .projection(query, parameters),
+                                      error);
+        Long[] ids = rows.stream()
+                         .map(row -> ((RLong) row.get(0)).getValue())
+                         .toArray(Long[]::new);
+        if (ids.length == 0) {
+            return new ArrayList<>(0);
+        }
+        List<ImageWrapper> images = getImages(ids);
+        images.sort(Comparator.comparing(GenericObjectWrapper::getId));
+        return images;
+    }
+
+
+    /**
+     * Retrieves the thumbnails of the specified images, using a single thumbnail store for all of them.
+     * <p>Thumbnails are requested in batches of {@link #THUMBNAIL_BATCH_SIZE} pixels sets, then decoded in parallel.
+     * If an image is not square, the size will be the longest side.</p>
+     *
+     * @param images The images.
+     * @param size   The thumbnail size.
+     *
+     * @return The thumbnails, indexed by image ID (images without thumbnail are omitted).
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     * @throws IOException      Cannot read a thumbnail.
+     */
+    public Map<Long, BufferedImage> getThumbnails(Collection<? extends ImageWrapper> images, int size)
+    throws ServiceException, AccessException, IOException {
+        Map<Long, byte[]> bytes = getThumbnailBytes(images, size);
+
+        Map<Long, BufferedImage> decoded = new ConcurrentHashMap<>(bytes.size());
+        try {
+            bytes.entrySet().parallelStream().forEach(e -> {
+                BufferedImage thumbnail = decodeThumbnail(e.getValue());
+                if (thumbnail != null) {
+                    decoded.put(e.getKey(), thumbnail);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Map<Long, BufferedImage> thumbnails = new LinkedHashMap<>(decoded.size());
+        for (Long id : bytes.keySet()) {
+            BufferedImage thumbnail = decoded.get(id);
+            if (thumbnail != null) {
+                thumbnails.put(id, thumbnail);
+            }
+        }
+        return thumbnails;
+    }
+
+
+    /**
+     * Retrieves the encoded thumbnails of the specified images, using a single thumbnail store for all of them.
+     *
+     * @param images The images.
+     * @param size   The thumbnail size.
+     *
+     * @return The encoded thumbnails, indexed by image ID (images without thumbnail are omitted).
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    protected Map<Long, byte[]> getThumbnailBytes(Collection<? extends ImageWrapper> images, int size)
+    throws ServiceException, AccessException {
+        Map<Long, Long> imageIds = new LinkedHashMap<>(images.size());
+        for (ImageWrapper image : images) {
+            imageIds.put(image.getPixels().getId(), image.getId());
+        }
+        List<Long> pixelsIds = new ArrayList<>(imageIds.keySet());
+
+        Map<Long, byte[]> bytes = call(this,
+                                       b -> b.getThumbnailBytes(pixelsIds, size),
+                                       "Error retrieving thumbnails");
+
+        Map<Long, byte[]> thumbnails = new LinkedHashMap<>(bytes.size());
+        for (Map.Entry<Long, Long> ids : imageIds.entrySet()) {
+            byte[] thumbnail = bytes.get(ids.getKey());
+            if (thumbnail != null && thumbnail.length > 0) {
+                thumbnails.put(ids.getValue(), thumbnail);
+            }
+        }
+        return thumbnails;
+    }
+
+
+    /**
+     * Retrieves the thumbnails of the specified pixels sets as byte arrays, in batches.
+     *
+     * @param pixelsIds The pixels IDs.
+     * @param size      The thumbnail size.
+     *
+     * @return The thumbnails, indexed by pixels ID.
+     *
+     * @throws DSOutOfServiceException Cannot connect to OMERO.
+     * @throws ServerError             Server error.
+     */
+    private Map<Long, byte[]> getThumbnailBytes(List<Long> pixelsIds, int size)
+    throws DSOutOfServiceException, ServerError {
+        Map<Long, byte[]> thumbnails = new HashMap<>(pixelsIds.size());
+
+        ThumbnailStorePrx store = null;
+        try {
+            store = getGateway().getThumbnailService(getCtx());
+            for (int i = 0; i < pixelsIds.size(); i += THUMBNAIL_BATCH_SIZE) {
+                List<Long> batch = pixelsIds.subList(i, Math.min(pixelsIds.size(), i + THUMBNAIL_BATCH_SIZE));
+                thumbnails.putAll(store.getThumbnailByLongestSideSet(rint(size), batch));
+            }
+        } finally {
+            if (store != null) {
+                store.close();
+            }
+        }
+        return thumbnails;
+    }
+
+
+    /**
+     * Decodes a thumbnail.
+     *
+     * @param bytes The encoded thumbnail.
+     *
+     * @return The thumbnail, or {@code null} if it could not be decoded.
+     *
+     * @throws UncheckedIOException Cannot read the thumbnail.
+     */
+    private static BufferedImage decodeThumbnail(byte[] bytes) {
+        BufferedImage thumbnail = null;
+        if (bytes != null && bytes.length > 0) {
+            try (ByteArrayInputStream stream = new ByteArrayInputStream(bytes)) {
+                thumbnail = ImageIO.read(stream);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return thumbnail;
     }
 
 
@@ -795,6 +1447,64 @@ public abstract class Browser extends GatewayWrapper {
     }
 
 
+    /**
+     * Gets a page of the plates available from OMERO, with IDs greater than the specified one.
+     * <p>Pages are retrieved with a keyset pagination on ID: the next page starts after the last ID of this one.</p>
+     *
+     * @param afterId The ID after which plates are retrieved (-1 to start from the beginning).
+     * @param limit   The maximum number of plates returned.
+     *
+     * @return The plates, sorted by ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<PlateWrapper> getPlatesPage(long afterId, int limit)
+    throws ServiceException, AccessException, ExecutionException {
+        return loadPlatesPage(afterId, limit).getObjects();
+    }
+
+
+    /**
+     * Loads a page of the plates available from OMERO, with IDs greater than the specified one, along with the last
+     * ID queried.
+     *
+     * @param afterId The ID after which plates are retrieved.
+     * @param limit   The maximum number of plate IDs queried.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    private PagedIterator.Page<PlateWrapper> loadPlatesPage(long afterId, int limit)
+    throws ServiceException, AccessException, ExecutionException {
+        Long[]             ids    = findIdsAfter("Plate", null, new ParametersI(), afterId, limit);
+        List<PlateWrapper> plates = new ArrayList<>(0);
+        if (ids.length > 0) {
+            plates = getPlates(ids);
+            plates.sort(Comparator.comparing(GenericObjectWrapper::getId));
+        }
+        return PagedIterator.Page.of(plates, ids);
+    }
+
+
+    /**
+     * Streams the plates available from OMERO, sorted by ID.
+     * <p>Plates are retrieved and wrapped lazily, one page at a time. Errors occurring while a page is retrieved
+     * are thrown as {@link fr.igred.omero.exception.UncheckedOMEROException}.</p>
+     *
+     * @param pageSize The number of plates retrieved at once.
+     *
+     * @return See above.
+     */
+    public Stream<PlateWrapper> streamPlates(int pageSize) {
+        return PagedIterator.stream(this::loadPlatesPage, pageSize);
+    }
+
+
     /**
      * Gets all plates available from OMERO owned by a given user.
      *
@@ -929,6 +1639,64 @@ public abstract class Browser extends GatewayWrapper {
     }
 
 
+    /**
+     * Gets a page of the wells available from OMERO, with IDs greater than the specified one.
+     * <p>Pages are retrieved with a keyset pagination on ID: the next page starts after the last ID of this one.</p>
+     *
+     * @param afterId The ID after which wells are retrieved (-1 to start from the beginning).
+     * @param limit   The maximum number of wells returned.
+     *
+     * @return The wells, sorted by ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<WellWrapper> getWellsPage(long afterId, int limit)
+    throws ServiceException, AccessException, ExecutionException {
+        return loadWellsPage(afterId, limit).getObjects();
+    }
+
+
+    /**
+     * Loads a page of the wells available from OMERO, with IDs greater than the specified one, along with the last
+     * ID queried.
+     *
+     * @param afterId The ID after which wells are retrieved.
+     * @param limit   The maximum number of well IDs queried.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    private PagedIterator.Page<WellWrapper> loadWellsPage(long afterId, int limit)
+    throws ServiceException, AccessException, ExecutionException {
+        Long[]            ids   = findIdsAfter("Well", null, new ParametersI(), afterId, limit);
+        List<WellWrapper> wells = new ArrayList<>(0);
+        if (ids.length > 0) {
+            wells = getWells(ids);
+            wells.sort(Comparator.comparing(GenericObjectWrapper::getId));
+        }
+        return PagedIterator.Page.of(wells, ids);
+    }
+
+
+    /**
+     * Streams the wells available from OMERO, sorted by ID.
+     * <p>Wells are retrieved and wrapped lazily, one page at a time. Errors occurring while a page is retrieved
+     * are thrown as {@link fr.igred.omero.exception.UncheckedOMEROException}.</p>
+     *
+     * @param pageSize The number of wells retrieved at once.
+     *
+     * @return See above.
+     */
+    public Stream<WellWrapper> streamWells(int pageSize) {
+        return PagedIterator.stream(this::loadWellsPage, pageSize);
+    }
+
+
     /**
      * Gets all wells available from OMERO owned by a given user.
      *
@@ -1064,6 +1832,43 @@ public abstract class Browser extends GatewayWrapper {
     }
 
 
+    /**
+     * Gets a page of the tag annotations available to the user, with IDs greater than the specified one.
+     * <p>Pages are retrieved with a keyset pagination on ID: the next page starts after the last ID of this one.</p>
+     *
+     * @param afterId The ID after which tags are retrieved (-1 to start from the beginning).
+     * @param limit   The maximum number of tags returned.
+     *
+     * @return The tags, sorted by ID.
+     *
+     * @throws OMEROServerError Server error.
+     * @throws ServiceException Cannot connect to OMERO.
+     */
+    public List<TagAnnotationWrapper> getTagsPage(long afterId, int limit)
+    throws OMEROServerError, ServiceException {
+        return findObjectsAfter("TagAnnotation", afterId, limit)
+                .stream()
+                .map(TagAnnotation.class::cast)
+                .map(TagAnnotationData::new)
+                .map(TagAnnotationWrapper::new)
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Streams the tag annotations available to the user, sorted by ID.
+     * <p>Tags are retrieved and wrapped lazily, one page at a time. Errors occurring while a page is retrieved are
+     * thrown as {@link fr.igred.omero.exception.UncheckedOMEROException}.</p>
+     *
+     * @param pageSize The number of tags retrieved at once.
+     *
+     * @return See above.
+     */
+    public Stream<TagAnnotationWrapper> streamTags(int pageSize) {
+        return PagedIterator.stream((afterId, limit) -> PagedIterator.Page.of(getTagsPage(afterId, limit)), pageSize);
+    }
+
+
     /**
      * Gets the list of tag annotations with the specified name available to the user.
      *
@@ -1138,6 +1943,44 @@ public abstract class Browser extends GatewayWrapper {
     }
 
 
+    /**
+     * Gets a page of the map annotations available to the user, with IDs greater than the specified one.
+     * <p>Pages are retrieved with a keyset pagination on ID: the next page starts after the last ID of this one.</p>
+     *
+     * @param afterId The ID after which map annotations are retrieved (-1 to start from the beginning).
+     * @param limit   The maximum number of map annotations returned.
+     *
+     * @return The map annotations, sorted by ID.
+     *
+     * @throws OMEROServerError Server error.
+     * @throws ServiceException Cannot connect to OMERO.
+     */
+    public List<MapAnnotationWrapper> getMapAnnotationsPage(long afterId, int limit)
+    throws OMEROServerError, ServiceException {
+        return findObjectsAfter("MapAnnotation", afterId, limit)
+                .stream()
+                .map(omero.model.MapAnnotation.class::cast)
+                .map(MapAnnotationData::new)
+                .map(MapAnnotationWrapper::new)
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Streams the map annotations available to the user, sorted by ID.
+     * <p>Map annotations are retrieved and wrapped lazily, one page at a time. Errors occurring while a page is
+     * retrieved are thrown as {@link fr.igred.omero.exception.UncheckedOMEROException}.</p>
+     *
+     * @param pageSize The number of map annotations retrieved at once.
+     *
+     * @return See above.
+     */
+    public Stream<MapAnnotationWrapper> streamMapAnnotations(int pageSize) {
+        return PagedIterator.stream((afterId, limit) -> PagedIterator.Page.of(getMapAnnotationsPage(afterId, limit)),
+                                   pageSize);
+    }
+
+
     /**
      * Gets the list of map annotations with the specified key available to the user.
      *
@@ -1212,4 +2055,55 @@ public abstract class Browser extends GatewayWrapper {
         return new MapAnnotationWrapper(kv);
     }
 
+
+    /** Scopes within which images can be searched, with the HQL condition restricting images (aliased as "img") */
+    enum ImagesScope {
+        /** All images */
+        ALL(null),
+
+        /** Images owned by an experimenter */
+        OWNER("img.details.owner.id = :id"),
+
+        /** Images in a dataset */
+        DATASET("img.id in (select dil.child.id from DatasetImageLink as dil" +
+                " where dil.parent.id = :id)"),
+
+        /** Images in the datasets of a project */
+        PROJECT("img.id in (select dil.child.id from DatasetImageLink as dil" +
+                " where dil.parent.id in (select pdl.child.id from ProjectDatasetLink as pdl" +
+                " where pdl.parent.id = :id))"),
+
+        /** Images in the wells of a plate */
+        PLATE("img.id in (select ws.image.id from WellSample as ws" +
+              " where ws.well.plate.id = :id)"),
+
+        /** Images in the plates of a screen */
+        SCREEN("img.id in (select ws.image.id from WellSample as ws" +
+               " where ws.well.plate.id in (select spl.child.id from ScreenPlateLink as spl" +
+               " where spl.parent.id = :id))");
+
+        /** HQL condition restricting the images, with the "id" parameter (null if they are not restricted) */
+        private final String condition;
+
+
+        /**
+         * Constructor of the ImagesScope enum.
+         *
+         * @param condition The HQL condition restricting the images.
+         */
+        ImagesScope(String condition) {
+            this.condition = condition;
+        }
+
+
+        /**
+         * Returns the HQL condition restricting the images, with the "id" parameter.
+         *
+         * @return See above (null if the images are not restricted).
+         */
+        String getCondition() {
+            return condition;
+        }
+    }
+
 }
@@ -29,6 +29,8 @@ import fr.igred.omero.meta.GroupWrapper;
 import fr.igred.omero.repository.FolderWrapper;
 import fr.igred.omero.repository.ImageWrapper;
 import fr.igred.omero.repository.ProjectWrapper;
+import fr.igred.omero.repository.ThumbnailCache;
+import fr.igred.omero.repository.TileCache;
 import omero.ApiUsageException;
 import omero.gateway.Gateway;
 import omero.gateway.SecurityContext;
@@ -39,6 +41,7 @@ import omero.model.ExperimenterGroup;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -57,6 +60,12 @@ import static fr.igred.omero.exception.ExceptionHandler.call;
  */
 public class Client extends Browser {
 
+    /** Optional cache for raw tiles */
+    private TileCache tileCache;
+
+    /** Optional cache for thumbnails */
+    private ThumbnailCache thumbnailCache;
+
 
     /**
      * Constructor of the Client class. Initializes the gateway.
@@ -78,6 +87,95 @@ public class Client extends Browser {
     }
 
 
+    /**
+     * Returns the cache used to store raw tiles, if any.
+     *
+     * @return See above.
+     */
+    public TileCache getTileCache() {
+        return tileCache;
+    }
+
+
+    /**
+     * Sets the cache used to store raw tiles. Tiles are not cached if it is {@code null} (default).
+     *
+     * @param tileCache The tile cache.
+     */
+    public void setTileCache(TileCache tileCache) {
+        this.tileCache = tileCache;
+    }
+
+
+    /**
+     * Returns the cache used to store thumbnails, if any.
+     *
+     * @return See above.
+     */
+    public ThumbnailCache getThumbnailCache() {
+        return thumbnailCache;
+    }
+
+
+    /**
+     * Sets the cache used to store thumbnails. Thumbnails are not cached if it is {@code null} (default).
+     *
+     * @param thumbnailCache The thumbnail cache.
+     */
+    public void setThumbnailCache(ThumbnailCache thumbnailCache) {
+        this.thumbnailCache = thumbnailCache;
+    }
+
+
+    /**
+     * Retrieves the encoded thumbnails of the specified images, from the thumbnail cache when possible.
+     *
+     * @param images The images.
+     * @param size   The thumbnail size.
+     *
+     * @return The encoded thumbnails, indexed by image ID (images without thumbnail are omitted).
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    @Override
+    protected Map<Long, byte[]> getThumbnailBytes(Collection<? extends ImageWrapper> images, int size)
+    throws ServiceException, AccessException {
+        if (thumbnailCache == null) {
+            return super.getThumbnailBytes(images, size);
+        }
+        Map<Long, byte[]>  thumbnails = new LinkedHashMap<>(images.size());
+        List<ImageWrapper> missing    = new ArrayList<>(0);
+        for (ImageWrapper image : images) {
+            byte[] thumbnail = thumbnailCache.get(image.getId(), size, image.getUpdated());
+            if (thumbnail != null) {
+                thumbnails.put(image.getId(), thumbnail);
+            } else {
+                missing.add(image);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Long, byte[]> loaded = super.getThumbnailBytes(missing, size);
+            for (ImageWrapper image : missing) {
+                byte[] thumbnail = loaded.get(image.getId());
+                if (thumbnail != null) {
+                    thumbnailCache.put(image.getId(), size, image.getUpdated(), thumbnail);
+                }
+            }
+            thumbnails.putAll(loaded);
+        }
+
+        Map<Long, byte[]> ordered = new LinkedHashMap<>(thumbnails.size());
+        for (ImageWrapper image : images) {
+            byte[] thumbnail = thumbnails.get(image.getId());
+            if (thumbnail != null) {
+                ordered.put(image.getId(), thumbnail);
+            }
+        }
+        return ordered;
+    }
+
+
     /**
      * Gets all images with the name specified inside projects and datasets with the given names.
      *
@@ -138,16 +236,7 @@ public class Client extends Browser {
     @Override
     public List<ImageWrapper> getImagesKey(String key)
     throws ServiceException, AccessException, ExecutionException {
-        List<ImageWrapper> images   = getImages();
-        List<ImageWrapper> selected = new ArrayList<>(images.size());
-        for (ImageWrapper image : images) {
-            Map<String, String> pairsKeyValue = image.getKeyValuePairs(this);
-            if (pairsKeyValue.get(key) != null) {
-                selected.add(image);
-            }
-        }
-
-        return selected;
+        return findImagesWithKeyValue(ImagesScope.OWNER, getCtx().getExperimenter(), key, null);
     }
 
 
@@ -166,15 +255,19 @@ public class Client extends Browser {
     @Override
     public List<ImageWrapper> getImagesPairKeyValue(String key, String value)
     throws ServiceException, AccessException, ExecutionException {
-        List<ImageWrapper> images   = getImages();
-        List<ImageWrapper> selected = new ArrayList<>(images.size());
-        for (ImageWrapper image : images) {
-            Map<String, String> pairsKeyValue = image.getKeyValuePairs(this);
-            if (pairsKeyValue.get(key) != null && pairsKeyValue.get(key).equals(value)) {
-                selected.add(image);
-            }
+        return findImagesWithKeyValue(ImagesScope.OWNER, getCtx().getExperimenter(), key, value);
+    }
+
+
+    /**
+     * Removes the tiles of an image from the tile cache, if there is one.
+     *
+     * @param image The image.
+     */
+    public void invalidateTiles(ImageWrapper image) {
+        if (tileCache != null && image.asDataObject().getDefaultPixels() != null) {
+            tileCache.invalidate(image.getPixels().getId());
         }
-        return selected;
     }
 
 
@@ -194,6 +287,8 @@ public class Client extends Browser {
         for (GenericObjectWrapper<?> object : objects) {
             if (object instanceof FolderWrapper) {
                 ((FolderWrapper) object).unlinkAllROIs(this);
+            } else if (object instanceof ImageWrapper) {
+                invalidateTiles((ImageWrapper) object);
             }
         }
         if (!objects.isEmpty()) {
@@ -220,6 +315,8 @@ public class Client extends Browser {
     throws ServiceException, AccessException, ExecutionException, OMEROServerError, InterruptedException {
         if (object instanceof FolderWrapper) {
             ((FolderWrapper) object).unlinkAllROIs(this);
+        } else if (object instanceof ImageWrapper) {
+            invalidateTiles((ImageWrapper) object);
         }
         delete(object.asIObject());
     }
@@ -0,0 +1,232 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.igred.omero;
+
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+
+/**
+ * Pattern matched against object names on the server, with an HQL {@code like} clause.
+ * <p>The searched text is escaped, so {@code %} and {@code _} are matched literally. Case-insensitive patterns
+ * compare lowercase names.</p>
+ */
+public class NamePattern {
+
+    /** Escape character used in the {@code like} clause */
+    private static final char ESCAPE = '!';
+
+    /** Regular expression metacharacters */
+    private static final Pattern REGEX_METACHARACTERS = Pattern.compile("[\\\\.\\[\\]{}()<>*+\\-=!?^$|]");
+
+    /** Searched text */
+    private final String text;
+
+    /** Whether the name has to start with the text */
+    private final boolean anchoredStart;
+
+    /** Whether the name has to end with the text */
+    private final boolean anchoredEnd;
+
+    /** Whether the case matters */
+    private final boolean caseSensitive;
+
+
+    /**
+     * Constructor of the NamePattern class.
+     *
+     * @param text          The searched text.
+     * @param anchoredStart Whether the name has to start with the text.
+     * @param anchoredEnd   Whether the name has to end with the text.
+     * @param caseSensitive Whether the case matters.
+     */
+    private NamePattern(String text, boolean anchoredStart, boolean anchoredEnd, boolean caseSensitive) {
+        this.text          = text;
+        this.anchoredStart = anchoredStart;
+        this.anchoredEnd   = anchoredEnd;
+        this.caseSensitive = caseSensitive;
+    }
+
+
+    /**
+     * Creates a case-sensitive pattern matching names containing the text.
+     *
+     * @param text The searched text.
+     *
+     * @return See above.
+     */
+    public static NamePattern contains(String text) {
+        return new NamePattern(text, false, false, true);
+    }
+
+
+    /**
+     * Creates a case-sensitive pattern matching names starting with the text.
+     *
+     * @param text The searched text.
+     *
+     * @return See above.
+     */
+    public static NamePattern startsWith(String text) {
+        return new NamePattern(text, true, false, true);
+    }
+
+
+    /**
+     * Creates a case-sensitive pattern matching names ending with the text.
+     *
+     * @param text The searched text.
+     *
+     * @return See above.
+     */
+    public static NamePattern endsWith(String text) {
+        return new NamePattern(text, false, true, true);
+    }
+
+
+    /**
+     * Creates a case-sensitive pattern matching names equal to the text.
+     *
+     * @param text The searched text.
+     *
+     * @return See above.
+     */
+    public static NamePattern equalTo(String text) {
+        return new NamePattern(text, true, true, true);
+    }
+
+
+    /**
+     * Checks if a motif used as a regular expression only contains literal characters, in which case it is equivalent
+     * to {@link #contains(String)}.
+     *
+     * @param motif The motif.
+     *
+     * @return See above.
+     */
+    public static boolean isLiteral(String motif) {
+        return !REGEX_METACHARACTERS.matcher(motif).find();
+    }
+
+
+    /**
+     * Returns a case-insensitive copy of this pattern.
+     *
+     * @return See above.
+     */
+    public NamePattern ignoreCase() {
+        return new NamePattern(text, anchoredStart, anchoredEnd, false);
+    }
+
+
+    /**
+     * Returns the searched text.
+     *
+     * @return See above.
+     */
+    public String getText() {
+        return text;
+    }
+
+
+    /**
+     * Returns whether the case matters.
+     *
+     * @return See above.
+     */
+    public boolean isCaseSensitive() {
+        return caseSensitive;
+    }
+
+
+    /**
+     * Returns the HQL condition for the specified property, using a named parameter for the pattern.
+     *
+     * @param property  The property (e.g. "img.name").
+     * @param parameter The parameter name.
+     *
+     * @return See above.
+     *
+     * @see #getLikePattern()
+     */
+    public String getCondition(String property, String parameter) {
+        String name = caseSensitive ? property : "lower(" + property + ")";
+        return name + " like :" + parameter + " escape '" + ESCAPE + "'";
+    }
+
+
+    /**
+     * Returns the value of the {@code like} pattern, with the searched text escaped (and lowercase if the case does
+     * not matter).
+     *
+     * @return See above.
+     */
+    public String getLikePattern() {
+        String        value   = caseSensitive ? text : text.toLowerCase(Locale.ROOT);
+        StringBuilder pattern = new StringBuilder(value.length() + 8);
+        if (!anchoredStart) {
+            pattern.append('%');
+        }
+        for (char c : value.toCharArray()) {
+            if (c == '%' || c == '_' || c == ESCAPE) {
+                pattern.append(ESCAPE);
+            }
+            pattern.append(c);
+        }
+        if (!anchoredEnd) {
+            pattern.append('%');
+        }
+        return pattern.toString();
+    }
+
+
+    /**
+     * Checks if a name matches this pattern, locally.
+     *
+     * @param name The name.
+     *
+     * @return See above.
+     */
+    public boolean matches(String name) {
+        if (name == null) {
+            return false;
+        }
+        String value  = caseSensitive ? name : name.toLowerCase(Locale.ROOT);
+        String target = caseSensitive ? text : text.toLowerCase(Locale.ROOT);
+        if (anchoredStart && anchoredEnd) {
+            return value.equals(target);
+        } else if (anchoredStart) {
+            return value.startsWith(target);
+        } else if (anchoredEnd) {
+            return value.endsWith(target);
+        } else {
+            return value.contains(target);
+        }
+    }
+
+
+    /**
+     * Overridden to return the name of the class and the pattern.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s (pattern=%s, caseSensitive=%b)",
+                             getClass().getSimpleName(), getLikePattern(), caseSensitive);
+    }
+
+}
@@ -0,0 +1,242 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero;
+
+
+import fr.igred.omero.exception.AccessException;
+import fr.igred.omero.exception.OMEROServerError;
+import fr.igred.omero.exception.ServiceException;
+import fr.igred.omero.exception.UncheckedOMEROException;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * Iterator over objects retrieved page by page, sorted by ID, using keyset pagination: each page starts after the
+ * last ID of the previous one.
+ * <p>A page is only requested when the previous one has been consumed, so at most one page is held in memory. Each
+ * page starts after the last ID queried by the previous one, even if the corresponding object could not be loaded
+ * (e.g. it was deleted in between). The iteration ends when no ID is left to query.</p>
+ *
+ * @param <T> Subclass of {@link GenericObjectWrapper}
+ */
+class PagedIterator<T extends GenericObjectWrapper<?>> implements Iterator<T> {
+
+    /** Function loading a page */
+    private final PageLoader<T> loader;
+
+    /** Maximum number of objects per page */
+    private final int pageSize;
+
+    /** Objects of the current page */
+    private Iterator<T> page = Collections.emptyIterator();
+
+    /** Last ID queried */
+    private long lastId = -1L;
+
+    /** Whether the last page has been reached */
+    private boolean done = false;
+
+
+    /**
+     * Constructor of the PagedIterator class.
+     *
+     * @param loader   Function loading a page.
+     * @param pageSize Maximum number of objects per page.
+     */
+    PagedIterator(PageLoader<T> loader, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.loader   = loader;
+        this.pageSize = pageSize;
+    }
+
+
+    /**
+     * Creates a sequential stream over the objects retrieved page by page.
+     * <p>Checked exceptions thrown while loading a page are wrapped in an {@link UncheckedOMEROException}.</p>
+     *
+     * @param loader   Function loading a page.
+     * @param pageSize Maximum number of objects per page.
+     * @param <T>      Subclass of {@link GenericObjectWrapper}
+     *
+     * @return See above.
+     */
+    static <T extends GenericObjectWrapper<?>> Stream<T> stream(PageLoader<T> loader, int pageSize) {
+        Iterator<T> iterator = new PagedIterator<>(loader, pageSize);
+        int characteristics = Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL;
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, characteristics), false);
+    }
+
+
+    /**
+     * Returns {@code true} if the iteration has more elements, loading the next page if needed.
+     *
+     * @return See above.
+     *
+     * @throws UncheckedOMEROException If the next page could not be loaded.
+     */
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext() && !done) {
+            Page<T> loaded;
+            try {
+                loaded = loader.load(lastId, pageSize);
+            } catch (ServiceException | AccessException | OMEROServerError | ExecutionException e) {
+                throw new UncheckedOMEROException("Cannot load objects after ID: " + lastId, e);
+            }
+            // An empty page does not mean the end: objects can be deleted between the ID query and their loading
+            done = loaded.lastId == null;
+            if (!done) {
+                lastId = loaded.lastId;
+            }
+            page = loaded.objects.iterator();
+        }
+        return page.hasNext();
+    }
+
+
+    /**
+     * Returns the next element in the iteration.
+     *
+     * @return See above.
+     *
+     * @throws UncheckedOMEROException If the next page could not be loaded.
+     */
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more objects after ID: " + lastId);
+        }
+        return page.next();
+    }
+
+
+    /**
+     * Overridden to return the name of the class and the current position.
+     *
+     * @return See above.
+     */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{pageSize=" + pageSize + ", lastId=" + lastId + ", done=" + done + "}";
+    }
+
+
+    /**
+     * Page of objects, with the last ID queried to retrieve them.
+     *
+     * @param <T> Subclass of {@link GenericObjectWrapper}
+     */
+    static final class Page<T> {
+
+        /** Objects of the page, sorted by ID */
+        private final List<T> objects;
+
+        /** Last ID queried (null if no ID was left) */
+        private final Long lastId;
+
+
+        /**
+         * Constructor of the Page class.
+         *
+         * @param objects The objects, sorted by ID.
+         * @param lastId  The last ID queried (null if no ID was left).
+         */
+        private Page(List<T> objects, Long lastId) {
+            this.objects = objects;
+            this.lastId  = lastId;
+        }
+
+
+        /**
+         * Creates a page from the IDs queried and the objects loaded from them (which can be fewer, if some objects
+         * were deleted in between).
+         *
+         * @param objects The objects, sorted by ID.
+         * @param ids     The IDs queried, sorted.
+         * @param <T>     Subclass of {@link GenericObjectWrapper}
+         *
+         * @return See above.
+         */
+        static <T> Page<T> of(List<T> objects, Long[] ids) {
+            return new Page<>(objects, ids.length > 0 ? ids[ids.length - 1] : null);
+        }
+
+
+        /**
+         * Creates a page from objects queried directly.
+         *
+         * @param objects The objects, sorted by ID.
+         * @param <T>     Subclass of {@link GenericObjectWrapper}
+         *
+         * @return See above.
+         */
+        static <T extends GenericObjectWrapper<?>> Page<T> of(List<T> objects) {
+            return new Page<>(objects, objects.isEmpty() ? null : objects.get(objects.size() - 1).getId());
+        }
+
+
+        /**
+         * Returns the objects of the page.
+         *
+         * @return See above.
+         */
+        List<T> getObjects() {
+            return objects;
+        }
+
+    }
+
+
+    /**
+     * Loads a page of objects with IDs greater than a given one.
+     *
+     * @param <T> Subclass of {@link GenericObjectWrapper}
+     */
+    @FunctionalInterface
+    interface PageLoader<T> {
+
+        /**
+         * Loads up to {@code limit} objects with IDs greater than {@code afterId}, sorted by ID.
+         *
+         * @param afterId The ID after which objects are retrieved.
+         * @param limit   The maximum number of IDs queried.
+         *
+         * @return The page of objects, with the last ID queried.
+         *
+         * @throws ServiceException   Cannot connect to OMERO.
+         * @throws AccessException    Cannot access data.
+         * @throws OMEROServerError   Server error.
+         * @throws ExecutionException A Facility can't be retrieved or instantiated.
+         */
+        Page<T> load(long afterId, int limit)
+        throws ServiceException, AccessException, OMEROServerError, ExecutionException;
+
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.exception;
+
+
+/**
+ * Wraps a checked exception thrown while results are lazily retrieved from OMERO, e.g. from a
+ * {@link java.util.stream.Stream}.
+ * <p>The original exception ({@link ServiceException}, {@link AccessException}, {@link OMEROServerError} or
+ * {@link java.util.concurrent.ExecutionException}) is available through {@link #getCause()}.</p>
+ */
+public class UncheckedOMEROException extends RuntimeException {
+
+    private static final long serialVersionUID = -2213565437285621840L;
+
+
+    /**
+     * Constructs a new exception with the specified detail message and cause.
+     *
+     * @param message Short explanation of the problem.
+     * @param cause   The checked exception that caused this one to be risen.
+     */
+    public UncheckedOMEROException(String message, Exception cause) {
+        super(message, cause);
+    }
+
+
+    /**
+     * Constructs a new exception with a general message and the cause.
+     *
+     * @param cause The checked exception that caused this one to be risen.
+     */
+    public UncheckedOMEROException(Exception cause) {
+        super("Cannot retrieve data", cause);
+    }
+
+
+    /**
+     * Returns the checked exception wrapped by this exception.
+     *
+     * @return See above.
+     */
+    @Override
+    public synchronized Exception getCause() {
+        return (Exception) super.getCause();
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import java.awt.Color;
+
+
+/**
+ * Rendering settings of a channel: color, display window and lookup table.
+ */
+public class ChannelRenderingSettings {
+
+    /** Channel index */
+    private final int index;
+
+    /** Channel color */
+    private final Color color;
+
+    /** Lower bound of the display window */
+    private final double windowStart;
+
+    /** Upper bound of the display window */
+    private final double windowEnd;
+
+    /** Name of the lookup table, if any */
+    private final String lookupTable;
+
+
+    /**
+     * Constructor of the ChannelRenderingSettings class.
+     *
+     * @param index       The channel index.
+     * @param color       The channel color.
+     * @param windowStart The lower bound of the display window ({@link Double#NaN} if unknown).
+     * @param windowEnd   The upper bound of the display window ({@link Double#NaN} if unknown).
+     * @param lookupTable The name of the lookup table (can be null).
+     */
+    public ChannelRenderingSettings(int index, Color color, double windowStart, double windowEnd, String lookupTable) {
+        this.index       = index;
+        this.color       = color;
+        this.windowStart = windowStart;
+        this.windowEnd   = windowEnd;
+        this.lookupTable = lookupTable;
+    }
+
+
+    /**
+     * Returns the channel index.
+     *
+     * @return See above.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+
+    /**
+     * Returns the channel color.
+     *
+     * @return See above.
+     */
+    public Color getColor() {
+        return color;
+    }
+
+
+    /**
+     * Returns the lower bound of the display window ({@link Double#NaN} if unknown).
+     *
+     * @return See above.
+     */
+    public double getWindowStart() {
+        return windowStart;
+    }
+
+
+    /**
+     * Returns the upper bound of the display window ({@link Double#NaN} if unknown).
+     *
+     * @return See above.
+     */
+    public double getWindowEnd() {
+        return windowEnd;
+    }
+
+
+    /**
+     * Returns whether the display window is known.
+     *
+     * @return See above.
+     */
+    public boolean hasWindow() {
+        return !Double.isNaN(windowStart) && !Double.isNaN(windowEnd);
+    }
+
+
+    /**
+     * Returns the name of the lookup table, or null if the channel uses its color.
+     *
+     * @return See above.
+     */
+    public String getLookupTable() {
+        return lookupTable;
+    }
+
+
+    /**
+     * Overridden to return the name of the class, the channel index, color and window.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s (index=%d, color=%s, window=[%s-%s], lut=%s)",
+                             getClass().getSimpleName(), index, color, windowStart, windowEnd, lookupTable);
+    }
+
+}
@@ -0,0 +1,352 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.igred.omero.repository;
+
+
+import loci.formats.FormatTools;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+
+/**
+ * Client-side renderer compositing the channels of a plane to packed ARGB pixels.
+ * <p>Each channel is mapped through its display window to 256 intensity levels, then to its color, and the channels
+ * are added (saturating at 255 for each component). For 8-bit and 16-bit pixels, a lookup table covering all possible
+ * values is precomputed for each channel. Other pixel types are scaled to a level, then looked up in the channel
+ * colors. Blocks of rows are composited in parallel, and the result does not depend on the number of threads.</p>
+ * <p>Only the channel colors are used: named lookup tables are ignored.</p>
+ */
+public class CompositeRenderer {
+
+    /** Number of intensity levels */
+    private static final int LEVELS = 256;
+
+    /** Number of rows composited by each task */
+    private static final int ROWS_PER_TASK = 16;
+
+    /** Opaque alpha */
+    private static final int ALPHA = 0xFF000000;
+
+    /** Pixel type (see {@link FormatTools}) */
+    private final int pixelType;
+
+    /** Channel indices */
+    private final int[] channels;
+
+    /** For each channel: packed RGB contribution of each raw value (8-bit and 16-bit pixels), or of each level */
+    private final int[][] luts;
+
+    /** For each channel: lower bound of the display window */
+    private final double[] starts;
+
+    /** For each channel: number of levels per unit above the window start */
+    private final double[] scales;
+
+    /** Mask applied to raw values to get the lookup index */
+    private final int mask;
+
+    /** Bit flipped to shift signed values to the lookup index */
+    private final int flip;
+
+
+    /**
+     * Constructor of the CompositeRenderer class.
+     * <p>When the display window of a channel is unknown, the full range of the pixel type is used for integer types,
+     * and [0, 1] for floating-point types.</p>
+     *
+     * @param pixelType The pixel type (e.g. "uint16").
+     * @param settings  The rendering settings of the channels to composite.
+     *
+     * @throws IllegalArgumentException If the pixel type is unknown or unsupported.
+     */
+    public CompositeRenderer(String pixelType, Collection<ChannelRenderingSettings> settings) {
+        this.pixelType = FormatTools.pixelTypeFromString(pixelType);
+        if (this.pixelType == FormatTools.BIT) {
+            throw new IllegalArgumentException("Unsupported pixel type: " + pixelType);
+        }
+        int     bpp    = FormatTools.getBytesPerPixel(this.pixelType);
+        boolean signed = FormatTools.isSigned(this.pixelType);
+        boolean direct = bpp <= 2 && !FormatTools.isFloatingPoint(this.pixelType);
+        this.mask = bpp == 1 ? 0xFF : 0xFFFF;
+        this.flip = signed ? (mask >>> 1) + 1 : 0;
+
+        List<ChannelRenderingSettings> list = new ArrayList<>(settings);
+        this.channels = new int[list.size()];
+        this.luts     = new int[list.size()][];
+        this.starts   = new double[list.size()];
+        this.scales   = new double[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            ChannelRenderingSettings channel = list.get(i);
+
+            double start;
+            double end;
+            if (channel.hasWindow()) {
+                start = channel.getWindowStart();
+                end   = channel.getWindowEnd();
+            } else if (FormatTools.isFloatingPoint(this.pixelType)) {
+                start = 0;
+                end   = 1;
+            } else {
+                long[] range = FormatTools.defaultMinMax(this.pixelType);
+                start = range[0];
+                end   = range[1];
+            }
+
+            channels[i] = channel.getIndex();
+            starts[i]   = start;
+            scales[i]   = end > start ? (LEVELS - 1) / (end - start) : Double.POSITIVE_INFINITY;
+
+            int[] colors = createColorTable(channel.getColor());
+            if (direct) {
+                long  min = signed ? -flip : 0;
+                int[] lut = new int[mask + 1];
+                for (int index = 0; index <= mask; index++) {
+                    lut[index] = colors[level(min + index, starts[i], scales[i])];
+                }
+                luts[i] = lut;
+            } else {
+                luts[i] = colors;
+            }
+        }
+    }
+
+
+    /**
+     * Computes the packed RGB contribution of a channel for each level.
+     *
+     * @param color The channel color.
+     *
+     * @return See above.
+     */
+    private static int[] createColorTable(Color color) {
+        int[] table = new int[LEVELS];
+        for (int level = 0; level < LEVELS; level++) {
+            int r = (color.getRed() * level + (LEVELS - 1) / 2) / (LEVELS - 1);
+            int g = (color.getGreen() * level + (LEVELS - 1) / 2) / (LEVELS - 1);
+            int b = (color.getBlue() * level + (LEVELS - 1) / 2) / (LEVELS - 1);
+            table[level] = r << 16 | g << 8 | b;
+        }
+        return table;
+    }
+
+
+    /**
+     * Maps a value to a level, according to a display window.
+     *
+     * @param value The value.
+     * @param start The lower bound of the display window.
+     * @param scale The number of levels per unit above the window start.
+     *
+     * @return A level between 0 and 255.
+     */
+    private static int level(double value, double start, double scale) {
+        double level = (value - start) * scale;
+        if (!(level > 0)) {
+            return 0;
+        } else if (level >= LEVELS - 1) {
+            return LEVELS - 1;
+        } else {
+            return (int) (level + 0.5);
+        }
+    }
+
+
+    /**
+     * Returns the number of channels composited by this renderer.
+     *
+     * @return See above.
+     */
+    public int getChannelCount() {
+        return channels.length;
+    }
+
+
+    /**
+     * Composites a plane to packed ARGB pixels, row by row.
+     *
+     * @param pixels The pixels, which have to contain the channels of this renderer.
+     * @param z      The Z coordinate of the plane in the array.
+     * @param t      The T coordinate of the plane in the array.
+     *
+     * @return The ARGB pixels (X varying fastest).
+     *
+     * @throws IllegalArgumentException  If the pixel type does not match.
+     * @throws IndexOutOfBoundsException If a channel or the plane is not in the array.
+     */
+    public int[] render(PixelsArray pixels, int z, int t) {
+        if (!pixels.getPixelType().equals(FormatTools.getPixelTypeString(pixelType))) {
+            String msg = String.format("Pixel type %s does not match %s",
+                                       pixels.getPixelType(),
+                                       FormatTools.getPixelTypeString(pixelType));
+            throw new IllegalArgumentException(msg);
+        }
+        for (int channel : channels) {
+            if (channel < 0 || channel >= pixels.getSizeC()) {
+                throw new IndexOutOfBoundsException("Channel not in the array: " + channel);
+            }
+        }
+        if (z < 0 || z >= pixels.getSizeZ() || t < 0 || t >= pixels.getSizeT()) {
+            throw new IndexOutOfBoundsException("Plane not in the array: z=" + z + ", t=" + t);
+        }
+
+        int   width  = pixels.getSizeX();
+        int   height = pixels.getSizeY();
+        int[] argb   = new int[width * height];
+        int   tasks  = (height + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+        IntStream.range(0, tasks).parallel().forEach(task -> {
+            int[][] buffers = new int[4][width];
+            int     end     = Math.min(height, (task + 1) * ROWS_PER_TASK);
+            for (int y = task * ROWS_PER_TASK; y < end; y++) {
+                renderRow(pixels, y, z, t, argb, buffers);
+            }
+        });
+        return argb;
+    }
+
+
+    /**
+     * Composites a plane to an RGB image.
+     *
+     * @param pixels The pixels, which have to contain the channels of this renderer.
+     * @param z      The Z coordinate of the plane in the array.
+     * @param t      The T coordinate of the plane in the array.
+     *
+     * @return See above.
+     *
+     * @throws IllegalArgumentException  If the pixel type does not match.
+     * @throws IndexOutOfBoundsException If a channel or the plane is not in the array.
+     */
+    public BufferedImage renderImage(PixelsArray pixels, int z, int t) {
+        int[]         argb  = render(pixels, z, t);
+        BufferedImage image = new BufferedImage(pixels.getSizeX(), pixels.getSizeY(), BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, pixels.getSizeX(), pixels.getSizeY(), argb, 0, pixels.getSizeX());
+        return image;
+    }
+
+
+    /**
+     * Composites a row.
+     *
+     * @param pixels  The pixels.
+     * @param y       The Y coordinate of the row.
+     * @param z       The Z coordinate of the plane.
+     * @param t       The T coordinate of the plane.
+     * @param argb    The output ARGB pixels.
+     * @param buffers Buffers for the lookup indices, and the red, green and blue components of the row.
+     */
+    private void renderRow(PixelsArray pixels, int y, int z, int t, int[] argb, int[][] buffers) {
+        int[] indices = buffers[0];
+        int[] red     = buffers[1];
+        int[] green   = buffers[2];
+        int[] blue    = buffers[3];
+        int   width   = indices.length;
+        Arrays.fill(red, 0);
+        Arrays.fill(green, 0);
+        Arrays.fill(blue, 0);
+        for (int i = 0; i < channels.length; i++) {
+            int[] lut = luts[i];
+            readIndices(pixels.getData(), pixels.index(0, y, channels[i], z, t), i, indices);
+            for (int x = 0; x < width; x++) {
+                int rgb = lut[indices[x]];
+                red[x] += rgb >>> 16 & 0xFF;
+                green[x] += rgb >>> 8 & 0xFF;
+                blue[x] += rgb & 0xFF;
+            }
+        }
+        int row = y * width;
+        for (int x = 0; x < width; x++) {
+            argb[row + x] = ALPHA
+                            | Math.min(red[x], 0xFF) << 16
+                            | Math.min(green[x], 0xFF) << 8
+                            | Math.min(blue[x], 0xFF);
+        }
+    }
+
+
+    /**
+     * Reads the lookup indices of the pixels in a row, for the specified channel.
+     * <p>For 8-bit and 16-bit pixels, the indices are the raw values, shifted to be positive. Otherwise, they are the
+     * levels.</p>
+     *
+     * @param data    The primitive array.
+     * @param start   The index of the first pixel of the row in the array.
+     * @param channel The channel position in this renderer.
+     * @param indices The output indices.
+     */
+    private void readIndices(Object data, int start, int channel, int[] indices) {
+        double first = starts[channel];
+        double scale = scales[channel];
+        switch (pixelType) {
+            case FormatTools.INT8:
+            case FormatTools.UINT8:
+                byte[] bytes = (byte[]) data;
+                for (int x = 0; x < indices.length; x++) {
+                    indices[x] = (bytes[start + x] & mask) ^ flip;
+                }
+                break;
+            case FormatTools.INT16:
+            case FormatTools.UINT16:
+                short[] shorts = (short[]) data;
+                for (int x = 0; x < indices.length; x++) {
+                    indices[x] = (shorts[start + x] & mask) ^ flip;
+                }
+                break;
+            case FormatTools.INT32:
+                int[] ints = (int[]) data;
+                for (int x = 0; x < indices.length; x++) {
+                    indices[x] = level(ints[start + x], first, scale);
+                }
+                break;
+            case FormatTools.UINT32:
+                int[] uints = (int[]) data;
+                for (int x = 0; x < indices.length; x++) {
+                    indices[x] = level(Integer.toUnsignedLong(uints[start + x]), first, scale);
+                }
+                break;
+            case FormatTools.FLOAT:
+                float[] floats = (float[]) data;
+                for (int x = 0; x < indices.length; x++) {
+                    indices[x] = level(floats[start + x], first, scale);
+                }
+                break;
+            default:
+                double[] doubles = (double[]) data;
+                for (int x = 0; x < indices.length; x++) {
+                    indices[x] = level(doubles[start + x], first, scale);
+                }
+        }
+    }
+
+
+    /**
+     * Overridden to return the name of the class and the composited channels.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s (type=%s, channels=%s)",
+                             getClass().getSimpleName(),
+                             FormatTools.getPixelTypeString(pixelType),
+                             Arrays.toString(channels));
+    }
+
+}
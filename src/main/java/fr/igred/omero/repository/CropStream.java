@@ -0,0 +1,228 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.exception.AccessException;
+import fr.igred.omero.exception.ServiceException;
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import fr.igred.omero.repository.PixelsWrapper.CropHandler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+
+/**
+ * Extracts many crops from a pixels set, one at a time and in order, while the tiles of the next crops are prefetched
+ * in the background.
+ * <p>Crops are mapped to the tiles of the {@link TileGrid}, so a tile shared by overlapping or adjacent crops is read
+ * once, as long as these crops are within the prefetch depth. A tile is released as soon as no crop within the
+ * prefetch depth needs it: if a later crop needs it again, it is read again, so memory usage is bounded by the tiles
+ * of {@code prefetch} crops.</p>
+ */
+class CropStream implements AutoCloseable {
+
+    /** Pool of readers */
+    private final PixelsReaderPool pool;
+
+    /** Pixel type */
+    private final String pixelType;
+
+    /** Grid of tiles */
+    private final TileGrid grid;
+
+    /** Crops to extract */
+    private final List<Bounds> crops;
+
+    /** Keys of the tiles needed by each crop */
+    private final List<long[]> keys;
+
+    /** Keys of all the tiles needed */
+    private final Set<Long> needed;
+
+    /** Number of crops submitted (and not yet extracted) needing each tile */
+    private final Map<Long, Integer> pending;
+
+    /** Tiles submitted and not released yet */
+    private final Map<Long, Future<byte[]>> tiles;
+
+    /** Maximum number of crops whose tiles are submitted and not yet extracted */
+    private final int prefetch;
+
+    /** Number of crops whose tiles were submitted so far */
+    private int submitted;
+
+
+    /**
+     * Constructor of the CropStream class.
+     *
+     * @param pixels   The pixels set to read, whose tile plan is already known.
+     * @param pool     The pool of readers.
+     * @param crops    The crops to extract (which have to be valid).
+     * @param prefetch The maximum number of crops whose tiles are read at the same time, including the crop being
+     *                 extracted (at least 1).
+     */
+    CropStream(PixelsWrapper pixels, PixelsReaderPool pool, List<Bounds> crops, int prefetch) {
+        this.pool       = pool;
+        this.pixelType  = pixels.getPixelType();
+        this.grid       = pixels.getTileGrid();
+        this.crops      = new ArrayList<>(crops);
+        this.keys       = new ArrayList<>(crops.size());
+        this.needed     = new HashSet<>();
+        this.pending    = new HashMap<>();
+        this.tiles      = new HashMap<>();
+        this.prefetch   = Math.max(1, prefetch);
+        this.submitted  = 0;
+        for (Bounds crop : crops) {
+            long[] cropKeys = grid.getKeys(crop);
+            keys.add(cropKeys);
+            for (long key : cropKeys) {
+                needed.add(key);
+            }
+        }
+    }
+
+
+    /**
+     * Returns the number of distinct tiles needed to extract all the crops.
+     * <p>Tiles needed again by crops beyond the prefetch depth are read more than once.</p>
+     *
+     * @return See above.
+     */
+    int getTileCount() {
+        return needed.size();
+    }
+
+
+    /**
+     * Submits the tiles of the next crops until the prefetch depth is reached.
+     *
+     * @param current The index of the crop being extracted.
+     */
+    private void fill(int current) {
+        while (submitted < crops.size() && submitted < current + prefetch) {
+            for (long key : keys.get(submitted)) {
+                pending.merge(key, 1, Integer::sum);
+                if (!tiles.containsKey(key)) {
+                    Bounds tile = grid.getTile(key);
+                    tiles.put(key, pool.getExecutor().submit(() -> pool.read(tile)));
+                }
+            }
+            submitted++;
+        }
+    }
+
+
+    /**
+     * Waits for a tile and releases it if no other submitted crop needs it.
+     *
+     * @param key The tile key.
+     *
+     * @return The tile bytes.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot read the tile.
+     */
+    private byte[] take(long key)
+    throws ServiceException, AccessException {
+        byte[] bytes;
+        try {
+            bytes = tiles.get(key).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccessException("Interrupted while reading crops", e);
+        } catch (ExecutionException e) {
+            throw PixelsReaderPool.unwrap(e.getCause());
+        }
+        if (pending.merge(key, -1, Integer::sum) == 0) {
+            pending.remove(key);
+            tiles.remove(key);
+        }
+        return bytes;
+    }
+
+
+    /**
+     * Extracts all the crops and passes them to the handler, in order, from the current thread.
+     *
+     * @param handler The handler, called once per crop.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot read the tiles.
+     */
+    void forEach(CropHandler handler)
+    throws ServiceException, AccessException {
+        for (int i = 0; i < crops.size(); i++) {
+            fill(i);
+
+            Coordinates start = crops.get(i).getStart();
+            Coordinates end   = crops.get(i).getEnd();
+            Coordinates size  = crops.get(i).getSize();
+
+            PixelsArray crop = new PixelsArray(pixelType,
+                                               size.getX(),
+                                               size.getY(),
+                                               size.getC(),
+                                               size.getZ(),
+                                               size.getT());
+            for (long key : keys.get(i)) {
+                byte[]      bytes     = take(key);
+                Bounds      tile      = grid.getTile(key);
+                Coordinates tileStart = tile.getStart();
+                Coordinates tileEnd   = tile.getEnd();
+
+                int x0 = Math.max(start.getX(), tileStart.getX());
+                int y0 = Math.max(start.getY(), tileStart.getY());
+                int x1 = Math.min(end.getX(), tileEnd.getX());
+                int y1 = Math.min(end.getY(), tileEnd.getY());
+
+                Coordinates pos = new Coordinates(x0 - start.getX(),
+                                                  y0 - start.getY(),
+                                                  tileStart.getC() - start.getC(),
+                                                  tileStart.getZ() - start.getZ(),
+                                                  tileStart.getT() - start.getT());
+                crop.setRawTile(bytes,
+                                tile.getSize().getX(),
+                                x0 - tileStart.getX(),
+                                y0 - tileStart.getY(),
+                                pos,
+                                x1 - x0 + 1,
+                                y1 - y0 + 1);
+            }
+            handler.handle(i, crop);
+        }
+    }
+
+
+    /**
+     * Cancels the tiles still pending.
+     */
+    @Override
+    public void close() {
+        tiles.values().forEach(f -> f.cancel(true));
+        tiles.clear();
+    }
+
+}
@@ -21,11 +21,15 @@ package fr.igred.omero.repository;
 import fr.igred.omero.Browser;
 import fr.igred.omero.Client;
 import fr.igred.omero.GenericObjectWrapper;
+import fr.igred.omero.NamePattern;
 import fr.igred.omero.annotations.TagAnnotationWrapper;
 import fr.igred.omero.exception.AccessException;
+import fr.igred.omero.exception.ExceptionHandler;
 import fr.igred.omero.exception.OMEROServerError;
 import fr.igred.omero.exception.ServiceException;
 import fr.igred.omero.roi.ROIWrapper;
+import ij.ImagePlus;
+import loci.formats.FormatTools;
 import omero.RLong;
 import omero.gateway.model.DatasetData;
 import omero.gateway.model.ImageData;
@@ -33,18 +37,20 @@ import omero.model.DatasetI;
 import omero.model.DatasetImageLink;
 import omero.model.DatasetImageLinkI;
 import omero.model.IObject;
+import omero.model.ImageI;
+import omero.model.PixelsType;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static fr.igred.omero.exception.ExceptionHandler.call;
 import static java.util.Collections.singletonList;
+import static omero.rtypes.rint;
 
 
 /**
@@ -226,6 +232,8 @@ public class DatasetWrapper extends GenericRepositoryObjectWrapper<DatasetData>
 
     /**
      * Gets all images in the dataset with a certain motif in their name from OMERO.
+     * <p>If the motif does not contain any regular expression metacharacter, the search is done on the server (see
+     * {@link #getImagesLike(Client, NamePattern)}).</p>
      *
      * @param client The client handling the connection.
      * @param motif  Motif searched in an image name.
@@ -238,6 +246,9 @@ public class DatasetWrapper extends GenericRepositoryObjectWrapper<DatasetData>
      */
     public List<ImageWrapper> getImagesLike(Client client, String motif)
     throws ServiceException, AccessException, ExecutionException {
+        if (NamePattern.isLiteral(motif)) {
+            return getImagesLike(client, NamePattern.contains(motif));
+        }
         List<ImageWrapper> images = getImages(client);
 
         String regexp = ".*" + motif + ".*";
@@ -246,6 +257,45 @@ public class DatasetWrapper extends GenericRepositoryObjectWrapper<DatasetData>
     }
 
 
+    /**
+     * Gets all images in the dataset with a name matching the pattern, searching on the server.
+     *
+     * @param client  The client handling the connection.
+     * @param pattern The name pattern.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<ImageWrapper> getImagesLike(Client client, NamePattern pattern)
+    throws ServiceException, AccessException, ExecutionException {
+        return getImagesLike(client, pattern, 0, 0);
+    }
+
+
+    /**
+     * Gets a page of the images in the dataset with a name matching the pattern, searching on the server.
+     * <p>Images are sorted by ID.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param pattern The name pattern.
+     * @param offset  The number of matching images to skip.
+     * @param limit   The maximum number of images returned (no limit if 0 or less).
+     *
+     * @return See above.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<ImageWrapper> getImagesLike(Client client, NamePattern pattern, int offset, int limit)
+    throws ServiceException, AccessException, ExecutionException {
+        return client.findImagesLike(this, pattern, offset, limit);
+    }
+
+
     /**
      * Gets all images in the dataset tagged with a specified tag from OMERO.
      *
@@ -329,24 +379,7 @@ public class DatasetWrapper extends GenericRepositoryObjectWrapper<DatasetData>
      */
     public List<ImageWrapper> getImagesWithKey(Client client, String key)
     throws ServiceException, AccessException, ExecutionException {
-        String error = "Cannot get images with key \"" + key + "\" from " + this;
-        Collection<ImageData> images = call(client.getBrowseFacility(),
-                                            bf -> bf.getImagesForDatasets(client.getCtx(),
-                                                                          singletonList(data.getId())),
-                                            error);
-
-        List<ImageWrapper> selected = new ArrayList<>(images.size());
-        for (ImageData image : images) {
-            ImageWrapper imageWrapper = new ImageWrapper(image);
-
-            Map<String, String> pairsKeyValue = imageWrapper.getKeyValuePairs(client);
-            if (pairsKeyValue.get(key) != null) {
-                selected.add(imageWrapper);
-            }
-        }
-        selected.sort(Comparator.comparing(GenericObjectWrapper::getId));
-
-        return selected;
+        return findImagesWithKeyValue(client, key, null);
     }
 
 
@@ -384,23 +417,26 @@ public class DatasetWrapper extends GenericRepositoryObjectWrapper<DatasetData>
      */
     public List<ImageWrapper> getImagesWithKeyValuePair(Client client, String key, String value)
     throws ServiceException, AccessException, ExecutionException {
-        Collection<ImageData> images = call(client.getBrowseFacility(),
-                                            bf -> bf.getImagesForDatasets(client.getCtx(),
-                                                                          singletonList(data.getId())),
-                                            "Cannot get images with key-value pair from " + this);
-
-        List<ImageWrapper> selected = new ArrayList<>(images.size());
-        for (ImageData image : images) {
-            ImageWrapper imageWrapper = new ImageWrapper(image);
+        return findImagesWithKeyValue(client, key, value);
+    }
 
-            Map<String, String> pairs = imageWrapper.getKeyValuePairs(client);
-            if (pairs.get(key) != null && pairs.get(key).equals(value)) {
-                selected.add(imageWrapper);
-            }
-        }
-        selected.sort(Comparator.comparing(GenericObjectWrapper::getId));
 
-        return selected;
+    /**
+     * Gets the images in the dataset annotated with a key (and optionally a value), with a single query on the server.
+     *
+     * @param client The client handling the connection.
+     * @param key    Name of the key researched.
+     * @param value  Value associated with the key (any value if null).
+     *
+     * @return The images, sorted by ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    private List<ImageWrapper> findImagesWithKeyValue(Client client, String key, String value)
+    throws ServiceException, AccessException, ExecutionException {
+        return client.findImagesWithKeyValue(this, key, value);
     }
 
 
@@ -519,6 +555,134 @@ public class DatasetWrapper extends GenericRepositoryObjectWrapper<DatasetData>
     }
 
 
+    /**
+     * Creates a new empty image in this dataset.
+     *
+     * @param client    The client handling the connection.
+     * @param name      The image name.
+     * @param pixelType The pixel type (see {@link PixelsWrapper#getPixelType()}).
+     * @param sizeX     The size along X.
+     * @param sizeY     The size along Y.
+     * @param sizeC     The number of channels.
+     * @param sizeZ     The number of slices.
+     * @param sizeT     The number of frames.
+     *
+     * @return The new image.
+     *
+     * @throws ServiceException         Cannot connect to OMERO.
+     * @throws AccessException          Cannot access data.
+     * @throws ExecutionException       A Facility can't be retrieved or instantiated.
+     * @throws IllegalArgumentException If the pixel type is unknown.
+     */
+    public ImageWrapper createImage(Client client,
+                                    String name,
+                                    String pixelType,
+                                    int sizeX,
+                                    int sizeY,
+                                    int sizeC,
+                                    int sizeZ,
+                                    int sizeT)
+    throws ServiceException, AccessException, ExecutionException {
+        List<IObject> types = ExceptionHandler.of(client.getGateway(),
+                                                  g -> g.getPixelsService(client.getCtx())
+                                                        .getAllEnumerations(PixelsType.class.getName()))
+                                              .handleServiceOrServer("Cannot retrieve pixel types")
+                                              .get();
+        PixelsType type = types.stream()
+                               .map(PixelsType.class::cast)
+                               .filter(t -> pixelType.equals(t.getValue().getValue()))
+                               .findFirst()
+                               .orElseThrow(() -> new IllegalArgumentException("Unknown pixel type: " + pixelType));
+
+        List<Integer> channels = IntStream.range(0, sizeC).boxed().collect(Collectors.toList());
+
+        RLong id = ExceptionHandler.of(client.getGateway(),
+                                       g -> g.getPixelsService(client.getCtx())
+                                             .createImage(rint(sizeX), rint(sizeY), rint(sizeZ), rint(sizeT),
+                                                          channels, type, name, ""))
+                                   .handleServiceOrServer("Cannot create image: " + name)
+                                   .get();
+
+        DatasetImageLink link = new DatasetImageLinkI();
+        link.setChild(new ImageI(id.getValue(), false));
+        link.setParent(new DatasetI(data.getId(), false));
+        client.save(link);
+        return client.getImage(id.getValue());
+    }
+
+
+    /**
+     * Creates a new image in this dataset from an ImagePlus, then writes its pixels.
+     *
+     * @param client  The client handling the connection.
+     * @param imp     The ImagePlus (8-bit, 16-bit or 32-bit).
+     * @param threads The number of threads used to encode the tiles while they are uploaded.
+     *
+     * @return The new image.
+     *
+     * @throws ServiceException         Cannot connect to OMERO.
+     * @throws AccessException          Cannot access data.
+     * @throws ExecutionException       A Facility can't be retrieved or instantiated.
+     * @throws IllegalArgumentException If the ImagePlus is an RGB image.
+     */
+    public ImageWrapper createImage(Client client, ImagePlus imp, int threads)
+    throws ServiceException, AccessException, ExecutionException {
+        String pixelType;
+        switch (imp.getBitDepth()) {
+            case 8:
+                pixelType = FormatTools.getPixelTypeString(FormatTools.UINT8);
+                break;
+            case 16:
+                pixelType = FormatTools.getPixelTypeString(FormatTools.UINT16);
+                break;
+            case 32:
+                pixelType = FormatTools.getPixelTypeString(FormatTools.FLOAT);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported bit depth: " + imp.getBitDepth());
+        }
+        ImageWrapper image = createImage(client,
+                                         imp.getTitle(),
+                                         pixelType,
+                                         imp.getWidth(),
+                                         imp.getHeight(),
+                                         imp.getNChannels(),
+                                         imp.getNSlices(),
+                                         imp.getNFrames());
+        image.getPixels().write(client, threads, imp);
+        return image;
+    }
+
+
+    /**
+     * Creates a new image in this dataset from a pixels array, then writes its pixels.
+     *
+     * @param client  The client handling the connection.
+     * @param name    The image name.
+     * @param array   The pixels.
+     * @param threads The number of threads used to encode the tiles while they are uploaded.
+     *
+     * @return The new image.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public ImageWrapper createImage(Client client, String name, PixelsArray array, int threads)
+    throws ServiceException, AccessException, ExecutionException {
+        ImageWrapper image = createImage(client,
+                                         name,
+                                         array.getPixelType(),
+                                         array.getSizeX(),
+                                         array.getSizeY(),
+                                         array.getSizeC(),
+                                         array.getSizeZ(),
+                                         array.getSizeT());
+        image.getPixels().write(client, threads, array);
+        return image;
+    }
+
+
     /**
      * Replaces (and unlinks) a collection of images from this dataset by a new image, after copying their annotations
      * and ROIs, and concatenating the descriptions (on new lines).
@@ -552,6 +716,7 @@ public class DatasetWrapper extends GenericRepositoryObjectWrapper<DatasetData>
                 folder.addImages(client, newImage);
             }
             this.removeImage(client, oldImage);
+            client.invalidateTiles(oldImage);
             if (oldImage.isOrphaned(client)) {
                 orphaned.add(oldImage);
             }
@@ -27,13 +27,16 @@ import fr.igred.omero.exception.OMEROServerError;
 import fr.igred.omero.exception.ServiceException;
 import fr.igred.omero.repository.PixelsWrapper.Bounds;
 import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import fr.igred.omero.repository.PixelsWrapper.CropHandler;
+import fr.igred.omero.repository.PixelsWrapper.ProjectionAxis;
+import fr.igred.omero.repository.PixelsWrapper.ProjectionType;
+import fr.igred.omero.roi.GenericShapeWrapper;
 import fr.igred.omero.roi.ROIWrapper;
 import ij.CompositeImage;
 import ij.IJ;
 import ij.ImagePlus;
 import ij.ImageStack;
 import ij.measure.Calibration;
-import ij.process.ImageProcessor;
 import ij.process.LUT;
 import loci.formats.FormatTools;
 import omero.RLong;
@@ -45,6 +48,7 @@ import omero.gateway.facility.TransferFacility;
 import omero.gateway.model.ChannelData;
 import omero.gateway.model.FolderData;
 import omero.gateway.model.ImageData;
+import omero.gateway.model.PixelsData;
 import omero.gateway.model.ROIData;
 import omero.gateway.model.ROIResult;
 import omero.gateway.model.WellSampleData;
@@ -55,6 +59,7 @@ import omero.model.Time;
 
 import javax.imageio.ImageIO;
 import java.awt.Color;
+import java.awt.Point;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.File;
@@ -88,6 +93,15 @@ public class ImageWrapper extends GenericRepositoryObjectWrapper<ImageData> {
     /** Default IJ property to store image ID. */
     public static final String IJ_ID_PROPERTY = "IMAGE_ID";
 
+    /** Default number of planes kept in memory by virtual stacks */
+    private static final int VIRTUAL_CACHE_SIZE = 16;
+
+    /** Default number of raw pixels stores used for parallel reads */
+    private static final int PARALLEL_READERS = 4;
+
+    /** Planes information and tile plan retrieved for the pixels of the image, reused by the next wrappers */
+    private PixelsWrapper.SharedData pixelsData;
+
 
     /**
      * Constructor of the class ImageWrapper
@@ -662,11 +676,47 @@ public class ImageWrapper extends GenericRepositoryObjectWrapper<ImageData> {
 
     /**
      * Gets the Pixels for this image.
+     * <p>A new object is returned on each call, but the planes information and the tile plan retrieved from the
+     * server are shared with the previous ones, as long as the pixels are the same.</p>
      *
      * @return See above.
      */
-    public PixelsWrapper getPixels() {
-        return new PixelsWrapper(data.getDefaultPixels());
+    public synchronized PixelsWrapper getPixels() {
+        PixelsData pixelsObject = data.getDefaultPixels();
+        if (pixelsData == null || pixelsData.getPixelsId() != pixelsObject.getId()) {
+            pixelsData = new PixelsWrapper.SharedData(pixelsObject.getId());
+        }
+        return new PixelsWrapper(pixelsObject, pixelsData);
+    }
+
+
+    /**
+     * Sets the LUTs of an ImagePlus from the channels rendering settings.
+     *
+     * @param imp      The ImagePlus.
+     * @param settings The rendering settings of the channels in the ImagePlus.
+     * @param windows  Whether the display range of each channel should be set from its display window, when known
+     *                 (otherwise, the current display range is kept).
+     */
+    private static void setLuts(ImagePlus imp, List<ChannelRenderingSettings> settings, boolean windows) {
+        LUT[] luts = imp.getLuts();
+        for (int c = 0; c < settings.size(); ++c) {
+            ChannelRenderingSettings channel = settings.get(c);
+            double                   min     = luts[c].min;
+            double                   max     = luts[c].max;
+            luts[c]     = LUT.createLutFromColor(channel.getColor());
+            luts[c].min = min;
+            luts[c].max = max;
+            if (windows && channel.hasWindow()) {
+                luts[c].min = channel.getWindowStart();
+                luts[c].max = channel.getWindowEnd();
+            }
+            imp.setC(c + 1);
+            imp.setLut(luts[c]);
+        }
+        if (imp.isComposite()) {
+            ((CompositeImage) imp).setLuts(luts);
+        }
     }
 
 
@@ -688,6 +738,146 @@ public class ImageWrapper extends GenericRepositoryObjectWrapper<ImageData> {
     }
 
 
+    /**
+     * Reads the values of the pixels contained in each shape of the ROI, reading tiles in parallel.
+     * <p>Shapes are rasterized and only the tiles containing shape pixels are read, which is much less than the
+     * bounding box of the ROI for lines, polylines or scattered points. Shapes without C, Z or T are read on every
+     * channel, z-section or time-point.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param roi     The ROI.
+     * @param threads The number of threads (and raw pixels stores) used to read the tiles.
+     *
+     * @return The pixel values of each shape, for each plane.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    public List<ShapePixels> getShapePixels(Client client, ROIWrapper roi, int threads)
+    throws ServiceException, AccessException {
+        PixelsWrapper     pixels = getPixels();
+        List<ShapePixels> shapes = new ArrayList<>(roi.getShapes().size());
+        for (GenericShapeWrapper<?> shape : roi.getShapes()) {
+            List<Point> points = shape.getContainedPoints()
+                                      .stream()
+                                      .filter(p -> p.x >= 0 && p.x < pixels.getSizeX())
+                                      .filter(p -> p.y >= 0 && p.y < pixels.getSizeY())
+                                      .collect(Collectors.toList());
+            for (int c : getPlaneIndices(shape.getC(), pixels.getSizeC())) {
+                for (int z : getPlaneIndices(shape.getZ(), pixels.getSizeZ())) {
+                    for (int t : getPlaneIndices(shape.getT(), pixels.getSizeT())) {
+                        shapes.add(new ShapePixels(shape, c, z, t, points));
+                    }
+                }
+            }
+        }
+        try (PixelsReaderPool pool = pixels.createReaderPool(client, threads)) {
+            pixels.readShapePixels(pool, shapes);
+        }
+        return shapes;
+    }
+
+
+    /**
+     * Returns the pixels inside the ROI, within its bounding box, reading only the tiles containing shape pixels.
+     * <p>Pixels outside the shapes are set to 0.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param roi     The ROI.
+     * @param threads The number of threads (and raw pixels stores) used to read the tiles.
+     *
+     * @return See above, or {@code null} if the ROI does not contain any pixel from the image.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    public PixelsArray getMaskedPixels(Client client, ROIWrapper roi, int threads)
+    throws ServiceException, AccessException {
+        List<ShapePixels> shapes = getShapePixels(client, roi, threads);
+
+        int[] min = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+        int[] max = {Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+        for (ShapePixels shape : shapes) {
+            for (int i = 0; i < shape.size(); i++) {
+                int[] pos = {shape.getX(i), shape.getY(i), shape.getC(), shape.getZ(), shape.getT()};
+                for (int d = 0; d < pos.length; d++) {
+                    min[d] = Math.min(min[d], pos[d]);
+                    max[d] = Math.max(max[d], pos[d]);
+                }
+            }
+        }
+
+        PixelsArray array = null;
+        if (min[0] <= max[0]) {
+            array = new PixelsArray(getPixels().getPixelType(),
+                                    max[0] - min[0] + 1,
+                                    max[1] - min[1] + 1,
+                                    max[2] - min[2] + 1,
+                                    max[3] - min[3] + 1,
+                                    max[4] - min[4] + 1);
+            for (ShapePixels shape : shapes) {
+                for (int i = 0; i < shape.size(); i++) {
+                    array.setValue(shape.getX(i) - min[0],
+                                   shape.getY(i) - min[1],
+                                   shape.getC() - min[2],
+                                   shape.getZ() - min[3],
+                                   shape.getT() - min[4],
+                                   shape.getValue(i));
+                }
+            }
+        }
+        return array;
+    }
+
+
+    /**
+     * Extracts the bounding box of each ROI one at a time, in order, and passes each of them to the handler.
+     * <p>Tiles shared by overlapping or adjacent ROIs within the prefetch depth are only read once, and only the tiles
+     * needed by these ROIs are kept in memory (see
+     * {@link PixelsWrapper#forEachCrop(Client, int, Collection, int, CropHandler)}).</p>
+     *
+     * @param client   The client handling the connection.
+     * @param threads  The number of threads (and raw pixels stores) used to read the tiles.
+     * @param rois     The ROIs.
+     * @param prefetch The number of ROIs whose tiles are read at the same time, including the ROI being handled.
+     * @param handler  The handler, called once per ROI, in order, from the current thread.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    public void forEachCrop(Client client,
+                            int threads,
+                            Collection<? extends ROIWrapper> rois,
+                            int prefetch,
+                            CropHandler handler)
+    throws ServiceException, AccessException {
+        List<Bounds> crops = rois.stream().map(ROIWrapper::getBounds).collect(Collectors.toList());
+        getPixels().forEachCrop(client, threads, crops, prefetch, handler);
+    }
+
+
+    /**
+     * Returns the plane indices a shape applies to.
+     *
+     * @param index The shape index (C, Z or T), or -1 if it applies to all planes.
+     * @param size  The image size along the corresponding dimension.
+     *
+     * @return See above.
+     */
+    private static int[] getPlaneIndices(int index, int size) {
+        int[] indices;
+        if (index < 0) {
+            indices = new int[size];
+            Arrays.setAll(indices, i -> i);
+        } else if (index < size) {
+            indices = new int[]{index};
+        } else {
+            indices = new int[0];
+        }
+        return indices;
+    }
+
+
     /**
      * Gets the ImagePlus from the image within the specified boundaries.
      *
@@ -712,11 +902,11 @@ public class ImageWrapper extends GenericRepositoryObjectWrapper<ImageData> {
                                  int[] tBounds)
     throws ServiceException, AccessException, ExecutionException {
         PixelsWrapper pixels = this.getPixels();
-        pixels.loadPlanesInfo(client);
 
         boolean createdRDF = pixels.createRawDataFacility(client);
 
         Bounds bounds = pixels.getBounds(xBounds, yBounds, cBounds, zBounds, tBounds);
+        pixels.loadPlanesInfo(client, bounds);
 
         int startX = bounds.getStart().getX();
         int startY = bounds.getStart().getY();
@@ -741,6 +931,14 @@ public class ImageWrapper extends GenericRepositoryObjectWrapper<ImageData> {
 
         boolean isFloat = FormatTools.isFloatingPoint(pixelType);
 
+        // ImageJ reads signed 8-bit and 16-bit values as unsigned
+        int displayType = pixelType;
+        if (pixelType == FormatTools.INT8) {
+            displayType = FormatTools.UINT8;
+        } else if (pixelType == FormatTools.INT16) {
+            displayType = FormatTools.UINT16;
+        }
+
         ImageStack stack = imp.getImageStack();
 
         double min = imp.getProcessor().getMin();
@@ -761,13 +959,13 @@ public class ImageWrapper extends GenericRepositoryObjectWrapper<ImageData> {
 
                     int n = imp.getStackIndex(c + 1, z + 1, t + 1);
                     stack.setPixels(makeDataArray(tiles, bpp, isFloat, false), n);
-                    ImageProcessor ip = stack.getProcessor(n);
-                    ip.resetMinAndMax();
 
-                    max = Math.max(ip.getMax(), max);
-                    min = Math.min(ip.getMin(), min);
+                    PixelStatistics stats = PixelStatistics.of(tiles, displayType);
+                    if (stats.getCount() > 0) {
+                        max = Math.max(stats.getMax(), max);
+                        min = Math.min(stats.getMin(), min);
+                    }
 
-                    stack.setProcessor(ip, n);
                     IJ.showProgress(n, progressTotal);
                 }
             }
@@ -779,15 +977,7 @@ public class ImageWrapper extends GenericRepositoryObjectWrapper<ImageData> {
 
         imp.getProcessor().setMinAndMax(min, max);
 
-        LUT[] luts = imp.getLuts();
-        for (int c = 0; c < sizeC; ++c) {
-            luts[c] = LUT.createLutFromColor(getChannelColor(client, startC + c));
-            imp.setC(c + 1);
-            imp.setLut(luts[c]);
-        }
-        if (imp.isComposite()) {
-            ((CompositeImage) imp).setLuts(luts);
-        }
+        setLuts(imp, getChannelsRenderingSettings(client).subList(startC, startC + sizeC), false);
         if (createdRDF) {
             pixels.destroyRawDataFacility();
         }
@@ -841,6 +1031,256 @@ public class ImageWrapper extends GenericRepositoryObjectWrapper<ImageData> {
     }
 
 
+    /**
+     * Gets an ImagePlus backed by a virtual stack, which reads planes on demand instead of downloading the whole image.
+     * <p>The first plane is read immediately, the others are read when displayed, and the neighbouring Z and T planes
+     * are read in the background. The display range is set from the first plane.</p>
+     * <p>The stack ({@link PixelsVirtualStack}) keeps raw pixels stores open until it is closed, which happens when
+     * the returned image is closed in ImageJ.</p>
+     *
+     * @param client The client handling the connection.
+     *
+     * @return an ImagePlus from the ij library.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    If an error occurs while retrieving the plane data from the pixels source.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public ImagePlus toVirtualImagePlus(Client client)
+    throws ServiceException, AccessException, ExecutionException {
+        return toVirtualImagePlus(client, getPixels().getBounds(null, null, null, null, null), VIRTUAL_CACHE_SIZE);
+    }
+
+
+    /**
+     * Gets an ImagePlus backed by a virtual stack within the specified boundaries.
+     * <p>The first plane is read immediately, the others are read when displayed, and the neighbouring Z and T planes
+     * are read in the background. The display range is set from the first plane.</p>
+     * <p>The stack ({@link PixelsVirtualStack}) keeps raw pixels stores open until it is closed, which happens when
+     * the returned image is closed in ImageJ.</p>
+     *
+     * @param client    The client handling the connection.
+     * @param bounds    The bounds.
+     * @param cacheSize The maximum number of planes kept in memory.
+     *
+     * @return an ImagePlus from the ij library.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    If an error occurs while retrieving the plane data from the pixels source.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public ImagePlus toVirtualImagePlus(Client client, Bounds bounds, int cacheSize)
+    throws ServiceException, AccessException, ExecutionException {
+        return toVirtualImagePlus(client, bounds, cacheSize, PARALLEL_READERS);
+    }
+
+
+    /**
+     * Gets an ImagePlus backed by a virtual stack within the specified boundaries.
+     * <p>The first plane is read immediately, the others are read when displayed, and the neighbouring Z and T planes
+     * are read in the background. The display range is set from the first plane.</p>
+     * <p>The stack ({@link PixelsVirtualStack}) keeps raw pixels stores open until it is closed, which happens when
+     * the returned image is closed in ImageJ.</p>
+     *
+     * @param client    The client handling the connection.
+     * @param bounds    The bounds.
+     * @param cacheSize The maximum number of planes kept in memory.
+     * @param threads   The number of threads (and raw pixels stores) used to read the planes.
+     *
+     * @return an ImagePlus from the ij library.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    If an error occurs while retrieving the plane data from the pixels source.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public ImagePlus toVirtualImagePlus(Client client, Bounds bounds, int cacheSize, int threads)
+    throws ServiceException, AccessException, ExecutionException {
+        PixelsWrapper pixels = this.getPixels();
+
+        int[] x = {bounds.getStart().getX(), bounds.getEnd().getX()};
+        int[] y = {bounds.getStart().getY(), bounds.getEnd().getY()};
+        int[] c = {bounds.getStart().getC(), bounds.getEnd().getC()};
+        int[] z = {bounds.getStart().getZ(), bounds.getEnd().getZ()};
+        int[] t = {bounds.getStart().getT(), bounds.getEnd().getT()};
+
+        Bounds lim = pixels.getBounds(x, y, c, z, t);
+        pixels.loadPlanesInfo(client, lim);
+
+        PixelsReaderPool   pool  = pixels.createReaderPool(client, threads);
+        PixelsVirtualStack stack = new PixelsVirtualStack(pixels, pool, lim, cacheSize);
+
+        boolean   success = false;
+        ImagePlus imp;
+        try {
+            pixels.getTilePlan(pool);
+
+            imp = toHyperStack(client, pixels, stack, lim, true);
+            stack.closeWith(imp);
+            success = true;
+        } finally {
+            if (!success) {
+                stack.close();
+            }
+        }
+        return imp;
+    }
+
+
+    /**
+     * Gets the ImagePlus from the image at the specified resolution level.
+     * <p>The pixel size is scaled according to the size of the level.</p>
+     *
+     * @param client The client handling the connection.
+     * @param level  The resolution level (see {@link PixelsWrapper#getResolutionLevels(Client)}).
+     *
+     * @return an ImagePlus from the ij library.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    If an error occurs while retrieving the plane data from the pixels source.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public ImagePlus toImagePlus(Client client, ResolutionLevel level)
+    throws ServiceException, AccessException, ExecutionException {
+        return toImagePlus(client, level, PARALLEL_READERS);
+    }
+
+
+    /**
+     * Gets the ImagePlus from the image at the specified resolution level, reading tiles in parallel.
+     * <p>The pixel size is scaled according to the size of the level.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param level   The resolution level (see {@link PixelsWrapper#getResolutionLevels(Client)}).
+     * @param threads The number of threads (and raw pixels stores) used to read the tiles.
+     *
+     * @return an ImagePlus from the ij library.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    If an error occurs while retrieving the plane data from the pixels source.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public ImagePlus toImagePlus(Client client, ResolutionLevel level, int threads)
+    throws ServiceException, AccessException, ExecutionException {
+        PixelsWrapper pixels = this.getPixels();
+        Bounds        lim    = pixels.getBounds(level.getSizeX(), level.getSizeY(), null, null, null, null, null);
+        pixels.loadPlanesInfo(client, lim);
+
+        PixelsArray array = pixels.getPixelsArray(client, threads, level);
+
+        ImagePlus   imp         = toHyperStack(client, pixels, array.toImageStack(), lim, true);
+        Calibration calibration = imp.getCalibration();
+        calibration.pixelWidth *= (double) pixels.getSizeX() / level.getSizeX();
+        calibration.pixelHeight *= (double) pixels.getSizeY() / level.getSizeY();
+        return imp;
+    }
+
+
+    /**
+     * Gets an ImagePlus containing the projection of the image along Z or T.
+     * <p>Planes are read in parallel and folded into the projection as they arrive, so the whole stack is never
+     * kept in memory.</p>
+     *
+     * @param client The client handling the connection.
+     * @param type   The projection type.
+     * @param axis   The projection axis.
+     *
+     * @return A 32-bit ImagePlus from the ij library.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    If an error occurs while retrieving the plane data from the pixels source.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public ImagePlus toProjectedImagePlus(Client client, ProjectionType type, ProjectionAxis axis)
+    throws ServiceException, AccessException, ExecutionException {
+        return toProjectedImagePlus(client, type, axis, PARALLEL_READERS);
+    }
+
+
+    /**
+     * Gets an ImagePlus containing the projection of the image along Z or T.
+     * <p>Planes are read in parallel and folded into the projection as they arrive, so the whole stack is never
+     * kept in memory.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param type    The projection type.
+     * @param axis    The projection axis.
+     * @param threads The number of threads (and raw pixels stores) used to read the planes.
+     *
+     * @return A 32-bit ImagePlus from the ij library.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    If an error occurs while retrieving the plane data from the pixels source.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public ImagePlus toProjectedImagePlus(Client client, ProjectionType type, ProjectionAxis axis, int threads)
+    throws ServiceException, AccessException, ExecutionException {
+        PixelsWrapper pixels = this.getPixels();
+        // Only the planes at the first position along the projection axis are needed for the calibration
+        int[] first   = {0, 0};
+        int[] zBounds = axis == ProjectionAxis.Z ? first : null;
+        int[] tBounds = axis == ProjectionAxis.T ? first : null;
+        pixels.loadPlanesInfo(client, null, zBounds, tBounds);
+
+        PixelsArray projection = pixels.project(client, threads, type, axis);
+
+        Coordinates start = new Coordinates(0, 0, 0, 0, 0);
+        Coordinates end = new Coordinates(projection.getSizeX() - 1,
+                                          projection.getSizeY() - 1,
+                                          projection.getSizeC() - 1,
+                                          projection.getSizeZ() - 1,
+                                          projection.getSizeT() - 1);
+
+        // Sums and standard deviations are not in the range of the raw values: only their own range is meaningful
+        boolean   windows = type == ProjectionType.MAX || type == ProjectionType.MIN || type == ProjectionType.MEAN;
+        ImagePlus imp     = toHyperStack(client, pixels, projection.toImageStack(), new Bounds(start, end), windows);
+        imp.setTitle(type + "_" + data.getName());
+        return imp;
+    }
+
+
+    /**
+     * Creates a hyperstack from an ImageJ stack, and sets its calibration and channel LUTs.
+     * <p>The display range of each channel is reset from the stack values, then set from its rendering window if
+     * requested and known.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param pixels  The pixels, with planes information loaded.
+     * @param stack   The stack, in the CZT order.
+     * @param lim     The bounds of the stack.
+     * @param windows Whether the display range of each channel should be set from its rendering window.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    private ImagePlus toHyperStack(Client client, PixelsWrapper pixels, ImageStack stack, Bounds lim, boolean windows)
+    throws ServiceException, AccessException, ExecutionException {
+        int startC = lim.getStart().getC();
+        int sizeC  = lim.getSize().getC();
+
+        ImagePlus imp = new ImagePlus(data.getName(), stack);
+        imp.setDimensions(sizeC, lim.getSize().getZ(), lim.getSize().getT());
+        imp.setOpenAsHyperStack(true);
+        if (sizeC > 1) {
+            imp = new CompositeImage(imp, IJ.COMPOSITE);
+        }
+
+        Calibration calibration = imp.getCalibration();
+        setCalibration(pixels, calibration);
+        imp.setCalibration(calibration);
+
+        imp.resetDisplayRange();
+        setLuts(imp, getChannelsRenderingSettings(client).subList(startC, startC + sizeC), windows);
+        imp.setPosition(1);
+        if (IJ.getVersion().compareTo("1.53a") >= 0) {
+            imp.setProp(IJ_ID_PROPERTY, getId());
+        }
+        return imp;
+    }
+
+
     /**
      * Gets the image channels.
      *
@@ -919,29 +1359,138 @@ public class ImageWrapper extends GenericRepositoryObjectWrapper<ImageData> {
         long  pixelsId = data.getDefaultPixels().getId();
         Color color    = getChannelImportedColor(client, index);
         try {
-            RenderingEnginePrx re = client.getGateway()
-                                          .getRenderingService(client.getCtx(),
-                                                               pixelsId);
+            RenderingEnginePrx re = openRenderingEngine(client, pixelsId);
+            try {
+                int[] rgba = re.getRGBA(index);
+                color = new Color(rgba[0], rgba[1], rgba[2], rgba[3]);
+            } finally {
+                re.close();
+            }
+        } catch (DSOutOfServiceException | ServerError e) {
+            Logger.getLogger(getClass().getName())
+                  .log(WARNING, "Error while retrieving current color", e);
+        }
+        return color;
+    }
+
+
+    /**
+     * Opens a rendering engine on the pixels set and loads the current rendering settings, creating default settings
+     * if there are none.
+     * <p>The rendering engine has to be closed by the caller.</p>
+     *
+     * @param client   The client handling the connection.
+     * @param pixelsId The pixels ID.
+     *
+     * @return See above.
+     *
+     * @throws DSOutOfServiceException Cannot connect to OMERO.
+     * @throws ServerError             Server error.
+     */
+    private static RenderingEnginePrx openRenderingEngine(Client client, long pixelsId)
+    throws DSOutOfServiceException, ServerError {
+        RenderingEnginePrx re = client.getGateway()
+                                      .getRenderingService(client.getCtx(),
+                                                           pixelsId);
+        boolean loaded = false;
+        try {
             re.lookupPixels(pixelsId);
             if (!(re.lookupRenderingDef(pixelsId))) {
                 re.resetDefaultSettings(true);
                 re.lookupRenderingDef(pixelsId);
             }
             re.load();
-            int[] rgba = re.getRGBA(index);
-            color = new Color(rgba[0], rgba[1], rgba[2], rgba[3]);
-            re.close();
+            loaded = true;
+        } finally {
+            if (!loaded) {
+                re.close();
+            }
+        }
+        return re;
+    }
+
+
+    /**
+     * Gets the current rendering settings (color, display window and lookup table) of all the channels, from a single
+     * rendering engine session.
+     * <p>If the rendering settings cannot be retrieved, the imported colors are returned, without display window.</p>
+     *
+     * @param client The client handling the connection.
+     *
+     * @return The rendering settings of each channel, sorted by index.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<ChannelRenderingSettings> getChannelsRenderingSettings(Client client)
+    throws ServiceException, AccessException, ExecutionException {
+        long                 pixelsId = data.getDefaultPixels().getId();
+        List<ChannelWrapper> channels = getChannels(client);
+
+        List<ChannelRenderingSettings> settings = new ArrayList<>(channels.size());
+        try {
+            RenderingEnginePrx re = openRenderingEngine(client, pixelsId);
+            try {
+                for (int c = 0; c < channels.size(); c++) {
+                    int[] rgba = re.getRGBA(c);
+                    settings.add(new ChannelRenderingSettings(c,
+                                                              new Color(rgba[0], rgba[1], rgba[2], rgba[3]),
+                                                              re.getChannelWindowStart(c),
+                                                              re.getChannelWindowEnd(c),
+                                                              re.getChannelLookupTable(c)));
+                }
+            } finally {
+                re.close();
+            }
         } catch (DSOutOfServiceException | ServerError e) {
             Logger.getLogger(getClass().getName())
-                  .log(WARNING, "Error while retrieving current color", e);
+                  .log(WARNING, "Error while retrieving current rendering settings", e);
+            settings.clear();
+            for (ChannelWrapper channel : channels) {
+                settings.add(new ChannelRenderingSettings(channel.getIndex(),
+                                                          channel.getColor(),
+                                                          Double.NaN,
+                                                          Double.NaN,
+                                                          null));
+            }
         }
-        return color;
+        return settings;
+    }
+
+
+    /**
+     * Renders a plane client-side, by compositing all the channels with their current rendering settings.
+     *
+     * @param client  The client handling the connection.
+     * @param z       The Z coordinate of the plane.
+     * @param t       The T coordinate of the plane.
+     * @param threads The number of threads used to read the tiles.
+     *
+     * @return The rendered plane as an RGB {@link BufferedImage}.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     * @see CompositeRenderer
+     */
+    public BufferedImage render(Client client, int z, int t, int threads)
+    throws ServiceException, AccessException, ExecutionException {
+        List<ChannelRenderingSettings> settings = getChannelsRenderingSettings(client);
+
+        PixelsWrapper     pixels   = getPixels();
+        CompositeRenderer renderer = new CompositeRenderer(pixels.getPixelType(), settings);
+        PixelsArray       plane    = pixels.getPixelsArray(client, threads,
+                                                           null, null, null,
+                                                           new int[]{z, z}, new int[]{t, t});
+        return renderer.renderImage(plane, 0, 0);
     }
 
 
     /**
      * Retrieves the image thumbnail of the specified size.
      * <p>If the image is not square, the size will be the longest side.
+     * <p>If the client has a {@link ThumbnailCache}, the thumbnail is read from the cache when possible.</p>
      *
      * @param client The client handling the connection.
      * @param size   The thumbnail size.
@@ -956,8 +1505,12 @@ public class ImageWrapper extends GenericRepositoryObjectWrapper<ImageData> {
     throws ServiceException, OMEROServerError, IOException {
         BufferedImage thumbnail = null;
 
+        ThumbnailCache cache = client.getThumbnailCache();
+
         byte[] arr = ExceptionHandler.of(client,
-                                         c -> getThumbnailBytes(c, size))
+                                         c -> cache != null
+                                              ? cache.get(getId(), size, getUpdated(), () -> getThumbnailBytes(c, size))
+                                              : getThumbnailBytes(c, size))
                                      .handleServiceOrServer("Error retrieving thumbnail.")
                                      .get();
         if (arr != null) {
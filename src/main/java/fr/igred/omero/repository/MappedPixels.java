@@ -0,0 +1,312 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import loci.formats.FormatTools;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+
+/**
+ * 5D raw pixels stored in a memory-mapped file, for regions larger than the heap.
+ * <p>Pixels are stored as big-endian bytes, densely, with X varying fastest, then Y, C, Z and T. The file is mapped in
+ * several buffers, each containing whole rows, and the operating system page cache decides which parts stay in
+ * memory.</p>
+ */
+public class MappedPixels implements AutoCloseable {
+
+    /** Maximum size of a mapped buffer */
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+
+    /** File containing the pixels */
+    private final Path file;
+
+    /** Channel used to map the file */
+    private final FileChannel channel;
+
+    /** Pixel type (see {@link FormatTools}) */
+    private final int pixelType;
+
+    /** Bytes per pixel */
+    private final int bpp;
+
+    /** Sizes along X, Y, C, Z and T */
+    private final int[] sizes;
+
+    /** Number of bytes per row */
+    private final int rowSize;
+
+    /** Number of rows per mapped buffer */
+    private final int rowsPerChunk;
+
+    /** Mapped buffers */
+    private final MappedByteBuffer[] chunks;
+
+
+    /**
+     * Creates (or overwrites) a file and maps it to store the specified pixels.
+     *
+     * @param file      The file.
+     * @param pixelType The pixel type (e.g. "uint16").
+     * @param sizeX     Size along X.
+     * @param sizeY     Size along Y.
+     * @param sizeC     Size along C.
+     * @param sizeZ     Size along Z.
+     * @param sizeT     Size along T.
+     *
+     * @throws IOException              If the file cannot be created or mapped.
+     * @throws IllegalArgumentException If the pixel type is unknown or a single row is too large.
+     */
+    public MappedPixels(Path file, String pixelType, int sizeX, int sizeY, int sizeC, int sizeZ, int sizeT)
+    throws IOException {
+        this.file      = file;
+        this.pixelType = FormatTools.pixelTypeFromString(pixelType);
+        this.bpp       = FormatTools.getBytesPerPixel(this.pixelType);
+        this.sizes     = new int[]{sizeX, sizeY, sizeC, sizeZ, sizeT};
+
+        long row = (long) sizeX * bpp;
+        if (row > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Rows are too large to be mapped: " + row + " bytes");
+        }
+        this.rowSize      = (int) row;
+        this.rowsPerChunk = (int) (MAX_CHUNK_SIZE / rowSize);
+
+        long rows  = (long) sizeY * sizeC * sizeZ * sizeT;
+        int  count = (int) ((rows + rowsPerChunk - 1) / rowsPerChunk);
+
+        this.channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, READ, WRITE);
+        this.chunks  = new MappedByteBuffer[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                long position = (long) i * rowsPerChunk * rowSize;
+                long size     = Math.min(rowsPerChunk, rows - (long) i * rowsPerChunk) * rowSize;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Returns the file containing the pixels.
+     *
+     * @return See above.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+
+    /**
+     * Returns the pixel type.
+     *
+     * @return See above.
+     */
+    public String getPixelType() {
+        return FormatTools.getPixelTypeString(pixelType);
+    }
+
+
+    /**
+     * Returns the number of bytes per pixel.
+     *
+     * @return See above.
+     */
+    public int getBytesPerPixel() {
+        return bpp;
+    }
+
+
+    /**
+     * Gets the size along the X axis.
+     *
+     * @return See above.
+     */
+    public int getSizeX() {
+        return sizes[0];
+    }
+
+
+    /**
+     * Gets the size along the Y axis.
+     *
+     * @return See above.
+     */
+    public int getSizeY() {
+        return sizes[1];
+    }
+
+
+    /**
+     * Gets the size along the C axis.
+     *
+     * @return See above.
+     */
+    public int getSizeC() {
+        return sizes[2];
+    }
+
+
+    /**
+     * Gets the size along the Z axis.
+     *
+     * @return See above.
+     */
+    public int getSizeZ() {
+        return sizes[3];
+    }
+
+
+    /**
+     * Gets the size along the T axis.
+     *
+     * @return See above.
+     */
+    public int getSizeT() {
+        return sizes[4];
+    }
+
+
+    /**
+     * Computes the index of a row in the file.
+     *
+     * @param y Y coordinate.
+     * @param c C coordinate.
+     * @param z Z coordinate.
+     * @param t T coordinate.
+     *
+     * @return See above.
+     */
+    private long getRowIndex(int y, int c, int z, int t) {
+        return y + (long) sizes[1] * (c + (long) sizes[2] * (z + (long) sizes[3] * t));
+    }
+
+
+    /**
+     * Returns a read-only view of a row. The view shares the mapped memory.
+     *
+     * @param y Y coordinate.
+     * @param c C coordinate.
+     * @param z Z coordinate.
+     * @param t T coordinate.
+     *
+     * @return A big-endian buffer containing the raw pixel values of the row.
+     */
+    public ByteBuffer getRow(int y, int c, int z, int t) {
+        long       row    = getRowIndex(y, c, z, t);
+        ByteBuffer buffer = chunks[(int) (row / rowsPerChunk)].asReadOnlyBuffer();
+        int        offset = (int) (row % rowsPerChunk) * rowSize;
+        buffer.limit(offset + rowSize);
+        buffer.position(offset);
+        return buffer.slice();
+    }
+
+
+    /**
+     * Gets the value of a pixel.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param c C coordinate.
+     * @param z Z coordinate.
+     * @param t T coordinate.
+     *
+     * @return The pixel value.
+     */
+    public double getValue(int x, int y, int c, int z, int t) {
+        long row   = getRowIndex(y, c, z, t);
+        int  index = (int) (row % rowsPerChunk) * sizes[0] + x;
+        return PixelBuffers.getValue(chunks[(int) (row / rowsPerChunk)], index, pixelType);
+    }
+
+
+    /**
+     * Copies a plane to the heap.
+     *
+     * @param c C coordinate.
+     * @param z Z coordinate.
+     * @param t T coordinate.
+     *
+     * @return See above.
+     */
+    public PixelsArray getPlane(int c, int z, int t) {
+        PixelsArray plane = new PixelsArray(getPixelType(), sizes[0], sizes[1], 1, 1, 1);
+        byte[]      bytes = new byte[rowSize];
+        for (int y = 0; y < sizes[1]; y++) {
+            getRow(y, c, z, t).get(bytes);
+            plane.setRawTile(bytes, new Coordinates(0, y, 0, 0, 0), sizes[0], 1);
+        }
+        return plane;
+    }
+
+
+    /**
+     * Copies raw (big-endian) bytes, row by row, to the specified position. Tiles which do not overlap can be written
+     * concurrently.
+     *
+     * @param bytes  The raw bytes.
+     * @param start  The position, relative to these pixels.
+     * @param width  Width of the tile.
+     * @param height Height of the tile.
+     */
+    void setRawTile(byte[] bytes, Coordinates start, int width, int height) {
+        int length = width * bpp;
+        for (int y = 0; y < height; y++) {
+            long       row    = getRowIndex(start.getY() + y, start.getC(), start.getZ(), start.getT());
+            ByteBuffer buffer = chunks[(int) (row / rowsPerChunk)].duplicate();
+            buffer.position((int) (row % rowsPerChunk) * rowSize + start.getX() * bpp);
+            buffer.put(bytes, y * length, length);
+        }
+    }
+
+
+    /**
+     * Writes the changes to the file.
+     */
+    public void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+
+    /**
+     * Writes the changes to the file and closes it. The mapped memory is released once unreachable.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import loci.formats.FormatTools;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Helper methods to copy and convert raw (big-endian) pixel values.
+ */
+final class PixelBuffers {
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private PixelBuffers() {
+    }
+
+
+    /**
+     * Copies a raw tile, row by row, at the corresponding position in a raw plane.
+     *
+     * @param tile     Array containing the tile bytes.
+     * @param width    Width of the tile.
+     * @param height   Height of the tile.
+     * @param plane    Array containing the plane bytes.
+     * @param x0       X position of the tile in the plane.
+     * @param y0       Y position of the tile in the plane.
+     * @param imgWidth Width of the plane.
+     * @param bpp      Bytes per pixels of the image.
+     */
+    static void copy(byte[] tile, int width, int height, byte[] plane, int x0, int y0, int imgWidth, int bpp) {
+        int rowLength = width * bpp;
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(tile, y * rowLength, plane, ((y + y0) * imgWidth + x0) * bpp, rowLength);
+        }
+    }
+
+
+    /**
+     * Copies a raw tile, row by row, at the corresponding position in a buffer containing a raw plane.
+     * <p>The buffer position is not modified.</p>
+     *
+     * @param tile     Array containing the tile bytes.
+     * @param width    Width of the tile.
+     * @param height   Height of the tile.
+     * @param buffer   Buffer containing the plane bytes, starting at its current position.
+     * @param x0       X position of the tile in the plane.
+     * @param y0       Y position of the tile in the plane.
+     * @param imgWidth Width of the plane.
+     * @param bpp      Bytes per pixels of the image.
+     */
+    static void copy(byte[] tile, int width, int height, ByteBuffer buffer, int x0, int y0, int imgWidth, int bpp) {
+        ByteBuffer output    = buffer.duplicate();
+        int        base      = buffer.position();
+        int        rowLength = width * bpp;
+        for (int y = 0; y < height; y++) {
+            output.position(base + ((y + y0) * imgWidth + x0) * bpp);
+            output.put(tile, y * rowLength, rowLength);
+        }
+    }
+
+
+    /**
+     * Converts a raw tile to double values, at the corresponding position in a 2D array.
+     *
+     * @param tile      Array containing the tile bytes.
+     * @param width     Width of the tile.
+     * @param height    Height of the tile.
+     * @param tab       2D array containing the results.
+     * @param x0        X position of the tile in the array.
+     * @param y0        Y position of the tile in the array.
+     * @param pixelType The pixel type (see {@link FormatTools}).
+     */
+    static void copy(byte[] tile, int width, int height, double[][] tab, int x0, int y0, int pixelType) {
+        ByteBuffer buffer = ByteBuffer.wrap(tile);
+        for (int y = 0; y < height; y++) {
+            double[] row    = tab[y + y0];
+            int      offset = y * width;
+            for (int x = 0; x < width; x++) {
+                row[x + x0] = getValue(buffer, offset + x, pixelType);
+            }
+        }
+    }
+
+
+    /**
+     * Encodes part of a primitive array containing pixels (row by row) to raw (big-endian) bytes.
+     *
+     * @param pixels    The pixels: a byte, short, int, float or double array.
+     * @param offset    Index of the first pixel to encode.
+     * @param rowStride Number of elements between two rows in the array.
+     * @param width     Width of the part to encode.
+     * @param height    Height of the part to encode.
+     *
+     * @return The raw bytes.
+     *
+     * @throws IllegalArgumentException If the array type is not supported.
+     */
+    static byte[] encode(Object pixels, int offset, int rowStride, int width, int height) {
+        int bpp;
+        if (pixels instanceof byte[]) {
+            bpp = Byte.BYTES;
+        } else if (pixels instanceof short[]) {
+            bpp = Short.BYTES;
+        } else if (pixels instanceof int[] || pixels instanceof float[]) {
+            bpp = Integer.BYTES;
+        } else if (pixels instanceof double[]) {
+            bpp = Double.BYTES;
+        } else {
+            throw new IllegalArgumentException("Unsupported pixels array: " + pixels);
+        }
+
+        byte[]     bytes  = new byte[width * height * bpp];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        for (int y = 0; y < height; y++) {
+            int        from = offset + y * rowStride;
+            ByteBuffer row  = buffer.duplicate();
+            row.position(y * width * bpp);
+            if (pixels instanceof byte[]) {
+                row.put((byte[]) pixels, from, width);
+            } else if (pixels instanceof short[]) {
+                row.asShortBuffer().put((short[]) pixels, from, width);
+            } else if (pixels instanceof int[]) {
+                row.asIntBuffer().put((int[]) pixels, from, width);
+            } else if (pixels instanceof float[]) {
+                row.asFloatBuffer().put((float[]) pixels, from, width);
+            } else {
+                row.asDoubleBuffer().put((double[]) pixels, from, width);
+            }
+        }
+        return bytes;
+    }
+
+
+    /**
+     * Reads the value of a pixel from a big-endian buffer.
+     *
+     * @param buffer    The buffer containing the raw values.
+     * @param index     The pixel index (not the byte index).
+     * @param pixelType The pixel type (see {@link FormatTools}).
+     *
+     * @return The pixel value.
+     */
+    static double getValue(ByteBuffer buffer, int index, int pixelType) {
+        switch (pixelType) {
+            case FormatTools.INT8:
+                return buffer.get(index);
+            case FormatTools.INT16:
+                return buffer.getShort(index * Short.BYTES);
+            case FormatTools.UINT16:
+                return buffer.getShort(index * Short.BYTES) & 0xFFFF;
+            case FormatTools.INT32:
+                return buffer.getInt(index * Integer.BYTES);
+            case FormatTools.UINT32:
+                return buffer.getInt(index * Integer.BYTES) & 0xFFFFFFFFL;
+            case FormatTools.FLOAT:
+                return buffer.getFloat(index * Float.BYTES);
+            case FormatTools.DOUBLE:
+                return buffer.getDouble(index * Double.BYTES);
+            case FormatTools.UINT8:
+            case FormatTools.BIT:
+            default:
+                return buffer.get(index) & 0xFF;
+        }
+    }
+
+}
@@ -0,0 +1,392 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import loci.formats.FormatTools;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Running statistics of pixel values: count, extrema, mean, variance and a fixed-bin histogram, from which approximate
+ * quantiles are computed.
+ * <p>Statistics can be computed separately (e.g. for each tile) and merged. For 8-bit and 16-bit integer pixels,
+ * the histogram covers the whole pixel type range, so merged histograms are exact. For other types, the histogram
+ * covers the observed range and is resampled when statistics with a different range are merged.</p>
+ * <p>Non-finite values (NaN and infinities) are skipped: they are only counted separately.</p>
+ */
+public class PixelStatistics {
+
+    /** Default number of histogram bins */
+    public static final int DEFAULT_BINS = 1024;
+
+    /** Histogram */
+    private long[] histogram;
+
+    /** Lower bound of the histogram */
+    private double lower;
+
+    /** Upper bound of the histogram */
+    private double upper;
+
+    /** Number of values */
+    private long count;
+
+    /** Number of skipped non-finite values */
+    private long nonFinite;
+
+    /** Minimum value */
+    private double min;
+
+    /** Maximum value */
+    private double max;
+
+    /** Mean value */
+    private double mean;
+
+    /** Sum of squared differences to the mean */
+    private double m2;
+
+
+    /**
+     * Constructor of the PixelStatistics class.
+     *
+     * @param lower The lower bound of the histogram.
+     * @param upper The upper bound of the histogram.
+     * @param bins  The number of histogram bins.
+     */
+    public PixelStatistics(double lower, double upper, int bins) {
+        this.histogram = new long[Math.max(1, bins)];
+        this.lower     = lower;
+        this.upper     = upper;
+        this.count     = 0;
+        this.nonFinite = 0;
+        this.min       = Double.POSITIVE_INFINITY;
+        this.max       = Double.NEGATIVE_INFINITY;
+        this.mean      = 0;
+        this.m2        = 0;
+    }
+
+
+    /**
+     * Creates empty statistics for the specified pixel type.
+     *
+     * @param pixelType The pixel type (see {@link FormatTools}).
+     *
+     * @return See above.
+     */
+    static PixelStatistics forPixelType(int pixelType) {
+        PixelStatistics stats;
+        if (hasFixedRange(pixelType)) {
+            long[] range = FormatTools.defaultMinMax(pixelType);
+            int    bins  = (int) Math.min(DEFAULT_BINS, range[1] - range[0] + 1);
+            stats = new PixelStatistics(range[0], range[1] + 1, bins);
+        } else {
+            stats = new PixelStatistics(Double.NaN, Double.NaN, DEFAULT_BINS);
+        }
+        return stats;
+    }
+
+
+    /**
+     * Computes the statistics of raw (big-endian) values.
+     *
+     * @param bytes     The raw bytes.
+     * @param pixelType The pixel type (see {@link FormatTools}).
+     *
+     * @return See above.
+     */
+    static PixelStatistics of(byte[] bytes, int pixelType) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int        length = bytes.length / FormatTools.getBytesPerPixel(pixelType);
+
+        PixelStatistics stats = forPixelType(pixelType);
+        if (!hasFixedRange(pixelType)) {
+            double lower = Double.POSITIVE_INFINITY;
+            double upper = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < length; i++) {
+                double value = PixelBuffers.getValue(buffer, i, pixelType);
+                if (Double.isFinite(value)) {
+                    lower = Math.min(lower, value);
+                    upper = Math.max(upper, value);
+                }
+            }
+            if (lower <= upper) {
+                stats.lower = lower;
+                stats.upper = upper;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            stats.add(PixelBuffers.getValue(buffer, i, pixelType));
+        }
+        return stats;
+    }
+
+
+    /**
+     * Returns whether the histogram of the pixel type covers the whole type range.
+     *
+     * @param pixelType The pixel type (see {@link FormatTools}).
+     *
+     * @return See above.
+     */
+    private static boolean hasFixedRange(int pixelType) {
+        return !FormatTools.isFloatingPoint(pixelType) && FormatTools.getBytesPerPixel(pixelType) <= 2;
+    }
+
+
+    /**
+     * Returns the histogram bin containing a value (values outside the histogram are put in the first or last bin).
+     *
+     * @param value The value.
+     *
+     * @return See above.
+     */
+    private int getBin(double value) {
+        int bin = 0;
+        if (upper > lower) {
+            bin = (int) ((value - lower) / (upper - lower) * histogram.length);
+        }
+        return Math.max(0, Math.min(histogram.length - 1, bin));
+    }
+
+
+    /**
+     * Adds a value (non-finite values are only counted, see {@link #getNonFiniteCount()}).
+     *
+     * @param value The value.
+     */
+    public void add(double value) {
+        if (!Double.isFinite(value)) {
+            nonFinite++;
+            return;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+
+        histogram[getBin(value)]++;
+    }
+
+
+    /**
+     * Merges other statistics into these statistics.
+     *
+     * @param other The other statistics.
+     */
+    public void merge(PixelStatistics other) {
+        nonFinite += other.nonFinite;
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            histogram = other.histogram.clone();
+            lower     = other.lower;
+            upper     = other.upper;
+            count     = other.count;
+            min       = other.min;
+            max       = other.max;
+            mean      = other.mean;
+            m2        = other.m2;
+            return;
+        }
+
+        long   total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * count * other.count / total;
+        count = total;
+        min   = Math.min(min, other.min);
+        max   = Math.max(max, other.max);
+
+        if (lower == other.lower && upper == other.upper && histogram.length == other.histogram.length) {
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += other.histogram[i];
+            }
+        } else {
+            long[] previous = histogram;
+            double from     = lower;
+            double to       = upper;
+
+            histogram = new long[previous.length];
+            lower     = Math.min(lower, other.lower);
+            upper     = Math.max(upper, other.upper);
+            resample(previous, from, to);
+            resample(other.histogram, other.lower, other.upper);
+        }
+    }
+
+
+    /**
+     * Adds the counts of another histogram to the histogram, assigning each bin to the bin containing its center.
+     *
+     * @param source The other histogram.
+     * @param from   The lower bound of the other histogram.
+     * @param to     The upper bound of the other histogram.
+     */
+    private void resample(long[] source, double from, double to) {
+        double width = (to - from) / source.length;
+        for (int i = 0; i < source.length; i++) {
+            if (source[i] > 0) {
+                histogram[getBin(from + (i + 0.5) * width)] += source[i];
+            }
+        }
+    }
+
+
+    /**
+     * Returns the number of values.
+     *
+     * @return See above.
+     */
+    public long getCount() {
+        return count;
+    }
+
+
+    /**
+     * Returns the number of non-finite values (NaN and infinities), which were skipped.
+     *
+     * @return See above.
+     */
+    public long getNonFiniteCount() {
+        return nonFinite;
+    }
+
+
+    /**
+     * Returns the minimum value.
+     *
+     * @return See above.
+     */
+    public double getMin() {
+        return min;
+    }
+
+
+    /**
+     * Returns the maximum value.
+     *
+     * @return See above.
+     */
+    public double getMax() {
+        return max;
+    }
+
+
+    /**
+     * Returns the mean value.
+     *
+     * @return See above.
+     */
+    public double getMean() {
+        return mean;
+    }
+
+
+    /**
+     * Returns the variance (with n - 1 degrees of freedom).
+     *
+     * @return See above.
+     */
+    public double getVariance() {
+        return count > 1 ? m2 / (count - 1) : 0;
+    }
+
+
+    /**
+     * Returns the standard deviation (with n - 1 degrees of freedom).
+     *
+     * @return See above.
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+
+    /**
+     * Returns a copy of the histogram.
+     *
+     * @return See above.
+     */
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+
+
+    /**
+     * Returns the lower bound of the histogram.
+     *
+     * @return See above.
+     */
+    public double getHistogramMin() {
+        return lower;
+    }
+
+
+    /**
+     * Returns the upper bound of the histogram.
+     *
+     * @return See above.
+     */
+    public double getHistogramMax() {
+        return upper;
+    }
+
+
+    /**
+     * Returns an approximate quantile, interpolated from the histogram.
+     *
+     * @param q The quantile, between 0 and 1 (e.g. 0.5 for the median).
+     *
+     * @return See above, or {@link Double#NaN} if there are no values.
+     */
+    public double getQuantile(double q) {
+        double quantile = Double.NaN;
+        if (count > 0) {
+            double target = Math.max(0, Math.min(1, q)) * count;
+            double width  = (upper - lower) / histogram.length;
+
+            long cumulative = 0;
+            int  bin        = 0;
+            while (bin < histogram.length - 1 && cumulative + histogram[bin] < target) {
+                cumulative += histogram[bin];
+                bin++;
+            }
+            double fraction = histogram[bin] > 0 ? (target - cumulative) / histogram[bin] : 0;
+            quantile = Math.max(min, Math.min(max, lower + (bin + fraction) * width));
+        }
+        return quantile;
+    }
+
+
+    /**
+     * Overridden to return the name of the class and the main statistics.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s (count=%d, min=%s, max=%s, mean=%s, sd=%s)",
+                             getClass().getSimpleName(), count, min, max, mean, getStandardDeviation());
+    }
+
+}
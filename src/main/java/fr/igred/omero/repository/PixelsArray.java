@@ -0,0 +1,514 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import ij.ImageStack;
+import ij.process.ByteProcessor;
+import ij.process.FloatProcessor;
+import ij.process.ImageProcessor;
+import ij.process.ShortProcessor;
+import loci.formats.FormatTools;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * 5D pixel container backed by a single primitive array matching the pixel type (byte, short, int, float or double).
+ * <p>Pixels are stored with X varying fastest, then Y, C, Z and T (the ImageJ stack order). Views over a sub-region
+ * share the same storage, so no pixel is copied when slicing.</p>
+ */
+public class PixelsArray {
+
+    /** Pixel type (see {@link FormatTools}) */
+    private final int pixelType;
+
+    /** Primitive array containing the pixels */
+    private final Object data;
+
+    /** Index of the first pixel in the array */
+    private final int offset;
+
+    /** Sizes along X, Y, C, Z and T */
+    private final int[] sizes;
+
+    /** Strides along X, Y, C, Z and T */
+    private final int[] strides;
+
+
+    /**
+     * Constructor of the PixelsArray class.
+     *
+     * @param pixelType The pixel type (e.g. "uint16").
+     * @param sizeX     Size along X.
+     * @param sizeY     Size along Y.
+     * @param sizeC     Size along C.
+     * @param sizeZ     Size along Z.
+     * @param sizeT     Size along T.
+     *
+     * @throws IllegalArgumentException If the pixel type is unknown or the array would be too large.
+     */
+    public PixelsArray(String pixelType, int sizeX, int sizeY, int sizeC, int sizeZ, int sizeT) {
+        this.pixelType = FormatTools.pixelTypeFromString(pixelType);
+        this.sizes     = new int[]{sizeX, sizeY, sizeC, sizeZ, sizeT};
+        this.strides   = new int[5];
+        this.offset    = 0;
+
+        long length = 1;
+        for (int i = 0; i < sizes.length; i++) {
+            strides[i] = (int) length;
+            length *= sizes[i];
+            if (length > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many pixels for a single array: " + length + "+");
+            }
+        }
+        this.data = allocate(this.pixelType, (int) length);
+    }
+
+
+    /**
+     * Constructor for views.
+     *
+     * @param pixelType The pixel type (see {@link FormatTools}).
+     * @param data      The primitive array.
+     * @param offset    Index of the first pixel.
+     * @param sizes     Sizes along X, Y, C, Z and T.
+     * @param strides   Strides along X, Y, C, Z and T.
+     */
+    private PixelsArray(int pixelType, Object data, int offset, int[] sizes, int[] strides) {
+        this.pixelType = pixelType;
+        this.data      = data;
+        this.offset    = offset;
+        this.sizes     = sizes;
+        this.strides   = strides;
+    }
+
+
+    /**
+     * Allocates a primitive array for the specified pixel type.
+     *
+     * @param pixelType The pixel type (see {@link FormatTools}).
+     * @param length    The array length.
+     *
+     * @return See above.
+     */
+    private static Object allocate(int pixelType, int length) {
+        switch (pixelType) {
+            case FormatTools.INT16:
+            case FormatTools.UINT16:
+                return new short[length];
+            case FormatTools.INT32:
+            case FormatTools.UINT32:
+                return new int[length];
+            case FormatTools.FLOAT:
+                return new float[length];
+            case FormatTools.DOUBLE:
+                return new double[length];
+            case FormatTools.INT8:
+            case FormatTools.UINT8:
+            case FormatTools.BIT:
+                return new byte[length];
+            default:
+                throw new IllegalArgumentException("Unknown pixel type: " + pixelType);
+        }
+    }
+
+
+    /**
+     * Returns the pixel type.
+     *
+     * @return See above.
+     */
+    public String getPixelType() {
+        return FormatTools.getPixelTypeString(pixelType);
+    }
+
+
+    /**
+     * Returns the number of bytes per pixel.
+     *
+     * @return See above.
+     */
+    public int getBytesPerPixel() {
+        return FormatTools.getBytesPerPixel(pixelType);
+    }
+
+
+    /**
+     * Gets the size along the X axis.
+     *
+     * @return See above.
+     */
+    public int getSizeX() {
+        return sizes[0];
+    }
+
+
+    /**
+     * Gets the size along the Y axis.
+     *
+     * @return See above.
+     */
+    public int getSizeY() {
+        return sizes[1];
+    }
+
+
+    /**
+     * Gets the size along the C axis.
+     *
+     * @return See above.
+     */
+    public int getSizeC() {
+        return sizes[2];
+    }
+
+
+    /**
+     * Gets the size along the Z axis.
+     *
+     * @return See above.
+     */
+    public int getSizeZ() {
+        return sizes[3];
+    }
+
+
+    /**
+     * Gets the size along the T axis.
+     *
+     * @return See above.
+     */
+    public int getSizeT() {
+        return sizes[4];
+    }
+
+
+    /**
+     * Returns the underlying primitive array (shared with views).
+     *
+     * @return See above.
+     */
+    Object getData() {
+        return data;
+    }
+
+
+    /**
+     * Computes the index of a pixel in the underlying array.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param c C coordinate.
+     * @param z Z coordinate.
+     * @param t T coordinate.
+     *
+     * @return See above.
+     */
+    int index(int x, int y, int c, int z, int t) {
+        return offset + x * strides[0] + y * strides[1] + c * strides[2] + z * strides[3] + t * strides[4];
+    }
+
+
+    /**
+     * Gets the value of a pixel.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param c C coordinate.
+     * @param z Z coordinate.
+     * @param t T coordinate.
+     *
+     * @return The pixel value.
+     */
+    public double getValue(int x, int y, int c, int z, int t) {
+        return get(index(x, y, c, z, t));
+    }
+
+
+    /**
+     * Sets the value of a pixel. The value is cast to the pixel type.
+     *
+     * @param x     X coordinate.
+     * @param y     Y coordinate.
+     * @param c     C coordinate.
+     * @param z     Z coordinate.
+     * @param t     T coordinate.
+     * @param value The pixel value.
+     */
+    public void setValue(int x, int y, int c, int z, int t, double value) {
+        set(index(x, y, c, z, t), value);
+    }
+
+
+    /**
+     * Gets the value at the specified index of the underlying array.
+     *
+     * @param i The index.
+     *
+     * @return See above.
+     */
+    private double get(int i) {
+        switch (pixelType) {
+            case FormatTools.INT8:
+                return ((byte[]) data)[i];
+            case FormatTools.INT16:
+                return ((short[]) data)[i];
+            case FormatTools.UINT16:
+                return ((short[]) data)[i] & 0xFFFF;
+            case FormatTools.INT32:
+                return ((int[]) data)[i];
+            case FormatTools.UINT32:
+                return ((int[]) data)[i] & 0xFFFFFFFFL;
+            case FormatTools.FLOAT:
+                return ((float[]) data)[i];
+            case FormatTools.DOUBLE:
+                return ((double[]) data)[i];
+            default:
+                return ((byte[]) data)[i] & 0xFF;
+        }
+    }
+
+
+    /**
+     * Sets the value at the specified index of the underlying array.
+     *
+     * @param i     The index.
+     * @param value The value.
+     */
+    private void set(int i, double value) {
+        switch (pixelType) {
+            case FormatTools.INT16:
+            case FormatTools.UINT16:
+                ((short[]) data)[i] = (short) (long) value;
+                break;
+            case FormatTools.INT32:
+            case FormatTools.UINT32:
+                ((int[]) data)[i] = (int) (long) value;
+                break;
+            case FormatTools.FLOAT:
+                ((float[]) data)[i] = (float) value;
+                break;
+            case FormatTools.DOUBLE:
+                ((double[]) data)[i] = value;
+                break;
+            default:
+                ((byte[]) data)[i] = (byte) (long) value;
+        }
+    }
+
+
+    /**
+     * Returns a view of a sub-region of this array. The view shares the same storage.
+     *
+     * @param bounds The bounds of the view, relative to this array.
+     *
+     * @return See above.
+     *
+     * @throws IndexOutOfBoundsException If the bounds are not contained in this array.
+     */
+    public PixelsArray view(Bounds bounds) {
+        Coordinates start = bounds.getStart();
+        Coordinates end   = bounds.getEnd();
+
+        int[] from = {start.getX(), start.getY(), start.getC(), start.getZ(), start.getT()};
+        int[] to   = {end.getX(), end.getY(), end.getC(), end.getZ(), end.getT()};
+
+        int[] viewSizes = new int[5];
+        for (int i = 0; i < sizes.length; i++) {
+            if (from[i] < 0 || to[i] >= sizes[i] || from[i] > to[i]) {
+                String msg = String.format("Invalid bounds along dimension %d: [%d-%d]", i, from[i], to[i]);
+                throw new IndexOutOfBoundsException(msg);
+            }
+            viewSizes[i] = to[i] - from[i] + 1;
+        }
+        int viewOffset = index(from[0], from[1], from[2], from[3], from[4]);
+        return new PixelsArray(pixelType, data, viewOffset, viewSizes, strides);
+    }
+
+
+    /**
+     * Returns a view of a single plane of this array. The view shares the same storage.
+     *
+     * @param c C coordinate.
+     * @param z Z coordinate.
+     * @param t T coordinate.
+     *
+     * @return See above.
+     */
+    public PixelsArray getPlane(int c, int z, int t) {
+        Coordinates start = new Coordinates(0, 0, c, z, t);
+        Coordinates end   = new Coordinates(sizes[0] - 1, sizes[1] - 1, c, z, t);
+        return view(new Bounds(start, end));
+    }
+
+
+    /**
+     * Decodes raw (big-endian) bytes and copies them, row by row, to the specified position.
+     *
+     * @param bytes  The raw bytes.
+     * @param start  The position, relative to this array.
+     * @param width  Width of the tile.
+     * @param height Height of the tile.
+     */
+    void setRawTile(byte[] bytes, Coordinates start, int width, int height) {
+        setRawTile(bytes, width, 0, 0, start, width, height);
+    }
+
+
+    /**
+     * Decodes part of raw (big-endian) tile bytes and copies it, row by row, to the specified position.
+     *
+     * @param bytes     The raw bytes of the tile.
+     * @param tileWidth Width of the tile.
+     * @param offsetX   X coordinate of the part to copy, in the tile.
+     * @param offsetY   Y coordinate of the part to copy, in the tile.
+     * @param start     The position, relative to this array.
+     * @param width     Width of the part to copy.
+     * @param height    Height of the part to copy.
+     */
+    void setRawTile(byte[] bytes, int tileWidth, int offsetX, int offsetY, Coordinates start, int width, int height) {
+        int bpp = getBytesPerPixel();
+        for (int y = 0; y < height; y++) {
+            int        i   = index(start.getX(), start.getY() + y, start.getC(), start.getZ(), start.getT());
+            int        src = (offsetY + y) * tileWidth + offsetX;
+            ByteBuffer row = ByteBuffer.wrap(bytes, src * bpp, width * bpp);
+            switch (pixelType) {
+                case FormatTools.INT16:
+                case FormatTools.UINT16:
+                    row.asShortBuffer().get((short[]) data, i, width);
+                    break;
+                case FormatTools.INT32:
+                case FormatTools.UINT32:
+                    row.asIntBuffer().get((int[]) data, i, width);
+                    break;
+                case FormatTools.FLOAT:
+                    row.asFloatBuffer().get((float[]) data, i, width);
+                    break;
+                case FormatTools.DOUBLE:
+                    row.asDoubleBuffer().get((double[]) data, i, width);
+                    break;
+                default:
+                    System.arraycopy(bytes, src, data, i, width);
+            }
+        }
+    }
+
+
+    /**
+     * Encodes the pixels of a tile to raw (big-endian) bytes.
+     *
+     * @param start  The position of the tile, relative to this array.
+     * @param width  Width of the tile.
+     * @param height Height of the tile.
+     *
+     * @return The raw bytes.
+     */
+    byte[] getRawTile(Coordinates start, int width, int height) {
+        int i = index(start.getX(), start.getY(), start.getC(), start.getZ(), start.getT());
+        return PixelBuffers.encode(data, i, strides[1], width, height);
+    }
+
+
+    /**
+     * Converts a plane to an ImageJ processor (the plane pixels are copied).
+     * <ul>
+     *     <li>8-bit pixels are converted to a {@link ByteProcessor}</li>
+     *     <li>16-bit pixels are converted to a {@link ShortProcessor}</li>
+     *     <li>Other types are converted to a {@link FloatProcessor}</li>
+     * </ul>
+     *
+     * @param c C coordinate.
+     * @param z Z coordinate.
+     * @param t T coordinate.
+     *
+     * @return See above.
+     */
+    public ImageProcessor toImageProcessor(int c, int z, int t) {
+        int width  = sizes[0];
+        int height = sizes[1];
+
+        ImageProcessor ip;
+        switch (pixelType) {
+            case FormatTools.INT8:
+            case FormatTools.UINT8:
+            case FormatTools.BIT:
+                byte[] bytes = new byte[width * height];
+                copyRows(bytes, c, z, t);
+                ip = new ByteProcessor(width, height, bytes);
+                break;
+            case FormatTools.INT16:
+            case FormatTools.UINT16:
+                short[] shorts = new short[width * height];
+                copyRows(shorts, c, z, t);
+                ip = new ShortProcessor(width, height, shorts, null);
+                break;
+            case FormatTools.FLOAT:
+                float[] floats = new float[width * height];
+                copyRows(floats, c, z, t);
+                ip = new FloatProcessor(width, height, floats);
+                break;
+            default:
+                float[] values = new float[width * height];
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        values[y * width + x] = (float) getValue(x, y, c, z, t);
+                    }
+                }
+                ip = new FloatProcessor(width, height, values);
+        }
+        return ip;
+    }
+
+
+    /**
+     * Converts this array to an ImageJ stack, in the CZT order.
+     *
+     * @return See above.
+     */
+    public ImageStack toImageStack() {
+        ImageStack stack = new ImageStack(sizes[0], sizes[1]);
+        for (int t = 0; t < sizes[4]; t++) {
+            for (int z = 0; z < sizes[3]; z++) {
+                for (int c = 0; c < sizes[2]; c++) {
+                    stack.addSlice(toImageProcessor(c, z, t));
+                }
+            }
+        }
+        return stack;
+    }
+
+
+    /**
+     * Copies the rows of a plane to an array of the same type as the storage.
+     *
+     * @param output The output array.
+     * @param c      C coordinate.
+     * @param z      Z coordinate.
+     * @param t      T coordinate.
+     */
+    private void copyRows(Object output, int c, int z, int t) {
+        int width = sizes[0];
+        for (int y = 0; y < sizes[1]; y++) {
+            System.arraycopy(data, index(0, y, c, z, t), output, y * width, width);
+        }
+    }
+
+}
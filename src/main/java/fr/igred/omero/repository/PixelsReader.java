@@ -0,0 +1,167 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.exception.AccessException;
+import fr.igred.omero.exception.ServiceException;
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+
+/**
+ * Interface to read raw tiles from a pixels set.
+ * <p>Tiles are returned as big-endian bytes, row by row. Implementations are not expected to be thread-safe: a reader
+ * should only be used by one thread at a time.
+ */
+public interface PixelsReader extends AutoCloseable {
+
+    /**
+     * Reads the tile at the specified position, with the defined width and height.
+     *
+     * @param start  Start position of the tile.
+     * @param width  Width of the tile.
+     * @param height Height of the tile.
+     *
+     * @return Array of bytes containing the pixel values.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot read the tile.
+     */
+    byte[] getTile(Coordinates start, int width, int height)
+    throws ServiceException, AccessException;
+
+
+    /**
+     * Reads the tile at the specified position, with the defined width and height, into a buffer.
+     * <p>The tile is read in requests defined by {@link #getTilePlan()} and copied row by row, starting at the current
+     * position of the buffer, whose position is then moved after the tile. Values are written as big-endian bytes,
+     * regardless of the buffer byte order.</p>
+     *
+     * @param start  Start position of the tile.
+     * @param width  Width of the tile.
+     * @param height Height of the tile.
+     * @param buffer The buffer (heap or direct) to fill.
+     *
+     * @return The buffer.
+     *
+     * @throws ServiceException        Cannot connect to OMERO.
+     * @throws AccessException         Cannot read the tile.
+     * @throws BufferOverflowException If there is not enough space remaining in the buffer.
+     */
+    default ByteBuffer getTile(Coordinates start, int width, int height, ByteBuffer buffer)
+    throws ServiceException, AccessException {
+        int bpp = getBytesPerPixel();
+        if (buffer.remaining() < width * height * bpp) {
+            throw new BufferOverflowException();
+        }
+
+        Coordinates end = new Coordinates(start.getX() + width - 1,
+                                          start.getY() + height - 1,
+                                          start.getC(),
+                                          start.getZ(),
+                                          start.getT());
+        for (Bounds request : getTilePlan().split(new Bounds(start, end))) {
+            Coordinates pos   = request.getStart();
+            int         sizeX = request.getSize().getX();
+            int         sizeY = request.getSize().getY();
+            int         relX  = pos.getX() - start.getX();
+            int         relY  = pos.getY() - start.getY();
+
+            byte[] tile = getTile(pos, sizeX, sizeY);
+            PixelBuffers.copy(tile, sizeX, sizeY, buffer, relX, relY, width, bpp);
+        }
+        buffer.position(buffer.position() + width * height * bpp);
+        return buffer;
+    }
+
+
+    /**
+     * Returns the native tile size of the pixels set.
+     *
+     * @return The tile width and height.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    int[] getTileSize()
+    throws ServiceException, AccessException;
+
+
+    /**
+     * Returns the number of bytes per pixel.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    int getBytesPerPixel()
+    throws ServiceException, AccessException;
+
+
+    /**
+     * Returns the available resolution levels, from the full resolution (level 0) to the smallest.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    List<ResolutionLevel> getResolutionLevels()
+    throws ServiceException, AccessException;
+
+
+    /**
+     * Sets the resolution level used by the next reads (0 is the full resolution).
+     *
+     * @param level The resolution level.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    void setResolutionLevel(int level)
+    throws ServiceException, AccessException;
+
+
+    /**
+     * Returns a tile plan aligned on the native tiles, with the default maximum payload per request.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    default TilePlan getTilePlan()
+    throws ServiceException, AccessException {
+        int[] tileSize = getTileSize();
+        return new TilePlan(tileSize[0], tileSize[1], getBytesPerPixel(), TilePlan.DEFAULT_MAX_BYTES);
+    }
+
+
+    /**
+     * Closes the reader and releases the underlying resources.
+     */
+    @Override
+    void close();
+
+}
@@ -0,0 +1,383 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.exception.AccessException;
+import fr.igred.omero.exception.ServiceException;
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Bounded pool of {@link PixelsReader} sessions, used to read tiles in parallel.
+ * <p>Readers are opened lazily, up to the pool size, and are all closed with the pool.
+ */
+class PixelsReaderPool implements AutoCloseable {
+
+    /** Period (in milliseconds) at which threads waiting for a reader check whether the pool was closed */
+    private static final long CLOSE_CHECK_PERIOD = 100L;
+
+    /** Maximum time (in seconds) to wait for the worker threads to stop before closing the readers */
+    private static final long TERMINATION_TIMEOUT = 30L;
+
+    /** Maximum number of readers (and worker threads) */
+    private final int size;
+
+    /** Factory used to open new readers */
+    private final ReaderFactory factory;
+
+    /** Readers currently not in use */
+    private final BlockingQueue<PixelsReader> idle;
+
+    /** All the readers opened by this pool */
+    private final List<PixelsReader> readers;
+
+    /** Number of readers opened, or being opened (guarded by {@link #readers}) */
+    private int opened;
+
+    /** Worker threads */
+    private final ExecutorService executor;
+
+    /** Whether this pool has been closed */
+    private volatile boolean closed;
+
+
+    /**
+     * Constructor of the PixelsReaderPool class.
+     *
+     * @param size    The maximum number of readers and worker threads (at least 1).
+     * @param factory The factory used to open new readers.
+     */
+    PixelsReaderPool(int size, ReaderFactory factory) {
+        this.size     = Math.max(1, size);
+        this.factory  = factory;
+        this.idle     = new LinkedBlockingQueue<>(this.size);
+        this.readers  = new ArrayList<>(this.size);
+        this.executor = Executors.newFixedThreadPool(this.size, r -> {
+            Thread thread = new Thread(r, "PixelsReaderPool");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    /**
+     * Converts the cause of a failed task to the appropriate exception.
+     *
+     * @param cause The cause.
+     *
+     * @return An AccessException, if the cause could not be rethrown as is.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    static AccessException unwrap(Throwable cause)
+    throws ServiceException, AccessException {
+        if (cause instanceof ServiceException) {
+            throw (ServiceException) cause;
+        } else if (cause instanceof AccessException) {
+            throw (AccessException) cause;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new AccessException("Cannot read tiles", cause);
+    }
+
+
+    /**
+     * Returns the maximum number of readers (and worker threads) of this pool.
+     *
+     * @return See above.
+     */
+    int getSize() {
+        return size;
+    }
+
+
+    /**
+     * Returns the worker threads executor.
+     *
+     * @return See above.
+     */
+    ExecutorService getExecutor() {
+        return executor;
+    }
+
+
+    /**
+     * Returns whether this pool has been closed.
+     *
+     * @return See above.
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+
+    /**
+     * Checks that this pool has not been closed.
+     *
+     * @throws IllegalStateException If the pool has been closed.
+     */
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The pool of readers is closed");
+        }
+    }
+
+
+    /**
+     * Retrieves an idle reader, or opens a new one if the pool is not full.
+     *
+     * @return A reader.
+     *
+     * @throws ServiceException      Cannot connect to OMERO.
+     * @throws AccessException       Cannot access data.
+     * @throws InterruptedException  If the current thread was interrupted while waiting.
+     * @throws IllegalStateException If the pool has been closed.
+     */
+    PixelsReader acquire()
+    throws ServiceException, AccessException, InterruptedException {
+        PixelsReader reader = idle.poll();
+        while (reader == null) {
+            checkOpen();
+            boolean open;
+            synchronized (readers) {
+                open = opened < size;
+                if (open) {
+                    opened++;
+                }
+            }
+            if (open) {
+                reader = openReader();
+            } else {
+                reader = idle.poll(CLOSE_CHECK_PERIOD, TimeUnit.MILLISECONDS);
+            }
+        }
+        return reader;
+    }
+
+
+    /**
+     * Opens a new reader, once a slot has been reserved in the pool.
+     *
+     * @return The new reader.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    private PixelsReader openReader()
+    throws ServiceException, AccessException {
+        boolean      success = false;
+        PixelsReader reader  = null;
+        try {
+            reader = factory.open();
+            synchronized (readers) {
+                if (closed) {
+                    reader.close();
+                    checkOpen();
+                }
+                readers.add(reader);
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                synchronized (readers) {
+                    opened--;
+                }
+            }
+        }
+        return reader;
+    }
+
+
+    /**
+     * Puts a reader back in the pool.
+     *
+     * @param reader The reader.
+     */
+    void release(PixelsReader reader) {
+        if (!closed) {
+            idle.offer(reader);
+        }
+    }
+
+
+    /**
+     * Reads the tiles in parallel and passes each of them to the handler, from the worker threads.
+     *
+     * @param tiles   The tiles to read.
+     * @param handler The handler, called once per tile.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot read the tiles.
+     */
+    void read(Collection<Bounds> tiles, TileHandler handler)
+    throws ServiceException, AccessException {
+        List<Callable<Void>> tasks = new ArrayList<>(tiles.size());
+        for (Bounds tile : tiles) {
+            tasks.add(() -> {
+                handler.handle(tile, read(tile));
+                return null;
+            });
+        }
+        invoke(tasks);
+    }
+
+
+    /**
+     * Runs the tasks on the worker threads and waits for all of them to complete. If one task fails, the others are
+     * cancelled.
+     *
+     * @param tasks The tasks.
+     *
+     * @throws ServiceException      Cannot connect to OMERO.
+     * @throws AccessException       If a task failed.
+     * @throws IllegalStateException If the pool has been closed.
+     */
+    void invoke(Collection<? extends Callable<?>> tasks)
+    throws ServiceException, AccessException {
+        checkOpen();
+        List<Future<?>> futures = new ArrayList<>(tasks.size());
+        for (Callable<?> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new AccessException("Interrupted while waiting for tasks", e);
+        } catch (java.util.concurrent.ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw unwrap(e.getCause());
+        }
+    }
+
+
+    /**
+     * Reads a single tile with one of the readers, from the current thread.
+     *
+     * @param tile The tile to read.
+     *
+     * @return Array of bytes containing the pixel values.
+     *
+     * @throws ServiceException      Cannot connect to OMERO.
+     * @throws AccessException       Cannot read the tile.
+     * @throws InterruptedException  If the current thread was interrupted while waiting for a reader.
+     * @throws IllegalStateException If the pool has been closed.
+     */
+    byte[] read(Bounds tile)
+    throws ServiceException, AccessException, InterruptedException {
+        Coordinates start = tile.getStart();
+        Coordinates size  = tile.getSize();
+
+        PixelsReader reader = acquire();
+        try {
+            return reader.getTile(start, size.getX(), size.getY());
+        } finally {
+            release(reader);
+        }
+    }
+
+
+    /**
+     * Retrieves the tile plan with one of the readers, from the current thread.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    TilePlan getTilePlan()
+    throws ServiceException, AccessException {
+        PixelsReader reader;
+        try {
+            reader = acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccessException("Interrupted while waiting for a reader", e);
+        }
+        try {
+            return reader.getTilePlan();
+        } finally {
+            release(reader);
+        }
+    }
+
+
+    /**
+     * Stops the worker threads and closes all the readers. The pool cannot be used afterwards.
+     * <p>Readers are only closed once the cancelled tasks have completed (or after a timeout), so that they are not
+     * closed while still being read.</p>
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(TERMINATION_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (readers) {
+            readers.forEach(PixelsReader::close);
+            readers.clear();
+        }
+        idle.clear();
+    }
+
+
+    /**
+     * Factory used to open new readers.
+     */
+    @FunctionalInterface
+    interface ReaderFactory {
+
+        PixelsReader open() throws ServiceException, AccessException;
+
+    }
+
+
+    /**
+     * Handler called for each tile read.
+     */
+    @FunctionalInterface
+    interface TileHandler {
+
+        void handle(Bounds tile, byte[] bytes) throws ServiceException, AccessException;
+
+    }
+
+}
@@ -0,0 +1,429 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.exception.AccessException;
+import fr.igred.omero.exception.ServiceException;
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import ij.ImageListener;
+import ij.ImagePlus;
+import ij.VirtualStack;
+import ij.process.ImageProcessor;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import static java.util.logging.Level.WARNING;
+
+
+/**
+ * ImageJ virtual stack reading the planes of a pixels set on demand.
+ * <p>Planes are kept in a small LRU cache, and the neighbouring Z and T planes of the last requested plane are read
+ * in the background. Slices are in the CZT order, as in ImageJ hyperstacks.</p>
+ * <p>The stack keeps raw pixels stores open until it is {@link #close() closed}, or until the image it is
+ * {@link #closeWith(ImagePlus) attached to} is closed in ImageJ.</p>
+ */
+public class PixelsVirtualStack extends VirtualStack implements AutoCloseable, ImageListener {
+
+    /** Pixels set to read */
+    private final PixelsWrapper pixels;
+
+    /** Pool of readers */
+    private final PixelsReaderPool pool;
+
+    /** Start position of the bounds */
+    private final Coordinates start;
+
+    /** Size of the bounds */
+    private final Coordinates size;
+
+    /** Planes recently read, by slice number, in access order */
+    private final Map<Integer, ImageProcessor> cache;
+
+    /** Planes being read in the background, by slice number */
+    private final Map<Integer, Future<PixelsArray>> pending;
+
+    /** Maximum number of planes in the cache */
+    private final int cacheSize;
+
+    /** Image closing this stack when it is closed */
+    private ImagePlus image;
+
+    /** Whether this stack has been closed */
+    private volatile boolean closed;
+
+
+    /**
+     * Constructor of the PixelsVirtualStack class.
+     *
+     * @param pixels    The pixels set to read.
+     * @param pool      The pool of readers (closed with this stack).
+     * @param bounds    The bounds to read (which have to be valid).
+     * @param cacheSize The maximum number of planes kept in memory.
+     */
+    PixelsVirtualStack(PixelsWrapper pixels, PixelsReaderPool pool, Bounds bounds, int cacheSize) {
+        super(bounds.getSize().getX(), bounds.getSize().getY(), null, null);
+        this.pixels    = pixels;
+        this.pool      = pool;
+        this.start     = bounds.getStart();
+        this.size      = bounds.getSize();
+        this.cacheSize = Math.max(1, cacheSize);
+        this.cache     = new LinkedHashMap<>(16, 0.75f, true);
+        this.pending   = new HashMap<>(4);
+        setBitDepth(new PixelsArray(pixels.getPixelType(), 1, 1, 1, 1, 1).toImageProcessor(0, 0, 0).getBitDepth());
+    }
+
+
+    /**
+     * Returns the number of slices in this stack.
+     *
+     * @return See above.
+     */
+    @Override
+    public int getSize() {
+        return size.getC() * size.getZ() * size.getT();
+    }
+
+
+    /**
+     * Returns the label of the specified slice.
+     *
+     * @param n Slice number (1-based).
+     *
+     * @return See above.
+     */
+    @Override
+    public String getSliceLabel(int n) {
+        Coordinates pos = getPosition(n);
+        return String.format("c:%d z:%d t:%d", pos.getC() + 1, pos.getZ() + 1, pos.getT() + 1);
+    }
+
+
+    /**
+     * Returns a copy of the processor for the specified slice, reading the plane if it is not in the cache.
+     * <p>Changes made to the returned processor do not affect the cache. If the plane cannot be read, a warning is
+     * logged and an empty processor is returned. Once the stack is closed, empty processors are returned.</p>
+     *
+     * @param n Slice number (1-based).
+     *
+     * @return See above.
+     */
+    @Override
+    public ImageProcessor getProcessor(int n) {
+        if (closed) {
+            return toProcessor(null);
+        }
+        ImageProcessor ip;
+        synchronized (cache) {
+            ip = cache.get(n);
+        }
+        if (ip == null) {
+            PixelsArray plane = read(n);
+            ip = toProcessor(plane);
+            if (plane != null) {
+                ip = store(n, ip);
+            }
+        }
+        prefetch(n);
+        return ip.duplicate();
+    }
+
+
+    /**
+     * Returns a copy of the pixels of the specified slice.
+     *
+     * @param n Slice number (1-based).
+     *
+     * @return See above.
+     */
+    @Override
+    public Object getPixels(int n) {
+        return getProcessor(n).getPixels();
+    }
+
+
+    /**
+     * Does nothing: the stack is read-only.
+     *
+     * @param pixels The pixels.
+     * @param n      Slice number (1-based).
+     */
+    @Override
+    public void setPixels(Object pixels, int n) {
+        // Read-only stack
+    }
+
+
+    /**
+     * Does nothing: slices cannot be removed from this stack.
+     *
+     * @param n Slice number (1-based).
+     */
+    @Override
+    public void deleteSlice(int n) {
+        // Read-only stack
+    }
+
+
+    /**
+     * Computes the position of a slice in the pixels set.
+     *
+     * @param n Slice number (1-based).
+     *
+     * @return See above.
+     */
+    private Coordinates getPosition(int n) {
+        int index = n - 1;
+        int c     = index % size.getC();
+        int z     = index / size.getC() % size.getZ();
+        int t     = index / (size.getC() * size.getZ());
+        return new Coordinates(start.getX(), start.getY(), start.getC() + c, start.getZ() + z, start.getT() + t);
+    }
+
+
+    /**
+     * Reads a plane, or waits for it if it is already being read in the background.
+     *
+     * @param n Slice number (1-based).
+     *
+     * @return The plane, or null if it could not be read.
+     */
+    private PixelsArray read(int n) {
+        Future<PixelsArray> future;
+        synchronized (pending) {
+            future = pending.remove(n);
+        }
+        PixelsArray plane = null;
+        try {
+            if (future != null) {
+                plane = future.get();
+            } else {
+                plane = pixels.readPlane(pool, getPosition(n), size.getX(), size.getY());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | ServiceException | AccessException e) {
+            Logger.getLogger(getClass().getName()).log(WARNING, "Could not read plane " + n, e);
+        } catch (IllegalStateException e) {
+            // The stack was closed while the plane was being read (the read was cancelled or the pool closed)
+            if (!closed) {
+                throw e;
+            }
+        }
+        return plane;
+    }
+
+
+    /**
+     * Converts a plane to a processor, or creates an empty processor if the plane is null.
+     *
+     * @param plane The plane.
+     *
+     * @return See above.
+     */
+    private ImageProcessor toProcessor(PixelsArray plane) {
+        PixelsArray p = plane;
+        if (p == null) {
+            p = new PixelsArray(pixels.getPixelType(), size.getX(), size.getY(), 1, 1, 1);
+        }
+        return p.toImageProcessor(0, 0, 0);
+    }
+
+
+    /**
+     * Puts a processor in the cache, unless the slice is already cached, and removes the least recently used ones if
+     * the cache is full.
+     *
+     * @param n  Slice number (1-based).
+     * @param ip The processor.
+     *
+     * @return The cached processor for this slice.
+     */
+    private ImageProcessor store(int n, ImageProcessor ip) {
+        synchronized (cache) {
+            ImageProcessor cached = cache.get(n);
+            if (cached == null) {
+                cached = ip;
+                cache.put(n, ip);
+                while (cache.size() > cacheSize) {
+                    Integer eldest = cache.keySet().iterator().next();
+                    cache.remove(eldest);
+                }
+            }
+            return cached;
+        }
+    }
+
+
+    /**
+     * Reads a plane in the background and puts it in the cache.
+     *
+     * @param n   Slice number (1-based).
+     * @param pos The start position of the plane.
+     *
+     * @return The plane.
+     *
+     * @throws ServiceException     Cannot connect to OMERO.
+     * @throws AccessException      Cannot read the plane.
+     * @throws InterruptedException If the thread was interrupted while waiting for a reader.
+     */
+    private PixelsArray prefetchPlane(int n, Coordinates pos)
+    throws ServiceException, AccessException, InterruptedException {
+        try {
+            PixelsArray plane = pixels.readPlane(pool, pos, size.getX(), size.getY());
+            store(n, toProcessor(plane));
+            return plane;
+        } finally {
+            synchronized (pending) {
+                pending.remove(n);
+            }
+        }
+    }
+
+
+    /**
+     * Starts reading the neighbouring Z and T planes in the background, if they are not already available.
+     *
+     * @param n Slice number (1-based).
+     */
+    private void prefetch(int n) {
+        int planeSize = size.getC();
+        int timeSize  = size.getC() * size.getZ();
+
+        Coordinates pos = getPosition(n);
+        int         z   = pos.getZ() - start.getZ();
+        int         t   = pos.getT() - start.getT();
+
+        if (z + 1 < size.getZ()) {
+            prefetchSlice(n + planeSize);
+        }
+        if (z > 0) {
+            prefetchSlice(n - planeSize);
+        }
+        if (t + 1 < size.getT()) {
+            prefetchSlice(n + timeSize);
+        }
+        if (t > 0) {
+            prefetchSlice(n - timeSize);
+        }
+    }
+
+
+    /**
+     * Starts reading a plane in the background, if it is not already available.
+     *
+     * @param n Slice number (1-based).
+     */
+    private void prefetchSlice(int n) {
+        boolean cached;
+        synchronized (cache) {
+            cached = cache.containsKey(n);
+        }
+        if (!cached) {
+            synchronized (pending) {
+                if (!closed && !pending.containsKey(n) && pending.size() < pool.getSize()) {
+                    Coordinates pos = getPosition(n);
+                    pending.put(n, pool.getExecutor().submit(() -> prefetchPlane(n, pos)));
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Closes this stack when the specified image is closed in ImageJ.
+     *
+     * @param imp The image displaying this stack.
+     */
+    public synchronized void closeWith(ImagePlus imp) {
+        if (image == null) {
+            ImagePlus.addImageListener(this);
+        }
+        image = imp;
+    }
+
+
+    /**
+     * Does nothing.
+     *
+     * @param imp The opened image.
+     */
+    @Override
+    public void imageOpened(ImagePlus imp) {
+        // Nothing to do
+    }
+
+
+    /**
+     * Closes this stack if the closed image is the one it is attached to.
+     *
+     * @param imp The closed image.
+     */
+    @Override
+    public void imageClosed(ImagePlus imp) {
+        boolean attached;
+        synchronized (this) {
+            attached = imp != null && imp == image;
+        }
+        if (attached) {
+            close();
+        }
+    }
+
+
+    /**
+     * Does nothing.
+     *
+     * @param imp The updated image.
+     */
+    @Override
+    public void imageUpdated(ImagePlus imp) {
+        // Nothing to do
+    }
+
+
+    /**
+     * Cancels the background reads, clears the cache and closes the raw pixels stores. Planes cannot be read
+     * afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            if (image != null) {
+                ImagePlus.removeImageListener(this);
+                image = null;
+            }
+        }
+        synchronized (pending) {
+            pending.values().forEach(f -> f.cancel(true));
+            pending.clear();
+        }
+        synchronized (cache) {
+            cache.clear();
+        }
+        pool.close();
+    }
+
+}
@@ -24,23 +24,45 @@ import fr.igred.omero.exception.AccessException;
 import fr.igred.omero.exception.ExceptionHandler;
 import fr.igred.omero.exception.ServiceException;
 import fr.igred.omero.meta.PlaneInfoWrapper;
+import ij.ImagePlus;
+import ij.ImageStack;
+import loci.formats.FormatTools;
 import ome.units.unit.Unit;
 import omero.gateway.exception.DataSourceException;
 import omero.gateway.facility.RawDataFacility;
 import omero.gateway.model.PixelsData;
 import omero.gateway.model.PlaneInfoData;
 import omero.gateway.rnd.Plane2D;
+import omero.model.IObject;
 import omero.model.Length;
+import omero.model.PlaneInfo;
 import omero.model.Time;
-
+import omero.sys.ParametersI;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import static fr.igred.omero.exception.ExceptionHandler.call;
 import static ome.formats.model.UnitsFactory.convertLength;
 import static ome.units.UNITS.MICROMETER;
+import static omero.rtypes.rint;
 
 
 /**
@@ -49,15 +71,26 @@ import static ome.units.UNITS.MICROMETER;
  */
 public class PixelsWrapper extends GenericObjectWrapper<PixelsData> {
 
-    /** Size of tiles when retrieving pixels */
+    /**
+     * Size of tiles when retrieving pixels
+     *
+     * @deprecated Tiles are now computed by a {@link TilePlan}, see {@link #getTilePlan()}.
+     */
+    @Deprecated
     public static final int MAX_DIST = 5000;
 
-    /** Planes info (needs to be loaded) */
-    private List<PlaneInfoWrapper> planesInfo = new ArrayList<>(0);
+    /** Number of chunks submitted per thread at once during exports */
+    private static final int EXPORT_TASKS_PER_THREAD = 4;
+
+    /** Planes info and native tile plan, which can be shared with other wrappers of the same pixels */
+    private final SharedData shared;
 
     /** Raw Data Facility to retrieve pixels */
     private RawDataFacility rawDataFacility;
 
+    /** Plan explicitly set to split reads into tile requests */
+    private TilePlan tilePlan;
+
 
     /**
      * Constructor of the PixelsWrapper class
@@ -65,7 +98,20 @@ public class PixelsWrapper extends GenericObjectWrapper<PixelsData> {
      * @param pixels The PixelData to be wrap.
      */
     public PixelsWrapper(PixelsData pixels) {
+        this(pixels, new SharedData(pixels.getId()));
+    }
+
+
+    /**
+     * Constructor of the PixelsWrapper class, sharing the planes info and the native tile plan retrieved by other
+     * wrappers of the same pixels.
+     *
+     * @param pixels The PixelData to be wrap.
+     * @param shared The data shared by the wrappers of these pixels.
+     */
+    PixelsWrapper(PixelsData pixels, SharedData shared) {
         super(pixels);
+        this.shared     = shared;
         rawDataFacility = null;
     }
 
@@ -82,9 +128,10 @@ public class PixelsWrapper extends GenericObjectWrapper<PixelsData> {
     private static void copy(double[][] tab, Plane2D p, Coordinates start, int width, int height) {
         int startX = start.getX();
         int startY = start.getY();
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                tab[startY + y][startX + x] = p.getPixelValue(x, y);
+        for (int y = 0; y < height; y++) {
+            double[] row = tab[startY + y];
+            for (int x = 0; x < width; x++) {
+                row[startX + x] = p.getPixelValue(x, y);
             }
         }
     }
@@ -102,13 +149,14 @@ public class PixelsWrapper extends GenericObjectWrapper<PixelsData> {
      * @param bpp      Bytes per pixels of the image.
      */
     private static void copy(byte[] bytes, Plane2D p, Coordinates start, int width, int height, int imgWidth, int bpp) {
-        int x0 = start.getX();
-        int y0 = start.getY();
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                for (int i = 0; i < bpp; i++) {
-                    bytes[((y + y0) * imgWidth + x + x0) * bpp + i] = p.getRawValue((x + y * width) * bpp + i);
-                }
+        int x0        = start.getX();
+        int y0        = start.getY();
+        int rowLength = width * bpp;
+        for (int y = 0; y < height; y++) {
+            int src = y * rowLength;
+            int dst = ((y + y0) * imgWidth + x0) * bpp;
+            for (int i = 0; i < rowLength; i++) {
+                bytes[dst + i] = p.getRawValue(src + i);
             }
         }
     }
@@ -134,6 +182,19 @@ public class PixelsWrapper extends GenericObjectWrapper<PixelsData> {
     }
 
 
+    /**
+     * Returns the value of a physical size in micrometers.
+     *
+     * @param size The physical size.
+     *
+     * @return See above, or 1 if the size is unknown.
+     */
+    private static double getValue(ome.units.quantity.Length size) {
+        Number value = size != null ? size.value(MICROMETER) : null;
+        return value != null ? value.doubleValue() : 1.0;
+    }
+
+
     /**
      * Loads the planes information.
      *
@@ -145,21 +206,96 @@ public class PixelsWrapper extends GenericObjectWrapper<PixelsData> {
      */
     public void loadPlanesInfo(Client client)
     throws ServiceException, AccessException, ExecutionException {
-        List<PlaneInfoData> planes = call(client.getMetadata(),
-                                          m -> m.getPlaneInfos(client.getCtx(),
-                                                               data),
-                                          "Cannot retrieve planes info.");
-        planesInfo = wrap(planes, PlaneInfoWrapper::new);
+        loadPlanesInfo(client, null, null, null);
+    }
+
+
+    /**
+     * Loads the information of the planes within the specified bounds, unless they were already loaded.
+     * <p>Bounds are checked as in {@link #getPixelsArray(Client, int, int[], int[], int[], int[], int[])}.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param cBounds Array containing the C bounds of the planes.
+     * @param zBounds Array containing the Z bounds of the planes.
+     * @param tBounds Array containing the T bounds of the planes.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    public void loadPlanesInfo(Client client, int[] cBounds, int[] zBounds, int[] tBounds)
+    throws ServiceException, AccessException {
+        loadPlanesInfo(client, getBounds(null, null, cBounds, zBounds, tBounds));
+    }
+
+
+    /**
+     * Loads the information of the planes within the specified bounds (along C, Z and T), unless they were already
+     * loaded.
+     * <p>Only the planes within these bounds are retrieved. They are merged with the planes previously loaded, which
+     * are kept.</p>
+     *
+     * @param client The client handling the connection.
+     * @param lim    The bounds (which have to be valid).
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    void loadPlanesInfo(Client client, Bounds lim)
+    throws ServiceException, AccessException {
+        synchronized (shared) {
+            if (!shared.planesInfo.covers(lim)) {
+                shared.planesInfo = shared.planesInfo.merge(retrievePlanesInfo(client, lim), lim);
+            }
+        }
+    }
+
+
+    /**
+     * Retrieves the information of the planes within the specified bounds (along C, Z and T) from the server.
+     *
+     * @param client The client handling the connection.
+     * @param lim    The bounds (which have to be valid).
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    private List<PlaneInfoData> retrievePlanesInfo(Client client, Bounds lim)
+    throws ServiceException, AccessException {
+        String query = "select info from PlaneInfo as info" +
+                       " where info.pixels.id = :id" +
+                       " and info.theC between :c0 and :c1" +
+                       " and info.theZ between :z0 and :z1" +
+                       " and info.theT between :t0 and :t1";
+
+        ParametersI params = new ParametersI();
+        params.addId(getId());
+        params.add("c0", rint(lim.getStart().getC()));
+        params.add("c1", rint(lim.getEnd().getC()));
+        params.add("z0", rint(lim.getStart().getZ()));
+        params.add("z1", rint(lim.getEnd().getZ()));
+        params.add("t0", rint(lim.getStart().getT()));
+        params.add("t1", rint(lim.getEnd().getT()));
+        List<IObject> planes = call(client.getGateway(),
+                                    g -> g.getQueryService(client.getCtx())
+                                          .findAllByQuery(query, params),
+                                    "Cannot retrieve planes info.");
+        return planes.stream()
+                     .map(PlaneInfo.class::cast)
+                     .map(PlaneInfoData::new)
+                     .collect(Collectors.toList());
     }
 
 
     /**
      * Retrieves the planes information (which need to be {@link #loadPlanesInfo(Client) loaded} first).
+     * <p>Planes information is stored in primitive arrays: a new wrapper is created for each plane on each call.</p>
      *
      * @return See above.
      */
     public List<PlaneInfoWrapper> getPlanesInfo() {
-        return Collections.unmodifiableList(planesInfo);
+        return Collections.unmodifiableList(shared.planesInfo.toWrappers());
     }
 
 
@@ -220,7 +356,7 @@ public class PixelsWrapper extends GenericObjectWrapper<PixelsData> {
      * @return See above.
      */
     public Time getMeanTimeInterval() {
-        return PlaneInfoWrapper.computeMeanTimeInterval(planesInfo, getSizeT());
+        return shared.planesInfo.computeMeanTimeInterval(getSizeT());
     }
 
 
@@ -233,7 +369,7 @@ public class PixelsWrapper extends GenericObjectWrapper<PixelsData> {
      * @return See above.
      */
     public Time getMeanExposureTime(int channel) {
-        return PlaneInfoWrapper.computeMeanExposureTime(planesInfo, channel);
+        return shared.planesInfo.computeMeanExposureTime(channel);
     }
 
 
@@ -247,9 +383,7 @@ public class PixelsWrapper extends GenericObjectWrapper<PixelsData> {
         ome.units.quantity.Length pixSizeX = convertLength(getPixelSizeX());
 
         Unit<ome.units.quantity.Length> unit = pixSizeX == null ? MICROMETER : pixSizeX.unit();
-        return PlaneInfoWrapper.getMinPosition(planesInfo,
-                                               PlaneInfoWrapper::getPositionX,
-                                               unit);
+        return shared.planesInfo.getMinPositionX(unit);
     }
 
 
@@ -263,9 +397,7 @@ public class PixelsWrapper extends GenericObjectWrapper<PixelsData> {
         ome.units.quantity.Length pixSizeY = convertLength(getPixelSizeY());
 
         Unit<ome.units.quantity.Length> unit = pixSizeY == null ? MICROMETER : pixSizeY.unit();
-        return PlaneInfoWrapper.getMinPosition(planesInfo,
-                                               PlaneInfoWrapper::getPositionY,
-                                               unit);
+        return shared.planesInfo.getMinPositionY(unit);
     }
 
 
@@ -279,9 +411,7 @@ public class PixelsWrapper extends GenericObjectWrapper<PixelsData> {
         ome.units.quantity.Length pixSizeZ = convertLength(getPixelSizeZ());
 
         Unit<ome.units.quantity.Length> unit = pixSizeZ == null ? MICROMETER : pixSizeZ.unit();
-        return PlaneInfoWrapper.getMinPosition(planesInfo,
-                                               PlaneInfoWrapper::getPositionZ,
-                                               unit);
+        return shared.planesInfo.getMinPositionZ(unit);
     }
 
 
@@ -441,6 +571,7 @@ public class PixelsWrapper extends GenericObjectWrapper<PixelsData> {
 
     /**
      * Gets the tile at the specified position, with the defined width and height.
+     * <p>If the client has a {@link TileCache}, the tile is read from the cache when possible.</p>
      *
      * @param client The client handling the connection.
      * @param start  Start position of the tile.
@@ -454,6 +585,15 @@ public class PixelsWrapper extends GenericObjectWrapper<PixelsData> {
      */
     double[][] getTile(Client client, Coordinates start, int width, int height)
     throws AccessException, ExecutionException {
+        if (client.getTileCache() != null) {
+            int pixelType = FormatTools.pixelTypeFromString(getPixelType());
+            int bpp       = FormatTools.getBytesPerPixel(pixelType);
+
+            byte[]     bytes = getRawTile(client, start, width, height, bpp);
+            double[][] tile  = new double[height][width];
+            PixelBuffers.copy(bytes, width, height, tile, 0, 0, pixelType);
+            return tile;
+        }
         boolean rdf = createRawDataFacility(client);
         double[][] tile = ExceptionHandler.of(this,
                                               t -> t.getTileUnchecked(client, start, width, height))
@@ -489,14 +629,14 @@ public class PixelsWrapper extends GenericObjectWrapper<PixelsData> {
         int z = start.getZ();
         int t = start.getT();
 
-        for (int relX = 0, x = start.getX(); relX < width; relX += MAX_DIST, x += MAX_DIST) {
-            int sizeX = Math.min(MAX_DIST, width - relX);
-            for (int relY = 0, y = start.getY(); relY < height; relY += MAX_DIST, y += MAX_DIST) {
-                int         sizeY = Math.min(MAX_DIST, height - relY);
-                Plane2D     p     = rawDataFacility.getTile(client.getCtx(), data, z, t, c, x, y, sizeX, sizeY);
-                Coordinates pos   = new Coordinates(relX, relY, c, z, t);
-                copy(tile, p, pos, sizeX, sizeY);
-            }
+        for (Bounds request : getTilePlan().split(getTileBounds(start, width, height))) {
+            int         x     = request.getStart().getX();
+            int         y     = request.getStart().getY();
+            int         sizeX = request.getSize().getX();
+            int         sizeY = request.getSize().getY();
+            Plane2D     p     = rawDataFacility.getTile(client.getCtx(), data, z, t, c, x, y, sizeX, sizeY);
+            Coordinates pos   = new Coordinates(x - start.getX(), y - start.getY(), c, z, t);
+            copy(tile, p, pos, sizeX, sizeY);
         }
         return tile;
     }
@@ -579,193 +719,1775 @@ public class PixelsWrapper extends GenericObjectWrapper<PixelsData> {
 
 
     /**
-     * Gets the tile at the specified position, with the defined width and height.
+     * Returns an array containing the value for each voxel corresponding to the bounds, reading tiles in parallel.
+     * <p>Each thread uses its own raw pixels store, so the number of threads should not exceed the number of
+     * concurrent requests allowed by the server.</p>
      *
-     * @param client The client handling the connection.
-     * @param start  Start position of the tile.
-     * @param width  Width of the tile.
-     * @param height Height of the tile.
-     * @param bpp    Bytes per pixels of the image.
+     * @param client  The client handling the connection.
+     * @param threads The number of threads (and raw pixels stores) used to read the tiles.
+     * @param xBounds Array containing the X bounds from which the pixels should be retrieved.
+     * @param yBounds Array containing the Y bounds from which the pixels should be retrieved.
+     * @param cBounds Array containing the C bounds from which the pixels should be retrieved.
+     * @param zBounds Array containing the Z bounds from which the pixels should be retrieved.
+     * @param tBounds Array containing the T bounds from which the pixels should be retrieved.
      *
-     * @return Array of bytes containing the pixel values.
+     * @return Array containing the value for each voxel of the image.
      *
-     * @throws AccessException    If an error occurs while retrieving the plane data from the pixels source.
-     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
      */
-    byte[] getRawTile(Client client, Coordinates start, int width, int height, int bpp)
-    throws AccessException, ExecutionException {
-        boolean rdf = createRawDataFacility(client);
-        byte[] tile = ExceptionHandler.of(this,
-                                          t -> t.getRawTileUnchecked(client, start, width, height, bpp))
-                                      .rethrow(DataSourceException.class,
-                                               AccessException::new,
-                                               "Cannot read raw tile")
-                                      .get();
-        if (rdf) {
-            destroyRawDataFacility();
+    public double[][][][][] getAllPixels(Client client,
+                                         int threads,
+                                         int[] xBounds,
+                                         int[] yBounds,
+                                         int[] cBounds,
+                                         int[] zBounds,
+                                         int[] tBounds)
+    throws ServiceException, AccessException {
+        Bounds lim = getBounds(xBounds, yBounds, cBounds, zBounds, tBounds);
+        try (PixelsReaderPool pool = createReaderPool(client, threads)) {
+            return getAllPixels(pool, lim);
         }
-        return tile;
     }
 
 
     /**
-     * Gets the tile at the specified position, with the defined width and height.
-     * <p>The {@link #rawDataFacility} has to be created first.</p>
+     * Returns an array containing the value for each voxel corresponding to the bounds, using the readers from the
+     * pool.
      *
-     * @param client The client handling the connection.
-     * @param start  Start position of the tile.
-     * @param width  Width of the tile.
-     * @param height Height of the tile.
-     * @param bpp    Bytes per pixels of the image.
+     * @param pool The pool of readers.
+     * @param lim  The bounds (which have to be valid).
      *
-     * @return Array of bytes containing the pixel values.
+     * @return Array containing the value for each voxel of the image.
      *
-     * @throws DataSourceException If an error occurs while retrieving the plane data from the pixels source.
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
      */
-    private byte[] getRawTileUnchecked(Client client, Coordinates start, int width, int height, int bpp)
-    throws DataSourceException {
-        byte[] tile = new byte[height * width * bpp];
+    double[][][][][] getAllPixels(PixelsReaderPool pool, Bounds lim)
+    throws ServiceException, AccessException {
+        getTilePlan(pool);
 
-        int c = start.getC();
-        int z = start.getZ();
-        int t = start.getT();
+        Coordinates start = lim.getStart();
+        Coordinates size  = lim.getSize();
 
-        for (int relX = 0, x = start.getX(); relX < width; relX += MAX_DIST, x += MAX_DIST) {
-            int sizeX = Math.min(MAX_DIST, width - relX);
-            for (int relY = 0, y = start.getY(); relY < height; relY += MAX_DIST, y += MAX_DIST) {
-                int         sizeY = Math.min(MAX_DIST, height - relY);
-                Plane2D     p     = rawDataFacility.getTile(client.getCtx(), data, z, t, c, x, y, sizeX, sizeY);
-                Coordinates pos   = new Coordinates(relX, relY, c, z, t);
-                copy(tile, p, pos, sizeX, sizeY, width, bpp);
-            }
-        }
-        return tile;
+        int pixelType = FormatTools.pixelTypeFromString(getPixelType());
+
+        double[][][][][] tab = new double[size.getT()][size.getZ()][size.getC()][size.getY()][size.getX()];
+        pool.read(getTiles(lim), (tile, bytes) -> {
+            Coordinates pos = tile.getStart();
+            double[][] plane = tab[pos.getT() - start.getT()][pos.getZ() - start.getZ()][pos.getC() - start.getC()];
+            PixelBuffers.copy(bytes,
+                              tile.getSize().getX(),
+                              tile.getSize().getY(),
+                              plane,
+                              pos.getX() - start.getX(),
+                              pos.getY() - start.getY(),
+                              pixelType);
+        });
+        return tab;
     }
 
 
     /**
-     * Checks all bounds
+     * Returns an array containing the raw values for each voxel for each plane corresponding to the bounds, reading
+     * tiles in parallel.
+     * <p>Each thread uses its own raw pixels store, so the number of threads should not exceed the number of
+     * concurrent requests allowed by the server.</p>
      *
+     * @param client  The client handling the connection.
+     * @param threads The number of threads (and raw pixels stores) used to read the tiles.
      * @param xBounds Array containing the X bounds from which the pixels should be retrieved.
      * @param yBounds Array containing the Y bounds from which the pixels should be retrieved.
      * @param cBounds Array containing the C bounds from which the pixels should be retrieved.
      * @param zBounds Array containing the Z bounds from which the pixels should be retrieved.
      * @param tBounds Array containing the T bounds from which the pixels should be retrieved.
+     * @param bpp     Bytes per pixels of the image.
      *
-     * @return 5D bounds.
+     * @return a table of bytes containing the pixel values
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
      */
-    Bounds getBounds(int[] xBounds, int[] yBounds, int[] cBounds, int[] zBounds, int[] tBounds) {
-        int[][] limits = new int[5][2];
-        limits[0] = checkBounds(xBounds, data.getSizeX());
-        limits[1] = checkBounds(yBounds, data.getSizeY());
-        limits[2] = checkBounds(cBounds, data.getSizeC());
-        limits[3] = checkBounds(zBounds, data.getSizeZ());
-        limits[4] = checkBounds(tBounds, data.getSizeT());
-        Coordinates start = new Coordinates(limits[0][0],
-                                            limits[1][0],
-                                            limits[2][0],
-                                            limits[3][0],
-                                            limits[4][0]);
-        Coordinates end = new Coordinates(limits[0][1],
-                                          limits[1][1],
-                                          limits[2][1],
-                                          limits[3][1],
-                                          limits[4][1]);
-        return new Bounds(start, end);
+    public byte[][][][] getRawPixels(Client client,
+                                     int threads,
+                                     int[] xBounds,
+                                     int[] yBounds,
+                                     int[] cBounds,
+                                     int[] zBounds,
+                                     int[] tBounds,
+                                     int bpp)
+    throws ServiceException, AccessException {
+        Bounds lim = getBounds(xBounds, yBounds, cBounds, zBounds, tBounds);
+        try (PixelsReaderPool pool = createReaderPool(client, threads)) {
+            return getRawPixels(pool, lim, bpp);
+        }
     }
 
 
-    /** Class containing 5D pixel coordinates */
-    public static class Coordinates {
-
-        /** X coordinate */
-        private final int x;
-        /** Y coordinate */
-        private final int y;
-        /** C coordinate */
-        private final int c;
-        /** Z coordinate */
-        private final int z;
-        /** T coordinate */
-        private final int t;
-
+    /**
+     * Returns an array containing the raw values for each voxel for each plane corresponding to the bounds, using the
+     * readers from the pool.
+     *
+     * @param pool The pool of readers.
+     * @param lim  The bounds (which have to be valid).
+     * @param bpp  Bytes per pixels of the image.
+     *
+     * @return a table of bytes containing the pixel values
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    byte[][][][] getRawPixels(PixelsReaderPool pool, Bounds lim, int bpp)
+    throws ServiceException, AccessException {
+        getTilePlan(pool);
 
-        /**
-         * Coordinates constructor.
-         *
-         * @param x X coordinate.
-         * @param y Y coordinate.
-         * @param c C coordinate.
-         * @param z Z coordinate.
-         * @param t T coordinate.
-         */
-        public Coordinates(int x, int y, int c, int z, int t) {
-            this.x = x;
-            this.y = y;
-            this.c = c;
-            this.z = z;
-            this.t = t;
-        }
+        Coordinates start = lim.getStart();
+        Coordinates size  = lim.getSize();
 
+        int sx = size.getX();
+        int sy = size.getY();
 
-        /**
-         * Gets X coordinate.
-         *
-         * @return x coordinate.
-         */
-        public int getX() {
-            return x;
-        }
+        byte[][][][] bytes = new byte[size.getT()][size.getZ()][size.getC()][sx * sy * bpp];
+        pool.read(getTiles(lim), (tile, tileBytes) -> {
+            Coordinates pos = tile.getStart();
+            byte[] plane = bytes[pos.getT() - start.getT()][pos.getZ() - start.getZ()][pos.getC() - start.getC()];
+            PixelBuffers.copy(tileBytes,
+                              tile.getSize().getX(),
+                              tile.getSize().getY(),
+                              plane,
+                              pos.getX() - start.getX(),
+                              pos.getY() - start.getY(),
+                              sx,
+                              bpp);
+        });
+        return bytes;
+    }
 
 
-        /**
-         * Gets Y coordinate.
-         *
-         * @return Y coordinate.
-         */
-        public int getY() {
-            return y;
-        }
+    /**
+     * Returns a {@link PixelsArray} containing all the pixels of the image, reading tiles in parallel.
+     * <p>Pixels are stored in a single primitive array matching the pixel type, which uses up to 8 times less memory
+     * than {@link #getAllPixels(Client)}.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param threads The number of threads (and raw pixels stores) used to read the tiles.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    public PixelsArray getPixelsArray(Client client, int threads)
+    throws ServiceException, AccessException {
+        return getPixelsArray(client, threads, null, null, null, null, null);
+    }
 
 
-        /**
-         * Gets C coordinate.
-         *
-         * @return C coordinate.
-         */
-        public int getC() {
-            return c;
+    /**
+     * Returns a {@link PixelsArray} containing the pixels corresponding to the bounds, reading tiles in parallel.
+     * <p>Pixels are stored in a single primitive array matching the pixel type, which uses up to 8 times less memory
+     * than {@link #getAllPixels(Client, int[], int[], int[], int[], int[])}.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param threads The number of threads (and raw pixels stores) used to read the tiles.
+     * @param xBounds Array containing the X bounds from which the pixels should be retrieved.
+     * @param yBounds Array containing the Y bounds from which the pixels should be retrieved.
+     * @param cBounds Array containing the C bounds from which the pixels should be retrieved.
+     * @param zBounds Array containing the Z bounds from which the pixels should be retrieved.
+     * @param tBounds Array containing the T bounds from which the pixels should be retrieved.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    public PixelsArray getPixelsArray(Client client,
+                                      int threads,
+                                      int[] xBounds,
+                                      int[] yBounds,
+                                      int[] cBounds,
+                                      int[] zBounds,
+                                      int[] tBounds)
+    throws ServiceException, AccessException {
+        Bounds lim = getBounds(xBounds, yBounds, cBounds, zBounds, tBounds);
+        try (PixelsReaderPool pool = createReaderPool(client, threads)) {
+            return getPixelsArray(pool, lim);
         }
+    }
 
 
-        /**
-         * Gets Z coordinate.
-         *
-         * @return Z coordinate.
-         */
-        public int getZ() {
-            return z;
+    /**
+     * Returns the available resolution levels, from the full resolution (level 0) to the smallest.
+     *
+     * @param client The client handling the connection.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    public List<ResolutionLevel> getResolutionLevels(Client client)
+    throws ServiceException, AccessException {
+        try (PixelsReader reader = createReader(client)) {
+            return reader.getResolutionLevels();
         }
+    }
 
 
-        /**
-         * Gets T coordinate.
-         *
-         * @return T coordinate.
-         */
-        public int getT() {
-            return t;
-        }
-
+    /**
+     * Returns a {@link PixelsArray} containing all the pixels at the specified resolution level, reading tiles in
+     * parallel.
+     *
+     * @param client  The client handling the connection.
+     * @param threads The number of threads (and raw pixels stores) used to read the tiles.
+     * @param level   The resolution level (see {@link #getResolutionLevels(Client)}).
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    public PixelsArray getPixelsArray(Client client, int threads, ResolutionLevel level)
+    throws ServiceException, AccessException {
+        return getPixelsArray(client, threads, level, null, null, null, null, null);
     }
 
 
-    /** Class containing 5D bounds coordinates */
-    public static class Bounds {
-
-        /** Start coordinates */
-        private final Coordinates start;
-        /** Bounds size */
+    /**
+     * Returns a {@link PixelsArray} containing the pixels corresponding to the bounds at the specified resolution
+     * level, reading tiles in parallel.
+     * <p>X and Y bounds are expressed in the coordinates of the resolution level.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param threads The number of threads (and raw pixels stores) used to read the tiles.
+     * @param level   The resolution level (see {@link #getResolutionLevels(Client)}).
+     * @param xBounds Array containing the X bounds from which the pixels should be retrieved.
+     * @param yBounds Array containing the Y bounds from which the pixels should be retrieved.
+     * @param cBounds Array containing the C bounds from which the pixels should be retrieved.
+     * @param zBounds Array containing the Z bounds from which the pixels should be retrieved.
+     * @param tBounds Array containing the T bounds from which the pixels should be retrieved.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    public PixelsArray getPixelsArray(Client client,
+                                      int threads,
+                                      ResolutionLevel level,
+                                      int[] xBounds,
+                                      int[] yBounds,
+                                      int[] cBounds,
+                                      int[] zBounds,
+                                      int[] tBounds)
+    throws ServiceException, AccessException {
+        Bounds lim = getBounds(level.getSizeX(), level.getSizeY(), xBounds, yBounds, cBounds, zBounds, tBounds);
+        try (PixelsReaderPool pool = createReaderPool(client, threads, level.getLevel())) {
+            return getPixelsArray(pool, level.getLevel(), lim);
+        }
+    }
+
+
+    /**
+     * Returns a {@link PixelsArray} containing the pixels corresponding to the bounds, using the readers from the pool.
+     *
+     * @param pool The pool of readers.
+     * @param lim  The bounds (which have to be valid).
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    PixelsArray getPixelsArray(PixelsReaderPool pool, Bounds lim)
+    throws ServiceException, AccessException {
+        return getPixelsArray(pool, getTilePlan(pool), lim);
+    }
+
+
+    /**
+     * Returns a {@link PixelsArray} containing the pixels corresponding to the bounds, using the readers from the pool,
+     * which read at the specified resolution level.
+     * <p>The tile plan of a reduced resolution level is only used for this read: the plan of the full resolution is
+     * left unchanged.</p>
+     *
+     * @param pool  The pool of readers.
+     * @param level The resolution level of the readers (0 is the full resolution).
+     * @param lim   The bounds (which have to be valid at this level).
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    PixelsArray getPixelsArray(PixelsReaderPool pool, int level, Bounds lim)
+    throws ServiceException, AccessException {
+        TilePlan plan = level == 0 ? getTilePlan(pool) : pool.getTilePlan();
+        return getPixelsArray(pool, plan, lim);
+    }
+
+
+    /**
+     * Returns a {@link PixelsArray} containing the pixels corresponding to the bounds, using the readers from the pool
+     * and the specified tile plan.
+     *
+     * @param pool The pool of readers.
+     * @param plan The plan used to split the bounds into tile requests.
+     * @param lim  The bounds (which have to be valid).
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    private PixelsArray getPixelsArray(PixelsReaderPool pool, TilePlan plan, Bounds lim)
+    throws ServiceException, AccessException {
+        Coordinates start = lim.getStart();
+        Coordinates size  = lim.getSize();
+
+        PixelsArray array = new PixelsArray(getPixelType(),
+                                            size.getX(),
+                                            size.getY(),
+                                            size.getC(),
+                                            size.getZ(),
+                                            size.getT());
+        pool.read(plan.split(lim), (tile, bytes) -> {
+            Coordinates pos = tile.getStart();
+            Coordinates rel = new Coordinates(pos.getX() - start.getX(),
+                                              pos.getY() - start.getY(),
+                                              pos.getC() - start.getC(),
+                                              pos.getZ() - start.getZ(),
+                                              pos.getT() - start.getT());
+            array.setRawTile(bytes, rel, tile.getSize().getX(), tile.getSize().getY());
+        });
+        return array;
+    }
+
+
+    /**
+     * Writes the pixels corresponding to the bounds to a memory-mapped file, reading tiles in parallel.
+     * <p>This allows regions larger than the heap to be read: only the tiles being copied are kept in memory, and the
+     * operating system page cache handles the file contents. The file is overwritten if it exists.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param threads The number of threads (and raw pixels stores) used to read the tiles.
+     * @param file    The file where pixels are written.
+     * @param xBounds Array containing the X bounds from which the pixels should be retrieved.
+     * @param yBounds Array containing the Y bounds from which the pixels should be retrieved.
+     * @param cBounds Array containing the C bounds from which the pixels should be retrieved.
+     * @param zBounds Array containing the Z bounds from which the pixels should be retrieved.
+     * @param tBounds Array containing the T bounds from which the pixels should be retrieved.
+     *
+     * @return The mapped pixels, which have to be closed after use.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     * @throws IOException      If the file cannot be created or mapped.
+     */
+    public MappedPixels getMappedPixels(Client client,
+                                        int threads,
+                                        Path file,
+                                        int[] xBounds,
+                                        int[] yBounds,
+                                        int[] cBounds,
+                                        int[] zBounds,
+                                        int[] tBounds)
+    throws ServiceException, AccessException, IOException {
+        Bounds lim = getBounds(xBounds, yBounds, cBounds, zBounds, tBounds);
+        try (PixelsReaderPool pool = createReaderPool(client, threads)) {
+            return getMappedPixels(pool, lim, file);
+        }
+    }
+
+
+    /**
+     * Writes the pixels corresponding to the bounds to a memory-mapped file, using the readers from the pool.
+     *
+     * @param pool The pool of readers.
+     * @param lim  The bounds (which have to be valid).
+     * @param file The file where pixels are written.
+     *
+     * @return The mapped pixels, which have to be closed after use.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     * @throws IOException      If the file cannot be created or mapped.
+     */
+    MappedPixels getMappedPixels(PixelsReaderPool pool, Bounds lim, Path file)
+    throws ServiceException, AccessException, IOException {
+        getTilePlan(pool);
+
+        Coordinates start = lim.getStart();
+        Coordinates size  = lim.getSize();
+
+        MappedPixels mapped = new MappedPixels(file,
+                                               getPixelType(),
+                                               size.getX(),
+                                               size.getY(),
+                                               size.getC(),
+                                               size.getZ(),
+                                               size.getT());
+        boolean success = false;
+        try {
+            pool.read(getTiles(lim), (tile, bytes) -> {
+                Coordinates pos = tile.getStart();
+                Coordinates rel = new Coordinates(pos.getX() - start.getX(),
+                                                  pos.getY() - start.getY(),
+                                                  pos.getC() - start.getC(),
+                                                  pos.getZ() - start.getZ(),
+                                                  pos.getT() - start.getT());
+                mapped.setRawTile(bytes, rel, tile.getSize().getX(), tile.getSize().getY());
+            });
+            success = true;
+        } finally {
+            if (!success) {
+                mapped.close();
+            }
+        }
+        return mapped;
+    }
+
+
+    /**
+     * Exports all the pixels to a directory store compatible with Zarr v2 and OME-NGFF, reading and compressing
+     * chunks in parallel.
+     *
+     * @param client    The client handling the connection.
+     * @param threads   The number of threads (and raw pixels stores) used to read and compress the chunks.
+     * @param directory The root directory of the store.
+     * @param chunkSize The width and height of the chunks.
+     *
+     * @return The number of chunks written.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     * @throws IOException      If the store cannot be written, or an existing store does not match.
+     * @see #exportZarr(Client, int, Path, int, int[], int[], int[], int[], int[])
+     */
+    public int exportZarr(Client client, int threads, Path directory, int chunkSize)
+    throws ServiceException, AccessException, IOException {
+        return exportZarr(client, threads, directory, chunkSize, null, null, null, null, null);
+    }
+
+
+    /**
+     * Exports the pixels corresponding to the bounds to a directory store compatible with Zarr v2 and OME-NGFF,
+     * reading and compressing chunks in parallel.
+     * <p>Chunks contain a single plane region of chunkSize x chunkSize pixels, compressed with zlib. Only a few chunks
+     * are kept in memory by each thread. Chunks already present in the store are skipped, so an interrupted export
+     * can be resumed by calling this method again with the same parameters.</p>
+     *
+     * @param client    The client handling the connection.
+     * @param threads   The number of threads (and raw pixels stores) used to read and compress the chunks.
+     * @param directory The root directory of the store.
+     * @param chunkSize The width and height of the chunks.
+     * @param xBounds   Array containing the X bounds from which the pixels should be retrieved.
+     * @param yBounds   Array containing the Y bounds from which the pixels should be retrieved.
+     * @param cBounds   Array containing the C bounds from which the pixels should be retrieved.
+     * @param zBounds   Array containing the Z bounds from which the pixels should be retrieved.
+     * @param tBounds   Array containing the T bounds from which the pixels should be retrieved.
+     *
+     * @return The number of chunks written.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     * @throws IOException      If the store cannot be written, or an existing store does not match.
+     */
+    public int exportZarr(Client client,
+                          int threads,
+                          Path directory,
+                          int chunkSize,
+                          int[] xBounds,
+                          int[] yBounds,
+                          int[] cBounds,
+                          int[] zBounds,
+                          int[] tBounds)
+    throws ServiceException, AccessException, IOException {
+        Bounds lim = getBounds(xBounds, yBounds, cBounds, zBounds, tBounds);
+        try (PixelsReaderPool pool = createReaderPool(client, threads)) {
+            return exportZarr(pool, lim, directory, chunkSize, ZarrWriter.DEFAULT_COMPRESSION_LEVEL);
+        }
+    }
+
+
+    /**
+     * Exports the pixels corresponding to the bounds to a directory store, using the readers from the pool.
+     *
+     * @param pool      The pool of readers.
+     * @param lim       The bounds (which have to be valid).
+     * @param directory The root directory of the store.
+     * @param chunkSize The width and height of the chunks.
+     * @param level     The compression level.
+     *
+     * @return The number of chunks written.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     * @throws IOException      If the store cannot be written, or an existing store does not match.
+     */
+    int exportZarr(PixelsReaderPool pool, Bounds lim, Path directory, int chunkSize, int level)
+    throws ServiceException, AccessException, IOException {
+        getTilePlan(pool);
+
+        ZarrWriter writer = new ZarrWriter(directory, lim, getPixelType(), chunkSize, chunkSize, level);
+
+        ome.units.quantity.Length sizeX = convertLength(getPixelSizeX());
+        ome.units.quantity.Length sizeY = convertLength(getPixelSizeY());
+        ome.units.quantity.Length sizeZ = convertLength(getPixelSizeZ());
+
+        double[] scale = {getValue(sizeZ), getValue(sizeY), getValue(sizeX)};
+        writer.writeMetadata(scale, sizeX != null ? "micrometer" : null);
+
+        List<Bounds> chunks = new ArrayList<>();
+        for (Bounds chunk : writer.getChunks()) {
+            if (!writer.exists(chunk)) {
+                chunks.add(chunk);
+            }
+        }
+
+        int batchSize = EXPORT_TASKS_PER_THREAD * pool.getSize();
+        for (int from = 0; from < chunks.size(); from += batchSize) {
+            List<Callable<Void>> tasks = new ArrayList<>(batchSize);
+            for (Bounds chunk : chunks.subList(from, Math.min(chunks.size(), from + batchSize))) {
+                tasks.add(() -> {
+                    byte[] buffer = writer.createChunkBuffer();
+                    for (Bounds tile : getTiles(chunk)) {
+                        writer.copyTile(buffer, chunk, tile, pool.read(tile));
+                    }
+                    try {
+                        writer.writeChunk(chunk, buffer);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                });
+            }
+            try {
+                pool.invoke(tasks);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return chunks.size();
+    }
+
+
+    /**
+     * Computes the statistics of each plane, reading tiles in parallel.
+     * <p>Statistics are computed tile by tile as the tiles are read, so pixels are never stored as a whole.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param threads The number of threads (and raw pixels stores) used to read the tiles.
+     *
+     * @return The statistics, indexed as [t][z][c].
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    public PixelStatistics[][][] getStatistics(Client client, int threads)
+    throws ServiceException, AccessException {
+        return getStatistics(client, threads, null, null, null, null, null);
+    }
+
+
+    /**
+     * Computes the statistics of each plane corresponding to the bounds, reading tiles in parallel.
+     * <p>Statistics are computed tile by tile as the tiles are read, so pixels are never stored as a whole.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param threads The number of threads (and raw pixels stores) used to read the tiles.
+     * @param xBounds Array containing the X bounds from which the pixels should be retrieved.
+     * @param yBounds Array containing the Y bounds from which the pixels should be retrieved.
+     * @param cBounds Array containing the C bounds from which the pixels should be retrieved.
+     * @param zBounds Array containing the Z bounds from which the pixels should be retrieved.
+     * @param tBounds Array containing the T bounds from which the pixels should be retrieved.
+     *
+     * @return The statistics, indexed as [t][z][c] relative to the bounds.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    public PixelStatistics[][][] getStatistics(Client client,
+                                               int threads,
+                                               int[] xBounds,
+                                               int[] yBounds,
+                                               int[] cBounds,
+                                               int[] zBounds,
+                                               int[] tBounds)
+    throws ServiceException, AccessException {
+        Bounds lim = getBounds(xBounds, yBounds, cBounds, zBounds, tBounds);
+        try (PixelsReaderPool pool = createReaderPool(client, threads)) {
+            return getStatistics(pool, lim);
+        }
+    }
+
+
+    /**
+     * Computes the statistics of each channel (over all Z and T), reading tiles in parallel.
+     *
+     * @param client  The client handling the connection.
+     * @param threads The number of threads (and raw pixels stores) used to read the tiles.
+     *
+     * @return The statistics of each channel.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    public List<PixelStatistics> getChannelStatistics(Client client, int threads)
+    throws ServiceException, AccessException {
+        return mergeChannels(getStatistics(client, threads));
+    }
+
+
+    /**
+     * Computes the statistics of each plane corresponding to the bounds, using the readers from the pool.
+     *
+     * @param pool The pool of readers.
+     * @param lim  The bounds (which have to be valid).
+     *
+     * @return The statistics, indexed as [t][z][c] relative to the bounds.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    PixelStatistics[][][] getStatistics(PixelsReaderPool pool, Bounds lim)
+    throws ServiceException, AccessException {
+        getTilePlan(pool);
+
+        int         pixelType = FormatTools.pixelTypeFromString(getPixelType());
+        Coordinates start     = lim.getStart();
+        Coordinates size      = lim.getSize();
+
+        PixelStatistics[][][] stats = new PixelStatistics[size.getT()][size.getZ()][size.getC()];
+        for (PixelStatistics[][] stack : stats) {
+            for (PixelStatistics[] planes : stack) {
+                for (int c = 0; c < planes.length; c++) {
+                    planes[c] = PixelStatistics.forPixelType(pixelType);
+                }
+            }
+        }
+        pool.read(getTiles(lim), (tile, bytes) -> {
+            Coordinates     pos       = tile.getStart();
+            PixelStatistics tileStats = PixelStatistics.of(bytes, pixelType);
+            PixelStatistics plane     = stats[pos.getT() - start.getT()]
+                    [pos.getZ() - start.getZ()]
+                    [pos.getC() - start.getC()];
+            synchronized (plane) {
+                plane.merge(tileStats);
+            }
+        });
+        return stats;
+    }
+
+
+    /**
+     * Merges plane statistics for each channel.
+     *
+     * @param stats The statistics, indexed as [t][z][c].
+     *
+     * @return The statistics of each channel.
+     */
+    static List<PixelStatistics> mergeChannels(PixelStatistics[][][] stats) {
+        List<PixelStatistics> channels = new ArrayList<>(0);
+        for (PixelStatistics[][] stack : stats) {
+            for (PixelStatistics[] planes : stack) {
+                for (int c = 0; c < planes.length; c++) {
+                    if (channels.size() <= c) {
+                        channels.add(new PixelStatistics(Double.NaN, Double.NaN, PixelStatistics.DEFAULT_BINS));
+                    }
+                    channels.get(c).merge(planes[c]);
+                }
+            }
+        }
+        return channels;
+    }
+
+
+    /**
+     * Reads the values of the pixels contained in shapes, using the readers from the pool.
+     * <p>Only the tiles containing at least one of the pixels are read.</p>
+     *
+     * @param pool   The pool of readers.
+     * @param shapes The pixels to read (which have to be inside the image).
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    void readShapePixels(PixelsReaderPool pool, Iterable<ShapePixels> shapes)
+    throws ServiceException, AccessException {
+        getTilePlan(pool);
+
+        int      pixelType = FormatTools.pixelTypeFromString(getPixelType());
+        TileGrid grid      = getTileGrid();
+
+        List<ShapePixels>      owners   = new ArrayList<>();
+        Map<Long, List<int[]>> requests = new LinkedHashMap<>();
+        for (ShapePixels shape : shapes) {
+            int id = owners.size();
+            owners.add(shape);
+            for (int i = 0; i < shape.size(); i++) {
+                long key = grid.getKey(shape.getX(i), shape.getY(i), shape.getC(), shape.getZ(), shape.getT());
+                requests.computeIfAbsent(key, k -> new ArrayList<>()).add(new int[]{id, i});
+            }
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>(requests.size());
+        for (Map.Entry<Long, List<int[]>> request : requests.entrySet()) {
+            Bounds tile = grid.getTile(request.getKey());
+            tasks.add(() -> {
+                ByteBuffer buffer = ByteBuffer.wrap(pool.read(tile));
+                int        x0     = tile.getStart().getX();
+                int        y0     = tile.getStart().getY();
+                int        width  = tile.getSize().getX();
+                for (int[] pixel : request.getValue()) {
+                    ShapePixels shape = owners.get(pixel[0]);
+                    int         index = (shape.getY(pixel[1]) - y0) * width + shape.getX(pixel[1]) - x0;
+                    shape.setValue(pixel[1], PixelBuffers.getValue(buffer, index, pixelType));
+                }
+                return null;
+            });
+        }
+        pool.invoke(tasks);
+    }
+
+
+    /**
+     * Computes a projection of the image along Z or T, reading planes in parallel across channels (and the other
+     * axis).
+     * <p>Planes are folded into the projection as they are read, so each worker only keeps one plane and the
+     * projection in memory, instead of the whole stack.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param threads The number of threads (and raw pixels stores) used to read the planes.
+     * @param type    The projection type.
+     * @param axis    The projection axis.
+     *
+     * @return A "double" array, with a size of 1 along the projection axis.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    public PixelsArray project(Client client, int threads, ProjectionType type, ProjectionAxis axis)
+    throws ServiceException, AccessException {
+        return project(client, threads, type, axis, null, null, null, null, null);
+    }
+
+
+    /**
+     * Computes a projection of the pixels corresponding to the bounds along Z or T, reading planes in parallel across
+     * channels (and the other axis).
+     * <p>Planes are folded into the projection as they are read, so each worker only keeps one plane and the
+     * projection in memory, instead of the whole stack.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param threads The number of threads (and raw pixels stores) used to read the planes.
+     * @param type    The projection type.
+     * @param axis    The projection axis.
+     * @param xBounds Array containing the X bounds from which the pixels should be retrieved.
+     * @param yBounds Array containing the Y bounds from which the pixels should be retrieved.
+     * @param cBounds Array containing the C bounds from which the pixels should be retrieved.
+     * @param zBounds Array containing the Z bounds from which the pixels should be retrieved.
+     * @param tBounds Array containing the T bounds from which the pixels should be retrieved.
+     *
+     * @return A "double" array, with a size of 1 along the projection axis.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    public PixelsArray project(Client client,
+                               int threads,
+                               ProjectionType type,
+                               ProjectionAxis axis,
+                               int[] xBounds,
+                               int[] yBounds,
+                               int[] cBounds,
+                               int[] zBounds,
+                               int[] tBounds)
+    throws ServiceException, AccessException {
+        Bounds lim = getBounds(xBounds, yBounds, cBounds, zBounds, tBounds);
+        try (PixelsReaderPool pool = createReaderPool(client, threads)) {
+            return project(pool, lim, type, axis);
+        }
+    }
+
+
+    /**
+     * Computes a projection of the pixels corresponding to the bounds along Z or T, using the readers from the pool.
+     *
+     * @param pool The pool of readers.
+     * @param lim  The bounds (which have to be valid).
+     * @param type The projection type.
+     * @param axis The projection axis.
+     *
+     * @return A "double" array, with a size of 1 along the projection axis.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    PixelsArray project(PixelsReaderPool pool, Bounds lim, ProjectionType type, ProjectionAxis axis)
+    throws ServiceException, AccessException {
+        getTilePlan(pool);
+
+        Coordinates start = lim.getStart();
+        Coordinates size  = lim.getSize();
+
+        boolean alongZ = axis == ProjectionAxis.Z;
+        int     sizeX  = size.getX();
+        int     sizeY  = size.getY();
+        int     sizeZ  = alongZ ? 1 : size.getZ();
+        int     sizeT  = alongZ ? size.getT() : 1;
+        int     depth  = alongZ ? size.getZ() : size.getT();
+
+        PixelsArray output = new PixelsArray(FormatTools.getPixelTypeString(FormatTools.DOUBLE),
+                                             sizeX, sizeY, size.getC(), sizeZ, sizeT);
+
+        List<Callable<Void>> tasks = new ArrayList<>(size.getC() * sizeZ * sizeT);
+        for (int c = 0; c < size.getC(); c++) {
+            for (int z = 0; z < sizeZ; z++) {
+                for (int t = 0; t < sizeT; t++) {
+                    int relC = c;
+                    int relZ = z;
+                    int relT = t;
+                    tasks.add(() -> {
+                        ProjectionAccumulator accumulator = new ProjectionAccumulator(type, sizeX, sizeY);
+                        for (int k = 0; k < depth; k++) {
+                            Coordinates pos = new Coordinates(start.getX(),
+                                                              start.getY(),
+                                                              start.getC() + relC,
+                                                              start.getZ() + (alongZ ? k : relZ),
+                                                              start.getT() + (alongZ ? relT : k));
+                            accumulator.add(readPlane(pool, pos, sizeX, sizeY));
+                        }
+                        accumulator.writeTo(output, relC, relZ, relT);
+                        return null;
+                    });
+                }
+            }
+        }
+        pool.invoke(tasks);
+        return output;
+    }
+
+
+    /**
+     * Reads the planes of the image one at a time, in the specified order, and passes each of them to the handler.
+     * <p>The next planes are read in the background while the current one is handled, so that network transfers and
+     * processing overlap. At most {@code prefetch} planes are read ahead, so memory usage is bounded by the prefetch
+     * depth instead of the image size.</p>
+     *
+     * @param client   The client handling the connection.
+     * @param order    The order in which planes are read (e.g. "CZT": C varies fastest, then Z, then T).
+     * @param prefetch The number of planes read ahead (and of raw pixels stores used).
+     * @param handler  The handler, called once per plane, in order, from the current thread.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    public void forEachPlane(Client client, String order, int prefetch, PlaneHandler handler)
+    throws ServiceException, AccessException {
+        forEachPlane(client, null, null, null, null, null, order, prefetch, handler);
+    }
+
+
+    /**
+     * Reads the planes corresponding to the bounds one at a time, in the specified order, and passes each of them to
+     * the handler.
+     * <p>The next planes are read in the background while the current one is handled, so that network transfers and
+     * processing overlap. At most {@code prefetch} planes are read ahead, so memory usage is bounded by the prefetch
+     * depth instead of the image size.</p>
+     *
+     * @param client   The client handling the connection.
+     * @param xBounds  Array containing the X bounds from which the pixels should be retrieved.
+     * @param yBounds  Array containing the Y bounds from which the pixels should be retrieved.
+     * @param cBounds  Array containing the C bounds from which the pixels should be retrieved.
+     * @param zBounds  Array containing the Z bounds from which the pixels should be retrieved.
+     * @param tBounds  Array containing the T bounds from which the pixels should be retrieved.
+     * @param order    The order in which planes are read (e.g. "CZT": C varies fastest, then Z, then T).
+     * @param prefetch The number of planes read ahead (and of raw pixels stores used).
+     * @param handler  The handler, called once per plane, in order, from the current thread.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    public void forEachPlane(Client client,
+                             int[] xBounds,
+                             int[] yBounds,
+                             int[] cBounds,
+                             int[] zBounds,
+                             int[] tBounds,
+                             String order,
+                             int prefetch,
+                             PlaneHandler handler)
+    throws ServiceException, AccessException {
+        Bounds lim = getBounds(xBounds, yBounds, cBounds, zBounds, tBounds);
+        try (PixelsReaderPool pool = createReaderPool(client, prefetch)) {
+            forEachPlane(pool, lim, order, prefetch, handler);
+        }
+    }
+
+
+    /**
+     * Reads the planes corresponding to the bounds one at a time, using the readers from the pool.
+     *
+     * @param pool     The pool of readers.
+     * @param lim      The bounds (which have to be valid).
+     * @param order    The order in which planes are read (e.g. "CZT": C varies fastest, then Z, then T).
+     * @param prefetch The number of planes read ahead.
+     * @param handler  The handler, called once per plane, in order, from the current thread.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    void forEachPlane(PixelsReaderPool pool, Bounds lim, String order, int prefetch, PlaneHandler handler)
+    throws ServiceException, AccessException {
+        getTilePlan(pool);
+        try (PlaneStream stream = new PlaneStream(this, pool, lim, order, prefetch)) {
+            stream.forEach(handler);
+        }
+    }
+
+
+    /**
+     * Extracts crops from the image one at a time, in order, and passes each of them to the handler.
+     * <p>The tiles needed by each crop are computed first, so tiles shared by overlapping or adjacent crops within the
+     * prefetch depth are only read once. Tiles are read in parallel, ahead of the crop being handled, and released once
+     * no crop within the prefetch depth needs them (they are read again if a later crop needs them), so memory usage is
+     * bounded by the prefetch depth instead of the number of crops.</p>
+     * <p>Crops are checked like other bounds: invalid bounds along a dimension are replaced by the whole dimension.</p>
+     *
+     * @param client   The client handling the connection.
+     * @param threads  The number of threads (and raw pixels stores) used to read the tiles.
+     * @param crops    The crops to extract.
+     * @param prefetch The number of crops whose tiles are read at the same time, including the crop being handled.
+     * @param handler  The handler, called once per crop, in order, from the current thread.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    public void forEachCrop(Client client, int threads, Collection<Bounds> crops, int prefetch, CropHandler handler)
+    throws ServiceException, AccessException {
+        List<Bounds> lims = new ArrayList<>(crops.size());
+        for (Bounds crop : crops) {
+            Coordinates start = crop.getStart();
+            Coordinates end   = crop.getEnd();
+            lims.add(getBounds(new int[]{start.getX(), end.getX()},
+                               new int[]{start.getY(), end.getY()},
+                               new int[]{start.getC(), end.getC()},
+                               new int[]{start.getZ(), end.getZ()},
+                               new int[]{start.getT(), end.getT()}));
+        }
+        try (PixelsReaderPool pool = createReaderPool(client, threads)) {
+            forEachCrop(pool, lims, prefetch, handler);
+        }
+    }
+
+
+    /**
+     * Extracts crops from the image one at a time, using the readers from the pool.
+     *
+     * @param pool     The pool of readers.
+     * @param crops    The crops to extract (which have to be valid).
+     * @param prefetch The number of crops whose tiles are read at the same time, including the crop being handled.
+     * @param handler  The handler, called once per crop, in order, from the current thread.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    void forEachCrop(PixelsReaderPool pool, List<Bounds> crops, int prefetch, CropHandler handler)
+    throws ServiceException, AccessException {
+        getTilePlan(pool);
+        try (CropStream stream = new CropStream(this, pool, crops, prefetch)) {
+            stream.forEach(handler);
+        }
+    }
+
+
+    /**
+     * Creates a writer for this pixels set.
+     *
+     * @param client The client handling the connection.
+     *
+     * @return A new writer, which has to be closed after use.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    PixelsWriter createWriter(Client client)
+    throws ServiceException, AccessException {
+        return new RawPixelsStoreWriter(client, getId());
+    }
+
+
+    /**
+     * Removes the tiles of this pixels set from the tile cache of the client, if it has one, after they were written.
+     *
+     * @param client The client handling the connection.
+     */
+    private void invalidateTileCache(Client client) {
+        TileCache cache = client.getTileCache();
+        if (cache != null) {
+            cache.invalidate(getId());
+        }
+    }
+
+
+    /**
+     * Writes the pixels from an array to the image, starting at the origin.
+     *
+     * @param client  The client handling the connection.
+     * @param threads The number of threads used to encode the tiles while they are written.
+     * @param array   The pixels, which have to match the pixel type.
+     *
+     * @throws ServiceException          Cannot connect to OMERO.
+     * @throws AccessException           If an error occurs while writing the pixels.
+     * @throws IllegalArgumentException  If the pixel type does not match.
+     * @throws IndexOutOfBoundsException If the array does not fit in the image.
+     */
+    public void write(Client client, int threads, PixelsArray array)
+    throws ServiceException, AccessException {
+        write(client, threads, array, new Coordinates(0, 0, 0, 0, 0));
+    }
+
+
+    /**
+     * Writes the pixels from an array to the image, at the specified position.
+     * <p>Tiles are encoded on worker threads while the previous ones are sent to the server, then the pixels are
+     * saved.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param threads The number of threads used to encode the tiles while they are written.
+     * @param array   The pixels, which have to match the pixel type.
+     * @param start   The position of the array in the image.
+     *
+     * @throws ServiceException          Cannot connect to OMERO.
+     * @throws AccessException           If an error occurs while writing the pixels.
+     * @throws IllegalArgumentException  If the pixel type does not match.
+     * @throws IndexOutOfBoundsException If the array does not fit in the image.
+     */
+    public void write(Client client, int threads, PixelsArray array, Coordinates start)
+    throws ServiceException, AccessException {
+        try (PixelsWriter writer = createWriter(client)) {
+            write(writer, threads, array, start);
+        } finally {
+            invalidateTileCache(client);
+        }
+    }
+
+
+    /**
+     * Writes the pixels from an array at the specified position, using the provided writer.
+     *
+     * @param writer  The writer.
+     * @param threads The number of threads used to encode the tiles while they are written.
+     * @param array   The pixels, which have to match the pixel type.
+     * @param start   The position of the array in the image.
+     *
+     * @throws ServiceException          Cannot connect to OMERO.
+     * @throws AccessException           If an error occurs while writing the pixels.
+     * @throws IllegalArgumentException  If the pixel type does not match.
+     * @throws IndexOutOfBoundsException If the array does not fit in the image.
+     */
+    void write(PixelsWriter writer, int threads, PixelsArray array, Coordinates start)
+    throws ServiceException, AccessException {
+        if (!array.getPixelType().equals(getPixelType())) {
+            String msg = String.format("Pixel type %s does not match %s", array.getPixelType(), getPixelType());
+            throw new IllegalArgumentException(msg);
+        }
+        Bounds lim = checkWriteBounds(start,
+                                      array.getSizeX(),
+                                      array.getSizeY(),
+                                      array.getSizeC(),
+                                      array.getSizeZ(),
+                                      array.getSizeT());
+        write(writer, lim, threads, tile -> {
+            Coordinates pos = tile.getStart();
+            Coordinates rel = new Coordinates(pos.getX() - start.getX(),
+                                              pos.getY() - start.getY(),
+                                              pos.getC() - start.getC(),
+                                              pos.getZ() - start.getZ(),
+                                              pos.getT() - start.getT());
+            return array.getRawTile(rel, tile.getSize().getX(), tile.getSize().getY());
+        });
+    }
+
+
+    /**
+     * Writes a tile from a buffer containing raw (big-endian) bytes, row by row.
+     * <p>The tile is read from the current position of the buffer, whose position is then moved after the tile.</p>
+     *
+     * @param client The client handling the connection.
+     * @param buffer The buffer (heap or direct) containing the tile.
+     * @param start  Start position of the tile.
+     * @param width  Width of the tile.
+     * @param height Height of the tile.
+     *
+     * @throws ServiceException          Cannot connect to OMERO.
+     * @throws AccessException           If an error occurs while writing the pixels.
+     * @throws BufferUnderflowException  If there are not enough bytes remaining in the buffer.
+     * @throws IndexOutOfBoundsException If the tile does not fit in the image.
+     */
+    public void write(Client client, ByteBuffer buffer, Coordinates start, int width, int height)
+    throws ServiceException, AccessException {
+        int bpp = FormatTools.getBytesPerPixel(FormatTools.pixelTypeFromString(getPixelType()));
+        if (buffer.remaining() < width * height * bpp) {
+            throw new BufferUnderflowException();
+        }
+        Bounds lim  = checkWriteBounds(start, width, height, 1, 1, 1);
+        int    base = buffer.position();
+        try (PixelsWriter writer = createWriter(client)) {
+            write(writer, lim, 1, tile -> {
+                int        tileWidth = tile.getSize().getX();
+                int        rowLength = tileWidth * bpp;
+                int        x         = tile.getStart().getX() - start.getX();
+                int        y0        = tile.getStart().getY() - start.getY();
+                byte[]     bytes     = new byte[rowLength * tile.getSize().getY()];
+                ByteBuffer input     = buffer.duplicate();
+                for (int y = 0; y < tile.getSize().getY(); y++) {
+                    input.position(base + ((y0 + y) * width + x) * bpp);
+                    input.get(bytes, y * rowLength, rowLength);
+                }
+                return bytes;
+            });
+        } finally {
+            invalidateTileCache(client);
+        }
+        buffer.position(base + width * height * bpp);
+    }
+
+
+    /**
+     * Writes all the pixels of the image from an ImagePlus with the same dimensions.
+     * <p>Tiles are encoded on worker threads while the previous ones are sent to the server, then the pixels are
+     * saved.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param threads The number of threads used to encode the tiles while they are written.
+     * @param imp     The ImagePlus.
+     *
+     * @throws ServiceException         Cannot connect to OMERO.
+     * @throws AccessException          If an error occurs while writing the pixels.
+     * @throws IllegalArgumentException If the ImagePlus dimensions or type do not match the image.
+     */
+    public void write(Client client, int threads, ImagePlus imp)
+    throws ServiceException, AccessException {
+        int     pixelType = FormatTools.pixelTypeFromString(getPixelType());
+        int     bpp       = FormatTools.getBytesPerPixel(pixelType);
+        boolean isFloat   = FormatTools.isFloatingPoint(pixelType);
+        if (imp.getBitDepth() == 24 || imp.getBitDepth() != bpp * 8 || isFloat != (imp.getBitDepth() == 32)) {
+            String msg = String.format("ImagePlus type (%d-bit) does not match %s", imp.getBitDepth(), getPixelType());
+            throw new IllegalArgumentException(msg);
+        }
+        if (imp.getWidth() != getSizeX() || imp.getHeight() != getSizeY() || imp.getNChannels() != getSizeC()
+            || imp.getNSlices() != getSizeZ() || imp.getNFrames() != getSizeT()) {
+            throw new IllegalArgumentException("ImagePlus dimensions do not match the image");
+        }
+
+        ImageStack stack = imp.getStack();
+        Bounds     lim   = getBounds(null, null, null, null, null);
+        try (PixelsWriter writer = createWriter(client)) {
+            write(writer, lim, threads, tile -> {
+                Coordinates pos   = tile.getStart();
+                int         n     = imp.getStackIndex(pos.getC() + 1, pos.getZ() + 1, pos.getT() + 1);
+                int         start = pos.getY() * getSizeX() + pos.getX();
+                return PixelBuffers.encode(stack.getPixels(n),
+                                           start,
+                                           getSizeX(),
+                                           tile.getSize().getX(),
+                                           tile.getSize().getY());
+            });
+        } finally {
+            invalidateTileCache(client);
+        }
+    }
+
+
+    /**
+     * Checks that a region fits in the image.
+     *
+     * @param start The start position of the region.
+     * @param sizeX The size of the region along X.
+     * @param sizeY The size of the region along Y.
+     * @param sizeC The size of the region along C.
+     * @param sizeZ The size of the region along Z.
+     * @param sizeT The size of the region along T.
+     *
+     * @return The bounds of the region.
+     *
+     * @throws IndexOutOfBoundsException If the region does not fit in the image.
+     */
+    private Bounds checkWriteBounds(Coordinates start, int sizeX, int sizeY, int sizeC, int sizeZ, int sizeT) {
+        Coordinates end = new Coordinates(start.getX() + sizeX - 1,
+                                          start.getY() + sizeY - 1,
+                                          start.getC() + sizeC - 1,
+                                          start.getZ() + sizeZ - 1,
+                                          start.getT() + sizeT - 1);
+        if (start.getX() < 0 || start.getY() < 0 || start.getC() < 0 || start.getZ() < 0 || start.getT() < 0
+            || end.getX() >= getSizeX() || end.getY() >= getSizeY() || end.getC() >= getSizeC()
+            || end.getZ() >= getSizeZ() || end.getT() >= getSizeT()) {
+            throw new IndexOutOfBoundsException("Region does not fit in the image");
+        }
+        return new Bounds(start, end);
+    }
+
+
+    /**
+     * Writes the tiles corresponding to the bounds, then saves the pixels.
+     * <p>Tiles are encoded on worker threads, ahead of the tile being written, so that encoding and network
+     * transfers overlap. At most twice as many tiles as threads are encoded ahead.</p>
+     *
+     * @param writer  The writer.
+     * @param lim     The bounds (which have to be valid).
+     * @param threads The number of threads used to encode the tiles.
+     * @param encoder The function encoding each tile to raw bytes.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while writing the pixels.
+     */
+    void write(PixelsWriter writer, Bounds lim, int threads, TileEncoder encoder)
+    throws ServiceException, AccessException {
+        List<Bounds>          tiles    = getTiles(lim);
+        int                   depth    = 2 * Math.max(1, threads);
+        ExecutorService       executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        Deque<Future<byte[]>> pending  = new ArrayDeque<>(depth);
+        try {
+            int submitted = 0;
+            for (Bounds tile : tiles) {
+                while (submitted < tiles.size() && pending.size() < depth) {
+                    Bounds next = tiles.get(submitted++);
+                    pending.add(executor.submit(() -> encoder.encode(next)));
+                }
+                byte[] bytes;
+                try {
+                    bytes = pending.poll().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AccessException("Interrupted while writing tiles", e);
+                } catch (ExecutionException e) {
+                    throw PixelsReaderPool.unwrap(e.getCause());
+                }
+                writer.setTile(tile.getStart(), tile.getSize().getX(), tile.getSize().getY(), bytes);
+            }
+            writer.save();
+        } finally {
+            pending.forEach(f -> f.cancel(true));
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Reads a plane, tile by tile, using the readers from the pool.
+     *
+     * @param pool     The pool of readers.
+     * @param position The start position of the plane.
+     * @param sizeX    The width of the plane.
+     * @param sizeY    The height of the plane.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException     Cannot connect to OMERO.
+     * @throws AccessException      Cannot read the plane.
+     * @throws InterruptedException If the thread was interrupted while waiting for a reader.
+     */
+    PixelsArray readPlane(PixelsReaderPool pool, Coordinates position, int sizeX, int sizeY)
+    throws ServiceException, AccessException, InterruptedException {
+        PixelsArray plane = new PixelsArray(getPixelType(), sizeX, sizeY, 1, 1, 1);
+        for (Bounds tile : getTiles(getTileBounds(position, sizeX, sizeY))) {
+            Coordinates pos = tile.getStart();
+            Coordinates rel = new Coordinates(pos.getX() - position.getX(), pos.getY() - position.getY(), 0, 0, 0);
+            plane.setRawTile(pool.read(tile), rel, tile.getSize().getX(), tile.getSize().getY());
+        }
+        return plane;
+    }
+
+
+    /**
+     * Gets the tile at the specified position, with the defined width and height, and writes it into a buffer.
+     * <p>The tile is copied row by row, starting at the current position of the buffer, which is then moved after the
+     * tile. Values are written as big-endian bytes. This allows a single (possibly direct) buffer to be reused for
+     * many tiles, for example with {@link ByteBuffer#clear()}.</p>
+     * <p>To read many tiles, {@link #createReader(Client) creating a reader} once and using
+     * {@link PixelsReader#getTile(Coordinates, int, int, ByteBuffer)} avoids opening a new raw pixels store for each
+     * tile.</p>
+     *
+     * @param client The client handling the connection.
+     * @param start  Start position of the tile.
+     * @param width  Width of the tile.
+     * @param height Height of the tile.
+     * @param buffer The buffer to fill.
+     *
+     * @return The buffer.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  If an error occurs while retrieving the plane data from the pixels source.
+     */
+    public ByteBuffer getRawTile(Client client, Coordinates start, int width, int height, ByteBuffer buffer)
+    throws ServiceException, AccessException {
+        try (PixelsReader reader = createReader(client)) {
+            return reader.getTile(start, width, height, buffer);
+        }
+    }
+
+
+    /**
+     * Creates a new reader, with its own raw pixels store, for this pixels set. The reader has to be closed after use.
+     *
+     * @param client The client handling the connection.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    public PixelsReader createReader(Client client)
+    throws ServiceException, AccessException {
+        return new RawPixelsStoreReader(client, getId());
+    }
+
+
+    /**
+     * Creates a pool of raw pixels stores for this pixels set.
+     *
+     * @param client  The client handling the connection.
+     * @param threads The maximum number of raw pixels stores (and threads).
+     *
+     * @return See above.
+     */
+    PixelsReaderPool createReaderPool(Client client, int threads) {
+        long id = getId();
+        return new PixelsReaderPool(threads, () -> new RawPixelsStoreReader(client, id));
+    }
+
+
+    /**
+     * Creates a pool of raw pixels stores for this pixels set, reading at the specified resolution level.
+     *
+     * @param client  The client handling the connection.
+     * @param threads The maximum number of raw pixels stores (and threads).
+     * @param level   The resolution level (0 is the full resolution).
+     *
+     * @return See above.
+     */
+    PixelsReaderPool createReaderPool(Client client, int threads, int level) {
+        long id = getId();
+        return new PixelsReaderPool(threads, () -> {
+            PixelsReader reader  = new RawPixelsStoreReader(client, id);
+            boolean      success = false;
+            try {
+                reader.setResolutionLevel(level);
+                success = true;
+            } finally {
+                if (!success) {
+                    reader.close();
+                }
+            }
+            return reader;
+        });
+    }
+
+
+    /**
+     * Splits the bounds into 2D tiles (one plane at a time), following the current {@link #getTilePlan() tile plan}.
+     *
+     * @param lim The bounds.
+     *
+     * @return The list of tiles.
+     */
+    List<Bounds> getTiles(Bounds lim) {
+        return getTilePlan().split(lim);
+    }
+
+
+    /**
+     * Returns the bounds of a 2D tile.
+     *
+     * @param start  Start position of the tile.
+     * @param width  Width of the tile.
+     * @param height Height of the tile.
+     *
+     * @return See above.
+     */
+    private static Bounds getTileBounds(Coordinates start, int width, int height) {
+        Coordinates end = new Coordinates(start.getX() + width - 1,
+                                          start.getY() + height - 1,
+                                          start.getC(),
+                                          start.getZ(),
+                                          start.getT());
+        return new Bounds(start, end);
+    }
+
+
+    /**
+     * Returns the plan used to split reads into tile requests.
+     * <p>Unless it was {@link #setTilePlan(TilePlan) set} or {@link #getTilePlan(Client) retrieved from the server},
+     * the plan is not aligned on native tiles and uses the {@link TilePlan#DEFAULT_MAX_BYTES default payload}. This
+     * default plan is not kept, so that the native plan can still be retrieved by the next parallel reads.</p>
+     *
+     * @return See above.
+     */
+    public TilePlan getTilePlan() {
+        if (tilePlan != null) {
+            return tilePlan;
+        } else if (shared.nativeTilePlan != null) {
+            return shared.nativeTilePlan;
+        } else {
+            int bpp = FormatTools.getBytesPerPixel(FormatTools.pixelTypeFromString(getPixelType()));
+            return new TilePlan(1, 1, bpp, TilePlan.DEFAULT_MAX_BYTES);
+        }
+    }
+
+
+    /**
+     * Retrieves the native tile size from the server and returns the resulting plan, which is then used for the next
+     * reads, unless a plan was {@link #setTilePlan(TilePlan) set}.
+     *
+     * @param client The client handling the connection.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    public TilePlan getTilePlan(Client client)
+    throws ServiceException, AccessException {
+        try (PixelsReader reader = createReader(client)) {
+            shared.nativeTilePlan = reader.getTilePlan();
+        }
+        return shared.nativeTilePlan;
+    }
+
+
+    /**
+     * Returns the plan used by the next reads, retrieving the native tile size using a reader from the pool, unless a
+     * plan was already retrieved or set.
+     *
+     * @param pool The pool of readers.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    TilePlan getTilePlan(PixelsReaderPool pool)
+    throws ServiceException, AccessException {
+        if (tilePlan == null && shared.nativeTilePlan == null) {
+            shared.nativeTilePlan = pool.getTilePlan();
+        }
+        return getTilePlan();
+    }
+
+
+    /**
+     * Sets the plan used to split reads into tile requests, for example to tune the payload of each request.
+     *
+     * @param tilePlan The tile plan (null to use the native plan, or the default plan if it was not retrieved).
+     */
+    public void setTilePlan(TilePlan tilePlan) {
+        this.tilePlan = tilePlan;
+    }
+
+
+    /**
+     * Returns the grid formed by the tile requests of a whole plane, following the current
+     * {@link #getTilePlan() tile plan}.
+     *
+     * @return See above.
+     */
+    TileGrid getTileGrid() {
+        Bounds plane = getBounds(null, null, new int[]{0, 0}, new int[]{0, 0}, new int[]{0, 0});
+        return new TileGrid(getTiles(plane), getSizeC(), getSizeZ());
+    }
+
+
+    /**
+     * Gets the tile at the specified position, with the defined width and height.
+     * <p>If the client has a {@link TileCache}, the tile is read from the cache when possible.</p>
+     *
+     * @param client The client handling the connection.
+     * @param start  Start position of the tile.
+     * @param width  Width of the tile.
+     * @param height Height of the tile.
+     * @param bpp    Bytes per pixels of the image.
+     *
+     * @return Array of bytes containing the pixel values.
+     *
+     * @throws AccessException    If an error occurs while retrieving the plane data from the pixels source.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    byte[] getRawTile(Client client, Coordinates start, int width, int height, int bpp)
+    throws AccessException, ExecutionException {
+        TileCache cache = client.getTileCache();
+        byte[]    tile  = cache != null ? cache.get(getId(), start, width, height) : null;
+        if (tile == null) {
+            boolean rdf = createRawDataFacility(client);
+            tile = ExceptionHandler.of(this,
+                                       t -> t.getRawTileUnchecked(client, start, width, height, bpp))
+                                   .rethrow(DataSourceException.class,
+                                            AccessException::new,
+                                            "Cannot read raw tile")
+                                   .get();
+            if (rdf) {
+                destroyRawDataFacility();
+            }
+            if (cache != null) {
+                cache.put(getId(), start, width, height, tile);
+            }
+        }
+        return tile;
+    }
+
+
+    /**
+     * Gets the tile at the specified position, with the defined width and height.
+     * <p>The {@link #rawDataFacility} has to be created first.</p>
+     *
+     * @param client The client handling the connection.
+     * @param start  Start position of the tile.
+     * @param width  Width of the tile.
+     * @param height Height of the tile.
+     * @param bpp    Bytes per pixels of the image.
+     *
+     * @return Array of bytes containing the pixel values.
+     *
+     * @throws DataSourceException If an error occurs while retrieving the plane data from the pixels source.
+     */
+    private byte[] getRawTileUnchecked(Client client, Coordinates start, int width, int height, int bpp)
+    throws DataSourceException {
+        byte[] tile = new byte[height * width * bpp];
+
+        int c = start.getC();
+        int z = start.getZ();
+        int t = start.getT();
+
+        for (Bounds request : getTilePlan().split(getTileBounds(start, width, height))) {
+            int         x     = request.getStart().getX();
+            int         y     = request.getStart().getY();
+            int         sizeX = request.getSize().getX();
+            int         sizeY = request.getSize().getY();
+            Plane2D     p     = rawDataFacility.getTile(client.getCtx(), data, z, t, c, x, y, sizeX, sizeY);
+            Coordinates pos   = new Coordinates(x - start.getX(), y - start.getY(), c, z, t);
+            copy(tile, p, pos, sizeX, sizeY, width, bpp);
+        }
+        return tile;
+    }
+
+
+    /**
+     * Checks all bounds
+     *
+     * @param xBounds Array containing the X bounds from which the pixels should be retrieved.
+     * @param yBounds Array containing the Y bounds from which the pixels should be retrieved.
+     * @param cBounds Array containing the C bounds from which the pixels should be retrieved.
+     * @param zBounds Array containing the Z bounds from which the pixels should be retrieved.
+     * @param tBounds Array containing the T bounds from which the pixels should be retrieved.
+     *
+     * @return 5D bounds.
+     */
+    Bounds getBounds(int[] xBounds, int[] yBounds, int[] cBounds, int[] zBounds, int[] tBounds) {
+        return getBounds(data.getSizeX(), data.getSizeY(), xBounds, yBounds, cBounds, zBounds, tBounds);
+    }
+
+
+    /**
+     * Checks all bounds, for a plane of the specified size (e.g. at a lower resolution level).
+     *
+     * @param sizeX   The size along X.
+     * @param sizeY   The size along Y.
+     * @param xBounds Array containing the X bounds from which the pixels should be retrieved.
+     * @param yBounds Array containing the Y bounds from which the pixels should be retrieved.
+     * @param cBounds Array containing the C bounds from which the pixels should be retrieved.
+     * @param zBounds Array containing the Z bounds from which the pixels should be retrieved.
+     * @param tBounds Array containing the T bounds from which the pixels should be retrieved.
+     *
+     * @return 5D bounds.
+     */
+    Bounds getBounds(int sizeX, int sizeY, int[] xBounds, int[] yBounds, int[] cBounds, int[] zBounds, int[] tBounds) {
+        int[][] limits = new int[5][2];
+        limits[0] = checkBounds(xBounds, sizeX);
+        limits[1] = checkBounds(yBounds, sizeY);
+        limits[2] = checkBounds(cBounds, data.getSizeC());
+        limits[3] = checkBounds(zBounds, data.getSizeZ());
+        limits[4] = checkBounds(tBounds, data.getSizeT());
+        Coordinates start = new Coordinates(limits[0][0],
+                                            limits[1][0],
+                                            limits[2][0],
+                                            limits[3][0],
+                                            limits[4][0]);
+        Coordinates end = new Coordinates(limits[0][1],
+                                          limits[1][1],
+                                          limits[2][1],
+                                          limits[3][1],
+                                          limits[4][1]);
+        return new Bounds(start, end);
+    }
+
+
+    /** Projection types */
+    public enum ProjectionType {
+        /** Maximum intensity */
+        MAX,
+
+        /** Minimum intensity */
+        MIN,
+
+        /** Mean intensity */
+        MEAN,
+
+        /** Sum of intensities */
+        SUM,
+
+        /** Standard deviation */
+        SD
+    }
+
+
+    /** Projection axes */
+    public enum ProjectionAxis {
+        /** Project along Z */
+        Z,
+
+        /** Project along T */
+        T
+    }
+
+
+    /** Handler called for each plane read by {@link #forEachPlane(Client, String, int, PlaneHandler)} */
+    @FunctionalInterface
+    public interface PlaneHandler {
+
+        /**
+         * Handles a plane.
+         *
+         * @param position The start position of the plane in the image.
+         * @param plane    The plane pixels.
+         */
+        void handle(Coordinates position, PixelsArray plane);
+
+    }
+
+
+    /** Handler called for each crop extracted by {@link #forEachCrop(Client, int, Collection, int, CropHandler)} */
+    @FunctionalInterface
+    public interface CropHandler {
+
+        /**
+         * Handles a crop.
+         *
+         * @param index The index of the crop in the requested crops.
+         * @param crop  The crop pixels.
+         */
+        void handle(int index, PixelsArray crop);
+
+    }
+
+
+    /** Function encoding the tiles written by {@link #write(PixelsWriter, Bounds, int, TileEncoder)} */
+    @FunctionalInterface
+    interface TileEncoder {
+
+        /**
+         * Encodes a tile.
+         *
+         * @param tile The tile bounds, in the image.
+         *
+         * @return The raw (big-endian) bytes of the tile.
+         */
+        byte[] encode(Bounds tile);
+
+    }
+
+
+    /** Class containing 5D pixel coordinates */
+    public static class Coordinates {
+
+        /** X coordinate */
+        private final int x;
+        /** Y coordinate */
+        private final int y;
+        /** C coordinate */
+        private final int c;
+        /** Z coordinate */
+        private final int z;
+        /** T coordinate */
+        private final int t;
+
+
+        /**
+         * Coordinates constructor.
+         *
+         * @param x X coordinate.
+         * @param y Y coordinate.
+         * @param c C coordinate.
+         * @param z Z coordinate.
+         * @param t T coordinate.
+         */
+        public Coordinates(int x, int y, int c, int z, int t) {
+            this.x = x;
+            this.y = y;
+            this.c = c;
+            this.z = z;
+            this.t = t;
+        }
+
+
+        /**
+         * Gets X coordinate.
+         *
+         * @return x coordinate.
+         */
+        public int getX() {
+            return x;
+        }
+
+
+        /**
+         * Gets Y coordinate.
+         *
+         * @return Y coordinate.
+         */
+        public int getY() {
+            return y;
+        }
+
+
+        /**
+         * Gets C coordinate.
+         *
+         * @return C coordinate.
+         */
+        public int getC() {
+            return c;
+        }
+
+
+        /**
+         * Gets Z coordinate.
+         *
+         * @return Z coordinate.
+         */
+        public int getZ() {
+            return z;
+        }
+
+
+        /**
+         * Gets T coordinate.
+         *
+         * @return T coordinate.
+         */
+        public int getT() {
+            return t;
+        }
+
+    }
+
+
+    /** Class containing 5D bounds coordinates */
+    public static class Bounds {
+
+        /** Start coordinates */
+        private final Coordinates start;
+        /** Bounds size */
         private final Coordinates size;
 
 
@@ -820,4 +2542,41 @@ public class PixelsWrapper extends GenericObjectWrapper<PixelsData> {
 
     }
 
+
+    /**
+     * Data retrieved from the server about a pixels set, which can be shared by several wrappers of these pixels.
+     */
+    static final class SharedData {
+
+        /** Pixels ID */
+        private final long pixelsId;
+
+        /** Planes info (needs to be loaded) */
+        private volatile PlaneInfoTable planesInfo = PlaneInfoTable.empty();
+
+        /** Plan following the native tiles, as retrieved from the server */
+        private volatile TilePlan nativeTilePlan;
+
+
+        /**
+         * Constructor of the SharedData class.
+         *
+         * @param pixelsId The pixels ID.
+         */
+        SharedData(long pixelsId) {
+            this.pixelsId = pixelsId;
+        }
+
+
+        /**
+         * Returns the ID of the pixels this data belongs to.
+         *
+         * @return See above.
+         */
+        long getPixelsId() {
+            return pixelsId;
+        }
+
+    }
+
 }
@@ -0,0 +1,64 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.exception.AccessException;
+import fr.igred.omero.exception.ServiceException;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+
+
+/**
+ * Interface to write raw tiles to a pixels set.
+ * <p>Tiles are given as big-endian bytes, row by row. Implementations are not expected to be thread-safe: a writer
+ * should only be used by one thread at a time.
+ */
+public interface PixelsWriter extends AutoCloseable {
+
+    /**
+     * Writes the tile at the specified position, with the defined width and height.
+     *
+     * @param start  Start position of the tile.
+     * @param width  Width of the tile.
+     * @param height Height of the tile.
+     * @param bytes  Array of bytes containing the pixel values.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot write the tile.
+     */
+    void setTile(Coordinates start, int width, int height, byte[] bytes)
+    throws ServiceException, AccessException;
+
+
+    /**
+     * Saves the pixels written so far.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot save the pixels.
+     */
+    void save()
+    throws ServiceException, AccessException;
+
+
+    /**
+     * Closes the writer and releases the underlying resources.
+     */
+    @Override
+    void close();
+
+}
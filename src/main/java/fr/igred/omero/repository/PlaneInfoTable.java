@@ -0,0 +1,514 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.meta.PlaneInfoWrapper;
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import ome.units.unit.Unit;
+import omero.gateway.model.PlaneInfoData;
+import omero.model.Length;
+import omero.model.LengthI;
+import omero.model.PlaneInfo;
+import omero.model.PlaneInfoI;
+import omero.model.Time;
+import omero.model.TimeI;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import static ome.formats.model.UnitsFactory.convertLength;
+import static ome.formats.model.UnitsFactory.convertTime;
+import static ome.units.UNITS.SECOND;
+import static omero.rtypes.rint;
+
+
+/**
+ * Planes information stored in primitive arrays (one value per plane and field), sorted by T, Z and C.
+ * <p>Times and positions are converted to a single unit per field (the first unit found). Missing values are stored
+ * as {@link Double#NaN}.</p>
+ */
+class PlaneInfoTable {
+
+    /** Bounds (along C, Z and T) of the ranges of planes loaded */
+    private final List<Bounds> ranges;
+
+    /** Plane IDs */
+    private final long[] ids;
+
+    /** Plane channel indices */
+    private final int[] theC;
+
+    /** Plane slice indices */
+    private final int[] theZ;
+
+    /** Plane time indices */
+    private final int[] theT;
+
+    /** DeltaT values */
+    private final double[] deltaT;
+
+    /** Exposure times */
+    private final double[] exposure;
+
+    /** X stage positions */
+    private final double[] positionX;
+
+    /** Y stage positions */
+    private final double[] positionY;
+
+    /** Z stage positions */
+    private final double[] positionZ;
+
+    /** DeltaT unit (null if no value is known) */
+    private final Unit<ome.units.quantity.Time> deltaTUnit;
+
+    /** Exposure time unit (null if no value is known) */
+    private final Unit<ome.units.quantity.Time> exposureUnit;
+
+    /** X position unit (null if no value is known) */
+    private final Unit<ome.units.quantity.Length> positionXUnit;
+
+    /** Y position unit (null if no value is known) */
+    private final Unit<ome.units.quantity.Length> positionYUnit;
+
+    /** Z position unit (null if no value is known) */
+    private final Unit<ome.units.quantity.Length> positionZUnit;
+
+
+    /**
+     * Constructor of the PlaneInfoTable class.
+     *
+     * @param planes The planes information.
+     * @param bounds The bounds of the planes loaded (null if none was loaded).
+     */
+    PlaneInfoTable(Collection<? extends PlaneInfoData> planes, Bounds bounds) {
+        this(planes, bounds != null ? Collections.singletonList(bounds) : Collections.emptyList());
+    }
+
+
+    /**
+     * Constructor of the PlaneInfoTable class.
+     *
+     * @param planes The planes information.
+     * @param ranges The bounds of the ranges of planes loaded.
+     */
+    private PlaneInfoTable(Collection<? extends PlaneInfoData> planes, List<Bounds> ranges) {
+        List<PlaneInfoData> sorted = new ArrayList<>(planes);
+        sorted.sort(Comparator.comparingInt(PlaneInfoData::getTheT)
+                              .thenComparingInt(PlaneInfoData::getTheZ)
+                              .thenComparingInt(PlaneInfoData::getTheC));
+
+        int size = sorted.size();
+        this.ranges    = ranges;
+        this.ids       = new long[size];
+        this.theC      = new int[size];
+        this.theZ      = new int[size];
+        this.theT      = new int[size];
+        this.deltaT    = new double[size];
+        this.exposure  = new double[size];
+        this.positionX = new double[size];
+        this.positionY = new double[size];
+        this.positionZ = new double[size];
+        for (int i = 0; i < size; i++) {
+            PlaneInfoData plane = sorted.get(i);
+            ids[i]  = plane.getId();
+            theC[i] = plane.getTheC();
+            theZ[i] = plane.getTheZ();
+            theT[i] = plane.getTheT();
+        }
+        this.deltaTUnit    = fillTimes(sorted, PlaneInfoData::getDeltaT, deltaT);
+        this.exposureUnit  = fillTimes(sorted, PlaneInfoData::getExposureTime, exposure);
+        this.positionXUnit = fillLengths(sorted, PlaneInfoData::getPositionX, positionX);
+        this.positionYUnit = fillLengths(sorted, PlaneInfoData::getPositionY, positionY);
+        this.positionZUnit = fillLengths(sorted, PlaneInfoData::getPositionZ, positionZ);
+    }
+
+
+    /**
+     * Creates an empty table, which does not contain any plane.
+     *
+     * @return See above.
+     */
+    static PlaneInfoTable empty() {
+        return new PlaneInfoTable(new ArrayList<>(0), (Bounds) null);
+    }
+
+
+    /**
+     * Converts times to the unit of the first time found and stores their values.
+     *
+     * @param planes The planes information.
+     * @param getter The getter for the time field.
+     * @param values The array where values are stored.
+     *
+     * @return The unit, or null if no time was found.
+     */
+    private static Unit<ome.units.quantity.Time> fillTimes(List<? extends PlaneInfoData> planes,
+                                                          Function<? super PlaneInfoData, ? extends Time> getter,
+                                                          double[] values) {
+        Unit<ome.units.quantity.Time> unit = null;
+        for (int i = 0; i < values.length; i++) {
+            ome.units.quantity.Time time = convertTime(getter.apply(planes.get(i)));
+            values[i] = Double.NaN;
+            if (time != null) {
+                unit = unit == null ? time.unit() : unit;
+                Number value = time.value(unit);
+                values[i] = value != null ? value.doubleValue() : Double.NaN;
+            }
+        }
+        return unit;
+    }
+
+
+    /**
+     * Converts lengths to the unit of the first length found and stores their values.
+     *
+     * @param planes The planes information.
+     * @param getter The getter for the length field.
+     * @param values The array where values are stored.
+     *
+     * @return The unit, or null if no length was found.
+     */
+    private static Unit<ome.units.quantity.Length> fillLengths(List<? extends PlaneInfoData> planes,
+                                                              Function<? super PlaneInfoData, ? extends Length> getter,
+                                                              double[] values) {
+        Unit<ome.units.quantity.Length> unit = null;
+        for (int i = 0; i < values.length; i++) {
+            ome.units.quantity.Length length = convertLength(getter.apply(planes.get(i)));
+            values[i] = Double.NaN;
+            if (length != null) {
+                unit = unit == null ? length.unit() : unit;
+                Number value = length.value(unit);
+                values[i] = value != null ? value.doubleValue() : Double.NaN;
+            }
+        }
+        return unit;
+    }
+
+
+    /**
+     * Retrieves the minimum of an array, ignoring NaN values, converted to the specified unit.
+     *
+     * @param values  The values.
+     * @param current The unit of the values.
+     * @param unit    The unit of the result.
+     *
+     * @return The minimum, or 0 if there is none.
+     */
+    private static Length getMin(double[] values,
+                                 Unit<ome.units.quantity.Length> current,
+                                 Unit<ome.units.quantity.Length> unit) {
+        double min = Double.POSITIVE_INFINITY;
+        for (double value : values) {
+            if (value < min) {
+                min = value;
+            }
+        }
+        double result = 0.0d;
+        if (current != null && min != Double.POSITIVE_INFINITY) {
+            Number converted = new ome.units.quantity.Length(min, current).value(unit);
+            result = converted != null ? converted.doubleValue() : 0.0d;
+        }
+        return new LengthI(result, unit);
+    }
+
+
+    /**
+     * Converts a value to a time.
+     *
+     * @param value The value.
+     * @param unit  The unit.
+     *
+     * @return The time, or null if the value is NaN.
+     */
+    private static Time toTime(double value, Unit<ome.units.quantity.Time> unit) {
+        return Double.isNaN(value) ? null : new TimeI(value, unit);
+    }
+
+
+    /**
+     * Converts a value to a length.
+     *
+     * @param value The value.
+     * @param unit  The unit.
+     *
+     * @return The length, or null if the value is NaN.
+     */
+    private static Length toLength(double value, Unit<ome.units.quantity.Length> unit) {
+        return Double.isNaN(value) ? null : new LengthI(value, unit);
+    }
+
+
+    /**
+     * Checks if a plane is within the specified bounds (along C, Z and T).
+     *
+     * @param bounds The bounds.
+     * @param c      The channel index.
+     * @param z      The slice index.
+     * @param t      The time index.
+     *
+     * @return See above.
+     */
+    private static boolean contains(Bounds bounds, int c, int z, int t) {
+        Coordinates start = bounds.getStart();
+        Coordinates end   = bounds.getEnd();
+        return c >= start.getC() && c <= end.getC()
+               && z >= start.getZ() && z <= end.getZ()
+               && t >= start.getT() && t <= end.getT();
+    }
+
+
+    /**
+     * Checks if some bounds (along C, Z and T) are within other bounds.
+     *
+     * @param outer The outer bounds.
+     * @param inner The inner bounds.
+     *
+     * @return See above.
+     */
+    private static boolean contains(Bounds outer, Bounds inner) {
+        Coordinates start = inner.getStart();
+        Coordinates end   = inner.getEnd();
+        return contains(outer, start.getC(), start.getZ(), start.getT())
+               && contains(outer, end.getC(), end.getZ(), end.getT());
+    }
+
+
+    /**
+     * Checks if the planes in the specified bounds (along C, Z and T) were loaded in this table.
+     *
+     * @param lim The bounds.
+     *
+     * @return See above.
+     */
+    boolean covers(Bounds lim) {
+        if (ranges.stream().anyMatch(range -> contains(range, lim))) {
+            return true;
+        }
+        Coordinates start = lim.getStart();
+        Coordinates end   = lim.getEnd();
+        for (int t = start.getT(); t <= end.getT(); t++) {
+            for (int z = start.getZ(); z <= end.getZ(); z++) {
+                for (int c = start.getC(); c <= end.getC(); c++) {
+                    if (!isLoaded(c, z, t)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Checks if a plane is within one of the ranges loaded in this table.
+     *
+     * @param c The channel index.
+     * @param z The slice index.
+     * @param t The time index.
+     *
+     * @return See above.
+     */
+    private boolean isLoaded(int c, int z, int t) {
+        for (Bounds range : ranges) {
+            if (contains(range, c, z, t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Returns a new table containing the planes of this table and the planes loaded within the specified bounds (along
+     * C, Z and T), which replace the planes of this table within these bounds.
+     *
+     * @param planes The planes loaded.
+     * @param lim    The bounds of the planes loaded.
+     *
+     * @return See above.
+     */
+    PlaneInfoTable merge(Collection<? extends PlaneInfoData> planes, Bounds lim) {
+        List<PlaneInfoData> merged = new ArrayList<>(ids.length + planes.size());
+        for (int i = 0; i < ids.length; i++) {
+            if (!contains(lim, theC[i], theZ[i], theT[i])) {
+                merged.add(toPlaneInfoData(i));
+            }
+        }
+        merged.addAll(planes);
+
+        List<Bounds> loaded = new ArrayList<>(ranges.size() + 1);
+        for (Bounds range : ranges) {
+            if (!contains(lim, range)) {
+                loaded.add(range);
+            }
+        }
+        loaded.add(lim);
+        return new PlaneInfoTable(merged, Collections.unmodifiableList(loaded));
+    }
+
+
+    /**
+     * Returns the number of planes in this table.
+     *
+     * @return See above.
+     */
+    int size() {
+        return ids.length;
+    }
+
+
+    /**
+     * Computes the mean time interval from the deltaT of the planes at the first C and Z loaded.
+     *
+     * @param sizeT The number of time points.
+     *
+     * @return See above.
+     */
+    Time computeMeanTimeInterval(int sizeT) {
+        Unit<ome.units.quantity.Time> unit = deltaTUnit != null ? deltaTUnit : SECOND;
+
+        int    c0       = ranges.stream().mapToInt(b -> b.getStart().getC()).min().orElse(0);
+        int    z0       = ranges.stream().mapToInt(b -> b.getStart().getZ()).min().orElse(0);
+        int    previous = -1;
+        double last     = Double.NaN;
+        double mean     = 0;
+        int    count    = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (theC[i] == c0 && theZ[i] == z0 && theT[i] < sizeT) {
+                if (theT[i] == previous + 1 && !Double.isNaN(last) && !Double.isNaN(deltaT[i])) {
+                    mean += deltaT[i] - last;
+                    count++;
+                }
+                previous = theT[i];
+                last     = deltaT[i];
+            }
+        }
+        mean /= count == 0 ? Double.NaN : count;
+        return new TimeI(mean, unit);
+    }
+
+
+    /**
+     * Computes the mean exposure time for a given channel.
+     *
+     * @param channel The channel index.
+     *
+     * @return See above.
+     */
+    Time computeMeanExposureTime(int channel) {
+        Unit<ome.units.quantity.Time> unit = exposureUnit != null ? exposureUnit : SECOND;
+
+        double mean  = 0;
+        int    count = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (theC[i] == channel && !Double.isNaN(exposure[i])) {
+                mean += exposure[i];
+                count++;
+            }
+        }
+        mean /= count == 0 ? Double.NaN : count;
+        return new TimeI(mean, unit);
+    }
+
+
+    /**
+     * Retrieves the minimum X stage position.
+     *
+     * @param unit The unit of the result.
+     *
+     * @return See above.
+     */
+    Length getMinPositionX(Unit<ome.units.quantity.Length> unit) {
+        return getMin(positionX, positionXUnit, unit);
+    }
+
+
+    /**
+     * Retrieves the minimum Y stage position.
+     *
+     * @param unit The unit of the result.
+     *
+     * @return See above.
+     */
+    Length getMinPositionY(Unit<ome.units.quantity.Length> unit) {
+        return getMin(positionY, positionYUnit, unit);
+    }
+
+
+    /**
+     * Retrieves the minimum Z stage position.
+     *
+     * @param unit The unit of the result.
+     *
+     * @return See above.
+     */
+    Length getMinPositionZ(Unit<ome.units.quantity.Length> unit) {
+        return getMin(positionZ, positionZUnit, unit);
+    }
+
+
+    /**
+     * Creates a {@link PlaneInfoWrapper} for each plane in this table (values are in the units of this table).
+     *
+     * @return See above.
+     */
+    List<PlaneInfoWrapper> toWrappers() {
+        List<PlaneInfoWrapper> wrappers = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            wrappers.add(new PlaneInfoWrapper(toPlaneInfoData(i)));
+        }
+        return wrappers;
+    }
+
+
+    /**
+     * Creates a {@link PlaneInfoData} for a plane in this table (values are in the units of this table).
+     *
+     * @param i The index of the plane in this table.
+     *
+     * @return See above.
+     */
+    private PlaneInfoData toPlaneInfoData(int i) {
+        PlaneInfo plane = new PlaneInfoI(ids[i], true);
+        plane.setTheC(rint(theC[i]));
+        plane.setTheZ(rint(theZ[i]));
+        plane.setTheT(rint(theT[i]));
+        plane.setDeltaT(toTime(deltaT[i], deltaTUnit));
+        plane.setExposureTime(toTime(exposure[i], exposureUnit));
+        plane.setPositionX(toLength(positionX[i], positionXUnit));
+        plane.setPositionY(toLength(positionY[i], positionYUnit));
+        plane.setPositionZ(toLength(positionZ[i], positionZUnit));
+        return new PlaneInfoData(plane);
+    }
+
+
+    /**
+     * Overridden to return the name of the class and the number of planes.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s (planes=%d)", getClass().getSimpleName(), ids.length);
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.exception.AccessException;
+import fr.igred.omero.exception.ServiceException;
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import fr.igred.omero.repository.PixelsWrapper.PlaneHandler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+
+/**
+ * Reads the planes of a pixels set one at a time, in a given order, while the next planes are prefetched in the
+ * background.
+ * <p>At most {@code prefetch} planes are pending at any time (in addition to the plane being handled), so memory
+ * usage is bounded by the prefetch depth instead of the image size.</p>
+ */
+class PlaneStream implements AutoCloseable {
+
+    /** Pixels set to read */
+    private final PixelsWrapper pixels;
+
+    /** Pool of readers */
+    private final PixelsReaderPool pool;
+
+    /** Start position of each plane, in reading order */
+    private final List<Coordinates> positions;
+
+    /** Width of the planes */
+    private final int sizeX;
+
+    /** Height of the planes */
+    private final int sizeY;
+
+    /** Maximum number of planes read ahead */
+    private final int prefetch;
+
+    /** Planes being read */
+    private final Deque<Future<PixelsArray>> pending;
+
+    /** Number of planes submitted so far */
+    private int submitted;
+
+
+    /**
+     * Constructor of the PlaneStream class.
+     *
+     * @param pixels   The pixels set to read.
+     * @param pool     The pool of readers.
+     * @param lim      The bounds to read (which have to be valid).
+     * @param order    The order in which planes are read (e.g. "CZT": C varies fastest, then Z, then T).
+     * @param prefetch The maximum number of planes read ahead (at least 1).
+     */
+    PlaneStream(PixelsWrapper pixels, PixelsReaderPool pool, Bounds lim, String order, int prefetch) {
+        this.pixels    = pixels;
+        this.pool      = pool;
+        this.positions = getPositions(lim, order);
+        this.sizeX     = lim.getSize().getX();
+        this.sizeY     = lim.getSize().getY();
+        this.prefetch  = Math.max(1, prefetch);
+        this.pending   = new ArrayDeque<>(this.prefetch);
+        this.submitted = 0;
+    }
+
+
+    /**
+     * Lists the start position of each plane within the bounds, in the specified order.
+     *
+     * @param lim   The bounds.
+     * @param order The order in which planes are read (a permutation of "CZT", first dimension varying fastest).
+     *
+     * @return See above.
+     *
+     * @throws IllegalArgumentException If the order is not a permutation of "CZT".
+     */
+    static List<Coordinates> getPositions(Bounds lim, String order) {
+        String dims = order.toUpperCase(Locale.ROOT);
+        if (dims.length() != 3 || dims.indexOf('C') < 0 || dims.indexOf('Z') < 0 || dims.indexOf('T') < 0) {
+            throw new IllegalArgumentException("Invalid dimension order: " + order);
+        }
+
+        Coordinates start = lim.getStart();
+        Coordinates size  = lim.getSize();
+
+        int[] from  = {start.getC(), start.getZ(), start.getT()};
+        int[] sizes = {size.getC(), size.getZ(), size.getT()};
+        int[] axes  = {"CZT".indexOf(dims.charAt(0)), "CZT".indexOf(dims.charAt(1)), "CZT".indexOf(dims.charAt(2))};
+
+        int               count     = sizes[0] * sizes[1] * sizes[2];
+        List<Coordinates> positions = new ArrayList<>(count);
+        int[]             pos       = new int[3];
+        for (int n = 0; n < count; n++) {
+            int rem = n;
+            for (int axis : axes) {
+                pos[axis] = from[axis] + rem % sizes[axis];
+                rem /= sizes[axis];
+            }
+            positions.add(new Coordinates(start.getX(), start.getY(), pos[0], pos[1], pos[2]));
+        }
+        return positions;
+    }
+
+
+    /**
+     * Submits planes until the prefetch depth is reached.
+     */
+    private void fill() {
+        while (pending.size() < prefetch && submitted < positions.size()) {
+            Coordinates position = positions.get(submitted++);
+            pending.add(pool.getExecutor().submit(() -> pixels.readPlane(pool, position, sizeX, sizeY)));
+        }
+    }
+
+
+    /**
+     * Reads all the planes and passes them to the handler, in order, from the current thread.
+     *
+     * @param handler The handler, called once per plane.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot read the planes.
+     */
+    void forEach(PlaneHandler handler)
+    throws ServiceException, AccessException {
+        fill();
+        int index = 0;
+        while (!pending.isEmpty()) {
+            Future<PixelsArray> next = pending.poll();
+            PixelsArray         plane;
+            try {
+                plane = next.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AccessException("Interrupted while reading planes", e);
+            } catch (ExecutionException e) {
+                throw PixelsReaderPool.unwrap(e.getCause());
+            }
+            fill();
+            handler.handle(positions.get(index++), plane);
+        }
+    }
+
+
+    /**
+     * Cancels the planes still pending.
+     */
+    @Override
+    public void close() {
+        pending.forEach(f -> f.cancel(true));
+        pending.clear();
+    }
+
+}
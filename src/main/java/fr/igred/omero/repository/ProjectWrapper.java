@@ -21,6 +21,7 @@ package fr.igred.omero.repository;
 import fr.igred.omero.Browser;
 import fr.igred.omero.Client;
 import fr.igred.omero.GenericObjectWrapper;
+import fr.igred.omero.NamePattern;
 import fr.igred.omero.annotations.TagAnnotationWrapper;
 import fr.igred.omero.exception.AccessException;
 import fr.igred.omero.exception.OMEROServerError;
@@ -314,6 +315,9 @@ public class ProjectWrapper extends GenericRepositoryObjectWrapper<ProjectData>
 
     /**
      * Gets all images in the project with a certain motif in their name from OMERO.
+     * <p>If the motif does not contain any regular expression metacharacter, the search is done on the server (see
+     * {@link #getImagesLike(Client, NamePattern)}). Otherwise, the images in the project are retrieved with a single
+     * query and their names are matched against the motif locally.</p>
      *
      * @param client The client handling the connection.
      * @param motif  Motif searched in an image name.
@@ -326,13 +330,53 @@ public class ProjectWrapper extends GenericRepositoryObjectWrapper<ProjectData>
      */
     public List<ImageWrapper> getImagesLike(Client client, String motif)
     throws ServiceException, AccessException, ExecutionException {
-        Collection<DatasetWrapper> datasets = getDatasets();
-
-        Collection<List<ImageWrapper>> lists = new ArrayList<>(datasets.size());
-        for (DatasetWrapper dataset : datasets) {
-            lists.add(dataset.getImagesLike(client, motif));
+        if (NamePattern.isLiteral(motif)) {
+            return getImagesLike(client, NamePattern.contains(motif));
         }
-        return flatten(lists);
+        List<ImageWrapper> images = getImages(client);
+
+        String regexp = ".*" + motif + ".*";
+        images.removeIf(image -> !image.getName().matches(regexp));
+        return images;
+    }
+
+
+    /**
+     * Gets all images in the project with a name matching the pattern, with a single query on the server.
+     *
+     * @param client  The client handling the connection.
+     * @param pattern The name pattern.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<ImageWrapper> getImagesLike(Client client, NamePattern pattern)
+    throws ServiceException, AccessException, ExecutionException {
+        return getImagesLike(client, pattern, 0, 0);
+    }
+
+
+    /**
+     * Gets a page of the images in the project with a name matching the pattern, with a single query on the server.
+     * <p>Images are sorted by ID, and images in several datasets of the project are only returned once.</p>
+     *
+     * @param client  The client handling the connection.
+     * @param pattern The name pattern.
+     * @param offset  The number of matching images to skip.
+     * @param limit   The maximum number of images returned (no limit if 0 or less).
+     *
+     * @return See above.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<ImageWrapper> getImagesLike(Client client, NamePattern pattern, int offset, int limit)
+    throws ServiceException, AccessException, ExecutionException {
+        return client.findImagesLike(this, pattern, offset, limit);
     }
 
 
@@ -351,13 +395,7 @@ public class ProjectWrapper extends GenericRepositoryObjectWrapper<ProjectData>
      */
     public List<ImageWrapper> getImagesTagged(Client client, TagAnnotationWrapper tag)
     throws ServiceException, AccessException, OMEROServerError, ExecutionException {
-        Collection<DatasetWrapper> datasets = getDatasets();
-
-        Collection<List<ImageWrapper>> lists = new ArrayList<>(datasets.size());
-        for (DatasetWrapper dataset : datasets) {
-            lists.add(dataset.getImagesTagged(client, tag));
-        }
-        return flatten(lists);
+        return getImagesTagged(client, tag.getId());
     }
 
 
@@ -376,13 +414,7 @@ public class ProjectWrapper extends GenericRepositoryObjectWrapper<ProjectData>
      */
     public List<ImageWrapper> getImagesTagged(Client client, Long tagId)
     throws ServiceException, AccessException, OMEROServerError, ExecutionException {
-        Collection<DatasetWrapper> datasets = getDatasets();
-
-        Collection<List<ImageWrapper>> lists = new ArrayList<>(datasets.size());
-        for (DatasetWrapper dataset : datasets) {
-            lists.add(dataset.getImagesTagged(client, tagId));
-        }
-        return flatten(lists);
+        return client.findImagesAnnotated(this, tagId);
     }
 
 
@@ -418,13 +450,7 @@ public class ProjectWrapper extends GenericRepositoryObjectWrapper<ProjectData>
      */
     public List<ImageWrapper> getImagesWithKey(Client client, String key)
     throws ServiceException, AccessException, ExecutionException {
-        Collection<DatasetWrapper> datasets = getDatasets();
-
-        Collection<List<ImageWrapper>> lists = new ArrayList<>(datasets.size());
-        for (DatasetWrapper dataset : datasets) {
-            lists.add(dataset.getImagesWithKey(client, key));
-        }
-        return flatten(lists);
+        return findImagesWithKeyValue(client, key, null);
     }
 
 
@@ -462,13 +488,27 @@ public class ProjectWrapper extends GenericRepositoryObjectWrapper<ProjectData>
      */
     public List<ImageWrapper> getImagesWithKeyValuePair(Client client, String key, String value)
     throws ServiceException, AccessException, ExecutionException {
-        Collection<DatasetWrapper> datasets = getDatasets();
+        return findImagesWithKeyValue(client, key, value);
+    }
 
-        Collection<List<ImageWrapper>> lists = new ArrayList<>(datasets.size());
-        for (DatasetWrapper dataset : datasets) {
-            lists.add(dataset.getImagesWithKeyValuePair(client, key, value));
-        }
-        return flatten(lists);
+
+    /**
+     * Gets the images in the project annotated with a key (and optionally a value), with a single query on the server.
+     * <p>Images in several datasets of the project are only returned once.</p>
+     *
+     * @param client The client handling the connection.
+     * @param key    Name of the key researched.
+     * @param value  Value associated with the key (any value if null).
+     *
+     * @return The images, sorted by ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    private List<ImageWrapper> findImagesWithKeyValue(Client client, String key, String value)
+    throws ServiceException, AccessException, ExecutionException {
+        return client.findImagesWithKeyValue(this, key, value);
     }
 
 
@@ -0,0 +1,130 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.repository.PixelsWrapper.ProjectionType;
+
+import java.util.Arrays;
+
+
+/**
+ * Accumulator folding planes, one at a time, into a projection.
+ */
+class ProjectionAccumulator {
+
+    /** Projection type */
+    private final ProjectionType type;
+
+    /** Plane width */
+    private final int width;
+
+    /** Plane height */
+    private final int height;
+
+    /** Running values: maximum, minimum, sum or mean */
+    private final double[] values;
+
+    /** Running sum of squared differences to the mean (only used for standard deviation) */
+    private final double[] squares;
+
+    /** Number of planes added */
+    private int count;
+
+
+    /**
+     * Constructor of the ProjectionAccumulator class.
+     *
+     * @param type   The projection type.
+     * @param width  The plane width.
+     * @param height The plane height.
+     */
+    ProjectionAccumulator(ProjectionType type, int width, int height) {
+        this.type    = type;
+        this.width   = width;
+        this.height  = height;
+        this.values  = new double[width * height];
+        this.squares = type == ProjectionType.SD ? new double[width * height] : new double[0];
+        this.count   = 0;
+        if (type == ProjectionType.MAX) {
+            Arrays.fill(values, Double.NEGATIVE_INFINITY);
+        } else if (type == ProjectionType.MIN) {
+            Arrays.fill(values, Double.POSITIVE_INFINITY);
+        }
+    }
+
+
+    /**
+     * Adds a plane to the projection.
+     *
+     * @param plane The plane.
+     */
+    void add(PixelsArray plane) {
+        count++;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int    i     = y * width + x;
+                double value = plane.getValue(x, y, 0, 0, 0);
+                switch (type) {
+                    case MAX:
+                        values[i] = Math.max(values[i], value);
+                        break;
+                    case MIN:
+                        values[i] = Math.min(values[i], value);
+                        break;
+                    case SD:
+                        // Welford's algorithm: values contains the running mean
+                        double delta = value - values[i];
+                        values[i] += delta / count;
+                        squares[i] += delta * (value - values[i]);
+                        break;
+                    case MEAN:
+                    case SUM:
+                    default:
+                        values[i] += value;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Writes the projection to the specified plane of an array.
+     * <p>The standard deviation is computed with n - 1 degrees of freedom, as in ImageJ.</p>
+     *
+     * @param output The output array.
+     * @param c      C coordinate of the plane.
+     * @param z      Z coordinate of the plane.
+     * @param t      T coordinate of the plane.
+     */
+    void writeTo(PixelsArray output, int c, int z, int t) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int    i     = y * width + x;
+                double value = values[i];
+                if (type == ProjectionType.MEAN) {
+                    value /= count;
+                } else if (type == ProjectionType.SD) {
+                    value = count > 1 ? Math.sqrt(squares[i] / (count - 1)) : 0;
+                }
+                output.setValue(x, y, c, z, t, value);
+            }
+        }
+    }
+
+}
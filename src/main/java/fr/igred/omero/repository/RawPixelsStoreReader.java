@@ -0,0 +1,215 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.Client;
+import fr.igred.omero.exception.AccessException;
+import fr.igred.omero.exception.ExceptionHandler;
+import fr.igred.omero.exception.ServiceException;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import omero.ServerError;
+import omero.api.RawPixelsStorePrx;
+import omero.api.ResolutionDescription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static fr.igred.omero.exception.ExceptionHandler.call;
+import static java.util.logging.Level.WARNING;
+
+
+/**
+ * {@link PixelsReader} backed by its own {@link RawPixelsStorePrx} session.
+ */
+class RawPixelsStoreReader implements PixelsReader {
+
+    /** The raw pixels store */
+    private final RawPixelsStorePrx store;
+
+    /** Number of bytes per pixel (0 until retrieved) */
+    private int bytesPerPixel;
+
+    /** Tile plan at the current resolution level (null until retrieved) */
+    private TilePlan tilePlan;
+
+
+    /**
+     * Opens a new raw pixels store for the specified pixels set.
+     *
+     * @param client   The client handling the connection.
+     * @param pixelsId The pixels ID.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    RawPixelsStoreReader(Client client, long pixelsId)
+    throws ServiceException, AccessException {
+        store = call(client.getGateway(),
+                     g -> g.createPixelsStore(client.getCtx()),
+                     "Cannot open raw pixels store");
+        ExceptionHandler.ofConsumer(store, s -> s.setPixelsId(pixelsId, false))
+                        .handleOMEROException("Cannot set pixels ID: " + pixelsId)
+                        .rethrow();
+    }
+
+
+    /**
+     * Returns the underlying raw pixels store.
+     *
+     * @return See above.
+     */
+    RawPixelsStorePrx getStore() {
+        return store;
+    }
+
+
+    /**
+     * Reads the tile at the specified position, with the defined width and height.
+     *
+     * @param start  Start position of the tile.
+     * @param width  Width of the tile.
+     * @param height Height of the tile.
+     *
+     * @return Array of bytes containing the pixel values.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot read the tile.
+     */
+    @Override
+    public byte[] getTile(Coordinates start, int width, int height)
+    throws ServiceException, AccessException {
+        return call(store,
+                    s -> s.getTile(start.getZ(), start.getC(), start.getT(),
+                                   start.getX(), start.getY(), width, height),
+                    "Cannot read raw tile");
+    }
+
+
+    /**
+     * Returns the native tile size of the pixels set.
+     *
+     * @return The tile width and height.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    @Override
+    public int[] getTileSize()
+    throws ServiceException, AccessException {
+        return call(store, RawPixelsStorePrx::getTileSize, "Cannot get tile size");
+    }
+
+
+    /**
+     * Returns the number of bytes per pixel.
+     * <p>The byte width is retrieved from the server on the first call only.</p>
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    @Override
+    public int getBytesPerPixel()
+    throws ServiceException, AccessException {
+        if (bytesPerPixel == 0) {
+            bytesPerPixel = call(store, RawPixelsStorePrx::getByteWidth, "Cannot get pixel byte width");
+        }
+        return bytesPerPixel;
+    }
+
+
+    /**
+     * Returns a tile plan aligned on the native tiles, with the default maximum payload per request.
+     * <p>The plan is retrieved from the server on the first call only, until the resolution level is changed.</p>
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    @Override
+    public TilePlan getTilePlan()
+    throws ServiceException, AccessException {
+        if (tilePlan == null) {
+            tilePlan = PixelsReader.super.getTilePlan();
+        }
+        return tilePlan;
+    }
+
+
+    /**
+     * Returns the available resolution levels, from the full resolution (level 0) to the smallest.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    @Override
+    public List<ResolutionLevel> getResolutionLevels()
+    throws ServiceException, AccessException {
+        ResolutionDescription[] descriptions = call(store,
+                                                    RawPixelsStorePrx::getResolutionDescriptions,
+                                                    "Cannot get resolution levels");
+
+        List<ResolutionLevel> levels = new ArrayList<>(descriptions.length);
+        for (int i = 0; i < descriptions.length; i++) {
+            levels.add(new ResolutionLevel(i, descriptions[i].sizeX, descriptions[i].sizeY));
+        }
+        return levels;
+    }
+
+
+    /**
+     * Sets the resolution level used by the next reads (0 is the full resolution).
+     * <p>The raw pixels store numbers levels the other way round (the full resolution is the last level), so the
+     * level is converted first.</p>
+     *
+     * @param level The resolution level.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    @Override
+    public void setResolutionLevel(int level)
+    throws ServiceException, AccessException {
+        int count = call(store, RawPixelsStorePrx::getResolutionLevels, "Cannot get resolution levels");
+        ExceptionHandler.ofConsumer(store, s -> s.setResolutionLevel(count - 1 - level))
+                        .handleOMEROException("Cannot set resolution level: " + level)
+                        .rethrow();
+        tilePlan = null;
+    }
+
+
+    /**
+     * Closes the raw pixels store.
+     */
+    @Override
+    public void close() {
+        try {
+            store.close();
+        } catch (ServerError e) {
+            Logger.getLogger(getClass().getName())
+                  .log(WARNING, "Error while closing raw pixels store", e);
+        }
+    }
+
+}
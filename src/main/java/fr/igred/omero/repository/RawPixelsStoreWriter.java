@@ -0,0 +1,112 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.Client;
+import fr.igred.omero.exception.AccessException;
+import fr.igred.omero.exception.ExceptionHandler;
+import fr.igred.omero.exception.ServiceException;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import omero.ServerError;
+import omero.api.RawPixelsStorePrx;
+
+import java.util.logging.Logger;
+
+import static fr.igred.omero.exception.ExceptionHandler.call;
+import static java.util.logging.Level.WARNING;
+
+
+/**
+ * {@link PixelsWriter} backed by its own {@link RawPixelsStorePrx} session.
+ */
+class RawPixelsStoreWriter implements PixelsWriter {
+
+    /** The raw pixels store */
+    private final RawPixelsStorePrx store;
+
+
+    /**
+     * Opens a new raw pixels store for the specified pixels set.
+     *
+     * @param client   The client handling the connection.
+     * @param pixelsId The pixels ID.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot access data.
+     */
+    RawPixelsStoreWriter(Client client, long pixelsId)
+    throws ServiceException, AccessException {
+        store = call(client.getGateway(),
+                     g -> g.createPixelsStore(client.getCtx()),
+                     "Cannot open raw pixels store");
+        ExceptionHandler.ofConsumer(store, s -> s.setPixelsId(pixelsId, false))
+                        .handleOMEROException("Cannot set pixels ID: " + pixelsId)
+                        .rethrow();
+    }
+
+
+    /**
+     * Writes the tile at the specified position, with the defined width and height.
+     *
+     * @param start  Start position of the tile.
+     * @param width  Width of the tile.
+     * @param height Height of the tile.
+     * @param bytes  Array of bytes containing the pixel values.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot write the tile.
+     */
+    @Override
+    public void setTile(Coordinates start, int width, int height, byte[] bytes)
+    throws ServiceException, AccessException {
+        ExceptionHandler.ofConsumer(store,
+                                    s -> s.setTile(bytes, start.getZ(), start.getC(), start.getT(),
+                                                   start.getX(), start.getY(), width, height))
+                        .handleOMEROException("Cannot write raw tile")
+                        .rethrow();
+    }
+
+
+    /**
+     * Saves the pixels written so far.
+     *
+     * @throws ServiceException Cannot connect to OMERO.
+     * @throws AccessException  Cannot save the pixels.
+     */
+    @Override
+    public void save()
+    throws ServiceException, AccessException {
+        call(store, RawPixelsStorePrx::save, "Cannot save pixels");
+    }
+
+
+    /**
+     * Closes the raw pixels store.
+     */
+    @Override
+    public void close() {
+        try {
+            store.close();
+        } catch (ServerError e) {
+            Logger.getLogger(getClass().getName())
+                  .log(WARNING, "Error while closing raw pixels store", e);
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+/**
+ * Resolution level of a pixels set. Level 0 is the full resolution, and the following levels are smaller.
+ */
+public class ResolutionLevel {
+
+    /** Level index (0 is the full resolution) */
+    private final int level;
+
+    /** Size along X at this level */
+    private final int sizeX;
+
+    /** Size along Y at this level */
+    private final int sizeY;
+
+
+    /**
+     * Constructor of the ResolutionLevel class.
+     *
+     * @param level The level index (0 is the full resolution).
+     * @param sizeX The size along X at this level.
+     * @param sizeY The size along Y at this level.
+     */
+    public ResolutionLevel(int level, int sizeX, int sizeY) {
+        this.level = level;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+    }
+
+
+    /**
+     * Returns the level index (0 is the full resolution).
+     *
+     * @return See above.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+
+    /**
+     * Returns the size along X at this level.
+     *
+     * @return See above.
+     */
+    public int getSizeX() {
+        return sizeX;
+    }
+
+
+    /**
+     * Returns the size along Y at this level.
+     *
+     * @return See above.
+     */
+    public int getSizeY() {
+        return sizeY;
+    }
+
+
+    /**
+     * Overridden to return the name of the class, the level index and its size.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s (level=%d, size=%dx%d)", getClass().getSimpleName(), level, sizeX, sizeY);
+    }
+
+}
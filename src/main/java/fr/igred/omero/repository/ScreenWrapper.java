@@ -239,6 +239,62 @@ public class ScreenWrapper extends GenericRepositoryObjectWrapper<ScreenData> {
     }
 
 
+    /**
+     * Gets all images in the screen with a certain key.
+     *
+     * @param client The client handling the connection.
+     * @param key    Name of the key researched.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<ImageWrapper> getImagesWithKey(Client client, String key)
+    throws ServiceException, AccessException, ExecutionException {
+        return findImagesWithKeyValue(client, key, null);
+    }
+
+
+    /**
+     * Gets all images in the screen with a certain key value pair from OMERO.
+     *
+     * @param client The client handling the connection.
+     * @param key    Name of the key researched.
+     * @param value  Value associated with the key.
+     *
+     * @return See above.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    public List<ImageWrapper> getImagesWithKeyValuePair(Client client, String key, String value)
+    throws ServiceException, AccessException, ExecutionException {
+        return findImagesWithKeyValue(client, key, value);
+    }
+
+
+    /**
+     * Gets the images in the screen annotated with a key (and optionally a value), with a single query on the server.
+     *
+     * @param client The client handling the connection.
+     * @param key    Name of the key researched.
+     * @param value  Value associated with the key (any value if null).
+     *
+     * @return The images, sorted by ID.
+     *
+     * @throws ServiceException   Cannot connect to OMERO.
+     * @throws AccessException    Cannot access data.
+     * @throws ExecutionException A Facility can't be retrieved or instantiated.
+     */
+    private List<ImageWrapper> findImagesWithKeyValue(Client client, String key, String value)
+    throws ServiceException, AccessException, ExecutionException {
+        return client.findImagesWithKeyValue(this, key, value);
+    }
+
+
     /**
      * Returns the description of the protocol.
      *
@@ -0,0 +1,193 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.roi.GenericShapeWrapper;
+
+import java.awt.Point;
+import java.util.List;
+
+
+/**
+ * Values of the pixels contained in a shape, on a single plane.
+ */
+public class ShapePixels {
+
+    /** Shape */
+    private final GenericShapeWrapper<?> shape;
+
+    /** Channel */
+    private final int c;
+
+    /** Z-section */
+    private final int z;
+
+    /** Time-point */
+    private final int t;
+
+    /** X coordinates of the pixels */
+    private final int[] x;
+
+    /** Y coordinates of the pixels */
+    private final int[] y;
+
+    /** Pixel values */
+    private final double[] values;
+
+
+    /**
+     * Constructor of the ShapePixels class.
+     *
+     * @param shape  The shape.
+     * @param c      The channel.
+     * @param z      The z-section.
+     * @param t      The time-point.
+     * @param points The pixels contained in the shape.
+     */
+    ShapePixels(GenericShapeWrapper<?> shape, int c, int z, int t, List<? extends Point> points) {
+        this.shape  = shape;
+        this.c      = c;
+        this.z      = z;
+        this.t      = t;
+        this.x      = new int[points.size()];
+        this.y      = new int[points.size()];
+        this.values = new double[points.size()];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = points.get(i).x;
+            y[i] = points.get(i).y;
+        }
+    }
+
+
+    /**
+     * Returns the shape.
+     *
+     * @return See above.
+     */
+    public GenericShapeWrapper<?> getShape() {
+        return shape;
+    }
+
+
+    /**
+     * Returns the channel.
+     *
+     * @return See above.
+     */
+    public int getC() {
+        return c;
+    }
+
+
+    /**
+     * Returns the z-section.
+     *
+     * @return See above.
+     */
+    public int getZ() {
+        return z;
+    }
+
+
+    /**
+     * Returns the time-point.
+     *
+     * @return See above.
+     */
+    public int getT() {
+        return t;
+    }
+
+
+    /**
+     * Returns the number of pixels.
+     *
+     * @return See above.
+     */
+    public int size() {
+        return values.length;
+    }
+
+
+    /**
+     * Returns the X coordinate of a pixel.
+     *
+     * @param index The pixel index.
+     *
+     * @return See above.
+     */
+    public int getX(int index) {
+        return x[index];
+    }
+
+
+    /**
+     * Returns the Y coordinate of a pixel.
+     *
+     * @param index The pixel index.
+     *
+     * @return See above.
+     */
+    public int getY(int index) {
+        return y[index];
+    }
+
+
+    /**
+     * Returns the value of a pixel.
+     *
+     * @param index The pixel index.
+     *
+     * @return See above.
+     */
+    public double getValue(int index) {
+        return values[index];
+    }
+
+
+    /**
+     * Sets the value of a pixel.
+     *
+     * @param index The pixel index.
+     * @param value The value.
+     */
+    void setValue(int index, double value) {
+        values[index] = value;
+    }
+
+
+    /**
+     * Returns a copy of the pixel values.
+     *
+     * @return See above.
+     */
+    public double[] getValues() {
+        return values.clone();
+    }
+
+
+    /**
+     * Overridden to return the name of the class, the plane and the number of pixels.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s (c=%d, z=%d, t=%d, size=%d)", getClass().getSimpleName(), c, z, t, values.length);
+    }
+
+}
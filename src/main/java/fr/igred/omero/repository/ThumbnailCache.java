@@ -0,0 +1,636 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import omero.ServerError;
+import omero.gateway.exception.DSOutOfServiceException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.logging.Level.WARNING;
+
+
+/**
+ * Persistent cache for encoded thumbnails, stored on disk and bounded by size (in bytes), with a least-recently-used
+ * eviction policy. The most recently used thumbnails are also kept in memory.
+ * <p>Thumbnails are identified by their image ID, size and the time the image was last updated, so thumbnails of
+ * modified images are not served: they are replaced when the new thumbnail is stored. Concurrent requests for the same
+ * thumbnail only load it once.
+ */
+public class ThumbnailCache {
+
+    /** Thumbnail file name pattern */
+    private static final Pattern FILE_PATTERN = Pattern.compile("(\\d+)_(\\d+)_(-?\\d+)\\.thumb");
+
+    /** Directory containing the thumbnails */
+    private final Path directory;
+
+    /** Maximum size of the cache on disk, in bytes */
+    private final long maxSize;
+
+    /** Maximum number of thumbnails kept in memory */
+    private final int maxMemoryEntries;
+
+    /** Size of the thumbnails on disk, in access order */
+    private final Map<ThumbnailKey, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Thumbnails kept in memory, in access order */
+    private final Map<ThumbnailKey, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Thumbnails being loaded */
+    private final Map<ThumbnailKey, CompletableFuture<byte[]>> loading = new ConcurrentHashMap<>();
+
+    /** Current size of the cache on disk, in bytes */
+    private long size;
+
+    /** Number of hits */
+    private long hits;
+
+    /** Number of misses */
+    private long misses;
+
+    /** Number of evictions */
+    private long evictions;
+
+
+    /**
+     * Constructor of the ThumbnailCache class. Thumbnails already present in the directory are reused.
+     *
+     * @param directory        The directory containing the thumbnails (created if needed).
+     * @param maxSize          The maximum size of the cache on disk, in bytes.
+     * @param maxMemoryEntries The maximum number of thumbnails kept in memory.
+     *
+     * @throws IOException If the directory cannot be created or read.
+     */
+    public ThumbnailCache(Path directory, long maxSize, int maxMemoryEntries) throws IOException {
+        this.directory        = Files.createDirectories(directory);
+        this.maxSize          = maxSize;
+        this.maxMemoryEntries = maxMemoryEntries;
+
+        List<Path> existing = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.thumb")) {
+            stream.forEach(existing::add);
+        }
+        try {
+            existing.sort(Comparator.comparingLong(ThumbnailCache::getLastModified));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        for (Path file : existing) {
+            Matcher matcher = FILE_PATTERN.matcher(file.getFileName().toString());
+            if (matcher.matches()) {
+                ThumbnailKey key = new ThumbnailKey(Long.parseLong(matcher.group(1)),
+                                                    Integer.parseInt(matcher.group(2)),
+                                                    Long.parseLong(matcher.group(3)));
+                long length = Files.size(file);
+                files.put(key, length);
+                size += length;
+            }
+        }
+        evict().forEach(this::delete);
+    }
+
+
+    /**
+     * Returns the last modification time of a file.
+     *
+     * @param file The file.
+     *
+     * @return See above, in milliseconds.
+     *
+     * @throws UncheckedIOException If the file cannot be accessed.
+     */
+    private static long getLastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Converts the time an image was last updated to the version stored in the keys.
+     *
+     * @param updated The time the image was last updated.
+     *
+     * @return See above.
+     */
+    private static long getVersion(Timestamp updated) {
+        return updated != null ? updated.getTime() : 0L;
+    }
+
+
+    /**
+     * Logs an error while accessing the disk.
+     *
+     * @param message The error message.
+     * @param e       The exception.
+     */
+    private void warn(String message, Throwable e) {
+        Logger.getLogger(getClass().getName()).log(WARNING, message, e);
+    }
+
+
+    /**
+     * Returns the file containing a thumbnail.
+     *
+     * @param key The thumbnail key.
+     *
+     * @return See above.
+     */
+    private Path getFile(ThumbnailKey key) {
+        return directory.resolve(String.format("%d_%d_%d.thumb", key.imageId, key.size, key.version));
+    }
+
+
+    /**
+     * Retrieves a thumbnail from memory or from disk. The file is read outside the lock.
+     *
+     * @param key The thumbnail key.
+     *
+     * @return The thumbnail bytes, or {@code null} if the thumbnail is not cached.
+     */
+    private byte[] lookup(ThumbnailKey key) {
+        byte[]  bytes;
+        boolean cached;
+        synchronized (this) {
+            cached = files.get(key) != null;
+            bytes  = memory.get(key);
+            if (bytes != null) {
+                hits++;
+            } else if (!cached) {
+                misses++;
+            }
+        }
+        if (bytes == null && cached) {
+            try {
+                bytes = Files.readAllBytes(getFile(key));
+            } catch (IOException e) {
+                warn("Could not read cached thumbnail " + getFile(key), e);
+            }
+            synchronized (this) {
+                if (bytes != null) {
+                    if (files.containsKey(key)) {
+                        remember(key, bytes);
+                    }
+                    hits++;
+                } else {
+                    Long length = files.remove(key);
+                    if (length != null) {
+                        size -= length;
+                    }
+                    misses++;
+                }
+            }
+        }
+        return bytes;
+    }
+
+
+    /**
+     * Keeps a thumbnail in memory, forgetting the least recently used thumbnails if needed.
+     *
+     * @param key   The thumbnail key.
+     * @param bytes The thumbnail bytes.
+     */
+    private void remember(ThumbnailKey key, byte[] bytes) {
+        memory.put(key, bytes);
+        Iterator<ThumbnailKey> iterator = memory.keySet().iterator();
+        while (memory.size() > maxMemoryEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+
+    /**
+     * Removes the least recently used thumbnails until the cache fits in its maximum size.
+     *
+     * @return The keys of the thumbnails whose files have to be {@link #delete(ThumbnailKey) deleted}.
+     */
+    private List<ThumbnailKey> evict() {
+        List<ThumbnailKey> evicted = new ArrayList<>(0);
+
+        Iterator<Map.Entry<ThumbnailKey, Long>> iterator = files.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            Map.Entry<ThumbnailKey, Long> entry = iterator.next();
+            evicted.add(entry.getKey());
+            size -= entry.getValue();
+            memory.remove(entry.getKey());
+            iterator.remove();
+            evictions++;
+        }
+        return evicted;
+    }
+
+
+    /**
+     * Deletes the file containing a thumbnail.
+     *
+     * @param key The thumbnail key.
+     */
+    private void delete(ThumbnailKey key) {
+        try {
+            Files.deleteIfExists(getFile(key));
+        } catch (IOException e) {
+            warn("Could not delete cached thumbnail " + getFile(key), e);
+        }
+    }
+
+
+    /**
+     * Retrieves a copy of a thumbnail, if it is contained in the cache.
+     *
+     * @param imageId The image ID.
+     * @param size    The thumbnail size.
+     * @param updated The time the image was last updated.
+     *
+     * @return The thumbnail bytes, or {@code null} if the thumbnail is not cached.
+     */
+    public byte[] get(long imageId, int size, Timestamp updated) {
+        byte[] bytes = lookup(new ThumbnailKey(imageId, size, getVersion(updated)));
+        return bytes != null ? bytes.clone() : null;
+    }
+
+
+    /**
+     * Retrieves a copy of a thumbnail, loading and storing it if it is not contained in the cache.
+     * <p>If the thumbnail is already being loaded by another thread, the result of that thread is used.</p>
+     *
+     * @param imageId The image ID.
+     * @param size    The thumbnail size.
+     * @param updated The time the image was last updated.
+     * @param loader  The function loading the thumbnail.
+     *
+     * @return The thumbnail bytes.
+     *
+     * @throws DSOutOfServiceException Cannot connect to OMERO.
+     * @throws ServerError             Server error.
+     */
+    public byte[] get(long imageId, int size, Timestamp updated, ThumbnailLoader loader)
+    throws DSOutOfServiceException, ServerError {
+        ThumbnailKey key   = new ThumbnailKey(imageId, size, getVersion(updated));
+        byte[]       bytes = lookup(key);
+        if (bytes == null) {
+            CompletableFuture<byte[]> future   = new CompletableFuture<>();
+            CompletableFuture<byte[]> existing = loading.putIfAbsent(key, future);
+            if (existing == null) {
+                try {
+                    bytes = lookup(key);
+                    if (bytes == null) {
+                        bytes = loader.load();
+                        store(key, bytes);
+                    }
+                    future.complete(bytes);
+                } catch (DSOutOfServiceException | ServerError | RuntimeException e) {
+                    future.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    loading.remove(key);
+                }
+            } else {
+                bytes = join(existing);
+            }
+        }
+        return bytes != null ? bytes.clone() : null;
+    }
+
+
+    /**
+     * Waits for a thumbnail loaded by another thread.
+     *
+     * @param future The thumbnail being loaded.
+     *
+     * @return The thumbnail bytes.
+     *
+     * @throws DSOutOfServiceException Cannot connect to OMERO.
+     * @throws ServerError             Server error.
+     */
+    private static byte[] join(CompletableFuture<byte[]> future)
+    throws DSOutOfServiceException, ServerError {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DSOutOfServiceException) {
+                throw (DSOutOfServiceException) cause;
+            } else if (cause instanceof ServerError) {
+                throw (ServerError) cause;
+            }
+            throw e;
+        }
+    }
+
+
+    /**
+     * Adds a thumbnail to the cache, replacing the thumbnails of previous versions of the image and evicting the least
+     * recently used thumbnails if needed.
+     * <p>Thumbnails larger than the cache, or older than a cached thumbnail of the same image, are not stored.</p>
+     *
+     * @param imageId The image ID.
+     * @param size    The thumbnail size.
+     * @param updated The time the image was last updated.
+     * @param bytes   The thumbnail bytes.
+     */
+    public void put(long imageId, int size, Timestamp updated, byte[] bytes) {
+        store(new ThumbnailKey(imageId, size, getVersion(updated)), bytes.clone());
+    }
+
+
+    /**
+     * Adds a thumbnail to the cache. The file is written, and the replaced or evicted files are deleted, outside the
+     * lock.
+     *
+     * @param key   The thumbnail key.
+     * @param bytes The thumbnail bytes.
+     */
+    private void store(ThumbnailKey key, byte[] bytes) {
+        if (bytes == null || bytes.length > maxSize || hasNewerVersion(key)) {
+            return;
+        }
+
+        Path file = getFile(key);
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            Files.write(temp, bytes);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            warn("Could not write cached thumbnail " + file, e);
+            deleteTemporary(temp);
+            return;
+        }
+
+        List<ThumbnailKey> deleted = new ArrayList<>(0);
+        synchronized (this) {
+            if (hasNewerVersion(key)) {
+                if (!files.containsKey(key)) {
+                    deleted.add(key);
+                }
+            } else {
+                for (ThumbnailKey k : files.keySet()) {
+                    if (k.imageId == key.imageId && k.size == key.size && k.version < key.version) {
+                        deleted.add(k);
+                    }
+                }
+                deleted.forEach(this::remove);
+
+                Long previous = files.put(key, (long) bytes.length);
+                if (previous != null) {
+                    size -= previous;
+                }
+                size += bytes.length;
+                remember(key, bytes);
+                deleted.addAll(evict());
+            }
+        }
+        deleted.forEach(this::delete);
+    }
+
+
+    /**
+     * Returns whether a thumbnail of a newer version of the same image, with the same size, is cached.
+     *
+     * @param key The thumbnail key.
+     *
+     * @return See above.
+     */
+    private synchronized boolean hasNewerVersion(ThumbnailKey key) {
+        for (ThumbnailKey k : files.keySet()) {
+            if (k.imageId == key.imageId && k.size == key.size && k.version > key.version) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Deletes a temporary file left by a failed write.
+     *
+     * @param temp The temporary file (can be null).
+     */
+    private void deleteTemporary(Path temp) {
+        if (temp != null) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                warn("Could not delete temporary file " + temp, e);
+            }
+        }
+    }
+
+
+    /**
+     * Removes a thumbnail from the cache, without deleting its file.
+     *
+     * @param key The thumbnail key.
+     */
+    private void remove(ThumbnailKey key) {
+        Long length = files.remove(key);
+        if (length != null) {
+            size -= length;
+        }
+        memory.remove(key);
+    }
+
+
+    /**
+     * Removes all the thumbnails of an image, for example after it was modified.
+     *
+     * @param imageId The image ID.
+     */
+    public void invalidate(long imageId) {
+        List<ThumbnailKey> keys = new ArrayList<>(0);
+        synchronized (this) {
+            for (ThumbnailKey key : files.keySet()) {
+                if (key.imageId == imageId) {
+                    keys.add(key);
+                }
+            }
+            keys.forEach(this::remove);
+        }
+        keys.forEach(this::delete);
+    }
+
+
+    /**
+     * Removes all the thumbnails from the cache.
+     */
+    public void clear() {
+        List<ThumbnailKey> keys;
+        synchronized (this) {
+            keys = new ArrayList<>(files.keySet());
+            keys.forEach(this::remove);
+            memory.clear();
+        }
+        keys.forEach(this::delete);
+    }
+
+
+    /**
+     * Returns the directory containing the thumbnails.
+     *
+     * @return See above.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+
+    /**
+     * Returns the maximum size of the cache on disk, in bytes.
+     *
+     * @return See above.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+
+    /**
+     * Returns the current size of the cache on disk, in bytes.
+     *
+     * @return See above.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+
+    /**
+     * Returns the number of requests served from the cache.
+     *
+     * @return See above.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+
+    /**
+     * Returns the number of requests not served from the cache.
+     *
+     * @return See above.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+
+    /**
+     * Returns the number of thumbnails evicted from the cache.
+     *
+     * @return See above.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s{size=%d, maxSize=%d, thumbnails=%d, hits=%d, misses=%d, evictions=%d}",
+                             getClass().getSimpleName(), size, maxSize, files.size(), hits, misses, evictions);
+    }
+
+
+    /** Function loading a thumbnail which is not cached */
+    @FunctionalInterface
+    public interface ThumbnailLoader {
+
+        /**
+         * Loads the thumbnail.
+         *
+         * @return The thumbnail bytes.
+         *
+         * @throws DSOutOfServiceException Cannot connect to OMERO.
+         * @throws ServerError             Server error.
+         */
+        byte[] load() throws DSOutOfServiceException, ServerError;
+
+    }
+
+
+    /** Key identifying a thumbnail */
+    private static final class ThumbnailKey {
+
+        /** Image ID */
+        private final long imageId;
+        /** Thumbnail size */
+        private final int  size;
+        /** Time the image was last updated */
+        private final long version;
+
+
+        /**
+         * ThumbnailKey constructor.
+         *
+         * @param imageId The image ID.
+         * @param size    The thumbnail size.
+         * @param version The time the image was last updated.
+         */
+        ThumbnailKey(long imageId, int size, long version) {
+            this.imageId = imageId;
+            this.size    = size;
+            this.version = version;
+        }
+
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ThumbnailKey other = (ThumbnailKey) o;
+            return imageId == other.imageId && size == other.size && version == other.version;
+        }
+
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(imageId, size, version);
+        }
+
+    }
+
+}
@@ -0,0 +1,462 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+
+/**
+ * Client-side cache for raw tiles, bounded by size (in bytes), with a least-recently-used eviction policy.
+ * <p>Tiles are identified by their pixels ID and 5D position. A tile can also be served from a larger cached tile
+ * containing it (in the same plane): cached tiles are indexed by plane and X coordinate, so only the tiles that
+ * could contain the requested one are checked.
+ * <p>Cached arrays are never modified, so copies are made outside the lock.</p>
+ */
+public class TileCache {
+
+    /** Maximum size of the cache, in bytes */
+    private final long maxSize;
+
+    /** Cached tiles, in access order */
+    private final Map<TileKey, byte[]> tiles = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Cached tiles for each plane */
+    private final Map<PlaneKey, PlaneIndex> planes = new HashMap<>();
+
+    /** Current size of the cache, in bytes */
+    private long size;
+
+    /** Number of hits */
+    private long hits;
+
+    /** Number of misses */
+    private long misses;
+
+    /** Number of evictions */
+    private long evictions;
+
+
+    /**
+     * Constructor of the TileCache class.
+     *
+     * @param maxSize The maximum size of the cache, in bytes.
+     */
+    public TileCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+
+    /**
+     * Retrieves a copy of the tile at the specified position, if it is contained in the cache.
+     *
+     * @param pixelsId The pixels ID.
+     * @param start    Start position of the tile.
+     * @param width    Width of the tile.
+     * @param height   Height of the tile.
+     *
+     * @return The tile bytes, or {@code null} if the tile is not cached.
+     */
+    public byte[] get(long pixelsId, Coordinates start, int width, int height) {
+        TileKey key = new TileKey(pixelsId, start, width, height);
+        TileKey source;
+        byte[]  bytes;
+        synchronized (this) {
+            source = key;
+            bytes  = tiles.get(key);
+            if (bytes == null) {
+                source = findSuperset(key);
+                if (source != null) {
+                    bytes = tiles.get(source);
+                }
+            }
+            if (bytes != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        if (bytes == null) {
+            return null;
+        }
+        return source == key ? bytes.clone() : source.crop(bytes, key);
+    }
+
+
+    /**
+     * Finds a cached tile containing the specified tile, in the same plane.
+     *
+     * @param key The tile.
+     *
+     * @return The containing tile, or {@code null} if there is none.
+     */
+    private TileKey findSuperset(TileKey key) {
+        PlaneIndex index = planes.get(key.plane());
+        if (index != null) {
+            int minX = key.x + key.width - index.maxWidth;
+            for (Collection<TileKey> candidates : index.byX.subMap(minX, true, key.x, true).values()) {
+                for (TileKey candidate : candidates) {
+                    if (candidate.contains(key)) {
+                        return candidate;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Adds a tile to the plane index.
+     *
+     * @param key The tile.
+     */
+    private void index(TileKey key) {
+        PlaneIndex index = planes.computeIfAbsent(key.plane(), p -> new PlaneIndex());
+        index.byX.computeIfAbsent(key.x, x -> new HashSet<>(1)).add(key);
+        index.maxWidth = Math.max(index.maxWidth, key.width);
+    }
+
+
+    /**
+     * Removes a tile from the plane index.
+     *
+     * @param key The tile.
+     */
+    private void unindex(TileKey key) {
+        PlaneKey   plane = key.plane();
+        PlaneIndex index = planes.get(plane);
+        if (index != null) {
+            Collection<TileKey> keys = index.byX.get(key.x);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    index.byX.remove(key.x);
+                }
+            }
+            if (index.byX.isEmpty()) {
+                planes.remove(plane);
+            }
+        }
+    }
+
+
+    /**
+     * Adds a tile to the cache, evicting the least recently used tiles if needed.
+     * <p>Tiles larger than the cache are not stored.</p>
+     *
+     * @param pixelsId The pixels ID.
+     * @param start    Start position of the tile.
+     * @param width    Width of the tile.
+     * @param height   Height of the tile.
+     * @param bytes    The tile bytes.
+     */
+    public void put(long pixelsId, Coordinates start, int width, int height, byte[] bytes) {
+        if (bytes.length <= maxSize) {
+            TileKey key  = new TileKey(pixelsId, start, width, height);
+            byte[]  copy = bytes.clone();
+            synchronized (this) {
+                byte[] previous = tiles.put(key, copy);
+                if (previous != null) {
+                    size -= previous.length;
+                } else {
+                    index(key);
+                }
+                size += copy.length;
+
+                Iterator<Map.Entry<TileKey, byte[]>> iterator = tiles.entrySet().iterator();
+                while (size > maxSize && iterator.hasNext()) {
+                    Map.Entry<TileKey, byte[]> entry = iterator.next();
+                    size -= entry.getValue().length;
+                    unindex(entry.getKey());
+                    iterator.remove();
+                    evictions++;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Removes all the tiles from a pixels set, for example after an image was replaced.
+     *
+     * @param pixelsId The pixels ID.
+     */
+    public synchronized void invalidate(long pixelsId) {
+        Iterator<Map.Entry<TileKey, byte[]>> iterator = tiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<TileKey, byte[]> entry = iterator.next();
+            if (entry.getKey().pixelsId == pixelsId) {
+                size -= entry.getValue().length;
+                unindex(entry.getKey());
+                iterator.remove();
+            }
+        }
+    }
+
+
+    /**
+     * Removes all the tiles from the cache.
+     */
+    public synchronized void clear() {
+        tiles.clear();
+        planes.clear();
+        size = 0;
+    }
+
+
+    /**
+     * Returns the maximum size of the cache, in bytes.
+     *
+     * @return See above.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+
+    /**
+     * Returns the current size of the cache, in bytes.
+     *
+     * @return See above.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+
+    /**
+     * Returns the number of requests served from the cache.
+     *
+     * @return See above.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+
+    /**
+     * Returns the number of requests not served from the cache.
+     *
+     * @return See above.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+
+    /**
+     * Returns the number of tiles evicted from the cache.
+     *
+     * @return See above.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s{size=%d, maxSize=%d, tiles=%d, hits=%d, misses=%d, evictions=%d}",
+                             getClass().getSimpleName(), size, maxSize, tiles.size(), hits, misses, evictions);
+    }
+
+
+    /** Key identifying a tile */
+    private static final class TileKey {
+
+        /** Pixels ID */
+        private final long pixelsId;
+        /** C coordinate */
+        private final int  c;
+        /** Z coordinate */
+        private final int  z;
+        /** T coordinate */
+        private final int  t;
+        /** X coordinate */
+        private final int  x;
+        /** Y coordinate */
+        private final int  y;
+        /** Width */
+        private final int  width;
+        /** Height */
+        private final int  height;
+
+
+        /**
+         * TileKey constructor.
+         *
+         * @param pixelsId The pixels ID.
+         * @param start    Start position of the tile.
+         * @param width    Width of the tile.
+         * @param height   Height of the tile.
+         */
+        TileKey(long pixelsId, Coordinates start, int width, int height) {
+            this.pixelsId = pixelsId;
+            this.c        = start.getC();
+            this.z        = start.getZ();
+            this.t        = start.getT();
+            this.x        = start.getX();
+            this.y        = start.getY();
+            this.width    = width;
+            this.height   = height;
+        }
+
+
+        /**
+         * Returns the key of the plane containing this tile.
+         *
+         * @return See above.
+         */
+        PlaneKey plane() {
+            return new PlaneKey(pixelsId, c, z, t);
+        }
+
+
+        /**
+         * Checks if this tile contains another tile.
+         *
+         * @param other The other tile.
+         *
+         * @return See above.
+         */
+        boolean contains(TileKey other) {
+            return pixelsId == other.pixelsId
+                   && c == other.c && z == other.z && t == other.t
+                   && x <= other.x && y <= other.y
+                   && x + width >= other.x + other.width
+                   && y + height >= other.y + other.height;
+        }
+
+
+        /**
+         * Extracts the bytes of a tile contained in this one.
+         *
+         * @param bytes The bytes of this tile.
+         * @param other The tile contained in this one.
+         *
+         * @return See above.
+         */
+        byte[] crop(byte[] bytes, TileKey other) {
+            int    bpp       = bytes.length / (width * height);
+            int    rowLength = other.width * bpp;
+            byte[] tile      = new byte[other.height * rowLength];
+            for (int row = 0; row < other.height; row++) {
+                int offset = ((other.y - y + row) * width + other.x - x) * bpp;
+                System.arraycopy(bytes, offset, tile, row * rowLength, rowLength);
+            }
+            return tile;
+        }
+
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            TileKey other = (TileKey) o;
+            return pixelsId == other.pixelsId
+                   && c == other.c && z == other.z && t == other.t
+                   && x == other.x && y == other.y
+                   && width == other.width && height == other.height;
+        }
+
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(pixelsId, c, z, t, x, y, width, height);
+        }
+
+    }
+
+
+    /** Key identifying a plane */
+    private static final class PlaneKey {
+
+        /** Pixels ID */
+        private final long pixelsId;
+        /** C coordinate */
+        private final int  c;
+        /** Z coordinate */
+        private final int  z;
+        /** T coordinate */
+        private final int  t;
+
+
+        /**
+         * PlaneKey constructor.
+         *
+         * @param pixelsId The pixels ID.
+         * @param c        The C coordinate.
+         * @param z        The Z coordinate.
+         * @param t        The T coordinate.
+         */
+        PlaneKey(long pixelsId, int c, int z, int t) {
+            this.pixelsId = pixelsId;
+            this.c        = c;
+            this.z        = z;
+            this.t        = t;
+        }
+
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            PlaneKey other = (PlaneKey) o;
+            return pixelsId == other.pixelsId && c == other.c && z == other.z && t == other.t;
+        }
+
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(pixelsId, c, z, t);
+        }
+
+    }
+
+
+    /** Tiles cached for a plane, indexed by X coordinate */
+    private static final class PlaneIndex {
+
+        /** Tiles, by X coordinate */
+        private final NavigableMap<Integer, Collection<TileKey>> byX = new TreeMap<>();
+
+        /** Largest width of the tiles indexed for this plane */
+        private int maxWidth;
+
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+
+/**
+ * Grid formed by the tile requests of a whole plane, used to find which tiles contain given pixels so that tiles
+ * needed several times are only read once.
+ * <p>Cells are numbered row by row, and a tile is identified on the whole pixels set by a key combining its plane and
+ * its cell.</p>
+ */
+class TileGrid {
+
+    /** X coordinate of each column */
+    private final int[] columns;
+
+    /** Y coordinate of each row */
+    private final int[] rows;
+
+    /** Bounds of each cell, on the first plane */
+    private final Bounds[] cells;
+
+    /** Number of channels */
+    private final int sizeC;
+
+    /** Number of z-sections */
+    private final int sizeZ;
+
+
+    /**
+     * Constructor of the TileGrid class.
+     *
+     * @param tiles The tiles covering a whole plane, aligned on a grid.
+     * @param sizeC The number of channels.
+     * @param sizeZ The number of z-sections.
+     */
+    TileGrid(Collection<Bounds> tiles, int sizeC, int sizeZ) {
+        this.columns = tiles.stream().mapToInt(b -> b.getStart().getX()).distinct().sorted().toArray();
+        this.rows    = tiles.stream().mapToInt(b -> b.getStart().getY()).distinct().sorted().toArray();
+        this.cells   = new Bounds[columns.length * rows.length];
+        this.sizeC   = sizeC;
+        this.sizeZ   = sizeZ;
+        for (Bounds tile : tiles) {
+            int column = Arrays.binarySearch(columns, tile.getStart().getX());
+            int row    = Arrays.binarySearch(rows, tile.getStart().getY());
+            cells[row * columns.length + column] = tile;
+        }
+    }
+
+
+    /**
+     * Returns the index of the greatest element lower or equal to a value in a sorted array.
+     *
+     * @param sorted The sorted array.
+     * @param value  The value (greater or equal to the first element).
+     *
+     * @return See above.
+     */
+    private static int floorIndex(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value);
+        return index >= 0 ? index : -index - 2;
+    }
+
+
+    /**
+     * Returns the key of the tile containing a pixel.
+     *
+     * @param x The X coordinate.
+     * @param y The Y coordinate.
+     * @param c The channel.
+     * @param z The z-section.
+     * @param t The time-point.
+     *
+     * @return See above.
+     */
+    long getKey(int x, int y, int c, int z, int t) {
+        int cell = floorIndex(rows, y) * columns.length + floorIndex(columns, x);
+        return (((long) t * sizeZ + z) * sizeC + c) * cells.length + cell;
+    }
+
+
+    /**
+     * Returns the keys of the tiles intersecting the bounds.
+     *
+     * @param lim The bounds.
+     *
+     * @return See above.
+     */
+    long[] getKeys(Bounds lim) {
+        Coordinates start = lim.getStart();
+        Coordinates end   = lim.getEnd();
+
+        int firstColumn = floorIndex(columns, start.getX());
+        int lastColumn  = floorIndex(columns, end.getX());
+        int firstRow    = floorIndex(rows, start.getY());
+        int lastRow     = floorIndex(rows, end.getY());
+
+        Coordinates size      = lim.getSize();
+        int         cellCount = (lastColumn - firstColumn + 1) * (lastRow - firstRow + 1);
+        long[]      keys      = new long[size.getC() * size.getZ() * size.getT() * cellCount];
+
+        int n = 0;
+        for (int t = start.getT(); t <= end.getT(); t++) {
+            for (int z = start.getZ(); z <= end.getZ(); z++) {
+                for (int c = start.getC(); c <= end.getC(); c++) {
+                    long plane = ((long) t * sizeZ + z) * sizeC + c;
+                    for (int row = firstRow; row <= lastRow; row++) {
+                        for (int column = firstColumn; column <= lastColumn; column++) {
+                            keys[n++] = plane * cells.length + row * columns.length + column;
+                        }
+                    }
+                }
+            }
+        }
+        return keys;
+    }
+
+
+    /**
+     * Returns the bounds of the tile corresponding to a key.
+     *
+     * @param key The tile key.
+     *
+     * @return See above.
+     */
+    Bounds getTile(long key) {
+        Bounds cell  = cells[(int) (key % cells.length)];
+        long   plane = key / cells.length;
+
+        int c = (int) (plane % sizeC);
+        int z = (int) (plane / sizeC % sizeZ);
+        int t = (int) (plane / sizeC / sizeZ);
+
+        Coordinates start = cell.getStart();
+        Coordinates end   = cell.getEnd();
+        return new Bounds(new Coordinates(start.getX(), start.getY(), c, z, t),
+                          new Coordinates(end.getX(), end.getY(), c, z, t));
+    }
+
+}
@@ -0,0 +1,232 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Plan used to split pixel reads into tile requests.
+ * <p>Requests are aligned on the native tile grid of the pixels set, and their size is a multiple of the native tile
+ * size such that each request does not exceed a maximum payload, based on the number of bytes per pixel. When a
+ * region is narrower than a request, its rows are grouped in taller requests, up to the same payload.</p>
+ */
+public class TilePlan {
+
+    /** Default maximum number of bytes per request */
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    /** Native tile width */
+    private final int tileWidth;
+
+    /** Native tile height */
+    private final int tileHeight;
+
+    /** Bytes per pixel */
+    private final int bpp;
+
+    /** Maximum number of bytes per request */
+    private final long maxBytes;
+
+    /** Width of a request */
+    private final int requestWidth;
+
+    /** Height of a request */
+    private final int requestHeight;
+
+
+    /**
+     * Constructor of the TilePlan class.
+     *
+     * @param tileWidth  The native tile width (1 if unknown).
+     * @param tileHeight The native tile height (1 if unknown).
+     * @param bpp        The number of bytes per pixel.
+     * @param maxBytes   The maximum number of bytes per request.
+     *
+     * @throws IllegalArgumentException If one of the parameters is not strictly positive.
+     */
+    public TilePlan(int tileWidth, int tileHeight, int bpp, long maxBytes) {
+        if (tileWidth <= 0 || tileHeight <= 0 || bpp <= 0 || maxBytes <= 0) {
+            String msg = String.format("Invalid tile plan: tile=%dx%d, bpp=%d, maxBytes=%d",
+                                       tileWidth, tileHeight, bpp, maxBytes);
+            throw new IllegalArgumentException(msg);
+        }
+        this.tileWidth  = tileWidth;
+        this.tileHeight = tileHeight;
+        this.bpp        = bpp;
+        this.maxBytes   = maxBytes;
+
+        long maxPixels  = getMaxPixels();
+        long tilePixels = (long) tileWidth * tileHeight;
+        if (tilePixels > maxPixels) {
+            // Native tiles are too large: read them in strips
+            this.requestWidth  = (int) Math.min(tileWidth, maxPixels);
+            this.requestHeight = (int) Math.max(1, maxPixels / requestWidth);
+        } else {
+            long nx = (long) Math.sqrt((double) (maxPixels / tilePixels));
+            long ny = maxPixels / (tilePixels * nx);
+            this.requestWidth  = (int) Math.min(Integer.MAX_VALUE, nx * tileWidth);
+            this.requestHeight = (int) Math.min(Integer.MAX_VALUE, ny * tileHeight);
+        }
+    }
+
+
+    /**
+     * Splits a range into intervals aligned on a grid.
+     *
+     * @param start The start of the range.
+     * @param end   The end of the range (inclusive).
+     * @param step  The grid step.
+     *
+     * @return The list of intervals, as {start, end} pairs.
+     */
+    private static List<int[]> split(int start, int end, int step) {
+        List<int[]> ranges = new ArrayList<>((end - start) / step + 2);
+        for (int from = start; from <= end; ) {
+            int to = (int) Math.min(end, ((long) from / step + 1) * step - 1);
+            ranges.add(new int[]{from, to});
+            from = to + 1;
+        }
+        return ranges;
+    }
+
+
+    /**
+     * Returns the maximum number of pixels per request.
+     *
+     * @return See above.
+     */
+    private long getMaxPixels() {
+        return Math.max(1, maxBytes / bpp);
+    }
+
+
+    /**
+     * Returns the native tile width.
+     *
+     * @return See above.
+     */
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+
+    /**
+     * Returns the native tile height.
+     *
+     * @return See above.
+     */
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+
+    /**
+     * Returns the number of bytes per pixel.
+     *
+     * @return See above.
+     */
+    public int getBytesPerPixel() {
+        return bpp;
+    }
+
+
+    /**
+     * Returns the maximum number of bytes per request.
+     *
+     * @return See above.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+
+    /**
+     * Returns the width of a request.
+     *
+     * @return See above.
+     */
+    public int getRequestWidth() {
+        return requestWidth;
+    }
+
+
+    /**
+     * Returns the height of a request.
+     *
+     * @return See above.
+     */
+    public int getRequestHeight() {
+        return requestHeight;
+    }
+
+
+    /**
+     * Splits the bounds into 2D tile requests (one plane at a time), in the TZCYX order.
+     *
+     * @param lim The bounds.
+     *
+     * @return The list of requests.
+     */
+    public List<Bounds> split(Bounds lim) {
+        Coordinates start = lim.getStart();
+        Coordinates end   = lim.getEnd();
+
+        List<int[]> columns = split(start.getX(), end.getX(), requestWidth);
+
+        int stepY = requestHeight;
+        if (columns.size() == 1) {
+            long rows    = getMaxPixels() / lim.getSize().getX();
+            long aligned = rows / tileHeight * tileHeight;
+            stepY = (int) Math.min(Integer.MAX_VALUE, Math.max(stepY, aligned));
+        }
+        List<int[]> rows = split(start.getY(), end.getY(), stepY);
+
+        List<Bounds> tiles = new ArrayList<>(rows.size() * columns.size());
+        for (int t = start.getT(); t <= end.getT(); t++) {
+            for (int z = start.getZ(); z <= end.getZ(); z++) {
+                for (int c = start.getC(); c <= end.getC(); c++) {
+                    for (int[] y : rows) {
+                        for (int[] x : columns) {
+                            tiles.add(new Bounds(new Coordinates(x[0], y[0], c, z, t),
+                                                 new Coordinates(x[1], y[1], c, z, t)));
+                        }
+                    }
+                }
+            }
+        }
+        return tiles;
+    }
+
+
+    /**
+     * Overridden to return the name of the class, the native tile size, the request size and the maximum payload.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s (tile=%dx%d, request=%dx%d, bpp=%d, maxBytes=%d)",
+                             getClass().getSimpleName(),
+                             tileWidth, tileHeight, requestWidth, requestHeight, bpp, maxBytes);
+    }
+
+}
@@ -0,0 +1,340 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import loci.formats.FormatTools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+
+/**
+ * Writes pixels to a directory store compatible with Zarr v2 and OME-NGFF (version 0.4).
+ * <p>The store contains a single-resolution group with the array in the "0" directory. Axes are ordered as T, C, Z, Y
+ * and X, and chunks contain a single plane region (1, 1, 1, chunkY, chunkX). Chunks are stored as zlib-compressed
+ * big-endian bytes, in nested directories ("0/t/c/z/y/x"). Edge chunks are padded with zeros, as required by Zarr.</p>
+ * <p>Each chunk is written to a temporary file first, then moved, so a chunk file is either complete or absent:
+ * existing chunks can be skipped when an export is resumed.</p>
+ */
+class ZarrWriter {
+
+    /** Default compression level (same as the numcodecs default for zlib) */
+    static final int DEFAULT_COMPRESSION_LEVEL = 1;
+
+    /** Name of the array directory */
+    private static final String ARRAY = "0";
+
+    /** Size of the buffer used when compressing chunks */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Root directory of the store */
+    private final Path directory;
+
+    /** Bounds of the exported region, in the image */
+    private final Bounds region;
+
+    /** Pixel type (see {@link FormatTools}) */
+    private final int pixelType;
+
+    /** Bytes per pixel */
+    private final int bpp;
+
+    /** Chunk width */
+    private final int chunkX;
+
+    /** Chunk height */
+    private final int chunkY;
+
+    /** Compression level */
+    private final int level;
+
+
+    /**
+     * Constructor of the ZarrWriter class.
+     *
+     * @param directory The root directory of the store.
+     * @param region    The bounds of the exported region, in the image.
+     * @param pixelType The pixel type (e.g. "uint16").
+     * @param chunkX    The chunk width.
+     * @param chunkY    The chunk height.
+     * @param level     The compression level (0-9).
+     *
+     * @throws IllegalArgumentException If the pixel type or the compression level is not supported.
+     */
+    ZarrWriter(Path directory, Bounds region, String pixelType, int chunkX, int chunkY, int level) {
+        if (level < 0 || level > 9) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.directory = directory;
+        this.region    = region;
+        this.pixelType = FormatTools.pixelTypeFromString(pixelType);
+        this.bpp       = FormatTools.getBytesPerPixel(this.pixelType);
+        this.chunkX    = Math.max(1, chunkX);
+        this.chunkY    = Math.max(1, chunkY);
+        this.level     = level;
+        getDataType();
+    }
+
+
+    /**
+     * Writes bytes to a file, through a temporary file.
+     *
+     * @param file  The file.
+     * @param bytes The file contents.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    private static void write(Path file, byte[] bytes) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, bytes);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    /**
+     * Writes metadata to a file, or checks that the existing file contains the same metadata.
+     *
+     * @param file     The file.
+     * @param contents The metadata.
+     *
+     * @throws IOException If the file cannot be written, or contains different metadata.
+     */
+    private static void writeOrCheck(Path file, String contents) throws IOException {
+        byte[] bytes = contents.getBytes(StandardCharsets.UTF_8);
+        if (!Files.exists(file)) {
+            write(file, bytes);
+        } else if (!Arrays.equals(bytes, Files.readAllBytes(file))) {
+            throw new IOException("Existing store does not match the exported pixels: " + file);
+        }
+    }
+
+
+    /**
+     * Returns the Zarr data type corresponding to the pixel type.
+     *
+     * @return See above.
+     *
+     * @throws IllegalArgumentException If the pixel type is not supported.
+     */
+    private String getDataType() {
+        switch (pixelType) {
+            case FormatTools.INT8:
+                return "|i1";
+            case FormatTools.UINT8:
+                return "|u1";
+            case FormatTools.INT16:
+                return ">i2";
+            case FormatTools.UINT16:
+                return ">u2";
+            case FormatTools.INT32:
+                return ">i4";
+            case FormatTools.UINT32:
+                return ">u4";
+            case FormatTools.FLOAT:
+                return ">f4";
+            case FormatTools.DOUBLE:
+                return ">f8";
+            default:
+                String type = FormatTools.getPixelTypeString(pixelType);
+                throw new IllegalArgumentException("Unsupported pixel type: " + type);
+        }
+    }
+
+
+    /**
+     * Writes the group and array metadata. If the store already exists, its metadata has to match.
+     *
+     * @param scale The physical size of a pixel along Z, Y and X.
+     * @param unit  The unit of the physical sizes (null if unknown).
+     *
+     * @throws IOException If the metadata cannot be written, or does not match an existing store.
+     */
+    void writeMetadata(double[] scale, String unit) throws IOException {
+        Coordinates size = region.getSize();
+        Files.createDirectories(directory.resolve(ARRAY));
+
+        String space = unit == null ? "\"type\":\"space\"" : "\"type\":\"space\",\"unit\":\"" + unit + "\"";
+        String axes = "[{\"name\":\"t\",\"type\":\"time\"},{\"name\":\"c\",\"type\":\"channel\"}," +
+                      "{\"name\":\"z\"," + space + "},{\"name\":\"y\"," + space + "}," +
+                      "{\"name\":\"x\"," + space + "}]";
+        String transform = String.format(Locale.ROOT,
+                                         "[{\"type\":\"scale\",\"scale\":[1.0,1.0,%s,%s,%s]}]",
+                                         scale[0], scale[1], scale[2]);
+        String attributes = "{\"multiscales\":[{\"version\":\"0.4\",\"axes\":" + axes +
+                            ",\"datasets\":[{\"path\":\"" + ARRAY +
+                            "\",\"coordinateTransformations\":" + transform + "}]}]}";
+        String array = String.format(Locale.ROOT,
+                                     "{\"chunks\":[1,1,1,%d,%d]," +
+                                     "\"compressor\":{\"id\":\"zlib\",\"level\":%d}," +
+                                     "\"dimension_separator\":\"/\"," +
+                                     "\"dtype\":\"%s\"," +
+                                     "\"fill_value\":0," +
+                                     "\"filters\":null," +
+                                     "\"order\":\"C\"," +
+                                     "\"shape\":[%d,%d,%d,%d,%d]," +
+                                     "\"zarr_format\":2}",
+                                     chunkY, chunkX, level, getDataType(),
+                                     size.getT(), size.getC(), size.getZ(), size.getY(), size.getX());
+
+        writeOrCheck(directory.resolve(".zgroup"), "{\"zarr_format\":2}");
+        writeOrCheck(directory.resolve(".zattrs"), attributes);
+        writeOrCheck(directory.resolve(ARRAY).resolve(".zarray"), array);
+    }
+
+
+    /**
+     * Returns the chunks of the region, in the image, ordered by T, C, Z, Y and X (edge chunks are clipped).
+     *
+     * @return See above.
+     */
+    List<Bounds> getChunks() {
+        Coordinates start = region.getStart();
+        Coordinates end   = region.getEnd();
+        Coordinates size  = region.getSize();
+
+        int countX = (size.getX() + chunkX - 1) / chunkX;
+        int countY = (size.getY() + chunkY - 1) / chunkY;
+
+        List<Bounds> chunks = new ArrayList<>(countX * countY * size.getC() * size.getZ() * size.getT());
+        for (int t = start.getT(); t <= end.getT(); t++) {
+            for (int c = start.getC(); c <= end.getC(); c++) {
+                for (int z = start.getZ(); z <= end.getZ(); z++) {
+                    for (int j = 0; j < countY; j++) {
+                        for (int i = 0; i < countX; i++) {
+                            int x0 = start.getX() + i * chunkX;
+                            int y0 = start.getY() + j * chunkY;
+                            int x1 = Math.min(end.getX(), x0 + chunkX - 1);
+                            int y1 = Math.min(end.getY(), y0 + chunkY - 1);
+                            chunks.add(new Bounds(new Coordinates(x0, y0, c, z, t),
+                                                  new Coordinates(x1, y1, c, z, t)));
+                        }
+                    }
+                }
+            }
+        }
+        return chunks;
+    }
+
+
+    /**
+     * Returns the file of a chunk.
+     *
+     * @param chunk The chunk bounds, in the image.
+     *
+     * @return See above.
+     */
+    Path getChunkFile(Bounds chunk) {
+        Coordinates pos   = chunk.getStart();
+        Coordinates start = region.getStart();
+        return directory.resolve(ARRAY)
+                        .resolve(String.valueOf(pos.getT() - start.getT()))
+                        .resolve(String.valueOf(pos.getC() - start.getC()))
+                        .resolve(String.valueOf(pos.getZ() - start.getZ()))
+                        .resolve(String.valueOf((pos.getY() - start.getY()) / chunkY))
+                        .resolve(String.valueOf((pos.getX() - start.getX()) / chunkX));
+    }
+
+
+    /**
+     * Checks if a chunk was already written.
+     *
+     * @param chunk The chunk bounds, in the image.
+     *
+     * @return See above.
+     */
+    boolean exists(Bounds chunk) {
+        return Files.exists(getChunkFile(chunk));
+    }
+
+
+    /**
+     * Creates the buffer for the raw bytes of a chunk, padded to the full chunk size.
+     *
+     * @return See above.
+     */
+    byte[] createChunkBuffer() {
+        return new byte[chunkX * chunkY * bpp];
+    }
+
+
+    /**
+     * Copies a tile to a chunk buffer.
+     *
+     * @param buffer The chunk buffer (see {@link #createChunkBuffer()}).
+     * @param chunk  The chunk bounds, in the image.
+     * @param tile   The tile bounds, in the image (which have to be within the chunk).
+     * @param bytes  The raw bytes of the tile.
+     */
+    void copyTile(byte[] buffer, Bounds chunk, Bounds tile, byte[] bytes) {
+        int x         = tile.getStart().getX() - chunk.getStart().getX();
+        int y         = tile.getStart().getY() - chunk.getStart().getY();
+        int rowLength = tile.getSize().getX() * bpp;
+        for (int row = 0; row < tile.getSize().getY(); row++) {
+            System.arraycopy(bytes, row * rowLength, buffer, ((y + row) * chunkX + x) * bpp, rowLength);
+        }
+    }
+
+
+    /**
+     * Compresses a chunk buffer and writes it to its file.
+     *
+     * @param chunk  The chunk bounds, in the image.
+     * @param buffer The chunk buffer (see {@link #createChunkBuffer()}).
+     *
+     * @throws IOException If the chunk cannot be written.
+     */
+    void writeChunk(Bounds chunk, byte[] buffer) throws IOException {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(buffer);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(Math.min(buffer.length, BUFFER_SIZE));
+            byte[]                block  = new byte[Math.min(buffer.length + 64, BUFFER_SIZE)];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(block);
+                output.write(block, 0, length);
+            }
+            Path file = getChunkFile(chunk);
+            Files.createDirectories(file.getParent());
+            write(file, output.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+
+    /**
+     * Overridden to return the name of the class and the store directory.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s (directory=%s)", getClass().getSimpleName(), directory);
+    }
+
+}
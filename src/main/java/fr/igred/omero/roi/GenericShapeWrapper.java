@@ -39,10 +39,15 @@ import omero.model.ShapeAnnotationLinkI;
 
 import java.awt.Color;
 import java.awt.Font;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
@@ -77,6 +82,9 @@ public abstract class GenericShapeWrapper<T extends ShapeData> extends Annotatab
     /** Transparent color */
     private static final Color TRANSPARENT = new Color(0, 0, 0, 0);
 
+    /** Maximum distance between curves and the segments approximating them when shapes are rasterized */
+    private static final double FLATNESS = 0.25;
+
 
     /**
      * Constructor of the GenericShapeWrapper class using a ShapeData.
@@ -568,6 +576,67 @@ public abstract class GenericShapeWrapper<T extends ShapeData> extends Annotatab
     }
 
 
+    /**
+     * Rasterizes the shape, once the related {@link AffineTransform} has been applied.
+     * <p>Closed shapes contain the pixels whose center is inside the shape, while open shapes (points, lines and
+     * polylines) contain the pixels crossed by their path.</p>
+     *
+     * @return The pixels contained in the shape.
+     */
+    public List<Point> getContainedPoints() {
+        java.awt.Shape shape = createTransformedAWTShape();
+
+        boolean closed = false;
+        for (PathIterator it = shape.getPathIterator(null); !it.isDone() && !closed; it.next()) {
+            closed = it.currentSegment(new double[6]) == PathIterator.SEG_CLOSE;
+        }
+
+        Collection<Point> points = new LinkedHashSet<>();
+        if (closed) {
+            Rectangle box = shape.getBounds();
+            for (int y = box.y; y < box.y + box.height; y++) {
+                for (int x = box.x; x < box.x + box.width; x++) {
+                    if (shape.contains(x + 0.5, y + 0.5)) {
+                        points.add(new Point(x, y));
+                    }
+                }
+            }
+        } else {
+            double[] coords = new double[6];
+            double[] last   = new double[2];
+            for (PathIterator it = shape.getPathIterator(null, FLATNESS); !it.isDone(); it.next()) {
+                int type = it.currentSegment(coords);
+                if (type == PathIterator.SEG_LINETO) {
+                    addLine(points, last[0], last[1], coords[0], coords[1]);
+                } else {
+                    points.add(new Point((int) Math.floor(coords[0]), (int) Math.floor(coords[1])));
+                }
+                last[0] = coords[0];
+                last[1] = coords[1];
+            }
+        }
+        return new ArrayList<>(points);
+    }
+
+
+    /**
+     * Adds the pixels crossed by a line to a collection.
+     *
+     * @param points The collection.
+     * @param x1     The x-coordinate of the start of the line.
+     * @param y1     The y-coordinate of the start of the line.
+     * @param x2     The x-coordinate of the end of the line.
+     * @param y2     The y-coordinate of the end of the line.
+     */
+    private static void addLine(Collection<? super Point> points, double x1, double y1, double x2, double y2) {
+        int steps = (int) Math.ceil(Math.max(Math.abs(x2 - x1), Math.abs(y2 - y1)));
+        for (int i = 0; i <= steps; i++) {
+            double f = steps > 0 ? (double) i / steps : 0;
+            points.add(new Point((int) Math.floor(x1 + f * (x2 - x1)), (int) Math.floor(y1 + f * (y2 - y1))));
+        }
+    }
+
+
     /**
      * Returns a new {@link RectangleWrapper} corresponding to the bounding box of the shape, once the related
      * {@link AffineTransform} has been applied.
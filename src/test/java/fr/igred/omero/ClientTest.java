@@ -28,14 +28,19 @@ import fr.igred.omero.repository.ScreenWrapper;
 import fr.igred.omero.repository.WellWrapper;
 import org.junit.jupiter.api.Test;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 class ClientTest extends UserTest {
@@ -108,6 +113,12 @@ class ClientTest extends UserTest {
     }
 
 
+    @Test
+    void testStreamDatasets() {
+        assertEquals(4, client.streamDatasets(3).count());
+    }
+
+
     @Test
     void testGetDatasetByName() throws Exception {
         Collection<DatasetWrapper> datasets = client.getDatasets(DATASET1.name);
@@ -132,6 +143,29 @@ class ClientTest extends UserTest {
     }
 
 
+    @Test
+    void testStreamImages() throws Exception {
+        List<ImageWrapper> images = client.getImages();
+        images.sort(Comparator.comparing(GenericObjectWrapper::getId));
+
+        List<Long> expected = images.stream().map(GenericObjectWrapper::getId).collect(Collectors.toList());
+        List<Long> ids = client.streamImages(10)
+                               .map(GenericObjectWrapper::getId)
+                               .collect(Collectors.toList());
+        assertEquals(expected, ids);
+    }
+
+
+    @Test
+    void testGetImagesPage() throws Exception {
+        List<ImageWrapper> first  = client.getImagesPage(-1L, 2);
+        List<ImageWrapper> second = client.getImagesPage(first.get(1).getId(), 2);
+        assertEquals(2, first.size());
+        assertEquals(2, second.size());
+        assertTrue(first.get(1).getId() < second.get(0).getId());
+    }
+
+
     @Test
     void testGetImage() throws Exception {
         ImageWrapper image = client.getImage(IMAGE1.id);
@@ -139,6 +173,18 @@ class ClientTest extends UserTest {
     }
 
 
+    @Test
+    void testGetThumbnails() throws Exception {
+        final int size = 96;
+
+        List<ImageWrapper>       images     = client.getImages(IMAGE1.id, IMAGE2.id);
+        Map<Long, BufferedImage> thumbnails = client.getThumbnails(images, size);
+        assertEquals(2, thumbnails.size());
+        assertEquals(size, thumbnails.get(IMAGE1.id).getWidth());
+        assertEquals(size, thumbnails.get(IMAGE2.id).getHeight());
+    }
+
+
     @Test
     void testGetImagesName() throws Exception {
         List<ImageWrapper> images = client.getImages(IMAGE1.name);
@@ -153,6 +199,16 @@ class ClientTest extends UserTest {
     }
 
 
+    @Test
+    void testGetImagesLikePattern() throws Exception {
+        List<ImageWrapper> images = client.getImagesLike(NamePattern.contains("IMAGE1").ignoreCase());
+        List<ImageWrapper> page   = client.getImagesLike(NamePattern.contains("image1"), 1, 1);
+        assertEquals(3, images.size());
+        assertEquals(1, page.size());
+        assertEquals(images.get(1).getId(), page.get(0).getId());
+    }
+
+
     @Test
     void testGetImagesTagged() throws Exception {
         List<ImageWrapper> images = client.getImagesTagged(TAG1.id);
@@ -0,0 +1,67 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.igred.omero;
+
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class NamePatternTest extends BasicTest {
+
+    @Test
+    void testContainsEscapesWildcards() {
+        NamePattern pattern = NamePattern.contains("50%_done!");
+        assertEquals("%50!%!_done!!%", pattern.getLikePattern());
+        assertEquals("img.name like :pattern escape '!'", pattern.getCondition("img.name", "pattern"));
+        assertTrue(pattern.matches("run 50%_done!.tif"));
+        assertFalse(pattern.matches("run 50a_done!.tif"));
+    }
+
+
+    @Test
+    void testAnchors() {
+        assertEquals("image1%", NamePattern.startsWith("image1").getLikePattern());
+        assertEquals("%.fake", NamePattern.endsWith(".fake").getLikePattern());
+        assertEquals("image1.fake", NamePattern.equalTo("image1.fake").getLikePattern());
+        assertTrue(NamePattern.endsWith(".fake").matches("image1.fake"));
+        assertFalse(NamePattern.startsWith("fake").matches("image1.fake"));
+    }
+
+
+    @Test
+    void testIgnoreCase() {
+        NamePattern pattern = NamePattern.contains("IMAGE").ignoreCase();
+        assertEquals("%image%", pattern.getLikePattern());
+        assertEquals("lower(img.name) like :p escape '!'", pattern.getCondition("img.name", "p"));
+        assertTrue(pattern.matches("Image1.fake"));
+        assertFalse(NamePattern.contains("IMAGE").matches("Image1.fake"));
+    }
+
+
+    @Test
+    void testIsLiteral() {
+        assertTrue(NamePattern.isLiteral("image1"));
+        assertTrue(NamePattern.isLiteral("image 1_%"));
+        assertFalse(NamePattern.isLiteral(".fake"));
+        assertFalse(NamePattern.isLiteral("image[12]"));
+    }
+
+}
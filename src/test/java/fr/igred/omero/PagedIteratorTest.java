@@ -0,0 +1,117 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero;
+
+
+import fr.igred.omero.annotations.TagAnnotationWrapper;
+import fr.igred.omero.exception.ServiceException;
+import fr.igred.omero.exception.UncheckedOMEROException;
+import omero.gateway.model.TagAnnotationData;
+import omero.model.TagAnnotationI;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class PagedIteratorTest extends BasicTest {
+
+    private static final long N_TAGS = 7L;
+
+
+    private static PagedIterator.PageLoader<TagAnnotationWrapper> loader(AtomicInteger calls) {
+        return loader(calls, id -> false);
+    }
+
+
+    private static PagedIterator.PageLoader<TagAnnotationWrapper> loader(AtomicInteger calls, LongPredicate deleted) {
+        return (afterId, limit) -> {
+            calls.incrementAndGet();
+            Long[] ids = LongStream.rangeClosed(afterId + 1, N_TAGS)
+                                   .limit(limit)
+                                   .boxed()
+                                   .toArray(Long[]::new);
+            List<TagAnnotationWrapper> tags = Arrays.stream(ids)
+                                                    .filter(id -> !deleted.test(id))
+                                                    .map(id -> new TagAnnotationData(new TagAnnotationI(id, true)))
+                                                    .map(TagAnnotationWrapper::new)
+                                                    .collect(Collectors.toList());
+            return PagedIterator.Page.of(tags, ids);
+        };
+    }
+
+
+    @Test
+    void testStreamAllPages() {
+        AtomicInteger calls = new AtomicInteger(0);
+        List<Long> ids = PagedIterator.stream(loader(calls), 3)
+                                      .map(GenericObjectWrapper::getId)
+                                      .collect(Collectors.toList());
+        assertEquals(LongStream.rangeClosed(1, N_TAGS).boxed().collect(Collectors.toList()), ids);
+        assertEquals(4, calls.get());
+    }
+
+
+    @Test
+    void testStreamIsLazy() {
+        AtomicInteger calls = new AtomicInteger(0);
+        long firstId = PagedIterator.stream(loader(calls), 3)
+                                    .findFirst()
+                                    .map(GenericObjectWrapper::getId)
+                                    .orElse(-1L);
+        assertEquals(1L, firstId);
+        assertEquals(1, calls.get());
+    }
+
+
+    @Test
+    void testStreamSkipsDeletedObjects() {
+        AtomicInteger calls = new AtomicInteger(0);
+        List<Long> ids = PagedIterator.stream(loader(calls, id -> id >= 4 && id <= 6), 3)
+                                      .map(GenericObjectWrapper::getId)
+                                      .collect(Collectors.toList());
+        assertEquals(Arrays.asList(1L, 2L, 3L, 7L), ids);
+        assertEquals(4, calls.get());
+    }
+
+
+    @Test
+    void testStreamWrapsErrors() {
+        PagedIterator.PageLoader<TagAnnotationWrapper> failing = (afterId, limit) -> {
+            throw new ServiceException("Cannot connect", new IllegalStateException("Offline"));
+        };
+        UncheckedOMEROException e = assertThrows(UncheckedOMEROException.class,
+                                                 () -> PagedIterator.stream(failing, 3).count());
+        assertInstanceOf(ServiceException.class, e.getCause());
+    }
+
+
+    @Test
+    void testInvalidPageSize() {
+        assertThrows(IllegalArgumentException.class, () -> PagedIterator.stream(loader(new AtomicInteger(0)), 0));
+    }
+
+}
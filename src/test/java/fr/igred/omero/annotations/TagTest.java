@@ -53,6 +53,12 @@ class TagTest extends UserTest {
     }
 
 
+    @Test
+    void testStreamTags() {
+        assertEquals(3, client.streamTags(2).count());
+    }
+
+
     @Test
     void testGetTagsSorted() throws Exception {
         List<TagAnnotationWrapper> tags = client.getTags();
@@ -0,0 +1,129 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.BasicTest;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class CompositeRendererTest extends BasicTest {
+
+    private static PixelsArray createArray(String pixelType, int sizeX, int sizeY, int sizeC) {
+        PixelsArray array = new PixelsArray(pixelType, sizeX, sizeY, sizeC, 2, 1);
+        for (int z = 0; z < 2; z++) {
+            for (int c = 0; c < sizeC; c++) {
+                for (int y = 0; y < sizeY; y++) {
+                    for (int x = 0; x < sizeX; x++) {
+                        array.setValue(x, y, c, z, 0, SyntheticPixelsReader.value(x, y, c, z, 0));
+                    }
+                }
+            }
+        }
+        return array;
+    }
+
+
+    @Test
+    void testRenderTwoChannels() {
+        PixelsArray array = createArray("uint16", 50, 40, 2);
+
+        List<ChannelRenderingSettings> settings = Arrays.asList(
+                new ChannelRenderingSettings(0, Color.RED, 0, 255, null),
+                new ChannelRenderingSettings(1, Color.GREEN, 101, 356, null));
+
+        CompositeRenderer renderer = new CompositeRenderer("uint16", settings);
+        int[]             argb     = renderer.render(array, 0, 0);
+
+        assertEquals(50 * 40, argb.length);
+        // value(x, y, 0, 0, 0) = x + 3y and value(x, y, 1, 0, 0) = x + 3y + 101
+        assertEquals(0xFF000000, argb[0]);
+        assertEquals(0xFF000000 | 40 << 16 | 40 << 8, argb[3 * 50 + 31]);
+        assertEquals(0xFF000000 | 166 << 16 | 166 << 8, argb[39 * 50 + 49]);
+    }
+
+
+    @Test
+    void testRenderSaturates() {
+        PixelsArray array = createArray("uint8", 20, 10, 2);
+
+        List<ChannelRenderingSettings> settings = Arrays.asList(
+                new ChannelRenderingSettings(0, Color.WHITE, 0, 0, null),
+                new ChannelRenderingSettings(1, Color.WHITE, 0, 0, null));
+
+        int[] argb = new CompositeRenderer("uint8", settings).render(array, 1, 0);
+        assertEquals(0xFFFFFFFF, argb[0]);
+        assertEquals(0xFFFFFFFF, argb[199]);
+    }
+
+
+    @Test
+    void testRenderSignedAndFloat() {
+        PixelsArray bytes  = new PixelsArray("int8", 2, 1, 1, 1, 1);
+        PixelsArray floats = new PixelsArray("float", 2, 1, 1, 1, 1);
+        bytes.setValue(0, 0, 0, 0, 0, -128);
+        bytes.setValue(1, 0, 0, 0, 0, 127);
+        floats.setValue(0, 0, 0, 0, 0, -1.0);
+        floats.setValue(1, 0, 0, 0, 0, 0.5);
+
+        List<ChannelRenderingSettings> settings = Collections.singletonList(
+                new ChannelRenderingSettings(0, Color.BLUE, Double.NaN, Double.NaN, null));
+
+        int[] argb1 = new CompositeRenderer("int8", settings).render(bytes, 0, 0);
+        int[] argb2 = new CompositeRenderer("float", settings).render(floats, 0, 0);
+        assertArrayEquals(new int[]{0xFF000000, 0xFF0000FF}, argb1);
+        assertArrayEquals(new int[]{0xFF000000, 0xFF000080}, argb2);
+    }
+
+
+    @Test
+    void testRenderIsDeterministic() {
+        PixelsArray array = createArray("uint16", 300, 257, 3);
+
+        List<ChannelRenderingSettings> settings = Arrays.asList(
+                new ChannelRenderingSettings(0, Color.RED, 0, 1000, null),
+                new ChannelRenderingSettings(2, Color.CYAN, 100, 1500, null));
+
+        CompositeRenderer renderer = new CompositeRenderer("uint16", settings);
+        int[]             expected = renderer.render(array, 1, 0);
+        for (int i = 0; i < 5; i++) {
+            assertArrayEquals(expected, renderer.render(array, 1, 0));
+        }
+    }
+
+
+    @Test
+    void testRenderWrongType() {
+        PixelsArray array = createArray("uint8", 4, 4, 1);
+
+        List<ChannelRenderingSettings> settings = Collections.singletonList(
+                new ChannelRenderingSettings(0, Color.RED, 0, 255, null));
+
+        CompositeRenderer renderer = new CompositeRenderer("uint16", settings);
+        assertThrows(IllegalArgumentException.class, () -> renderer.render(array, 0, 0));
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.BasicTest;
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+class CropStreamTest extends BasicTest {
+
+    private final PixelsWrapper pixels = SyntheticPixelsReader.createPixels(256, 256, 2, 1, 3);
+
+
+    @BeforeEach
+    void reset() {
+        SyntheticPixelsReader.reset();
+    }
+
+
+    private static List<Bounds> createCrops() {
+        List<Bounds> crops = new ArrayList<>(3);
+        crops.add(new Bounds(new Coordinates(10, 10, 1, 0, 2), new Coordinates(70, 70, 1, 0, 2)));
+        crops.add(new Bounds(new Coordinates(60, 10, 1, 0, 2), new Coordinates(100, 50, 1, 0, 2)));
+        crops.add(new Bounds(new Coordinates(200, 200, 0, 0, 0), new Coordinates(209, 219, 1, 0, 0)));
+        return crops;
+    }
+
+
+    private List<PixelsArray> readCrops(List<Bounds> crops, int prefetch) throws Exception {
+        final int tileSize = 64;
+
+        List<PixelsArray> results = new ArrayList<>(crops.size());
+        pixels.setTilePlan(new TilePlan(tileSize, tileSize, 2, tileSize * tileSize * 2));
+        try (PixelsReaderPool pool = new PixelsReaderPool(2, SyntheticPixelsReader::new)) {
+            pixels.forEachCrop(pool, crops, prefetch, (index, crop) -> {
+                assertEquals(results.size(), index);
+                results.add(crop);
+            });
+        }
+        return results;
+    }
+
+
+    @Test
+    void testForEachCropReadsSharedTilesOnce() throws Exception {
+        List<PixelsArray> results = readCrops(createCrops(), 2);
+
+        assertEquals(4 + 2, SyntheticPixelsReader.READS.get());
+        assertEquals(3, results.size());
+        assertEquals(41, results.get(1).getSizeX());
+        assertEquals(SyntheticPixelsReader.value(65, 13, 1, 0, 2),
+                     results.get(1).getValue(5, 3, 0, 0, 0), DOUBLE_PRECISION);
+        assertEquals(SyntheticPixelsReader.value(70, 70, 1, 0, 2),
+                     results.get(0).getValue(60, 60, 0, 0, 0), DOUBLE_PRECISION);
+        assertEquals(2, results.get(2).getSizeC());
+        assertEquals(SyntheticPixelsReader.value(205, 219, 1, 0, 0),
+                     results.get(2).getValue(5, 19, 1, 0, 0), DOUBLE_PRECISION);
+    }
+
+
+    @Test
+    void testForEachCropReadsTilesAgainBeyondPrefetch() throws Exception {
+        List<PixelsArray> results = readCrops(createCrops(), 1);
+
+        assertEquals(4 + 2 + 2, SyntheticPixelsReader.READS.get());
+        assertEquals(3, results.size());
+        assertEquals(SyntheticPixelsReader.value(65, 13, 1, 0, 2),
+                     results.get(1).getValue(5, 3, 0, 0, 0), DOUBLE_PRECISION);
+    }
+
+}
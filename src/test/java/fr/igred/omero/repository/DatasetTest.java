@@ -18,6 +18,7 @@
 package fr.igred.omero.repository;
 
 
+import fr.igred.omero.NamePattern;
 import fr.igred.omero.UserTest;
 import fr.igred.omero.annotations.TagAnnotationWrapper;
 import org.junit.jupiter.api.Test;
@@ -292,6 +293,16 @@ class DatasetTest extends UserTest {
     }
 
 
+    @Test
+    void testGetImagesLikePatternInDataset() throws Exception {
+        DatasetWrapper dataset = client.getDataset(DATASET1.id);
+
+        List<ImageWrapper> images = dataset.getImagesLike(client, NamePattern.endsWith(".fake"));
+
+        assertEquals(3, images.size());
+    }
+
+
     @Test
     void testGetImagesTaggedInDataset() throws Exception {
         DatasetWrapper dataset = client.getDataset(DATASET1.id);
@@ -404,4 +415,36 @@ class DatasetTest extends UserTest {
         assertThrows(NoSuchElementException.class, () -> client.getDataset(id));
     }
 
+
+    @Test
+    void testCreateImageAndWritePixels() throws Exception {
+        DatasetWrapper dataset = new DatasetWrapper("To delete", "Dataset which will be deleted");
+        dataset.saveAndUpdate(client);
+
+        PixelsArray array = new PixelsArray("uint16", 40, 30, 2, 3, 1);
+        for (int c = 0; c < 2; c++) {
+            for (int z = 0; z < 3; z++) {
+                for (int y = 0; y < 30; y++) {
+                    for (int x = 0; x < 40; x++) {
+                        array.setValue(x, y, c, z, 0, x + 40 * y + 1200 * c + 2400 * z);
+                    }
+                }
+            }
+        }
+
+        ImageWrapper       image  = dataset.createImage(client, "Created image", array, 2);
+        PixelsArray        result = image.getPixels().getPixelsArray(client, 2);
+        List<ImageWrapper> images = dataset.getImages(client);
+
+        client.delete(image);
+        client.delete(dataset);
+
+        assertEquals(1, images.size());
+        assertEquals("Created image", image.getName());
+        assertEquals(40, result.getSizeX());
+        assertEquals(3, result.getSizeZ());
+        assertEquals(array.getValue(39, 29, 1, 2, 0), result.getValue(39, 29, 1, 2, 0), 0);
+        assertEquals(array.getValue(12, 7, 0, 1, 0), result.getValue(12, 7, 0, 1, 0), 0);
+    }
+
 }
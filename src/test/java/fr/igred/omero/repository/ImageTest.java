@@ -18,6 +18,7 @@
 package fr.igred.omero.repository;
 
 
+import fr.igred.omero.AnnotatableWrapper;
 import fr.igred.omero.UserTest;
 import fr.igred.omero.annotations.AnnotationList;
 import fr.igred.omero.annotations.FileAnnotationWrapper;
@@ -153,6 +154,33 @@ class ImageTest extends UserTest {
     }
 
 
+    @Test
+    void testGetAnnotationsInBulk() throws Exception {
+        List<ImageWrapper> images = client.getDataset(DATASET1.id).getImages();
+
+        Map<Long, AnnotationList>             annotations = AnnotatableWrapper.getAnnotations(client, images);
+        Map<Long, List<TagAnnotationWrapper>> tags        = AnnotatableWrapper.getTags(client, images);
+        Map<Long, Map<String, String>>        pairs       = AnnotatableWrapper.getKeyValuePairs(client, images);
+
+        assertEquals(images.size(), annotations.size());
+        assertEquals(3, annotations.get(IMAGE1.id).size());
+        assertEquals(2, pairs.get(IMAGE1.id).size());
+        for (ImageWrapper image : images) {
+            List<TagAnnotationWrapper> imageTags = image.getTags(client);
+            assertEquals(imageTags.size(), tags.get(image.getId()).size());
+        }
+    }
+
+
+    @Test
+    void testGetAnnotationsInBulkMixedTypes() throws Exception {
+        List<AnnotatableWrapper<?>> objects = new ArrayList<>(2);
+        objects.add(client.getImage(IMAGE1.id));
+        objects.add(client.getDataset(DATASET1.id));
+        assertThrows(IllegalArgumentException.class, () -> AnnotatableWrapper.getTags(client, objects));
+    }
+
+
     @Test
     void testGetKeyValuePair2() throws Exception {
         ImageWrapper               image       = client.getImage(IMAGE1.id);
@@ -397,6 +425,30 @@ class ImageTest extends UserTest {
     }
 
 
+    @Test
+    void testToVirtualImagePlus() throws Exception {
+        String fake     = "8bit-unsigned&pixelType=uint8&sizeZ=2&sizeC=5&sizeT=7&sizeX=512&sizeY=512.fake";
+        File   fakeFile = createFile(fake);
+
+        ImagePlus reference = BF.openImagePlus(fake)[0];
+        removeFile(fakeFile);
+
+        ImageWrapper image = client.getImage(IMAGE2.id);
+
+        ImagePlus imp = image.toVirtualImagePlus(client);
+
+        ImageCalculator calculator = new ImageCalculator();
+        ImagePlus       difference = calculator.run("difference create stack", reference, imp);
+        ImageStatistics stats      = difference.getStatistics();
+        ((PixelsVirtualStack) imp.getStack()).close();
+
+        assertTrue(imp.getStack().isVirtual());
+        assertEquals(0, (int) stats.max);
+        assertEquals(String.valueOf(IMAGE2.id),
+                     imp.getProp(ImageWrapper.IJ_ID_PROPERTY));
+    }
+
+
     @Test
     void testGetImageChannel() throws Exception {
         ImageWrapper image = client.getImage(IMAGE1.id);
@@ -657,6 +709,20 @@ class ImageTest extends UserTest {
     }
 
 
+    @Test
+    void testGetChannelsRenderingSettings() throws Exception {
+        ImageWrapper image = client.getImage(IMAGE2.id);
+
+        List<ChannelRenderingSettings> settings = image.getChannelsRenderingSettings(client);
+
+        assertEquals(image.getPixels().getSizeC(), settings.size());
+        assertEquals(1, settings.get(1).getIndex());
+        assertEquals(image.getChannelColor(client, 1), settings.get(1).getColor());
+        assertTrue(settings.get(0).hasWindow());
+        assertTrue(settings.get(0).getWindowStart() <= settings.get(0).getWindowEnd());
+    }
+
+
     @Test
     void testSetDescription() throws Exception {
         ImageWrapper image = client.getImage(IMAGE1.id);
@@ -0,0 +1,60 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.BasicTest;
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+class MappedPixelsTest extends BasicTest {
+
+
+    @Test
+    void testGetMappedPixels() throws Exception {
+        PixelsWrapper pixels = SyntheticPixelsReader.createPixels(70, 50, 2, 3, 2);
+        Bounds        bounds = pixels.getBounds(new int[]{10, 69}, new int[]{5, 44}, null, new int[]{1, 2}, null);
+        Path          file   = Files.createTempFile("pixels", ".raw");
+        try (PixelsReaderPool pool = new PixelsReaderPool(3, SyntheticPixelsReader::new);
+             MappedPixels mapped = pixels.getMappedPixels(pool, bounds, file)) {
+            assertEquals(60L * 40 * 2 * 2 * 2 * Short.BYTES, Files.size(file));
+            assertEquals(60, mapped.getSizeX());
+            assertEquals(2, mapped.getSizeZ());
+
+            int expected = SyntheticPixelsReader.value(13, 12, 1, 2, 1);
+            assertEquals(expected, mapped.getValue(3, 7, 1, 1, 1), DOUBLE_PRECISION);
+
+            ByteBuffer row = mapped.getRow(7, 1, 1, 1);
+            assertEquals(60 * Short.BYTES, row.remaining());
+            assertEquals(expected, row.getShort(3 * Short.BYTES) & 0xFFFF);
+
+            PixelsArray plane = mapped.getPlane(1, 1, 1);
+            assertEquals(expected, plane.getValue(3, 7, 0, 0, 0), DOUBLE_PRECISION);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+}
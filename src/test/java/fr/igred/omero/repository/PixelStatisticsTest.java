@@ -0,0 +1,141 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.BasicTest;
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import loci.formats.FormatTools;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+class PixelStatisticsTest extends BasicTest {
+
+    private final PixelsWrapper pixels = SyntheticPixelsReader.createPixels(96, 80, 2, 3, 4);
+
+
+    @Test
+    void testPlaneStatistics() throws Exception {
+        final double tolerance = 1.0e-9;
+
+        Bounds bounds = pixels.getBounds(null, null, null, null, null);
+        pixels.setTilePlan(new TilePlan(32, 32, 2, 32 * 32 * 2));
+
+        PixelStatistics[][][] stats;
+        try (PixelsReaderPool pool = new PixelsReaderPool(3, SyntheticPixelsReader::new)) {
+            stats = pixels.getStatistics(pool, bounds);
+        }
+
+        PixelStatistics expected = new PixelStatistics(0, 65536, PixelStatistics.DEFAULT_BINS);
+        for (int y = 0; y < 80; y++) {
+            for (int x = 0; x < 96; x++) {
+                expected.add(SyntheticPixelsReader.value(x, y, 1, 2, 3));
+            }
+        }
+
+        PixelStatistics plane = stats[3][2][1];
+        assertEquals(96 * 80, plane.getCount());
+        assertEquals(SyntheticPixelsReader.value(0, 0, 1, 2, 3), plane.getMin(), DOUBLE_PRECISION);
+        assertEquals(SyntheticPixelsReader.value(95, 79, 1, 2, 3), plane.getMax(), DOUBLE_PRECISION);
+        assertEquals(expected.getMean(), plane.getMean(), tolerance);
+        assertEquals(expected.getVariance(), plane.getVariance(), tolerance);
+        assertEquals(expected.getQuantile(0.5), plane.getQuantile(0.5), DOUBLE_PRECISION);
+
+        List<PixelStatistics> channels = PixelsWrapper.mergeChannels(stats);
+        assertEquals(2, channels.size());
+        assertEquals(96 * 80 * 3 * 4, channels.get(0).getCount());
+        assertEquals(SyntheticPixelsReader.value(0, 0, 0, 0, 0), channels.get(0).getMin(), DOUBLE_PRECISION);
+    }
+
+
+    @Test
+    void testMergeDifferentRanges() {
+        final double tolerance = 1.0;
+
+        PixelStatistics all   = new PixelStatistics(0, 1000, PixelStatistics.DEFAULT_BINS);
+        PixelStatistics lower = new PixelStatistics(0, 500, PixelStatistics.DEFAULT_BINS);
+        PixelStatistics upper = new PixelStatistics(500, 1000, PixelStatistics.DEFAULT_BINS);
+        for (int i = 0; i < 1000; i++) {
+            all.add(i);
+            if (i < 500) {
+                lower.add(i);
+            } else {
+                upper.add(i);
+            }
+        }
+        lower.merge(upper);
+
+        assertEquals(all.getCount(), lower.getCount());
+        assertEquals(all.getMean(), lower.getMean(), DOUBLE_PRECISION);
+        assertEquals(all.getVariance(), lower.getVariance(), 1.0e-6);
+        assertEquals(0, lower.getHistogramMin(), DOUBLE_PRECISION);
+        assertEquals(1000, lower.getHistogramMax(), DOUBLE_PRECISION);
+        assertEquals(250, lower.getQuantile(0.25), tolerance);
+        assertEquals(900, lower.getQuantile(0.9), tolerance);
+    }
+
+
+    @Test
+    void testFloatStatistics() {
+        byte[] bytes = new byte[4 * Float.BYTES];
+        ByteBuffer.wrap(bytes).putFloat(-1.5f).putFloat(0.5f).putFloat(2.5f).putFloat(4.5f);
+
+        PixelStatistics stats = PixelStatistics.of(bytes, FormatTools.FLOAT);
+        assertEquals(-1.5, stats.getMin(), DOUBLE_PRECISION);
+        assertEquals(4.5, stats.getMax(), DOUBLE_PRECISION);
+        assertEquals(1.5, stats.getMean(), DOUBLE_PRECISION);
+        assertEquals(-1.5, stats.getHistogramMin(), DOUBLE_PRECISION);
+        assertEquals(4.5, stats.getHistogramMax(), DOUBLE_PRECISION);
+    }
+
+
+    @Test
+    void testNonFiniteValuesAreSkipped() {
+        byte[] bytes = new byte[6 * Float.BYTES];
+        ByteBuffer.wrap(bytes)
+                  .putFloat(Float.NaN)
+                  .putFloat(1.0f)
+                  .putFloat(Float.POSITIVE_INFINITY)
+                  .putFloat(3.0f)
+                  .putFloat(Float.NEGATIVE_INFINITY)
+                  .putFloat(5.0f);
+
+        PixelStatistics stats = PixelStatistics.of(bytes, FormatTools.FLOAT);
+        assertEquals(3, stats.getCount());
+        assertEquals(3, stats.getNonFiniteCount());
+        assertEquals(1.0, stats.getMin(), DOUBLE_PRECISION);
+        assertEquals(5.0, stats.getMax(), DOUBLE_PRECISION);
+        assertEquals(3.0, stats.getMean(), DOUBLE_PRECISION);
+        assertEquals(4.0, stats.getVariance(), DOUBLE_PRECISION);
+        assertEquals(1.0, stats.getHistogramMin(), DOUBLE_PRECISION);
+        assertEquals(5.0, stats.getHistogramMax(), DOUBLE_PRECISION);
+        assertEquals(3, Arrays.stream(stats.getHistogram()).sum());
+
+        PixelStatistics merged = PixelStatistics.of(new byte[0], FormatTools.FLOAT);
+        merged.merge(stats);
+        assertEquals(3, merged.getCount());
+        assertEquals(3, merged.getNonFiniteCount());
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.BasicTest;
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import ij.process.ShortProcessor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class PixelsArrayTest extends BasicTest {
+
+
+    @Test
+    void testGetPixelsArrayParallel() throws Exception {
+        PixelsWrapper pixels = SyntheticPixelsReader.createPixels(40, 30, 2, 3, 2);
+        Bounds        bounds = pixels.getBounds(new int[]{3, 35}, null, null, new int[]{1, 2}, null);
+
+        PixelsArray array;
+        try (PixelsReaderPool pool = new PixelsReaderPool(3, SyntheticPixelsReader::new)) {
+            array = pixels.getPixelsArray(pool, bounds);
+        }
+
+        assertEquals("uint16", array.getPixelType());
+        assertEquals(33, array.getSizeX());
+        assertEquals(30, array.getSizeY());
+        assertEquals(2, array.getSizeC());
+        assertEquals(2, array.getSizeZ());
+        assertEquals(2, array.getSizeT());
+        for (int t = 0; t < 2; t++) {
+            for (int z = 0; z < 2; z++) {
+                for (int c = 0; c < 2; c++) {
+                    for (int y = 0; y < 30; y++) {
+                        for (int x = 0; x < 33; x++) {
+                            int expected = SyntheticPixelsReader.value(x + 3, y, c, z + 1, t);
+                            assertEquals(expected, array.getValue(x, y, c, z, t), DOUBLE_PRECISION);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+
+    @Test
+    void testUnsignedValues() {
+        PixelsArray array = new PixelsArray("uint16", 2, 2, 1, 1, 1);
+        array.setValue(1, 1, 0, 0, 0, 65535);
+        assertEquals(65535, array.getValue(1, 1, 0, 0, 0), DOUBLE_PRECISION);
+    }
+
+
+    @Test
+    void testViewSharesStorage() {
+        PixelsArray array = new PixelsArray("float", 10, 8, 2, 3, 1);
+        Bounds      sub   = new Bounds(new Coordinates(2, 3, 1, 1, 0), new Coordinates(5, 6, 1, 2, 0));
+        PixelsArray view  = array.view(sub);
+
+        view.setValue(1, 2, 0, 1, 0, 42.5);
+
+        assertEquals(4, view.getSizeX());
+        assertEquals(2, view.getSizeZ());
+        assertEquals(42.5, array.getValue(3, 5, 1, 2, 0), DOUBLE_PRECISION);
+        assertEquals(42.5, array.getPlane(1, 2, 0).getValue(3, 5, 0, 0, 0), DOUBLE_PRECISION);
+    }
+
+
+    @Test
+    void testInvalidView() {
+        PixelsArray array = new PixelsArray("uint8", 10, 8, 1, 1, 1);
+        Bounds      sub   = new Bounds(new Coordinates(0, 0, 0, 0, 0), new Coordinates(10, 7, 0, 0, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> array.view(sub));
+    }
+
+
+    @Test
+    void testToImageStack() {
+        PixelsArray array = new PixelsArray("uint16", 6, 4, 2, 2, 1);
+        array.setValue(5, 3, 1, 1, 0, 40000);
+        array.setValue(2, 1, 0, 1, 0, 12);
+
+        ImageStack     stack = array.toImageStack();
+        ImageProcessor ip    = stack.getProcessor(4);
+
+        assertEquals(4, stack.getSize());
+        assertEquals(ShortProcessor.class, ip.getClass());
+        assertEquals(40000, ip.get(5, 3));
+        assertEquals(12, stack.getProcessor(3).get(2, 1));
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.BasicTest;
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class PixelsReaderPoolTest extends BasicTest {
+
+
+    @BeforeEach
+    void reset() {
+        SyntheticPixelsReader.reset();
+    }
+
+
+    @Test
+    void testGetAllPixelsParallel() throws Exception {
+        PixelsWrapper pixels = SyntheticPixelsReader.createPixels(64, 48, 3, 4, 2);
+        Bounds        bounds = pixels.getBounds(new int[]{5, 60}, new int[]{2, 40}, null, null, null);
+
+        double[][][][][] values;
+        try (PixelsReaderPool pool = new PixelsReaderPool(4, SyntheticPixelsReader::new)) {
+            values = pixels.getAllPixels(pool, bounds);
+        }
+
+        assertEquals(2, values.length);
+        assertEquals(4, values[0].length);
+        assertEquals(3, values[0][0].length);
+        assertEquals(39, values[0][0][0].length);
+        assertEquals(56, values[0][0][0][0].length);
+        for (int t = 0; t < 2; t++) {
+            for (int z = 0; z < 4; z++) {
+                for (int c = 0; c < 3; c++) {
+                    for (int y = 0; y < 39; y++) {
+                        for (int x = 0; x < 56; x++) {
+                            int expected = SyntheticPixelsReader.value(x + 5, y + 2, c, z, t);
+                            assertEquals(expected, values[t][z][c][y][x], DOUBLE_PRECISION);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+
+    @Test
+    void testGetRawPixelsParallel() throws Exception {
+        final int bpp = 2;
+
+        PixelsWrapper pixels = SyntheticPixelsReader.createPixels(32, 16, 2, 5, 3);
+        Bounds        bounds = pixels.getBounds(null, null, new int[]{1, 1}, new int[]{1, 3}, null);
+
+        byte[][][][] bytes;
+        try (PixelsReaderPool pool = new PixelsReaderPool(3, SyntheticPixelsReader::new)) {
+            bytes = pixels.getRawPixels(pool, bounds, bpp);
+        }
+
+        assertEquals(3, bytes.length);
+        assertEquals(3, bytes[0].length);
+        assertEquals(1, bytes[0][0].length);
+        assertEquals(32 * 16 * bpp, bytes[0][0][0].length);
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes[2][1][0]);
+        int        value  = buffer.getShort((7 * 32 + 9) * bpp) & 0xFFFF;
+        assertEquals(SyntheticPixelsReader.value(9, 7, 1, 2, 2), value);
+    }
+
+
+    @Test
+    void testGetPixelsArrayAtLevel() throws Exception {
+        final int level = 2;
+
+        PixelsWrapper pixels = SyntheticPixelsReader.createPixels(1024, 1024, 1, 2, 1);
+
+        ResolutionLevel resolution;
+        try (PixelsReader reader = new SyntheticPixelsReader()) {
+            resolution = reader.getResolutionLevels().get(level);
+        }
+        Bounds bounds = pixels.getBounds(resolution.getSizeX(), resolution.getSizeY(), null, null, null, null, null);
+
+        PixelsArray array;
+        try (PixelsReaderPool pool = new PixelsReaderPool(2, () -> {
+            PixelsReader reader = new SyntheticPixelsReader();
+            reader.setResolutionLevel(level);
+            return reader;
+        })) {
+            array = pixels.getPixelsArray(pool, level, bounds);
+        }
+
+        assertEquals(1, pixels.getTilePlan().getTileWidth());
+        assertEquals(256, array.getSizeX());
+        assertEquals(256, array.getSizeY());
+        assertEquals(2, array.getSizeZ());
+        assertEquals(SyntheticPixelsReader.value(40, 12, 0, 1, 0), array.getValue(10, 3, 0, 1, 0), DOUBLE_PRECISION);
+    }
+
+
+    @Test
+    void testPoolIsBounded() throws Exception {
+        final int threads = 3;
+
+        PixelsWrapper pixels = SyntheticPixelsReader.createPixels(8, 8, 4, 10, 5);
+        Bounds        bounds = pixels.getBounds(null, null, null, null, null);
+        try (PixelsReaderPool pool = new PixelsReaderPool(threads, SyntheticPixelsReader::new)) {
+            pixels.getRawPixels(pool, bounds, 2);
+        }
+        assertEquals(4 * 10 * 5, SyntheticPixelsReader.READS.get());
+        assertTrue(SyntheticPixelsReader.MAX_OPEN.get() <= threads);
+        assertEquals(0, SyntheticPixelsReader.OPEN.get());
+    }
+
+
+    @Test
+    void testClosedPool() throws Exception {
+        PixelsWrapper pixels = SyntheticPixelsReader.createPixels(8, 8, 1, 1, 1);
+        Bounds        bounds = pixels.getBounds(null, null, null, null, null);
+
+        PixelsReaderPool pool = new PixelsReaderPool(1, SyntheticPixelsReader::new);
+        pool.read(bounds);
+        pool.close();
+
+        assertThrows(IllegalStateException.class, () -> pool.read(bounds));
+        assertThrows(IllegalStateException.class, () -> pixels.getRawPixels(pool, bounds, 2));
+        assertEquals(0, SyntheticPixelsReader.OPEN.get());
+    }
+
+
+    @Test
+    void testGetTiles() {
+        PixelsWrapper pixels = SyntheticPixelsReader.createPixels(12000, 7000, 2, 1, 1);
+        Bounds        bounds = pixels.getBounds(null, null, null, null, null);
+        Coordinates   last   = pixels.getTiles(bounds).get(14).getEnd();
+
+        assertEquals(2 * 3 * 5, pixels.getTiles(bounds).size());
+        assertEquals(11999, last.getX());
+        assertEquals(6999, last.getY());
+    }
+
+
+    @Test
+    void testNativePlanAfterDefaultRead() throws Exception {
+        PixelsWrapper pixels = SyntheticPixelsReader.createPixels(256, 256, 1, 1, 1);
+        Bounds        bounds = pixels.getBounds(null, null, null, null, null);
+
+        assertEquals(1, pixels.getTiles(bounds).size());
+        assertEquals(1, pixels.getTilePlan().getTileWidth());
+
+        PixelsArray array;
+        try (PixelsReaderPool pool = new PixelsReaderPool(2, SyntheticPixelsReader::new)) {
+            array = pixels.getPixelsArray(pool, bounds);
+        }
+
+        assertEquals(SyntheticPixelsReader.TILE_SIZE, pixels.getTilePlan().getTileWidth());
+        assertEquals(SyntheticPixelsReader.TILE_SIZE, pixels.getTilePlan().getTileHeight());
+        int expected = SyntheticPixelsReader.value(200, 100, 0, 0, 0);
+        assertEquals(expected, array.getValue(200, 100, 0, 0, 0), DOUBLE_PRECISION);
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.BasicTest;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class PixelsReaderTest extends BasicTest {
+
+
+    @Test
+    void testGetTileInDirectBuffer() throws Exception {
+        final int width  = 6000;
+        final int height = 3;
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4 + width * height * Short.BYTES);
+        buffer.putInt(42);
+        try (PixelsReader reader = new SyntheticPixelsReader()) {
+            reader.getTile(new Coordinates(7, 1, 2, 3, 4), width, height, buffer);
+        }
+        assertEquals(buffer.capacity(), buffer.position());
+
+        buffer.flip();
+        assertEquals(42, buffer.getInt());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int expected = SyntheticPixelsReader.value(x + 7, y + 1, 2, 3, 4);
+                assertEquals(expected, buffer.getShort() & 0xFFFF);
+            }
+        }
+    }
+
+
+    @Test
+    void testReuseBuffer() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * 4 * Short.BYTES);
+        try (PixelsReader reader = new SyntheticPixelsReader()) {
+            for (int t = 0; t < 3; t++) {
+                buffer.clear();
+                reader.getTile(new Coordinates(0, 0, 0, 0, t), 4, 4, buffer);
+                assertEquals(SyntheticPixelsReader.value(3, 3, 0, 0, t), buffer.getShort(30) & 0xFFFF);
+            }
+        }
+    }
+
+
+    @Test
+    void testBufferTooSmall() {
+        ByteBuffer buffer = ByteBuffer.allocate(10);
+        try (PixelsReader reader = new SyntheticPixelsReader()) {
+            Coordinates start = new Coordinates(0, 0, 0, 0, 0);
+            assertThrows(BufferOverflowException.class, () -> reader.getTile(start, 4, 4, buffer));
+        }
+    }
+
+}
@@ -21,6 +21,8 @@ package fr.igred.omero.repository;
 import fr.igred.omero.UserTest;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
@@ -132,4 +134,48 @@ class PixelsTest extends UserTest {
     }
 
 
+    @Test
+    void testGetRawDataWithTileCache() throws Exception {
+        ImageWrapper  image  = client.getImage(IMAGE1.id);
+        PixelsWrapper pixels = image.getPixels();
+
+        int[] xBounds = {0, 9};
+        int[] yBounds = {0, 9};
+        int[] cBounds = {0, 0};
+        int[] zBounds = {0, 0};
+        int[] tBounds = {0, 0};
+
+        TileCache cache = new TileCache(1024 * 1024);
+        client.setTileCache(cache);
+        try {
+            byte[][][][] first = pixels.getRawPixels(client, xBounds, yBounds, cBounds, zBounds, tBounds, 1);
+            int[] subX = {2, 5};
+            int[] subY = {3, 4};
+
+            byte[][][][] again = pixels.getRawPixels(client, subX, subY, cBounds, zBounds, tBounds, 1);
+            assertEquals(first[0][0][0][3 * 10 + 2], again[0][0][0][0]);
+            assertEquals(1, cache.getHits());
+            assertEquals(1, cache.getMisses());
+        } finally {
+            client.setTileCache(null);
+        }
+    }
+
+
+    @Test
+    void testGetResolutionLevels() throws Exception {
+        ImageWrapper  image  = client.getImage(IMAGE1.id);
+        PixelsWrapper pixels = image.getPixels();
+
+        List<ResolutionLevel> levels = pixels.getResolutionLevels(client);
+        ResolutionLevel       full   = levels.get(0);
+        PixelsArray           array  = pixels.getPixelsArray(client, 2, full, null, null, null, new int[]{1, 1}, null);
+
+        assertEquals(0, full.getLevel());
+        assertEquals(pixels.getSizeX(), full.getSizeX());
+        assertEquals(pixels.getSizeY(), full.getSizeY());
+        assertEquals(pixels.getSizeX(), array.getSizeX());
+        assertEquals(1, array.getSizeZ());
+    }
+
 }
@@ -0,0 +1,138 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.BasicTest;
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import ij.ImagePlus;
+import ij.process.ImageProcessor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class PixelsVirtualStackTest extends BasicTest {
+
+
+    @BeforeEach
+    void reset() {
+        SyntheticPixelsReader.reset();
+    }
+
+
+    @Test
+    void testGetProcessor() {
+        PixelsWrapper pixels = SyntheticPixelsReader.createPixels(16, 12, 2, 3, 2);
+        Bounds        bounds = pixels.getBounds(new int[]{4, 15}, null, null, null, null);
+
+        PixelsReaderPool pool = new PixelsReaderPool(2, SyntheticPixelsReader::new);
+        try (PixelsVirtualStack stack = new PixelsVirtualStack(pixels, pool, bounds, 4)) {
+            ImageProcessor ip = stack.getProcessor(10);
+
+            assertEquals(2 * 3 * 2, stack.getSize());
+            assertEquals(16, stack.getBitDepth());
+            assertEquals(12, ip.getWidth());
+            assertEquals("c:2 z:2 t:2", stack.getSliceLabel(10));
+            assertEquals(SyntheticPixelsReader.value(9, 3, 1, 1, 1), ip.get(5, 3));
+            assertNotSame(ip, stack.getProcessor(10));
+        }
+        assertEquals(0, SyntheticPixelsReader.OPEN.get());
+    }
+
+
+    @Test
+    void testEditsDoNotChangeCache() {
+        PixelsWrapper pixels = SyntheticPixelsReader.createPixels(8, 8, 1, 1, 1);
+        Bounds        bounds = pixels.getBounds(null, null, null, null, null);
+
+        PixelsReaderPool pool = new PixelsReaderPool(1, SyntheticPixelsReader::new);
+        try (PixelsVirtualStack stack = new PixelsVirtualStack(pixels, pool, bounds, 4)) {
+            int expected = SyntheticPixelsReader.value(2, 3, 0, 0, 0);
+
+            stack.getProcessor(1).set(2, 3, 0);
+            ((short[]) stack.getPixels(1))[3 * 8 + 2] = 0;
+
+            assertEquals(expected, stack.getProcessor(1).get(2, 3));
+            assertEquals(1, SyntheticPixelsReader.READS.get());
+        }
+    }
+
+
+    @Test
+    void testCloseWithImage() {
+        PixelsWrapper pixels = SyntheticPixelsReader.createPixels(8, 8, 1, 1, 1);
+        Bounds        bounds = pixels.getBounds(null, null, null, null, null);
+
+        PixelsReaderPool   pool  = new PixelsReaderPool(1, SyntheticPixelsReader::new);
+        PixelsVirtualStack stack = new PixelsVirtualStack(pixels, pool, bounds, 4);
+        ImagePlus          imp   = new ImagePlus("virtual", stack);
+        stack.closeWith(imp);
+        stack.getProcessor(1);
+
+        stack.imageClosed(new ImagePlus());
+        assertEquals(1, SyntheticPixelsReader.OPEN.get());
+
+        stack.imageClosed(imp);
+        assertEquals(0, SyntheticPixelsReader.OPEN.get());
+    }
+
+
+    @Test
+    void testReadAfterClose() {
+        PixelsWrapper pixels = SyntheticPixelsReader.createPixels(8, 8, 1, 2, 1);
+        Bounds        bounds = pixels.getBounds(null, null, null, null, null);
+
+        PixelsReaderPool   pool  = new PixelsReaderPool(1, SyntheticPixelsReader::new);
+        PixelsVirtualStack stack = new PixelsVirtualStack(pixels, pool, bounds, 4);
+        stack.close();
+
+        ImageProcessor ip = stack.getProcessor(2);
+        assertEquals(8, ip.getWidth());
+        assertEquals(0, ip.get(3, 3));
+        assertEquals(0, SyntheticPixelsReader.OPEN.get());
+        assertEquals(0, SyntheticPixelsReader.READS.get());
+    }
+
+
+    @Test
+    void testPrefetchNeighbours() throws Exception {
+        final long timeout = 5000;
+
+        PixelsWrapper pixels = SyntheticPixelsReader.createPixels(8, 8, 2, 3, 2);
+        Bounds        bounds = pixels.getBounds(null, null, null, null, null);
+
+        PixelsReaderPool pool = new PixelsReaderPool(2, SyntheticPixelsReader::new);
+        try (PixelsVirtualStack stack = new PixelsVirtualStack(pixels, pool, bounds, 4)) {
+            stack.getProcessor(1);
+            long end = System.currentTimeMillis() + timeout;
+            while (SyntheticPixelsReader.READS.get() < 3 && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            assertEquals(3, SyntheticPixelsReader.READS.get());
+
+            ImageProcessor next = stack.getProcessor(3);
+            assertEquals(SyntheticPixelsReader.value(2, 5, 0, 1, 0), next.get(2, 5));
+            assertTrue(SyntheticPixelsReader.READS.get() >= 3);
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.BasicTest;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class PixelsWriterTest extends BasicTest {
+
+    private final PixelsWrapper pixels = SyntheticPixelsReader.createPixels(256, 256, 2, 1, 3);
+
+
+    private static PixelsArray createArray(int sizeX, int sizeY, int sizeC) {
+        PixelsArray array = new PixelsArray("uint16", sizeX, sizeY, sizeC, 1, 1);
+        for (int c = 0; c < sizeC; c++) {
+            for (int y = 0; y < sizeY; y++) {
+                for (int x = 0; x < sizeX; x++) {
+                    array.setValue(x, y, c, 0, 0, SyntheticPixelsReader.value(x, y, c, 0, 0));
+                }
+            }
+        }
+        return array;
+    }
+
+
+    @Test
+    void testWriteArray() throws Exception {
+        final int tileSize = 64;
+
+        Coordinates  start  = new Coordinates(10, 20, 0, 0, 1);
+        PixelsArray  array  = createArray(100, 70, 2);
+        MemoryWriter writer = new MemoryWriter();
+        pixels.setTilePlan(new TilePlan(tileSize, tileSize, 2, tileSize * tileSize * 2));
+        pixels.write(writer, 3, array, start);
+
+        // X: [10,63] [64,109]; Y: [20,63] [64,89]; 2 channels
+        assertEquals(8, writer.tiles.size());
+        assertTrue(writer.saved);
+
+        PixelsArray result = new PixelsArray("uint16", 256, 256, 2, 1, 3);
+        for (int i = 0; i < writer.tiles.size(); i++) {
+            Coordinates pos  = writer.tiles.get(i);
+            int[]       size = writer.sizes.get(i);
+            result.setRawTile(writer.bytes.get(i), pos, size[0], size[1]);
+        }
+        assertEquals(array.getValue(0, 0, 0, 0, 0), result.getValue(10, 20, 0, 0, 1), DOUBLE_PRECISION);
+        assertEquals(array.getValue(99, 69, 1, 0, 0), result.getValue(109, 89, 1, 0, 1), DOUBLE_PRECISION);
+        assertEquals(array.getValue(54, 64, 1, 0, 0), result.getValue(64, 84, 1, 0, 1), DOUBLE_PRECISION);
+    }
+
+
+    @Test
+    void testWriteArrayOutOfBounds() {
+        PixelsArray  array  = createArray(100, 70, 1);
+        MemoryWriter writer = new MemoryWriter();
+        Coordinates  start  = new Coordinates(200, 0, 0, 0, 0);
+        assertThrows(IndexOutOfBoundsException.class, () -> pixels.write(writer, 1, array, start));
+    }
+
+
+    @Test
+    void testWriteArrayWrongType() {
+        PixelsArray  array  = new PixelsArray("float", 10, 10, 1, 1, 1);
+        MemoryWriter writer = new MemoryWriter();
+        Coordinates  start  = new Coordinates(0, 0, 0, 0, 0);
+        assertThrows(IllegalArgumentException.class, () -> pixels.write(writer, 1, array, start));
+    }
+
+
+    private static class MemoryWriter implements PixelsWriter {
+
+        private final List<Coordinates> tiles = new ArrayList<>();
+
+        private final List<int[]> sizes = new ArrayList<>();
+
+        private final List<byte[]> bytes = new ArrayList<>();
+
+        private boolean saved;
+
+
+        @Override
+        public void setTile(Coordinates start, int width, int height, byte[] tile) {
+            tiles.add(start);
+            sizes.add(new int[]{width, height});
+            bytes.add(tile);
+        }
+
+
+        @Override
+        public void save() {
+            saved = true;
+        }
+
+
+        @Override
+        public void close() {
+            // Nothing to close
+        }
+
+    }
+
+}
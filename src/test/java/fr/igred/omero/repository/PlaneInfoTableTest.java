@@ -0,0 +1,174 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.BasicTest;
+import fr.igred.omero.meta.PlaneInfoWrapper;
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import omero.gateway.model.PlaneInfoData;
+import omero.model.LengthI;
+import omero.model.PlaneInfo;
+import omero.model.PlaneInfoI;
+import omero.model.TimeI;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static ome.units.UNITS.MICROMETER;
+import static ome.units.UNITS.MILLIMETER;
+import static ome.units.UNITS.MILLISECOND;
+import static ome.units.UNITS.SECOND;
+import static omero.rtypes.rint;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class PlaneInfoTableTest extends BasicTest {
+
+    private static List<PlaneInfoData> createPlanes(int sizeC, int sizeZ, int sizeT) {
+        List<PlaneInfoData> planes = new ArrayList<>(sizeC * sizeZ * sizeT);
+        long                id     = 1L;
+        for (int t = 0; t < sizeT; t++) {
+            for (int z = 0; z < sizeZ; z++) {
+                for (int c = 0; c < sizeC; c++) {
+                    PlaneInfo plane = new PlaneInfoI(id++, true);
+                    plane.setTheC(rint(c));
+                    plane.setTheZ(rint(z));
+                    plane.setTheT(rint(t));
+                    plane.setDeltaT(new TimeI(2.5 * t + 0.1 * z, SECOND));
+                    plane.setExposureTime(new TimeI(10.0 * (c + 1), MILLISECOND));
+                    plane.setPositionX(new LengthI(100.0 - t, MICROMETER));
+                    plane.setPositionY(new LengthI(0.5, MILLIMETER));
+                    plane.setPositionZ(new LengthI(z, MICROMETER));
+                    planes.add(new PlaneInfoData(plane));
+                }
+            }
+        }
+        Collections.reverse(planes);
+        return planes;
+    }
+
+
+    private static Bounds createBounds(int c0, int c1, int z0, int z1, int t0, int t1) {
+        return new Bounds(new Coordinates(0, 0, c0, z0, t0), new Coordinates(0, 0, c1, z1, t1));
+    }
+
+
+    @Test
+    void testComputeMeanTimeInterval() {
+        List<PlaneInfoData> planes = createPlanes(2, 3, 5);
+        PlaneInfoTable      table  = new PlaneInfoTable(planes, createBounds(0, 1, 0, 2, 0, 4));
+
+        List<PlaneInfoWrapper> wrappers = new ArrayList<>(planes.size());
+        planes.forEach(p -> wrappers.add(new PlaneInfoWrapper(p)));
+
+        assertEquals(30, table.size());
+        assertEquals(2.5, table.computeMeanTimeInterval(5).getValue(), DOUBLE_PRECISION);
+        assertEquals(PlaneInfoWrapper.computeMeanTimeInterval(wrappers, 5).getValue(),
+                     table.computeMeanTimeInterval(5).getValue(), DOUBLE_PRECISION);
+    }
+
+
+    @Test
+    void testComputeMeanTimeIntervalForCrop() {
+        List<PlaneInfoData> planes = createPlanes(1, 1, 4);
+        planes.removeIf(p -> p.getTheT() == 0);
+        PlaneInfoTable table = new PlaneInfoTable(planes, createBounds(0, 0, 0, 0, 1, 3));
+        assertEquals(2.5, table.computeMeanTimeInterval(4).getValue(), DOUBLE_PRECISION);
+    }
+
+
+    @Test
+    void testComputeMeanExposureTime() {
+        PlaneInfoTable table = new PlaneInfoTable(createPlanes(2, 3, 5), createBounds(0, 1, 0, 2, 0, 4));
+        assertEquals(20.0, table.computeMeanExposureTime(1).getValue(), DOUBLE_PRECISION);
+        assertTrue(Double.isNaN(table.computeMeanExposureTime(2).getValue()));
+    }
+
+
+    @Test
+    void testGetMinPositions() {
+        PlaneInfoTable table = new PlaneInfoTable(createPlanes(2, 3, 5), createBounds(0, 1, 0, 2, 0, 4));
+        assertEquals(96.0, table.getMinPositionX(MICROMETER).getValue(), DOUBLE_PRECISION);
+        assertEquals(500.0, table.getMinPositionY(MICROMETER).getValue(), DOUBLE_PRECISION);
+        assertEquals(0.0, table.getMinPositionZ(MILLIMETER).getValue(), DOUBLE_PRECISION);
+        assertEquals(0.0, PlaneInfoTable.empty().getMinPositionX(MICROMETER).getValue(), DOUBLE_PRECISION);
+    }
+
+
+    @Test
+    void testCovers() {
+        PlaneInfoTable table = new PlaneInfoTable(createPlanes(2, 3, 5), createBounds(0, 1, 1, 2, 2, 4));
+        assertTrue(table.covers(createBounds(1, 1, 1, 1, 3, 4)));
+        assertFalse(table.covers(createBounds(0, 1, 0, 2, 2, 4)));
+        assertFalse(PlaneInfoTable.empty().covers(createBounds(0, 0, 0, 0, 0, 0)));
+    }
+
+
+    @Test
+    void testCoversMergedRanges() {
+        PlaneInfoTable table = PlaneInfoTable.empty()
+                                             .merge(new ArrayList<>(0), createBounds(0, 1, 0, 0, 0, 4))
+                                             .merge(new ArrayList<>(0), createBounds(0, 1, 1, 2, 0, 4));
+        assertTrue(table.covers(createBounds(0, 1, 0, 2, 0, 4)));
+        assertFalse(table.covers(createBounds(0, 2, 0, 2, 0, 4)));
+    }
+
+
+    @Test
+    void testMerge() {
+        List<PlaneInfoData> planes = createPlanes(2, 3, 5);
+        List<PlaneInfoData> first  = new ArrayList<>(planes);
+        List<PlaneInfoData> second = new ArrayList<>(planes);
+        first.removeIf(p -> p.getTheZ() < 1 || p.getTheT() < 2);
+        second.removeIf(p -> p.getTheC() != 1 || p.getTheZ() != 0 || p.getTheT() > 1);
+
+        PlaneInfoTable table  = PlaneInfoTable.empty().merge(first, createBounds(0, 1, 1, 2, 2, 4));
+        PlaneInfoTable merged = table.merge(second, createBounds(1, 1, 0, 0, 0, 1));
+        assertEquals(12, table.size());
+        assertEquals(14, merged.size());
+        assertTrue(merged.covers(createBounds(0, 1, 1, 2, 2, 4)));
+        assertTrue(merged.covers(createBounds(1, 1, 0, 0, 0, 1)));
+        assertFalse(merged.covers(createBounds(0, 1, 0, 2, 0, 4)));
+        assertFalse(table.covers(createBounds(1, 1, 0, 0, 0, 1)));
+
+        List<PlaneInfoData> overlap = new ArrayList<>(planes);
+        overlap.removeIf(p -> p.getTheZ() < 1 || p.getTheT() != 2);
+        PlaneInfoTable reloaded = merged.merge(overlap, createBounds(0, 1, 1, 2, 2, 2));
+        assertEquals(14, reloaded.size());
+        assertEquals(merged.getMinPositionX(MICROMETER).getValue(),
+                     reloaded.getMinPositionX(MICROMETER).getValue(), DOUBLE_PRECISION);
+    }
+
+
+    @Test
+    void testToWrappers() {
+        PlaneInfoTable         table    = new PlaneInfoTable(createPlanes(1, 2, 2), createBounds(0, 0, 0, 1, 0, 1));
+        List<PlaneInfoWrapper> wrappers = table.toWrappers();
+        assertEquals(4, wrappers.size());
+        assertEquals(1L, wrappers.get(0).getId());
+        assertEquals(1, wrappers.get(3).getTheT());
+        assertEquals(1, wrappers.get(3).getTheZ());
+        assertEquals(2.6, wrappers.get(3).getDeltaT().getValue(), DOUBLE_PRECISION);
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.BasicTest;
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class PlaneStreamTest extends BasicTest {
+
+
+    @BeforeEach
+    void reset() {
+        SyntheticPixelsReader.reset();
+    }
+
+
+    @Test
+    void testGetPositionsOrder() {
+        PixelsWrapper pixels = SyntheticPixelsReader.createPixels(4, 4, 2, 3, 2);
+        Bounds        bounds = pixels.getBounds(null, null, null, new int[]{1, 2}, null);
+
+        List<Coordinates> positions = PlaneStream.getPositions(bounds, "tcz");
+
+        assertEquals(2 * 2 * 2, positions.size());
+        assertEquals(1, positions.get(1).getT());
+        assertEquals(1, positions.get(2).getC());
+        assertEquals(2, positions.get(4).getZ());
+        assertEquals(0, positions.get(4).getC());
+    }
+
+
+    @Test
+    void testInvalidOrder() {
+        PixelsWrapper pixels = SyntheticPixelsReader.createPixels(4, 4, 2, 3, 2);
+        Bounds        bounds = pixels.getBounds(null, null, null, null, null);
+        assertThrows(IllegalArgumentException.class, () -> PlaneStream.getPositions(bounds, "CZZ"));
+    }
+
+
+    @Test
+    void testForEachPlane() throws Exception {
+        final int prefetch = 2;
+
+        PixelsWrapper     pixels    = SyntheticPixelsReader.createPixels(20, 10, 2, 3, 4);
+        Bounds            bounds    = pixels.getBounds(new int[]{2, 17}, null, null, null, null);
+        List<Coordinates> positions = new ArrayList<>(24);
+        try (PixelsReaderPool pool = new PixelsReaderPool(prefetch, SyntheticPixelsReader::new)) {
+            pixels.forEachPlane(pool, bounds, "ZTC", prefetch, (pos, plane) -> {
+                assertTrue(SyntheticPixelsReader.READS.get() <= positions.size() + 1 + prefetch);
+                assertEquals(16, plane.getSizeX());
+                int expected = SyntheticPixelsReader.value(5, 7, pos.getC(), pos.getZ(), pos.getT());
+                assertEquals(expected, plane.getValue(3, 7, 0, 0, 0), DOUBLE_PRECISION);
+                positions.add(pos);
+            });
+        }
+
+        assertEquals(2 * 3 * 4, positions.size());
+        assertEquals(1, positions.get(1).getZ());
+        assertEquals(1, positions.get(3).getT());
+        assertEquals(1, positions.get(12).getC());
+        assertEquals(0, SyntheticPixelsReader.OPEN.get());
+    }
+
+}
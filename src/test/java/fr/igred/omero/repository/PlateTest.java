@@ -58,6 +58,23 @@ class PlateTest extends UserTest {
     }
 
 
+    @Test
+    void testGetImagesWithKeyValuePair() throws Exception {
+        PlateWrapper plate = client.getPlate(PLATE1.id);
+        ImageWrapper image = plate.getImages(client).get(0);
+        image.addKeyValuePair(client, "plateKey", "plateValue");
+
+        List<ImageWrapper> withKey   = plate.getImagesWithKey(client, "plateKey");
+        List<ImageWrapper> withPair  = plate.getImagesWithKeyValuePair(client, "plateKey", "plateValue");
+        List<ImageWrapper> noneFound = plate.getImagesWithKeyValuePair(client, "plateKey", "otherValue");
+        client.delete(image.getMapAnnotations(client));
+
+        assertEquals(1, withKey.size());
+        assertEquals(image.getId(), withPair.get(0).getId());
+        assertEquals(0, noneFound.size());
+    }
+
+
     @Test
     void testGetWellsFromPlate() throws Exception {
         PlateWrapper      plate = client.getPlate(PLATE1.id);
@@ -18,6 +18,7 @@
 package fr.igred.omero.repository;
 
 
+import fr.igred.omero.NamePattern;
 import fr.igred.omero.UserTest;
 import fr.igred.omero.annotations.FileAnnotationWrapper;
 import fr.igred.omero.annotations.MapAnnotationWrapper;
@@ -237,6 +238,16 @@ class ProjectTest extends UserTest {
     }
 
 
+    @Test
+    void testGetImagesLikePatternInProject() throws Exception {
+        ProjectWrapper project = client.getProject(PROJECT1.id);
+
+        List<ImageWrapper> images = project.getImagesLike(client, NamePattern.endsWith(".fake"), 0, 2);
+
+        assertEquals(2, images.size());
+    }
+
+
     @Test
     void testGetImagesTaggedInProject() throws Exception {
         ProjectWrapper project = client.getProject(PROJECT1.id);
@@ -258,6 +269,23 @@ class ProjectTest extends UserTest {
     }
 
 
+    @Test
+    void testGetImagesTaggedInSeveralDatasets() throws Exception {
+        ProjectWrapper project = client.getProject(PROJECT1.id);
+        ImageWrapper   image   = client.getImage(IMAGE1.id);
+
+        DatasetWrapper dataset = project.addDataset(client, "Tagged copy", "Dataset which will be deleted");
+        dataset.addImage(client, image);
+
+        List<ImageWrapper> images = project.getImagesTagged(client, TAG1.id);
+
+        dataset.removeImage(client, image);
+        client.delete(dataset);
+
+        assertEquals(2, images.size());
+    }
+
+
     @Test
     void testGetImagesKeyInProject() throws Exception {
         ProjectWrapper project = client.getProject(PROJECT1.id);
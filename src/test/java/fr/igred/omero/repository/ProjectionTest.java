@@ -0,0 +1,93 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.BasicTest;
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import fr.igred.omero.repository.PixelsWrapper.ProjectionAxis;
+import fr.igred.omero.repository.PixelsWrapper.ProjectionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+class ProjectionTest extends BasicTest {
+
+    private final PixelsWrapper pixels = SyntheticPixelsReader.createPixels(24, 16, 2, 3, 4);
+
+
+    @BeforeEach
+    void reset() {
+        SyntheticPixelsReader.reset();
+    }
+
+
+    private PixelsArray project(ProjectionType type, ProjectionAxis axis) throws Exception {
+        Bounds bounds = pixels.getBounds(new int[]{4, 19}, null, null, null, null);
+        try (PixelsReaderPool pool = new PixelsReaderPool(3, SyntheticPixelsReader::new)) {
+            return pixels.project(pool, bounds, type, axis);
+        }
+    }
+
+
+    @Test
+    void testMaxProjectionAlongZ() throws Exception {
+        PixelsArray projection = project(ProjectionType.MAX, ProjectionAxis.Z);
+
+        assertEquals(16, projection.getSizeX());
+        assertEquals(2, projection.getSizeC());
+        assertEquals(1, projection.getSizeZ());
+        assertEquals(4, projection.getSizeT());
+        assertEquals(SyntheticPixelsReader.value(9, 7, 1, 2, 3), projection.getValue(5, 7, 1, 0, 3), DOUBLE_PRECISION);
+        assertEquals(2 * 3 * 4, SyntheticPixelsReader.READS.get());
+    }
+
+
+    @Test
+    void testMinProjectionAlongT() throws Exception {
+        PixelsArray projection = project(ProjectionType.MIN, ProjectionAxis.T);
+
+        assertEquals(3, projection.getSizeZ());
+        assertEquals(1, projection.getSizeT());
+        assertEquals(SyntheticPixelsReader.value(4, 2, 0, 1, 0), projection.getValue(0, 2, 0, 1, 0), DOUBLE_PRECISION);
+    }
+
+
+    @Test
+    void testMeanAndSumProjections() throws Exception {
+        PixelsArray mean = project(ProjectionType.MEAN, ProjectionAxis.Z);
+        PixelsArray sum  = project(ProjectionType.SUM, ProjectionAxis.Z);
+
+        double expected = SyntheticPixelsReader.value(6, 3, 1, 1, 2);
+        assertEquals(expected, mean.getValue(2, 3, 1, 0, 2), DOUBLE_PRECISION);
+        assertEquals(3 * expected, sum.getValue(2, 3, 1, 0, 2), DOUBLE_PRECISION);
+    }
+
+
+    @Test
+    void testStandardDeviationProjection() throws Exception {
+        final double step      = 211;
+        final double tolerance = 1.0e-9;
+
+        PixelsArray sd = project(ProjectionType.SD, ProjectionAxis.Z);
+        assertEquals(step, sd.getValue(2, 3, 1, 0, 2), tolerance);
+    }
+
+}
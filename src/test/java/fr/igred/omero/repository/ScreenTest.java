@@ -57,6 +57,20 @@ class ScreenTest extends UserTest {
     }
 
 
+    @Test
+    void testGetImagesWithKey() throws Exception {
+        ScreenWrapper screen = client.getScreen(SCREEN2.id);
+        ImageWrapper  image  = screen.getImages(client).get(0);
+        image.addKeyValuePair(client, "screenKey", "screenValue");
+
+        List<ImageWrapper> images = screen.getImagesWithKey(client, "screenKey");
+        client.delete(image.getMapAnnotations(client));
+
+        assertEquals(1, images.size());
+        assertEquals(image.getId(), images.get(0).getId());
+    }
+
+
     @Test
     void testGetPlatesFromScreen() throws Exception {
         ScreenWrapper      screen = client.getScreen(SCREEN2.id);
@@ -0,0 +1,64 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.BasicTest;
+import fr.igred.omero.roi.LineWrapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+class ShapePixelsTest extends BasicTest {
+
+    private final PixelsWrapper pixels = SyntheticPixelsReader.createPixels(256, 256, 2, 1, 1);
+
+
+    @BeforeEach
+    void reset() {
+        SyntheticPixelsReader.reset();
+    }
+
+
+    @Test
+    void testReadShapePixelsOnlyReadsIntersectingTiles() throws Exception {
+        final int tileSize = 64;
+
+        LineWrapper line = new LineWrapper(0, 0, 255, 255);
+
+        List<ShapePixels> shapes = new ArrayList<>(2);
+        shapes.add(new ShapePixels(line, 0, 0, 0, line.getContainedPoints()));
+        shapes.add(new ShapePixels(line, 1, 0, 0, line.getContainedPoints()));
+
+        pixels.setTilePlan(new TilePlan(tileSize, tileSize, 2, tileSize * tileSize * 2));
+        try (PixelsReaderPool pool = new PixelsReaderPool(2, SyntheticPixelsReader::new)) {
+            pixels.readShapePixels(pool, shapes);
+        }
+
+        assertEquals(2 * 4, SyntheticPixelsReader.READS.get());
+        assertEquals(256, shapes.get(1).size());
+        assertEquals(100, shapes.get(1).getX(100));
+        assertEquals(SyntheticPixelsReader.value(100, 100, 1, 0, 0), shapes.get(1).getValue(100), DOUBLE_PRECISION);
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import omero.gateway.model.PixelsData;
+import omero.model.PixelsI;
+import omero.model.PixelsTypeI;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static omero.rtypes.rint;
+import static omero.rtypes.rstring;
+
+
+/**
+ * Local stand-in for a raw pixels store, returning uint16 values computed from the pixel coordinates.
+ */
+class SyntheticPixelsReader implements PixelsReader {
+
+    /** Native tile size */
+    static final int TILE_SIZE = 64;
+
+    /** Size of the full resolution level */
+    static final int FULL_SIZE = 1024;
+
+    /** Number of resolution levels */
+    static final int LEVELS = 3;
+
+    /** Number of readers currently open */
+    static final AtomicInteger OPEN = new AtomicInteger(0);
+
+    /** Maximum number of readers open at the same time */
+    static final AtomicInteger MAX_OPEN = new AtomicInteger(0);
+
+    /** Number of tiles read */
+    static final AtomicInteger READS = new AtomicInteger(0);
+
+
+    /** Current resolution level */
+    private int level;
+
+
+    SyntheticPixelsReader() {
+        MAX_OPEN.accumulateAndGet(OPEN.incrementAndGet(), Math::max);
+    }
+
+
+    static void reset() {
+        OPEN.set(0);
+        MAX_OPEN.set(0);
+        READS.set(0);
+    }
+
+
+    static int value(int x, int y, int c, int z, int t) {
+        return (x + 3 * y + 101 * c + 211 * z + 307 * t) & 0xFFFF;
+    }
+
+
+    static PixelsWrapper createPixels(int sizeX, int sizeY, int sizeC, int sizeZ, int sizeT) {
+        PixelsI pixels = new PixelsI(1L, true);
+        pixels.setSizeX(rint(sizeX));
+        pixels.setSizeY(rint(sizeY));
+        pixels.setSizeC(rint(sizeC));
+        pixels.setSizeZ(rint(sizeZ));
+        pixels.setSizeT(rint(sizeT));
+
+        PixelsTypeI type = new PixelsTypeI();
+        type.setValue(rstring("uint16"));
+        pixels.setPixelsType(type);
+        return new PixelsWrapper(new PixelsData(pixels));
+    }
+
+
+    @Override
+    public byte[] getTile(Coordinates start, int width, int height) {
+        READS.incrementAndGet();
+        ByteBuffer buffer = ByteBuffer.allocate(width * height * Short.BYTES);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                buffer.putShort((short) value((start.getX() + x) << level,
+                                              (start.getY() + y) << level,
+                                              start.getC(),
+                                              start.getZ(),
+                                              start.getT()));
+            }
+        }
+        return buffer.array();
+    }
+
+
+    @Override
+    public int[] getTileSize() {
+        return new int[]{TILE_SIZE, TILE_SIZE};
+    }
+
+
+    @Override
+    public int getBytesPerPixel() {
+        return Short.BYTES;
+    }
+
+
+    @Override
+    public List<ResolutionLevel> getResolutionLevels() {
+        List<ResolutionLevel> levels = new ArrayList<>(LEVELS);
+        for (int i = 0; i < LEVELS; i++) {
+            levels.add(new ResolutionLevel(i, FULL_SIZE >> i, FULL_SIZE >> i));
+        }
+        return levels;
+    }
+
+
+    @Override
+    public void setResolutionLevel(int level) {
+        this.level = level;
+    }
+
+
+    @Override
+    public void close() {
+        OPEN.decrementAndGet();
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.BasicTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+class ThumbnailCacheTest extends BasicTest {
+
+    private static final Timestamp UPDATED = new Timestamp(1_600_000_000_000L);
+
+    private Path directory;
+
+
+    private static byte[] createThumbnail(int length) {
+        byte[] thumbnail = new byte[length];
+        for (int i = 0; i < thumbnail.length; i++) {
+            thumbnail[i] = (byte) i;
+        }
+        return thumbnail;
+    }
+
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    @BeforeEach
+    void createDirectory() throws Exception {
+        directory = Files.createTempDirectory("thumbnails");
+    }
+
+
+    @AfterEach
+    void deleteDirectory() throws Exception {
+        new ThumbnailCache(directory, 0, 0).clear();
+        Files.deleteIfExists(directory);
+    }
+
+
+    @Test
+    void testHitAndMissAfterReopening() throws Exception {
+        byte[] thumbnail = createThumbnail(32);
+
+        ThumbnailCache cache = new ThumbnailCache(directory, 1024, 4);
+        assertNull(cache.get(1L, 96, UPDATED));
+        cache.put(1L, 96, UPDATED, thumbnail);
+        assertArrayEquals(thumbnail, cache.get(1L, 96, UPDATED));
+        assertNull(cache.get(1L, 64, UPDATED));
+
+        ThumbnailCache reopened = new ThumbnailCache(directory, 1024, 4);
+        assertEquals(32, reopened.getSize());
+        assertArrayEquals(thumbnail, reopened.get(1L, 96, UPDATED));
+        assertEquals(1, reopened.getHits());
+    }
+
+
+    @Test
+    void testStaleThumbnailIsReplaced() throws Exception {
+        Timestamp modified = new Timestamp(UPDATED.getTime() + 1000);
+
+        ThumbnailCache cache = new ThumbnailCache(directory, 1024, 4);
+        cache.put(1L, 96, UPDATED, createThumbnail(32));
+        assertNull(cache.get(1L, 96, modified));
+
+        cache.put(1L, 96, modified, createThumbnail(16));
+        assertEquals(16, cache.getSize());
+        assertNull(cache.get(1L, 96, UPDATED));
+    }
+
+
+    @Test
+    void testOlderThumbnailDoesNotReplaceNewer() throws Exception {
+        Timestamp modified = new Timestamp(UPDATED.getTime() + 1000);
+
+        ThumbnailCache cache = new ThumbnailCache(directory, 1024, 4);
+        cache.put(1L, 96, modified, createThumbnail(16));
+        cache.put(1L, 96, UPDATED, createThumbnail(32));
+
+        assertEquals(16, cache.getSize());
+        assertNull(cache.get(1L, 96, UPDATED));
+        assertArrayEquals(createThumbnail(16), cache.get(1L, 96, modified));
+    }
+
+
+    @Test
+    void testEviction() throws Exception {
+        ThumbnailCache cache = new ThumbnailCache(directory, 100, 1);
+        cache.put(1L, 96, UPDATED, createThumbnail(40));
+        cache.put(2L, 96, UPDATED, createThumbnail(40));
+        cache.get(1L, 96, UPDATED);
+        cache.put(3L, 96, UPDATED, createThumbnail(40));
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(80, cache.getSize());
+        assertNull(cache.get(2L, 96, UPDATED));
+        assertArrayEquals(createThumbnail(40), cache.get(1L, 96, UPDATED));
+    }
+
+
+    @Test
+    void testConcurrentRequestsLoadOnce() throws Exception {
+        ThumbnailCache cache     = new ThumbnailCache(directory, 1024, 4);
+        AtomicInteger  loads     = new AtomicInteger(0);
+        CountDownLatch started   = new CountDownLatch(1);
+        CountDownLatch release   = new CountDownLatch(1);
+        byte[]         thumbnail = createThumbnail(32);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<byte[]> first = executor.submit(() -> cache.get(1L, 96, UPDATED, () -> {
+                loads.incrementAndGet();
+                started.countDown();
+                await(release);
+                return thumbnail;
+            }));
+            started.await();
+            Future<byte[]> second = executor.submit(() -> cache.get(1L, 96, UPDATED, () -> {
+                loads.incrementAndGet();
+                return thumbnail;
+            }));
+            release.countDown();
+
+            assertArrayEquals(thumbnail, first.get());
+            assertArrayEquals(thumbnail, second.get());
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.BasicTest;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+class TileCacheTest extends BasicTest {
+
+
+    private static byte[] createTile(int width, int height) {
+        byte[] tile = new byte[width * height];
+        for (int i = 0; i < tile.length; i++) {
+            tile[i] = (byte) i;
+        }
+        return tile;
+    }
+
+
+    @Test
+    void testHitAndMiss() {
+        TileCache   cache = new TileCache(1024);
+        Coordinates start = new Coordinates(0, 0, 0, 0, 0);
+        byte[]      tile  = createTile(4, 4);
+
+        assertNull(cache.get(1L, start, 4, 4));
+        cache.put(1L, start, 4, 4, tile);
+        assertArrayEquals(tile, cache.get(1L, start, 4, 4));
+        assertNull(cache.get(2L, start, 4, 4));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(16, cache.getSize());
+    }
+
+
+    @Test
+    void testSubTile() {
+        TileCache cache = new TileCache(1024);
+        cache.put(1L, new Coordinates(10, 20, 1, 2, 3), 4, 4, createTile(4, 4));
+
+        byte[] sub = cache.get(1L, new Coordinates(11, 21, 1, 2, 3), 2, 3);
+        assertArrayEquals(new byte[]{5, 6, 9, 10, 13, 14}, sub);
+        assertNull(cache.get(1L, new Coordinates(11, 21, 0, 2, 3), 2, 3));
+        assertNull(cache.get(1L, new Coordinates(13, 21, 1, 2, 3), 2, 3));
+    }
+
+
+    @Test
+    void testSubTileAmongSeveralTiles() {
+        TileCache cache = new TileCache(1024);
+        cache.put(1L, new Coordinates(0, 0, 0, 0, 0), 8, 2, createTile(8, 2));
+        cache.put(1L, new Coordinates(8, 0, 0, 0, 0), 4, 4, createTile(4, 4));
+        cache.put(1L, new Coordinates(8, 0, 1, 0, 0), 4, 4, createTile(4, 4));
+
+        assertArrayEquals(new byte[]{5, 6}, cache.get(1L, new Coordinates(5, 0, 0, 0, 0), 2, 1));
+        assertArrayEquals(new byte[]{9, 10}, cache.get(1L, new Coordinates(9, 2, 0, 0, 0), 2, 1));
+        assertNull(cache.get(1L, new Coordinates(7, 0, 0, 0, 0), 2, 1));
+
+        cache.invalidate(1L);
+        assertNull(cache.get(1L, new Coordinates(9, 2, 0, 0, 0), 2, 1));
+        assertEquals(0, cache.getSize());
+    }
+
+
+    @Test
+    void testEviction() {
+        TileCache cache = new TileCache(40);
+        cache.put(1L, new Coordinates(0, 0, 0, 0, 0), 4, 4, createTile(4, 4));
+        cache.put(1L, new Coordinates(0, 0, 1, 0, 0), 4, 4, createTile(4, 4));
+        cache.get(1L, new Coordinates(0, 0, 0, 0, 0), 4, 4);
+        cache.put(1L, new Coordinates(0, 0, 2, 0, 0), 4, 4, createTile(4, 4));
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(32, cache.getSize());
+        assertNull(cache.get(1L, new Coordinates(0, 0, 1, 0, 0), 4, 4));
+    }
+
+
+    @Test
+    void testInvalidate() {
+        TileCache cache = new TileCache(1024);
+        cache.put(1L, new Coordinates(0, 0, 0, 0, 0), 4, 4, createTile(4, 4));
+        cache.put(2L, new Coordinates(0, 0, 0, 0, 0), 4, 4, createTile(4, 4));
+        cache.invalidate(1L);
+
+        assertEquals(16, cache.getSize());
+        assertNull(cache.get(1L, new Coordinates(0, 0, 0, 0, 0), 4, 4));
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.BasicTest;
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import fr.igred.omero.repository.PixelsWrapper.Coordinates;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class TilePlanTest extends BasicTest {
+
+
+    @Test
+    void testRequestsAlignedOnNativeTiles() {
+        final long maxBytes = 512L * 512 * 2;
+
+        TilePlan     plan  = new TilePlan(256, 256, 2, maxBytes);
+        Bounds       lim   = new Bounds(new Coordinates(100, 300, 0, 0, 0), new Coordinates(1299, 1099, 1, 0, 0));
+        List<Bounds> tiles = plan.split(lim);
+
+        assertEquals(512, plan.getRequestWidth());
+        assertEquals(512, plan.getRequestHeight());
+        assertEquals(2 * 3 * 3, tiles.size());
+        assertEquals(511, tiles.get(0).getEnd().getX());
+        assertEquals(511, tiles.get(0).getEnd().getY());
+        assertEquals(512, tiles.get(1).getStart().getX());
+        for (Bounds tile : tiles) {
+            Coordinates size = tile.getSize();
+            assertTrue((long) size.getX() * size.getY() * 2 <= maxBytes);
+        }
+    }
+
+
+    @Test
+    void testPayloadDependsOnBytesPerPixel() {
+        TilePlan small = new TilePlan(1, 1, 1, 1024 * 1024);
+        TilePlan large = new TilePlan(1, 1, 8, 1024 * 1024);
+
+        assertEquals(1024, small.getRequestWidth());
+        assertEquals(362, large.getRequestWidth());
+        assertTrue((long) large.getRequestWidth() * large.getRequestHeight() * 8 <= 1024 * 1024);
+    }
+
+
+    @Test
+    void testLargeNativeTilesAreSplitInStrips() {
+        TilePlan plan = new TilePlan(4096, 4096, 4, 4096 * 100 * 4);
+        assertEquals(4096, plan.getRequestWidth());
+        assertEquals(100, plan.getRequestHeight());
+    }
+
+
+    @Test
+    void testNarrowRegionUsesTallerRequests() {
+        TilePlan     plan  = new TilePlan(16, 16, 2, 64 * 64 * 2);
+        Bounds       lim   = new Bounds(new Coordinates(0, 0, 0, 0, 0), new Coordinates(15, 999, 0, 0, 0));
+        List<Bounds> tiles = plan.split(lim);
+
+        assertEquals(4, tiles.size());
+        assertEquals(256, tiles.get(0).getSize().getY());
+    }
+
+
+    @Test
+    void testInvalidPlan() {
+        assertThrows(IllegalArgumentException.class, () -> new TilePlan(0, 256, 2, 1024));
+    }
+
+}
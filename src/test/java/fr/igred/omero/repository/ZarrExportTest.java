@@ -0,0 +1,125 @@
+/*
+ *  Copyright (C) 2020-2024 GReD
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51 Franklin
+ * Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package fr.igred.omero.repository;
+
+
+import fr.igred.omero.BasicTest;
+import fr.igred.omero.repository.PixelsWrapper.Bounds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class ZarrExportTest extends BasicTest {
+
+    private static final int CHUNK_SIZE = 64;
+
+    private final PixelsWrapper pixels = SyntheticPixelsReader.createPixels(150, 100, 2, 1, 3);
+
+    private Path directory;
+
+
+    private static byte[] inflate(Path file, int length) throws Exception {
+        Inflater inflater = new Inflater();
+        byte[]   bytes    = new byte[length];
+        inflater.setInput(Files.readAllBytes(file));
+        int read = inflater.inflate(bytes);
+        assertTrue(inflater.finished());
+        inflater.end();
+        assertEquals(length, read);
+        return bytes;
+    }
+
+
+    private int export(int chunkSize) throws Exception {
+        Bounds lim = pixels.getBounds(null, null, new int[]{1, 1}, null, new int[]{0, 1});
+        try (PixelsReaderPool pool = new PixelsReaderPool(3, SyntheticPixelsReader::new)) {
+            return pixels.exportZarr(pool, lim, directory, chunkSize, ZarrWriter.DEFAULT_COMPRESSION_LEVEL);
+        }
+    }
+
+
+    @BeforeEach
+    void createDirectory() throws Exception {
+        SyntheticPixelsReader.reset();
+        pixels.setTilePlan(new TilePlan(CHUNK_SIZE, CHUNK_SIZE, 2, CHUNK_SIZE * CHUNK_SIZE * 2));
+        directory = Files.createTempDirectory("zarr");
+    }
+
+
+    @AfterEach
+    void deleteDirectory() throws Exception {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+
+    @Test
+    void testExportZarr() throws Exception {
+        assertEquals(12, export(CHUNK_SIZE));
+        assertEquals(12, SyntheticPixelsReader.READS.get());
+
+        String array = new String(Files.readAllBytes(directory.resolve("0/.zarray")), StandardCharsets.UTF_8);
+        assertTrue(array.contains("\"shape\":[2,1,1,100,150]"));
+        assertTrue(array.contains("\"dtype\":\">u2\""));
+        assertTrue(Files.exists(directory.resolve(".zgroup")));
+        assertTrue(Files.exists(directory.resolve(".zattrs")));
+
+        ByteBuffer chunk = ByteBuffer.wrap(inflate(directory.resolve("0/1/0/0/1/2"), CHUNK_SIZE * CHUNK_SIZE * 2));
+        assertEquals(SyntheticPixelsReader.value(133, 67, 1, 0, 1), chunk.getShort((3 * CHUNK_SIZE + 5) * 2) & 0xFFFF);
+        assertEquals(0, chunk.getShort((40 * CHUNK_SIZE + 30) * 2));
+    }
+
+
+    @Test
+    void testExportZarrResumes() throws Exception {
+        export(CHUNK_SIZE);
+        Path missing = directory.resolve("0/0/0/0/1/1");
+        Files.delete(missing);
+        assertFalse(Files.exists(missing));
+
+        SyntheticPixelsReader.reset();
+        assertEquals(1, export(CHUNK_SIZE));
+        assertEquals(1, SyntheticPixelsReader.READS.get());
+        assertTrue(Files.exists(missing));
+    }
+
+
+    @Test
+    void testExportZarrMismatch() throws Exception {
+        export(CHUNK_SIZE);
+        assertThrows(IOException.class, () -> export(CHUNK_SIZE / 2));
+    }
+
+}
@@ -28,6 +28,7 @@ import omero.gateway.model.TextData;
 import org.junit.jupiter.api.Test;
 
 import java.awt.Color;
+import java.awt.Point;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
@@ -40,6 +41,8 @@ import java.util.List;
 
 import static java.lang.Math.abs;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 class ShapeTest extends BasicTest {
@@ -693,4 +696,34 @@ class ShapeTest extends BasicTest {
         }
     }
 
+
+    @Test
+    void testContainedPointsRectangle() {
+        RectangleWrapper rectangle = new RectangleWrapper(2, 3, 4, 5);
+        List<Point>      points    = rectangle.getContainedPoints();
+
+        assertEquals(20, points.size());
+        assertTrue(points.contains(new Point(2, 3)));
+        assertTrue(points.contains(new Point(5, 7)));
+        assertFalse(points.contains(new Point(6, 7)));
+    }
+
+
+    @Test
+    void testContainedPointsLine() {
+        LineWrapper line   = new LineWrapper(0, 0, 10, 10);
+        List<Point> points = line.getContainedPoints();
+
+        assertEquals(11, points.size());
+        assertTrue(points.contains(new Point(5, 5)));
+        assertFalse(points.contains(new Point(5, 6)));
+    }
+
+
+    @Test
+    void testContainedPointsPoint() {
+        PointWrapper point = new PointWrapper(3.5, 4.2);
+        assertEquals(new Point(3, 4), point.getContainedPoints().get(0));
+    }
+
 }